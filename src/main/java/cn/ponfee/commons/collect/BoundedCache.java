@@ -0,0 +1,1037 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.collect;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ * Concurrent bounded cache, the {@link ConcurrentMap} facade can be used to replace {@link LRUCache}.
+ *
+ * 1、数据存放在ConcurrentHashMap中，读操作无锁
+ * 2、读操作的访问记录写入按线程分段的有损环形缓冲区(striped lossy ring buffer)，
+ *    缓冲区满或有写操作时由持有淘汰锁的线程批量回放(drain)
+ * 3、淘汰策略：
+ *    CLOCK     ：二次机会算法，访问置引用位，时钟指针扫描时清除引用位，淘汰引用位为0的节点
+ *    W_TINY_LFU：新数据先进入LRU窗口(1%容量)，窗口溢出的候选者与主区CLOCK淘汰者比较
+ *                Count-Min Sketch估算的访问频率，频率高者留下(TinyLFU准入)
+ * 4、容量可按条目数或权重(Weigher)计算
+ * 5、支持expireAfterWrite、expireAfterAccess(空闲过期)与refreshAfterWrite(异步刷新，刷新期间返回旧值)
+ * 6、命中/未命中/淘汰/加载统计
+ * </pre>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author Ponfee
+ * @see <a href="https://github.com/ben-manes/caffeine/wiki/Efficiency">W-TinyLFU</a>
+ */
+public class BoundedCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    private final static Logger LOG = LoggerFactory.getLogger(BoundedCache.class);
+
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+    private static final int READ_BUFFER_STRIPES = ceilingPowerOfTwo(NCPU << 1);
+
+    public enum EvictionPolicy {
+        CLOCK, W_TINY_LFU
+    }
+
+    /**
+     * Calculates the weight of cache entry
+     */
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final Weigher<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final long refreshAfterWriteNanos;
+    private final Function<? super K, ? extends V> loader;
+    private final Executor executor;
+
+    private final ReadBuffer<K, V>[] readBuffers;
+
+    // 以下字段由evictionLock保护
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final Node<K, V> window = Node.sentinel(); // LRU window, head.next is the eldest
+    private final Node<K, V> main = Node.sentinel();   // CLOCK ring
+    private Node<K, V> hand = main;
+    private long windowWeight = 0;
+    private long mainWeight = 0;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+
+    private BoundedCache(Builder<K, V> builder) {
+        this.data = new ConcurrentHashMap<>(builder.initialCapacity);
+        this.maximumWeight = builder.maximumWeight;
+        this.weigher = builder.weigher;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        this.refreshAfterWriteNanos = builder.refreshAfterWriteNanos;
+        this.loader = builder.loader;
+        this.executor = builder.executor != null ? builder.executor : ForkJoinPool.commonPool();
+
+        if (builder.policy == EvictionPolicy.W_TINY_LFU) {
+            this.windowMaximum = Math.min(maximumWeight, Math.max(1, maximumWeight / 100));
+            this.sketch = new FrequencySketch(maximumWeight);
+        } else {
+            this.windowMaximum = 0;
+            this.sketch = null;
+        }
+
+        @SuppressWarnings("unchecked")
+        ReadBuffer<K, V>[] buffers = (ReadBuffer<K, V>[]) new ReadBuffer<?, ?>[READ_BUFFER_STRIPES];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new ReadBuffer<>();
+        }
+        this.readBuffers = buffers;
+    }
+
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    // ----------------------------------------------------------------------read operations
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+
+        long now = (expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0 || refreshAfterWriteNanos > 0) ? System.nanoTime() : 0;
+        if (isExpired(node, now)) {
+            missCount.increment();
+            removeNode(node);
+            return null;
+        }
+        if (expireAfterAccessNanos > 0) {
+            node.accessNanos = now;
+        }
+
+        hitCount.increment();
+        afterRead(node);
+        if (refreshAfterWriteNanos > 0 && loader != null && now - node.writeNanos >= refreshAfterWriteNanos) {
+            refresh(node);
+        }
+        return node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Node<K, V> node = data.get(key);
+        return node != null && !isExpired(node, System.nanoTime());
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    // ----------------------------------------------------------------------write operations
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    /**
+     * Returns the value of key, if absent then load by the mapping function.
+     * Load runs inside the key's bin lock, so the same key only load once at same time.
+     *
+     * @param key             the key
+     * @param mappingFunction the mapping function
+     * @return value
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+
+        long now = System.nanoTime();
+        WriteResult<K, V> result = new WriteResult<>();
+        Node<K, V> node = data.compute(key, (k, prior) -> {
+            if (prior != null) {
+                if (!isExpired(prior, now)) {
+                    return prior;
+                }
+                prior.retired = true;
+                result.removed = prior;
+            }
+            V loaded = load(k, mappingFunction);
+            return loaded == null ? null : (result.added = new Node<>(k, loaded, weigh(k, loaded), now));
+        });
+        afterWrite(result);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public V remove(Object key) {
+        long now = System.nanoTime();
+        WriteResult<K, V> result = new WriteResult<>();
+        data.computeIfPresent(castKey(key), (k, n) -> {
+            result.oldValue = isExpired(n, now) ? null : n.value;
+            n.retired = true;
+            result.removed = n;
+            return null;
+        });
+        afterWrite(result);
+        return result.oldValue;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        WriteResult<K, V> result = new WriteResult<>();
+        data.computeIfPresent(castKey(key), (k, n) -> {
+            if (!Objects.equals(n.value, value)) {
+                return n;
+            }
+            n.retired = true;
+            result.removed = n;
+            return null;
+        });
+        afterWrite(result);
+        return result.removed != null;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(newValue);
+        int weight = weigh(key, newValue);
+        long now = System.nanoTime();
+        WriteResult<K, V> result = new WriteResult<>();
+        data.computeIfPresent(key, (k, n) -> {
+            if (!isExpired(n, now) && Objects.equals(n.value, oldValue)) {
+                n.update(newValue, weight, now);
+                result.updated = n;
+            }
+            return n;
+        });
+        afterWrite(result);
+        return result.updated != null;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value);
+        int weight = weigh(key, value);
+        long now = System.nanoTime();
+        WriteResult<K, V> result = new WriteResult<>();
+        data.computeIfPresent(key, (k, n) -> {
+            if (!isExpired(n, now)) {
+                result.oldValue = n.value;
+                n.update(value, weight, now);
+                result.updated = n;
+            }
+            return n;
+        });
+        afterWrite(result);
+        return result.oldValue;
+    }
+
+    @Override
+    public void clear() {
+        for (K key : data.keySet()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Drains the pending access records and evicts if necessary
+     */
+    public void cleanUp() {
+        List<Node<K, V>> evicted;
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            evicted = evict();
+        } finally {
+            evictionLock.unlock();
+        }
+        removeEvicted(evicted);
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Returns the total weight of cached entries
+     *
+     * @return weighted size
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return windowWeight + mainWeight;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(
+            hitCount.sum(), missCount.sum(), evictionCount.sum(),
+            loadSuccessCount.sum(), loadFailureCount.sum(), totalLoadTime.sum()
+        );
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    // ----------------------------------------------------------------------private methods
+
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        int weight = weigh(key, value);
+        long now = System.nanoTime();
+        WriteResult<K, V> result = new WriteResult<>();
+        data.compute(key, (k, prior) -> {
+            if (prior == null || isExpired(prior, now)) {
+                if (prior != null) {
+                    prior.retired = true;
+                    result.removed = prior;
+                }
+                return result.added = new Node<>(k, value, weight, now);
+            }
+            result.oldValue = prior.value;
+            if (onlyIfAbsent) {
+                result.read = prior;
+            } else {
+                prior.update(value, weight, now);
+                result.updated = prior;
+            }
+            return prior;
+        });
+        afterWrite(result);
+        return result.oldValue;
+    }
+
+    private void removeNode(Node<K, V> node) {
+        WriteResult<K, V> result = new WriteResult<>();
+        data.computeIfPresent(node.key, (k, n) -> {
+            if (n != node) {
+                return n;
+            }
+            n.retired = true;
+            result.removed = n;
+            return null;
+        });
+        afterWrite(result);
+    }
+
+    private void refresh(Node<K, V> node) {
+        if (!Node.REFRESHING.compareAndSet(node, 0, 1)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                V value = load(node.key, loader);
+                if (value == null) {
+                    return;
+                }
+                int weight = weigh(node.key, value);
+                long now = System.nanoTime();
+                WriteResult<K, V> result = new WriteResult<>();
+                data.computeIfPresent(node.key, (k, n) -> {
+                    if (n == node) {
+                        n.update(value, weight, now);
+                        result.updated = n;
+                    }
+                    return n;
+                });
+                afterWrite(result);
+            } catch (Throwable t) {
+                LOG.error("Refresh cache value occur error: " + node.key, t);
+            } finally {
+                node.refreshing = 0;
+            }
+        });
+    }
+
+    private V load(K key, Function<? super K, ? extends V> mappingFunction) {
+        long start = System.nanoTime();
+        try {
+            V value = mappingFunction.apply(key);
+            if (value == null) {
+                loadFailureCount.increment();
+            } else {
+                loadSuccessCount.increment();
+            }
+            return value;
+        } catch (RuntimeException | Error e) {
+            loadFailureCount.increment();
+            throw e;
+        } finally {
+            totalLoadTime.add(System.nanoTime() - start);
+        }
+    }
+
+    private int weigh(K key, V value) {
+        int weight = weigher.weigh(key, value);
+        Assert.isTrue(weight >= 0, () -> "Weight cannot be negative: " + weight);
+        return weight;
+    }
+
+    /**
+     * Returns the node is expired, the evicted node which not yet removed from data map is treated as expired
+     */
+    private boolean isExpired(Node<K, V> node, long now) {
+        return node.retired
+            || (expireAfterWriteNanos > 0 && now - node.writeNanos >= expireAfterWriteNanos)
+            || (expireAfterAccessNanos > 0 && now - node.accessNanos >= expireAfterAccessNanos);
+    }
+
+    private void afterRead(Node<K, V> node) {
+        int probe = (int) Thread.currentThread().getId() * 0x9E3779B9;
+        if (readBuffers[(probe >>> 16) & (READ_BUFFER_STRIPES - 1)].offer(node) && evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void afterWrite(WriteResult<K, V> result) {
+        if (result.removed == null && result.added == null && result.updated == null && result.read == null) {
+            return;
+        }
+
+        List<Node<K, V>> evicted;
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            if (result.removed != null) {
+                unlink(result.removed);
+            }
+            if (result.added != null) {
+                link(result.added);
+            }
+            if (result.updated != null) {
+                onUpdate(result.updated);
+            }
+            if (result.read != null) {
+                onAccess(result.read);
+            }
+            evicted = evict();
+        } finally {
+            evictionLock.unlock();
+        }
+        removeEvicted(evicted);
+    }
+
+    /**
+     * Removes the evicted nodes from data map, must be called without evictionLock:
+     * a loader in computeIfAbsent holds the bin lock and may write the cache(needs evictionLock).
+     *
+     * @param evicted the evicted nodes, maybe null
+     */
+    private void removeEvicted(List<Node<K, V>> evicted) {
+        if (evicted != null) {
+            for (Node<K, V> node : evicted) {
+                data.remove(node.key, node);
+            }
+        }
+    }
+
+    private void drainReadBuffers() {
+        for (ReadBuffer<K, V> buffer : readBuffers) {
+            buffer.drain(this::onAccess);
+        }
+    }
+
+    // ----------------------------------------------------------------------policy methods, guarded by evictionLock
+
+    private void onAccess(Node<K, V> node) {
+        if (sketch != null) {
+            sketch.increment(node.key.hashCode());
+        }
+        if (node.queue == Node.WINDOW) {
+            // move to tail of the LRU window
+            node.unlink();
+            node.linkBefore(window);
+        } else if (node.queue == Node.MAIN) {
+            node.referenced = true;
+        }
+    }
+
+    private void onUpdate(Node<K, V> node) {
+        if (node.queue == Node.NONE) {
+            // not linked yet or already removed
+            return;
+        }
+        int delta = node.weight - node.policyWeight;
+        node.policyWeight = node.weight;
+        if (node.queue == Node.WINDOW) {
+            windowWeight += delta;
+        } else {
+            mainWeight += delta;
+        }
+        onAccess(node);
+    }
+
+    private void link(Node<K, V> node) {
+        if (node.retired || node.queue != Node.NONE) {
+            return;
+        }
+        if (sketch != null) {
+            sketch.increment(node.key.hashCode());
+        }
+        node.policyWeight = node.weight;
+        if (windowMaximum > 0) {
+            node.queue = Node.WINDOW;
+            node.linkBefore(window);
+            windowWeight += node.policyWeight;
+        } else {
+            linkMain(node);
+        }
+    }
+
+    private void linkMain(Node<K, V> node) {
+        // insert behind the clock hand, so it will be scanned at last
+        node.queue = Node.MAIN;
+        node.linkBefore(hand);
+        mainWeight += node.policyWeight;
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.queue == Node.WINDOW) {
+            windowWeight -= node.policyWeight;
+        } else if (node.queue == Node.MAIN) {
+            if (hand == node) {
+                hand = node.next;
+            }
+            mainWeight -= node.policyWeight;
+        } else {
+            return;
+        }
+        node.queue = Node.NONE;
+        node.unlink();
+    }
+
+    /**
+     * Evicts the nodes over maximum weight, the evicted nodes are retired and
+     * unlinked from policy, and should be removed from data map after unlock.
+     *
+     * @return the evicted nodes, null if none
+     */
+    private List<Node<K, V>> evict() {
+        // the nodes overflowed from window are the candidates of admission
+        ArrayDeque<Node<K, V>> candidates = null;
+        while (windowWeight > windowMaximum) {
+            Node<K, V> node = window.next;
+            windowWeight -= node.policyWeight;
+            node.unlink();
+            linkMain(node);
+            if (candidates == null) {
+                candidates = new ArrayDeque<>();
+            }
+            candidates.offer(node);
+        }
+
+        List<Node<K, V>> evicted = null;
+        while (windowWeight + mainWeight > maximumWeight) {
+            Node<K, V> victim = clockVictim();
+            Node<K, V> candidate = candidates == null ? null : candidates.poll();
+            if (candidate != null && candidate != victim
+                && sketch.frequency(candidate.key.hashCode()) <= sketch.frequency(victim.key.hashCode())) {
+                // TinyLFU admission: the candidate is not hotter than the victim
+                victim = candidate;
+            }
+            unlink(victim);
+            victim.retired = true;
+            evictionCount.increment();
+            if (evicted == null) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(victim);
+        }
+        return evicted;
+    }
+
+    private Node<K, V> clockVictim() {
+        for (; ; ) {
+            if (hand == main) {
+                hand = hand.next;
+            } else if (hand.referenced) {
+                // second chance
+                hand.referenced = false;
+                hand = hand.next;
+            } else {
+                return hand;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> K castKey(Object key) {
+        return (K) key;
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        return 1 << -Integer.numberOfLeadingZeros(x - 1);
+    }
+
+    // ----------------------------------------------------------------------inner classes
+
+    private static final class Node<K, V> {
+        private static final int NONE = 0, WINDOW = 1, MAIN = 2;
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Node> REFRESHING =
+            AtomicIntegerFieldUpdater.newUpdater(Node.class, "refreshing");
+
+        private final K key;
+        private volatile V value;
+        private volatile int weight;
+        private volatile long writeNanos;
+        private volatile long accessNanos;
+        private volatile boolean retired = false;
+        private volatile boolean referenced = false;
+        private volatile int refreshing = 0;
+
+        // guarded by evictionLock
+        private Node<K, V> prev;
+        private Node<K, V> next;
+        private int queue = NONE;
+        private int policyWeight;
+
+        private Node(K key, V value, int weight, long writeNanos) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeNanos = writeNanos;
+            this.accessNanos = writeNanos;
+        }
+
+        private static <K, V> Node<K, V> sentinel() {
+            Node<K, V> node = new Node<>(null, null, 0, 0);
+            node.prev = node;
+            node.next = node;
+            return node;
+        }
+
+        private void update(V value, int weight, long writeNanos) {
+            this.value = value;
+            this.weight = weight;
+            this.writeNanos = writeNanos;
+            this.accessNanos = writeNanos;
+        }
+
+        private void linkBefore(Node<K, V> successor) {
+            Node<K, V> predecessor = successor.prev;
+            this.prev = predecessor;
+            this.next = successor;
+            predecessor.next = this;
+            successor.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+
+    /**
+     * The nodes need to apply to policy after compute
+     */
+    private static final class WriteResult<K, V> {
+        private Node<K, V> added;
+        private Node<K, V> removed;
+        private Node<K, V> updated;
+        private Node<K, V> read;
+        private V oldValue;
+    }
+
+    /**
+     * Lossy ring buffer of access records, multiple producers and single consumer(drain under evictionLock).
+     */
+    private static final class ReadBuffer<K, V> {
+        private static final int SIZE = 16;
+        private static final int MASK = SIZE - 1;
+
+        private final AtomicReferenceArray<Node<K, V>> buffer = new AtomicReferenceArray<>(SIZE);
+        private final AtomicLong writeCounter = new AtomicLong(0);
+        private volatile long readCounter = 0;
+
+        /**
+         * Offers an access record, drop it if full or contended.
+         *
+         * @param node the accessed node
+         * @return {@code true} if need to drain
+         */
+        private boolean offer(Node<K, V> node) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            long size = tail - head;
+            if (size >= SIZE) {
+                return true;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet((int) (tail & MASK), node);
+                return size + 1 >= SIZE;
+            }
+            return false;
+        }
+
+        private void drain(Consumer<Node<K, V>> consumer) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            for (; head < tail; head++) {
+                int index = (int) (head & MASK);
+                Node<K, V> node = buffer.get(index);
+                if (node == null) {
+                    // not published yet
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(node);
+            }
+            readCounter = head;
+        }
+    }
+
+    /**
+     * 4-bit Count-Min Sketch with periodic aging, guarded by evictionLock.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEED = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+        private static final int MAXIMUM_CAPACITY = 1 << 24;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int size;
+
+        private FrequencySketch(long maximumSize) {
+            int capacity = (int) Math.max(8, Math.min(maximumSize, MAXIMUM_CAPACITY));
+            this.table = new long[ceilingPowerOfTwo(capacity)];
+            this.tableMask = table.length - 1;
+            this.sampleSize = 10 * capacity;
+        }
+
+        private int frequency(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xFL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        private void increment(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++size == sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int i, int j) {
+            int offset = j << 2;
+            long mask = (0xFL << offset);
+            if ((table[i] & mask) != mask) {
+                table[i] += (1L << offset);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Halves every counter, for aging the history frequency
+         */
+        private void reset() {
+            int count = 0;
+            for (int i = 0; i < table.length; i++) {
+                count += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size = (size - (count >>> 2)) >>> 1;
+        }
+
+        private int indexOf(int item, int i) {
+            long hash = (item + SEED[i]) * SEED[i];
+            hash += (hash >>> 32);
+            return ((int) hash) & tableMask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45D9F3B;
+            x = ((x >>> 16) ^ x) * 0x45D9F3B;
+            return (x >>> 16) ^ x;
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            Iterator<Node<K, V>> iterator = data.values().iterator();
+            long now = System.nanoTime();
+            return new Iterator<Map.Entry<K, V>>() {
+                Node<K, V> next = advance(), last;
+
+                private Node<K, V> advance() {
+                    while (iterator.hasNext()) {
+                        Node<K, V> node = iterator.next();
+                        if (!isExpired(node, now)) {
+                            return node;
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Map.Entry<K, V> next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next = advance();
+                    return new SimpleImmutableEntry<>(last.key, last.value);
+                }
+
+                @Override
+                public void remove() {
+                    Assert.state(last != null, "Not call next.");
+                    BoundedCache.this.remove(last.key);
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return data.size();
+        }
+
+        @Override
+        public void clear() {
+            BoundedCache.this.clear();
+        }
+    }
+
+    /**
+     * Cache statistics
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long loadSuccessCount;
+        private final long loadFailureCount;
+        private final long totalLoadTime;
+
+        private Stats(long hitCount, long missCount, long evictionCount,
+                      long loadSuccessCount, long loadFailureCount, long totalLoadTime) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.loadSuccessCount = loadSuccessCount;
+            this.loadFailureCount = loadFailureCount;
+            this.totalLoadTime = totalLoadTime;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public long getLoadSuccessCount() {
+            return loadSuccessCount;
+        }
+
+        public long getLoadFailureCount() {
+            return loadFailureCount;
+        }
+
+        public long getTotalLoadTime() {
+            return totalLoadTime;
+        }
+
+        public double hitRate() {
+            long requestCount = hitCount + missCount;
+            return requestCount == 0 ? 1.0D : (double) hitCount / requestCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{hitCount=" + hitCount + ", missCount=" + missCount + ", hitRate=" + hitRate()
+                + ", evictionCount=" + evictionCount + ", loadSuccessCount=" + loadSuccessCount
+                + ", loadFailureCount=" + loadFailureCount + ", totalLoadTime=" + totalLoadTime + "}";
+        }
+    }
+
+    public static class Builder<K, V> {
+        private int initialCapacity = 16;
+        private long maximumWeight = 1024;
+        private Weigher<? super K, ? super V> weigher = (k, v) -> 1;
+        private EvictionPolicy policy = EvictionPolicy.W_TINY_LFU;
+        private long expireAfterWriteNanos = 0;
+        private long expireAfterAccessNanos = 0;
+        private long refreshAfterWriteNanos = 0;
+        private Function<? super K, ? extends V> loader;
+        private Executor executor;
+
+        private Builder() {
+        }
+
+        public Builder<K, V> initialCapacity(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * Sets the maximum entry count, each entry weight is 1
+         *
+         * @param maximumSize the maximum entry count
+         * @return this builder
+         */
+        public Builder<K, V> maximumSize(long maximumSize) {
+            this.maximumWeight = maximumSize;
+            this.weigher = (k, v) -> 1;
+            return this;
+        }
+
+        public Builder<K, V> maximumWeight(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        public Builder<K, V> policy(EvictionPolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        public Builder<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Expires the entry after the duration since the last read or write, lazily removed on access or by eviction.
+         *
+         * @param duration the duration
+         * @param unit     the time unit
+         * @return this builder
+         */
+        public Builder<K, V> expireAfterAccess(long duration, TimeUnit unit) {
+            this.expireAfterAccessNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Asynchronous refresh the value by loader after write duration, returns the old value when refreshing.
+         *
+         * @param duration the duration
+         * @param unit     the time unit
+         * @param loader   the value loader
+         * @return this builder
+         */
+        public Builder<K, V> refreshAfterWrite(long duration, TimeUnit unit, Function<? super K, ? extends V> loader) {
+            this.refreshAfterWriteNanos = unit.toNanos(duration);
+            this.loader = loader;
+            return this;
+        }
+
+        public Builder<K, V> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public BoundedCache<K, V> build() {
+            Assert.isTrue(maximumWeight >= 0, () -> "Maximum weight cannot be negative: " + maximumWeight);
+            Assert.notNull(weigher, "Weigher cannot be null.");
+            Assert.notNull(policy, "Eviction policy cannot be null.");
+            Assert.isTrue(expireAfterWriteNanos >= 0, "Expire after write cannot be negative.");
+            Assert.isTrue(expireAfterAccessNanos >= 0, "Expire after access cannot be negative.");
+            Assert.isTrue(refreshAfterWriteNanos >= 0, "Refresh after write cannot be negative.");
+            Assert.isTrue(refreshAfterWriteNanos == 0 || loader != null, "Refresh after write must be with loader.");
+            return new BoundedCache<>(this);
+        }
+    }
+
+}
@@ -19,6 +19,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * 
  * @param <K> the key type
  * @param <V> the val type
+ * @see BoundedCache
  */
 public class LRUCache<K, V> extends LinkedHashMap<K, V> {
 
@@ -54,11 +55,12 @@ public class LRUCache<K, V> extends LinkedHashMap<K, V> {
 
     @Override
     public V get(Object key) {
-        lock.readLock().lock();
+        // access-ordered LinkedHashMap#get will modify the linked list, so must be use write lock
+        lock.writeLock().lock();
         try {
             return super.get(key);
         } finally {
-            lock.readLock().unlock();
+            lock.writeLock().unlock();
         }
     }
 
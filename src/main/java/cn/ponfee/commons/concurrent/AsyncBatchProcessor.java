@@ -13,10 +13,23 @@ import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 
 /**
  * <pre>
@@ -25,6 +38,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *  execute：直接抛出异常，在线程外部无法捕获异常，想要捕获该异常，可以实现UncaughtExceptionHandler接口
  *  submit ：不会抛出异常，需要调用返回值Future对象的get方法
  *
+ *  构造函数创建的是无界队列模式(LinkedBlockingQueue + 单消费线程)
+ *  {@link #builder()}创建的是有界环形缓冲模式：
+ *    1、每个分区一个多生产者单消费者的环形数组，分区消费线程保证同一个key的处理顺序
+ *    2、批量大小或linger时间任一满足即刷新
+ *    3、队列满时按{@link RejectPolicy}施加背压：阻塞、丢弃、调用者线程执行
+ *    4、消费者空闲时按{@link WaitStrategy}等待：阻塞、让出CPU、park
+ *
  *  <a href="https://github.com/JCTools/JCTools">JCTools</a>
  *  <a href="https://github.com/LMAX-Exchange/disruptor">disruptor</a>
  * </pre>
@@ -37,7 +57,8 @@ public final class AsyncBatchProcessor<T> {
 
     private final static Logger LOG = LoggerFactory.getLogger(AsyncBatchProcessor.class);
 
-    private final AsyncBatchThread<T> async;
+    private final Engine<T> engine;
+    private final Metrics metrics;
 
     public AsyncBatchProcessor(BatchProcessor<T> processor) {
         this(processor, 100, 200, 2);
@@ -53,9 +74,17 @@ public final class AsyncBatchProcessor<T> {
                                int periodTimeMillis,
                                int batchSize,
                                int maximumPoolSize) {
-        this.async = new AsyncBatchThread<>(
-            processor, periodTimeMillis, batchSize, maximumPoolSize
-        );
+        AsyncBatchThread<T> async = new AsyncBatchThread<>(periodTimeMillis, batchSize, maximumPoolSize);
+        this.metrics = new Metrics(async.queue::size);
+        this.engine = async;
+        async.start(metrics.instrument(processor));
+    }
+
+    private AsyncBatchProcessor(Builder<T> builder) {
+        RingBufferEngine<T> ring = new RingBufferEngine<>(builder);
+        this.metrics = new Metrics(ring::queueDepth);
+        this.engine = ring;
+        ring.start(metrics.instrument(builder.processor), metrics);
     }
 
     /**
@@ -64,7 +93,7 @@ public final class AsyncBatchProcessor<T> {
      * @param element the element
      */
     public boolean put(T element) {
-        return !async.stopped.get() && async.queue.offer(element);
+        return engine.put(element);
     }
 
     /**
@@ -73,16 +102,10 @@ public final class AsyncBatchProcessor<T> {
      * @param elements the elements
      */
     public boolean put(T[] elements) {
-        if (async.stopped.get() || elements == null || elements.length == 0) {
+        if (elements == null || elements.length == 0) {
             return false;
         }
-
-        for (T element : elements) {
-            if (!async.queue.offer(element)) {
-                return false;
-            }
-        }
-        return true;
+        return engine.put(Arrays.asList(elements));
     }
 
     /**
@@ -91,16 +114,10 @@ public final class AsyncBatchProcessor<T> {
      * @param elements the list of elements
      */
     public boolean put(List<T> elements) {
-        if (async.stopped.get() || elements == null || elements.isEmpty()) {
+        if (elements == null || elements.isEmpty()) {
             return false;
         }
-
-        for (T element : elements) {
-            if (!async.queue.offer(element)) {
-                return false;
-            }
-        }
-        return true;
+        return engine.put(elements);
     }
 
     /**
@@ -109,27 +126,45 @@ public final class AsyncBatchProcessor<T> {
      * @return {@code true} if stop success
      */
     public boolean stop() {
-        return async.stopped.compareAndSet(false, true);
+        return engine.shutdown();
     }
 
     public void stopAndAwait() throws InterruptedException {
         stop();
-        while (!Threads.isStopped(async)) {
-            Thread.sleep(async.periodTimeMillis);
-        }
+        engine.awaitTermination();
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    // ----------------------------------------------------------------------------------------------engine
+
+    private interface Engine<T> {
+        boolean put(T element);
+
+        boolean put(List<T> elements);
+
+        boolean shutdown();
+
+        void awaitTermination() throws InterruptedException;
     }
 
     /**
      * Async batch consume into this alone thread
      */
-    private static class AsyncBatchThread<T> extends Thread {
+    private static class AsyncBatchThread<T> extends Thread implements Engine<T> {
         private static final int MINIMUM_PERIOD_TIME_MILLIS = 9;
 
         // 单消费者用LinkedBlockingQueue，多消费者用ConcurrentLinkedQueue
         private final LinkedBlockingQueue<T> queue = new LinkedBlockingQueue<>();
         private final AtomicBoolean        stopped = new AtomicBoolean(false);
 
-        private final BatchProcessor<T> processor; // 处理器
+        private BatchProcessor<T> processor;       // 处理器
         private final int periodTimeMillis;        // 消费周期(毫秒)
         private final int sleepTimeMillis;         // 休眠时间
         private final int batchSize;               // 批量大小
@@ -139,13 +174,11 @@ public final class AsyncBatchProcessor<T> {
         private long nextRefreshTimeMillis = 0L;   // 下一次刷新时间
 
         /**
-         * @param processor        批处理器
          * @param periodTimeMillis 处理周期(毫秒)
          * @param batchSize        批量大小
          * @param maximumPoolSize  最大线程数
          */
-        private AsyncBatchThread(BatchProcessor<T> processor,
-                                 int periodTimeMillis,
+        private AsyncBatchThread(int periodTimeMillis,
                                  int batchSize,
                                  int maximumPoolSize) {
             Assert.isTrue(
@@ -155,7 +188,6 @@ public final class AsyncBatchProcessor<T> {
             Assert.isTrue(batchSize > 0, "Batch size cannot negative number.");
             Assert.isTrue(maximumPoolSize > 0, "Maximum pool size cannot negative number.");
 
-            this.processor = processor;
             this.periodTimeMillis = periodTimeMillis;
             this.sleepTimeMillis = (periodTimeMillis >>> 1);
             this.batchSize = batchSize;
@@ -164,9 +196,35 @@ public final class AsyncBatchProcessor<T> {
 
             super.setName("async-batch-processor-thread-" + Integer.toHexString(hashCode()));
             super.setDaemon(false);
+        }
+
+        private void start(BatchProcessor<T> processor) {
+            this.processor = processor;
             super.start();
         }
 
+        @Override
+        public boolean put(T element) {
+            return !stopped.get() && queue.offer(element);
+        }
+
+        @Override
+        public boolean put(List<T> elements) {
+            return !stopped.get() && queue.addAll(elements);
+        }
+
+        @Override
+        public boolean shutdown() {
+            return stopped.compareAndSet(false, true);
+        }
+
+        @Override
+        public void awaitTermination() throws InterruptedException {
+            while (!Threads.isStopped(this)) {
+                Thread.sleep(periodTimeMillis);
+            }
+        }
+
         /**
          * thread inner run, don't to direct call this method
          * it is a thread and the alone thread
@@ -256,6 +314,664 @@ public final class AsyncBatchProcessor<T> {
         }
     }
 
+    /**
+     * Bounded ring buffer engine, each partition has one ring buffer and one consumer thread.
+     */
+    private static class RingBufferEngine<T> implements Engine<T> {
+        private static final int SPIN_TRIES = 100;
+        private static final int YIELD_TRIES = 200;
+        private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+        private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+        private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+        private final int batchSize;
+        private final long lingerNanos;
+        private final Function<? super T, ?> partitionKey;
+        private final WaitStrategy waitStrategy;
+        private final RejectPolicy rejectPolicy;
+        private final Partition<T>[] partitions;
+        private final AtomicInteger roundRobin = new AtomicInteger();
+
+        private final AtomicBoolean stopped = new AtomicBoolean(false);
+        // count of producers which are putting, consumers wait them finished after stopped
+        private final AtomicInteger producers = new AtomicInteger();
+        private BatchProcessor<T> processor;
+        private Metrics metrics;
+
+        @SuppressWarnings("unchecked")
+        private RingBufferEngine(Builder<T> builder) {
+            this.batchSize = builder.batchSize;
+            this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(builder.lingerMillis);
+            this.partitionKey = builder.partitionKey;
+            this.waitStrategy = builder.waitStrategy;
+            this.rejectPolicy = builder.rejectPolicy;
+            this.partitions = new Partition[builder.partitions];
+            for (int i = 0; i < partitions.length; i++) {
+                partitions[i] = new Partition<>(this, builder.capacity, i);
+            }
+        }
+
+        private void start(BatchProcessor<T> processor, Metrics metrics) {
+            this.processor = processor;
+            this.metrics = metrics;
+            for (Partition<T> partition : partitions) {
+                partition.start();
+            }
+        }
+
+        @Override
+        public boolean put(T element) {
+            // null slot means unpublished, keep consistent with the queue engine
+            Objects.requireNonNull(element, "Element cannot be null.");
+            // register before check stopped: either the producer sees stopped, or the consumer sees the producer
+            producers.incrementAndGet();
+            try {
+                if (stopped.get()) {
+                    return false;
+                }
+                return offer(partition(element), Collections.singletonList(element));
+            } finally {
+                producers.decrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean put(List<T> elements) {
+            for (T element : elements) {
+                Objects.requireNonNull(element, "Element cannot be null.");
+            }
+            producers.incrementAndGet();
+            try {
+                if (stopped.get()) {
+                    return false;
+                }
+                if (partitionKey == null || partitions.length == 1) {
+                    return offer(partition(null), elements);
+                }
+
+                // group by partition and keep the element order in each partition
+                List<T>[] groups = groupByPartition(elements);
+                boolean result = true;
+                for (int i = 0; i < groups.length; i++) {
+                    if (groups[i] != null) {
+                        result &= offer(partitions[i], groups[i]);
+                    }
+                }
+                return result;
+            } finally {
+                producers.decrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean shutdown() {
+            if (!stopped.compareAndSet(false, true)) {
+                return false;
+            }
+            for (Partition<T> partition : partitions) {
+                partition.wakeup();
+            }
+            return true;
+        }
+
+        @Override
+        public void awaitTermination() throws InterruptedException {
+            for (Partition<T> partition : partitions) {
+                partition.join();
+            }
+        }
+
+        private long queueDepth() {
+            long depth = 0;
+            for (Partition<T> partition : partitions) {
+                depth += partition.ring.size();
+            }
+            return depth;
+        }
+
+        private Partition<T> partition(T element) {
+            if (partitions.length == 1) {
+                return partitions[0];
+            }
+            int hash;
+            if (partitionKey == null) {
+                hash = roundRobin.getAndIncrement();
+            } else {
+                Object key = partitionKey.apply(element);
+                hash = (key == null) ? 0 : spread(key.hashCode());
+            }
+            return partitions[(hash & Integer.MAX_VALUE) % partitions.length];
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<T>[] groupByPartition(List<T> elements) {
+            List<T>[] groups = new List[partitions.length];
+            int expectedSize = elements.size() / partitions.length + 1;
+            for (T element : elements) {
+                int index = partition(element).index;
+                if (groups[index] == null) {
+                    groups[index] = new ArrayList<>(expectedSize);
+                }
+                groups[index].add(element);
+            }
+            return groups;
+        }
+
+        private boolean offer(Partition<T> partition, List<T> elements) {
+            RingBuffer<T> ring = partition.ring;
+            boolean result = true;
+            for (int from = 0, size = elements.size(); from < size; ) {
+                int n = Math.min(size - from, ring.capacity);
+                long index = ring.tryClaim(n);
+                if (index < 0) {
+                    switch (rejectPolicy) {
+                        case DROP:
+                            metrics.dropped.add(n);
+                            result = false;
+                            from += n;
+                            continue;
+                        case CALLER_RUNS:
+                            metrics.submitted.add(n);
+                            metrics.callerRuns.add(n);
+                            processor.process(elements.subList(from, from + n), false);
+                            from += n;
+                            continue;
+                        default:
+                            index = awaitClaim(ring, n);
+                            if (index < 0) {
+                                // stopped while waiting
+                                metrics.dropped.add(size - from);
+                                return false;
+                            }
+                    }
+                }
+                for (int i = 0; i < n; i++) {
+                    ring.publish(index + i, elements.get(from + i));
+                }
+                metrics.submitted.add(n);
+                from += n;
+                partition.signal();
+            }
+            return result;
+        }
+
+        private long awaitClaim(RingBuffer<T> ring, int n) {
+            for (int counter = 0; ; counter++) {
+                if (stopped.get()) {
+                    return -1;
+                }
+                long index = ring.tryClaim(n);
+                if (index >= 0) {
+                    return index;
+                }
+                if (counter < SPIN_TRIES) {
+                    // busy spin
+                } else if (counter < YIELD_TRIES) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(Math.min(PARK_NANOS << Math.min(counter - YIELD_TRIES, 4), MAX_PARK_NANOS));
+                }
+            }
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Partition consumer thread
+     */
+    private static class Partition<T> extends Thread {
+        private final RingBufferEngine<T> engine;
+        private final RingBuffer<T> ring;
+        private final int index;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private volatile boolean waiting = false;
+
+        private Partition(RingBufferEngine<T> engine, int capacity, int index) {
+            this.engine = engine;
+            this.ring = new RingBuffer<>(capacity);
+            this.index = index;
+            super.setName("async-batch-processor-partition-" + index + "-" + Integer.toHexString(hashCode()));
+            super.setDaemon(false);
+        }
+
+        @Override
+        public void run() {
+            int batchSize = engine.batchSize;
+            // reuse the list object, processor cannot hold the list after process returned
+            List<T> batch = new ArrayList<>(batchSize);
+            long deadline = 0;
+            for (int idle = 0; ; ) {
+                int n = ring.drainTo(batch, batchSize - batch.size());
+                if (n > 0) {
+                    idle = 0;
+                    if (batch.size() == n) {
+                        // linger time start at first element of the batch
+                        deadline = System.nanoTime() + engine.lingerNanos;
+                    }
+                }
+
+                boolean stopped = engine.stopped.get();
+                if (batch.size() >= batchSize || (!batch.isEmpty() && (stopped || System.nanoTime() - deadline >= 0))) {
+                    flush(batch, isTerminated(stopped));
+                    continue;
+                }
+                if (n > 0) {
+                    continue;
+                }
+                if (stopped && ring.isEmpty()) {
+                    if (isTerminated(true)) {
+                        break;
+                    }
+                    // a producer passed the stopped check, waits it publish or give up
+                    LockSupport.parkNanos(RingBufferEngine.PARK_NANOS);
+                    continue;
+                }
+
+                long waitNanos = batch.isEmpty() ? RingBufferEngine.IDLE_WAIT_NANOS : deadline - System.nanoTime();
+                if (waitNanos > 0) {
+                    idle = await(idle, waitNanos);
+                }
+            }
+        }
+
+        private boolean isTerminated(boolean stopped) {
+            // reads producers before ring: the elements published by a finished producer are visible
+            return stopped && engine.producers.get() == 0 && ring.isEmpty();
+        }
+
+        private void flush(List<T> batch, boolean end) {
+            try {
+                engine.processor.process(batch, end);
+            } catch (Throwable t) {
+                engine.metrics.failures.increment();
+                LOG.error("Async batch process occur error.", t);
+                Threads.interruptIfNecessary(t);
+            } finally {
+                batch.clear();
+            }
+        }
+
+        private int await(int counter, long maxWaitNanos) {
+            switch (engine.waitStrategy) {
+                case BLOCKING:
+                    lock.lock();
+                    try {
+                        waiting = true;
+                        if (!ring.isReadable() && !engine.stopped.get()) {
+                            notEmpty.awaitNanos(maxWaitNanos);
+                        }
+                    } catch (InterruptedException e) {
+                        LOG.error("Condition#awaitNanos occur error.", e);
+                        engine.shutdown();
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        waiting = false;
+                        lock.unlock();
+                    }
+                    return 0;
+                case YIELDING:
+                    if (counter >= RingBufferEngine.SPIN_TRIES) {
+                        Thread.yield();
+                    }
+                    return counter + 1;
+                default:
+                    if (counter < RingBufferEngine.SPIN_TRIES) {
+                        // busy spin
+                    } else if (counter < RingBufferEngine.YIELD_TRIES) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(Math.min(maxWaitNanos, RingBufferEngine.PARK_NANOS));
+                    }
+                    return counter + 1;
+            }
+        }
+
+        private void signal() {
+            // volatile read after volatile publish, cannot miss the waiting consumer
+            if (waiting) {
+                wakeup();
+            }
+        }
+
+        private void wakeup() {
+            if (engine.waitStrategy == WaitStrategy.BLOCKING) {
+                lock.lock();
+                try {
+                    notEmpty.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } else {
+                LockSupport.unpark(this);
+            }
+        }
+    }
+
+    /**
+     * Multi producer single consumer bounded ring buffer.
+     * Producers claim slots by CAS the tail, then publish element into the claimed slot.
+     * Consumer reads published slot at head and clear it.
+     */
+    private static class RingBuffer<E> {
+        private final AtomicReferenceArray<E> slots;
+        private final int capacity;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private final AtomicLong head = new AtomicLong();
+
+        private RingBuffer(int capacity) {
+            int size = 1;
+            while (size < capacity) {
+                size <<= 1;
+            }
+            this.slots = new AtomicReferenceArray<>(size);
+            this.capacity = size;
+            this.mask = size - 1;
+        }
+
+        /**
+         * Claims n continuous slots
+         *
+         * @param n the slots count
+         * @return first claimed slot index, -1 if has not enough free slots
+         */
+        private long tryClaim(int n) {
+            for (; ; ) {
+                long t = tail.get();
+                if (t + n - head.get() > capacity) {
+                    return -1;
+                }
+                if (tail.compareAndSet(t, t + n)) {
+                    return t;
+                }
+            }
+        }
+
+        private void publish(long index, E element) {
+            slots.set((int) index & mask, element);
+        }
+
+        private int drainTo(List<E> list, int max) {
+            long h = head.get();
+            int count = 0;
+            for (; count < max; count++, h++) {
+                int i = (int) h & mask;
+                E e = slots.get(i);
+                if (e == null) {
+                    // empty or not yet published
+                    break;
+                }
+                slots.lazySet(i, null);
+                list.add(e);
+            }
+            if (count > 0) {
+                head.lazySet(h);
+            }
+            return count;
+        }
+
+        private boolean isReadable() {
+            return slots.get((int) head.get() & mask) != null;
+        }
+
+        private boolean isEmpty() {
+            return head.get() == tail.get();
+        }
+
+        private long size() {
+            return Math.max(0, tail.get() - head.get());
+        }
+    }
+
+    // ----------------------------------------------------------------------------------------------metrics
+
+    /**
+     * Batch process metrics
+     */
+    public static final class Metrics {
+        private static final int HISTOGRAM_BUCKETS = 32;
+
+        private final LongSupplier queueDepth;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder callerRuns = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder elements = new LongAdder();
+        private final LongAdder flushNanos = new LongAdder();
+        private final AtomicLong maxFlushNanos = new AtomicLong();
+        private final AtomicLong maxBatchSize = new AtomicLong();
+        private final LongAdder[] batchSizeHistogram = new LongAdder[HISTOGRAM_BUCKETS];
+
+        private Metrics(LongSupplier queueDepth) {
+            this.queueDepth = queueDepth;
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                batchSizeHistogram[i] = new LongAdder();
+            }
+        }
+
+        private <T> BatchProcessor<T> instrument(BatchProcessor<T> processor) {
+            Assert.notNull(processor, "Batch processor cannot be null.");
+            return (list, stopped) -> {
+                int size = list.size();
+                long start = System.nanoTime();
+                try {
+                    processor.process(list, stopped);
+                } finally {
+                    long cost = System.nanoTime() - start;
+                    batches.increment();
+                    elements.add(size);
+                    flushNanos.add(cost);
+                    maxFlushNanos.accumulateAndGet(cost, Math::max);
+                    maxBatchSize.accumulateAndGet(size, Math::max);
+                    batchSizeHistogram[31 - Integer.numberOfLeadingZeros(Math.max(size, 1))].increment();
+                }
+            };
+        }
+
+        public long getQueueDepth() {
+            return queueDepth.getAsLong();
+        }
+
+        public long getSubmittedCount() {
+            return submitted.sum();
+        }
+
+        public long getDroppedCount() {
+            return dropped.sum();
+        }
+
+        public long getCallerRunsCount() {
+            return callerRuns.sum();
+        }
+
+        public long getFailureCount() {
+            return failures.sum();
+        }
+
+        public long getBatchCount() {
+            return batches.sum();
+        }
+
+        public long getProcessedCount() {
+            return elements.sum();
+        }
+
+        public double getAverageBatchSize() {
+            long count = batches.sum();
+            return count == 0 ? 0.0D : (double) elements.sum() / count;
+        }
+
+        public long getMaxBatchSize() {
+            return maxBatchSize.get();
+        }
+
+        public double getAverageFlushMillis() {
+            long count = batches.sum();
+            return count == 0 ? 0.0D : flushNanos.sum() / 1_000_000.0D / count;
+        }
+
+        public double getMaxFlushMillis() {
+            return maxFlushNanos.get() / 1_000_000.0D;
+        }
+
+        /**
+         * Returns the batch size histogram, the index i count of batch size in [2^i, 2^(i+1))
+         *
+         * @return batch size histogram
+         */
+        public long[] getBatchSizeHistogram() {
+            int last = HISTOGRAM_BUCKETS - 1;
+            while (last > 0 && batchSizeHistogram[last].sum() == 0) {
+                last--;
+            }
+            long[] result = new long[last + 1];
+            for (int i = 0; i <= last; i++) {
+                result[i] = batchSizeHistogram[i].sum();
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                "queueDepth=" + getQueueDepth() +
+                ", submitted=" + getSubmittedCount() +
+                ", dropped=" + getDroppedCount() +
+                ", callerRuns=" + getCallerRunsCount() +
+                ", failures=" + getFailureCount() +
+                ", batches=" + getBatchCount() +
+                ", processed=" + getProcessedCount() +
+                ", avgBatchSize=" + getAverageBatchSize() +
+                ", maxBatchSize=" + getMaxBatchSize() +
+                ", avgFlushMillis=" + getAverageFlushMillis() +
+                ", maxFlushMillis=" + getMaxFlushMillis() +
+                ", batchSizeHistogram=" + Arrays.toString(getBatchSizeHistogram()) +
+                '}';
+        }
+    }
+
+    // ----------------------------------------------------------------------------------------------builder
+
+    /**
+     * Consumer wait strategy when the ring buffer is empty
+     */
+    public enum WaitStrategy {
+        /**
+         * Lock and condition, the lowest cpu usage
+         */
+        BLOCKING,
+        /**
+         * Busy spin then Thread#yield, the lowest latency
+         */
+        YIELDING,
+        /**
+         * Busy spin then Thread#yield then LockSupport#parkNanos
+         */
+        PARKING
+    }
+
+    /**
+     * Producer reject policy when the ring buffer is full
+     */
+    public enum RejectPolicy {
+        /**
+         * Block the producer until has free slots
+         */
+        BLOCK,
+        /**
+         * Drop the elements and {@code put} returns {@code false}
+         */
+        DROP,
+        /**
+         * Process the elements in producer thread, cannot guarantee the order
+         */
+        CALLER_RUNS
+    }
+
+    public static class Builder<T> {
+        private BatchProcessor<T> processor;
+        private int batchSize = 200;
+        private long lingerMillis = 100;
+        private int capacity = 8192;
+        private int partitions = 1;
+        private Function<? super T, ?> partitionKey;
+        private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+        private RejectPolicy rejectPolicy = RejectPolicy.BLOCK;
+
+        private Builder() {
+        }
+
+        public Builder<T> processor(BatchProcessor<T> processor) {
+            this.processor = processor;
+            return this;
+        }
+
+        public Builder<T> batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder<T> lingerMillis(long lingerMillis) {
+            this.lingerMillis = lingerMillis;
+            return this;
+        }
+
+        /**
+         * Sets the ring buffer capacity of each partition, round up to power of 2
+         *
+         * @param capacity the capacity
+         * @return this builder
+         */
+        public Builder<T> capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder<T> partitions(int partitions) {
+            this.partitions = partitions;
+            return this;
+        }
+
+        /**
+         * Sets the partition key mapper, the same key elements are processed in order.
+         * If not set then the elements are distributed by round-robin.
+         *
+         * @param partitionKey the partition key mapper
+         * @return this builder
+         */
+        public Builder<T> partitionKey(Function<? super T, ?> partitionKey) {
+            this.partitionKey = partitionKey;
+            return this;
+        }
+
+        public Builder<T> waitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        public Builder<T> rejectPolicy(RejectPolicy rejectPolicy) {
+            this.rejectPolicy = rejectPolicy;
+            return this;
+        }
+
+        public AsyncBatchProcessor<T> build() {
+            Assert.notNull(processor, "Batch processor cannot be null.");
+            Assert.isTrue(batchSize > 0, "Batch size must be positive number.");
+            Assert.isTrue(lingerMillis >= 0, "Linger millis cannot be negative number.");
+            Assert.isTrue(capacity > 0 && capacity <= (1 << 30), "Capacity must in range (0, 2^30].");
+            Assert.isTrue(partitions > 0, "Partitions must be positive number.");
+            Assert.notNull(waitStrategy, "Wait strategy cannot be null.");
+            Assert.notNull(rejectPolicy, "Reject policy cannot be null.");
+            return new AsyncBatchProcessor<>(this);
+        }
+    }
+
     @FunctionalInterface
     public interface BatchProcessor<T> {
         void process(List<T> t, boolean stopped);
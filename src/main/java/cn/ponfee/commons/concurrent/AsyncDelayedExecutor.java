@@ -23,6 +23,7 @@ import java.util.function.Consumer;
  *
  * @param <E> the element type
  * @author Ponfee
+ * @see ShardedDelayedExecutor
  */
 public final class AsyncDelayedExecutor<E> extends Thread {
 
@@ -0,0 +1,369 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.concurrent;
+
+import cn.ponfee.commons.util.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * <pre>
+ * 可观测的线程池
+ *
+ * 1、记录每个任务的排队等待时间与执行时间(纳秒)到无锁直方图
+ * 2、按拒绝策略统计拒绝次数
+ * 3、周期采样：每个周期回调一次区间统计(区间直方图、区间拒绝数、区间完成数)
+ * 4、运行时安全的调整核心/最大线程数，以及队列容量(需使用{@link ResizableBlockingQueue})
+ *
+ * 注：任务不会被包装，提交时间记录在以任务对象为key的Map中，在beforeExecute/afterExecute中计时，
+ *    因此remove、purge、shutdownNow、拒绝策略以及beforeExecute/afterExecute看到的都是原始提交的任务；
+ *    子类覆写beforeExecute/afterExecute时需调用super，同一任务对象并发重复提交时只记录一次排队时间
+ * </pre>
+ *
+ * @author Ponfee
+ * @see ThreadPoolExecutors.Builder#buildInstrumented()
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final static Logger LOG = LoggerFactory.getLogger(InstrumentedThreadPoolExecutor.class);
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+    private final Map<String, LongAdder> rejections = new ConcurrentHashMap<>();
+    private final Map<Runnable, Long> submitNanos = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]> startNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final AtomicReference<ScheduledExecutorService> sampler = new AtomicReference<>();
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize,
+                                          int maximumPoolSize,
+                                          long keepAliveTime,
+                                          TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue,
+                                          ThreadFactory threadFactory,
+                                          RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+        // super constructor does not call the overridden setter
+        super.setRejectedExecutionHandler(new CountingRejectedHandler(handler));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        submitNanos.put(command, System.nanoTime());
+        super.execute(command);
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        boolean removed = super.remove(task);
+        if (removed) {
+            submitNanos.remove(task);
+        }
+        return removed;
+    }
+
+    @Override
+    public void purge() {
+        super.purge();
+        // the cancelled futures removed from queue
+        submitNanos.keySet().removeIf(task -> task instanceof Future && ((Future<?>) task).isCancelled());
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = super.shutdownNow();
+        tasks.forEach(submitNanos::remove);
+        return tasks;
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        super.setRejectedExecutionHandler(new CountingRejectedHandler(handler));
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        return ((CountingRejectedHandler) super.getRejectedExecutionHandler()).delegate;
+    }
+
+    /**
+     * Resizes the core and maximum pool size safely, the setting order
+     * avoid the transient state of core greater than maximum.
+     *
+     * @param corePoolSize    the core pool size
+     * @param maximumPoolSize the maximum pool size
+     */
+    public synchronized void resize(int corePoolSize, int maximumPoolSize) {
+        Assert.isTrue(corePoolSize > 0, () -> String.format("Core pool size %d must greater than 0.", corePoolSize));
+        Assert.isTrue(maximumPoolSize <= ThreadPoolExecutors.MAX_CAP, () -> String.format("Maximum pool size %d cannot greater than %d.", maximumPoolSize, ThreadPoolExecutors.MAX_CAP));
+        Assert.isTrue(corePoolSize <= maximumPoolSize, () -> String.format("Core pool size %d cannot greater than maximum pool size %d.", corePoolSize, maximumPoolSize));
+        if (maximumPoolSize >= getMaximumPoolSize()) {
+            setMaximumPoolSize(maximumPoolSize);
+            setCorePoolSize(corePoolSize);
+        } else {
+            setCorePoolSize(corePoolSize);
+            setMaximumPoolSize(maximumPoolSize);
+        }
+    }
+
+    /**
+     * Sets the work queue capacity
+     *
+     * @param capacity the capacity
+     * @throws IllegalStateException if the work queue is not a ResizableBlockingQueue
+     */
+    public void setQueueCapacity(int capacity) {
+        BlockingQueue<Runnable> queue = getQueue();
+        if (!(queue instanceof ResizableBlockingQueue)) {
+            throw new IllegalStateException("Work queue not support resize: " + queue.getClass().getName());
+        }
+        ((ResizableBlockingQueue<Runnable>) queue).setCapacity(capacity);
+    }
+
+    /**
+     * Returns the queue wait time histogram snapshot, unit is nanoseconds
+     *
+     * @return queue wait time snapshot
+     */
+    public LatencyHistogram.Snapshot queueWaitSnapshot() {
+        return queueWait.snapshot();
+    }
+
+    /**
+     * Returns the run time histogram snapshot, unit is nanoseconds
+     *
+     * @return run time snapshot
+     */
+    public LatencyHistogram.Snapshot runTimeSnapshot() {
+        return runTime.snapshot();
+    }
+
+    /**
+     * Returns the rejected count of per rejected policy
+     *
+     * @return rejected count map
+     */
+    public Map<String, Long> rejectedCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        rejections.forEach((k, v) -> result.put(k, v.sum()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    public long rejectedCount() {
+        return rejections.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * Starts a daemon sampler, call the listener with interval sample per period.
+     *
+     * @param periodMillis the sample period millis
+     * @param listener     the sample listener
+     */
+    public void startSampler(long periodMillis, Consumer<Sample> listener) {
+        Assert.isTrue(periodMillis > 0, "Sample period millis must be positive number.");
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            NamedThreadFactory.builder().prefix("thread_pool_sampler").daemon(true).build()
+        );
+        if (!sampler.compareAndSet(null, scheduler)) {
+            scheduler.shutdownNow();
+            throw new IllegalStateException("Sampler already started.");
+        }
+        Sample[] previous = {new Sample(this, null)};
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                Sample current = new Sample(this, previous[0]);
+                previous[0] = current;
+                listener.accept(current);
+            } catch (Throwable t) {
+                LOG.error("Thread pool sampler occur error.", t);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stopSampler() {
+        // not use synchronized: terminated() is called with the main lock held
+        ScheduledExecutorService scheduler = sampler.getAndSet(null);
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        long start = System.nanoTime();
+        Long submit = submitNanos.remove(r);
+        if (submit != null) {
+            queueWait.record(start - submit);
+        }
+        startNanos.get()[0] = start;
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        runTime.record(System.nanoTime() - startNanos.get()[0]);
+        super.afterExecute(r, t);
+    }
+
+    @Override
+    protected void terminated() {
+        stopSampler();
+        super.terminated();
+    }
+
+    // ----------------------------------------------------------------------inner classes
+
+    private final class CountingRejectedHandler implements RejectedExecutionHandler {
+        private final RejectedExecutionHandler delegate;
+        private final LongAdder counter;
+
+        private CountingRejectedHandler(RejectedExecutionHandler delegate) {
+            this.delegate = delegate;
+            this.counter = rejections.computeIfAbsent(policyName(delegate), k -> new LongAdder());
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            counter.increment();
+            submitNanos.remove(r);
+            if (!(delegate instanceof DiscardOldestPolicy)) {
+                delegate.rejectedExecution(r, executor);
+                return;
+            }
+
+            // the discarded oldest task will never be executed, the rejected task is resubmitted by execute
+            Runnable oldest = executor.getQueue().peek();
+            delegate.rejectedExecution(r, executor);
+            if (oldest != null && !executor.getQueue().contains(oldest)) {
+                submitNanos.remove(oldest);
+            }
+        }
+    }
+
+    private static String policyName(RejectedExecutionHandler handler) {
+        if (handler == ThreadPoolExecutors.ABORT) {
+            return "ABORT";
+        } else if (handler == ThreadPoolExecutors.DISCARD) {
+            return "DISCARD";
+        } else if (handler == ThreadPoolExecutors.CALLER_RUNS) {
+            return "CALLER_RUNS";
+        } else if (handler == ThreadPoolExecutors.DISCARD_OLDEST) {
+            return "DISCARD_OLDEST";
+        } else if (handler == ThreadPoolExecutors.CALLER_BLOCKS) {
+            return "CALLER_BLOCKS";
+        } else if (handler == ThreadPoolExecutors.ALWAYS_CALLER_RUNS) {
+            return "ALWAYS_CALLER_RUNS";
+        } else {
+            return handler.getClass().getName();
+        }
+    }
+
+    /**
+     * Interval sample of thread pool, the histogram unit is nanoseconds
+     */
+    public static final class Sample {
+        private final long timestamp;
+        private final ThreadPoolMonitor pool;
+        private final int queueRemainingCapacity;
+        private final long completedCount;
+        private final long rejectedCount;
+        private final LatencyHistogram.Snapshot queueWait;
+        private final LatencyHistogram.Snapshot runTime;
+
+        // cumulative values, for compute the next interval sample
+        private final long totalCompleted;
+        private final long totalRejected;
+        private final LatencyHistogram.Snapshot totalQueueWait;
+        private final LatencyHistogram.Snapshot totalRunTime;
+
+        private Sample(InstrumentedThreadPoolExecutor executor, Sample previous) {
+            this.timestamp = System.currentTimeMillis();
+            this.pool = new ThreadPoolMonitor(executor);
+            this.queueRemainingCapacity = executor.getQueue().remainingCapacity();
+            this.totalCompleted = executor.getCompletedTaskCount();
+            this.totalRejected = executor.rejectedCount();
+            this.totalQueueWait = executor.queueWaitSnapshot();
+            this.totalRunTime = executor.runTimeSnapshot();
+            if (previous == null) {
+                this.completedCount = totalCompleted;
+                this.rejectedCount = totalRejected;
+                this.queueWait = totalQueueWait;
+                this.runTime = totalRunTime;
+            } else {
+                this.completedCount = totalCompleted - previous.totalCompleted;
+                this.rejectedCount = totalRejected - previous.totalRejected;
+                this.queueWait = totalQueueWait.minus(previous.totalQueueWait);
+                this.runTime = totalRunTime.minus(previous.totalRunTime);
+            }
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public ThreadPoolMonitor getPool() {
+            return pool;
+        }
+
+        public int getQueueRemainingCapacity() {
+            return queueRemainingCapacity;
+        }
+
+        public long getCompletedCount() {
+            return completedCount;
+        }
+
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        public LatencyHistogram.Snapshot getQueueWait() {
+            return queueWait;
+        }
+
+        public LatencyHistogram.Snapshot getRunTime() {
+            return runTime;
+        }
+
+        @Override
+        public String toString() {
+            return "Sample{" +
+                "timestamp=" + timestamp +
+                ", pool=" + pool +
+                ", queueRemainingCapacity=" + queueRemainingCapacity +
+                ", completedCount=" + completedCount +
+                ", rejectedCount=" + rejectedCount +
+                ", queueWait=" + queueWait +
+                ", runTime=" + runTime +
+                '}';
+        }
+    }
+
+}
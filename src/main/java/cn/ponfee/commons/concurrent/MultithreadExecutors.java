@@ -8,24 +8,57 @@
 
 package cn.ponfee.commons.concurrent;
 
+import org.springframework.util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Multi Thread executor
  *
  * <p> {@code Thread#stop()} will occur "java.lang.ThreadDeath: null" if try...catch wrapped in Throwable
  *
+ * <pre>
+ * 1、数据按核数(或按成本估算)切分为chunk，最多只提交parallelism个worker任务，worker循环领取chunk执行，调用线程也作为worker
+ * 2、任一元素执行失败后其它worker不再领取与执行剩余的元素(fail-fast)，抛出CompletionException
+ * 3、ForkJoinPool方式：递归二分切分，work-stealing
+ * 4、流式方式：最多maxInFlightChunks个chunk在执行中，按输入顺序返回结果，不会把所有结果都保存在内存中
+ * </pre>
+ *
  * @author Ponfee
  */
 public class MultithreadExecutors {
 
+    /**
+     * Each worker expects to process the chunks count, for load balance
+     */
+    private static final int CHUNKS_PER_WORKER = 4;
 
     public static <T> void run(Collection<T> coll, Consumer<T> action, Executor executor) {
         run(coll, action, executor, 2);
@@ -46,10 +79,7 @@ public class MultithreadExecutors {
             coll.forEach(action);
             return;
         }
-        coll.stream()
-            .map(e -> CompletableFuture.runAsync(() -> action.accept(e), executor))
-            .collect(Collectors.toList())
-            .forEach(CompletableFuture::join);
+        runChunked(toList(coll), action, executor, parallelism(executor), null);
     }
 
     public static <T, U> List<U> call(Collection<T> coll, Function<T, U> mapper, Executor executor) {
@@ -74,12 +104,350 @@ public class MultithreadExecutors {
         if (dataSizeThreshold <= 0 || coll.size() < dataSizeThreshold) {
             return coll.stream().map(mapper).collect(Collectors.toList());
         }
-        return coll.stream()
-            .map(e -> CompletableFuture.supplyAsync(() -> mapper.apply(e), executor))
-            .collect(Collectors.toList())
-            .stream()
-            .map(CompletableFuture::join)
-            .collect(Collectors.toList());
+        return callChunked(toList(coll), mapper, executor, parallelism(executor), null);
+    }
+
+    // -----------------------------------------------------------------------------------chunked
+
+    /**
+     * Run chunked with bounded parallelism, stops the remaining elements on first failure.
+     *
+     * @param list          the T list
+     * @param action        the T action
+     * @param executor      thread executor service
+     * @param parallelism   the maximum in-flight tasks(include the caller thread)
+     * @param costEstimator the cost estimator of element, split equal-size chunks if null
+     * @throws CompletionException if any action failure
+     */
+    public static <T> void runChunked(List<T> list, Consumer<T> action, Executor executor,
+                                      int parallelism, ToLongFunction<? super T> costEstimator) {
+        if (list == null || list.isEmpty()) {
+            return;
+        }
+        List<T> data = toList(list);
+        executeChunks(data, costEstimator, parallelism, executor, i -> action.accept(data.get(i)));
+    }
+
+    /**
+     * Call chunked with bounded parallelism, stops the remaining elements on first failure.
+     *
+     * @param list          the T list
+     * @param mapper        the mapper of T to U
+     * @param executor      thread executor service
+     * @param parallelism   the maximum in-flight tasks(include the caller thread)
+     * @param costEstimator the cost estimator of element, split equal-size chunks if null
+     * @return the U list, the order same as input list
+     * @throws CompletionException if any mapper failure
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, U> List<U> callChunked(List<T> list, Function<T, U> mapper, Executor executor,
+                                             int parallelism, ToLongFunction<? super T> costEstimator) {
+        if (list == null) {
+            return null;
+        }
+        if (list.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> data = toList(list);
+        Object[] result = new Object[data.size()];
+        executeChunks(data, costEstimator, parallelism, executor, i -> result[i] = mapper.apply(data.get(i)));
+        return new ArrayList<>((List<U>) Arrays.asList(result));
+    }
+
+    // -----------------------------------------------------------------------------------fork-join
+
+    /**
+     * Run in fork-join pool with work-stealing, stops the remaining elements on first failure.
+     *
+     * @param list   the T list
+     * @param action the T action
+     * @param pool   the fork-join pool
+     * @throws CompletionException if any action failure
+     */
+    public static <T> void runForkJoin(List<T> list, Consumer<T> action, ForkJoinPool pool) {
+        if (list == null || list.isEmpty()) {
+            return;
+        }
+        List<T> data = toList(list);
+        invoke(pool, data.size(), i -> action.accept(data.get(i)));
+    }
+
+    /**
+     * Call in fork-join pool with work-stealing, stops the remaining elements on first failure.
+     *
+     * @param list   the T list
+     * @param mapper the mapper of T to U
+     * @param pool   the fork-join pool
+     * @return the U list, the order same as input list
+     * @throws CompletionException if any mapper failure
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, U> List<U> callForkJoin(List<T> list, Function<T, U> mapper, ForkJoinPool pool) {
+        if (list == null) {
+            return null;
+        }
+        if (list.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> data = toList(list);
+        Object[] result = new Object[data.size()];
+        invoke(pool, data.size(), i -> result[i] = mapper.apply(data.get(i)));
+        return new ArrayList<>((List<U>) Arrays.asList(result));
+    }
+
+    // -----------------------------------------------------------------------------------streaming
+
+    /**
+     * Call async and returns the results as a stream in input order. The source is consumed
+     * lazily, at most maxInFlightChunks chunks are executing or waiting to be consumed.
+     *
+     * @param source            the T source iterator, consumed in the stream consumer thread
+     * @param mapper            the mapper of T to U
+     * @param executor          thread executor service
+     * @param chunkSize         the chunk size
+     * @param maxInFlightChunks the maximum in-flight chunks
+     * @return the U stream, throws CompletionException when consume if any mapper failure
+     */
+    public static <T, U> Stream<U> callStreaming(Iterator<T> source, Function<T, U> mapper, Executor executor,
+                                                 int chunkSize, int maxInFlightChunks) {
+        Assert.isTrue(chunkSize > 0, "Chunk size must be positive number.");
+        Assert.isTrue(maxInFlightChunks > 0, "Max in-flight chunks must be positive number.");
+        Iterator<U> iterator = new StreamingIterator<>(source, mapper, executor, chunkSize, maxInFlightChunks);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    // -----------------------------------------------------------------------------------private methods
+
+    private static void executeChunks(List<?> list, ToLongFunction<?> costEstimator,
+                                      int parallelism, Executor executor, IntConsumer action) {
+        Assert.isTrue(parallelism > 0, "Parallelism must be positive number.");
+        int[] bounds = chunkBounds(list, costEstimator, parallelism * CHUNKS_PER_WORKER);
+        ChunkRunner runner = new ChunkRunner(bounds, action);
+
+        int workers = Math.min(parallelism, bounds.length - 1);
+        for (int i = 1; i < workers; i++) {
+            try {
+                executor.execute(runner);
+            } catch (RejectedExecutionException e) {
+                // the remaining chunks will be execute by caller thread
+                break;
+            }
+        }
+
+        // the caller thread also as a worker
+        runner.run();
+        runner.done.join();
+        Throwable failure = runner.failure.get();
+        if (failure != null) {
+            throw failure instanceof CompletionException ? (CompletionException) failure : new CompletionException(failure);
+        }
+    }
+
+    private static void invoke(ForkJoinPool pool, int size, IntConsumer action) {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            pool.invoke(new ForkJoinChunk(0, size, threshold(size, pool.getParallelism()), failure, action));
+        } catch (Throwable t) {
+            // fork-join pool may rethrow a copied exception, so use the original failure
+            Throwable f = failure.get();
+            throw new CompletionException(f != null ? f : t);
+        }
+    }
+
+    /**
+     * Returns the chunk bounds, chunk i is [bounds[i], bounds[i+1])
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int[] chunkBounds(List<?> list, ToLongFunction costEstimator, int expectChunks) {
+        int size = list.size();
+        int chunks = Math.max(1, Math.min(size, expectChunks));
+        if (costEstimator == null) {
+            int[] bounds = new int[chunks + 1];
+            for (int i = 0; i <= chunks; i++) {
+                bounds[i] = (int) ((long) size * i / chunks);
+            }
+            return bounds;
+        }
+
+        long[] costs = new long[size];
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += (costs[i] = Math.max(1, costEstimator.applyAsLong(list.get(i))));
+        }
+        long target = Math.max(1, total / chunks);
+        int[] bounds = new int[chunks + 1];
+        int n = 0;
+        long acc = 0;
+        for (int i = 0; i < size && n < chunks - 1; i++) {
+            acc += costs[i];
+            if (acc >= target) {
+                bounds[++n] = i + 1;
+                acc = 0;
+            }
+        }
+        bounds[++n] = size;
+        return n == chunks ? bounds : Arrays.copyOf(bounds, n + 1);
+    }
+
+    private static int threshold(int size, int parallelism) {
+        return Math.max(1, size / (Math.max(1, parallelism) * CHUNKS_PER_WORKER));
+    }
+
+    private static int parallelism(Executor executor) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getParallelism();
+        }
+        if (executor instanceof ThreadPoolExecutor) {
+            return Math.min(((ThreadPoolExecutor) executor).getMaximumPoolSize(), processors);
+        }
+        return processors;
+    }
+
+    private static <T> List<T> toList(Collection<T> coll) {
+        return (coll instanceof List && coll instanceof RandomAccess) ? (List<T>) coll : new ArrayList<>(coll);
+    }
+
+    /**
+     * Workers claim chunk in loop, the same runner submitted to executor at most parallelism times.
+     */
+    private static final class ChunkRunner implements Runnable {
+        private final int[] bounds;
+        private final IntConsumer action;
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private ChunkRunner(int[] bounds, IntConsumer action) {
+            this.bounds = bounds;
+            this.action = action;
+            this.remaining = new AtomicInteger(bounds.length - 1);
+        }
+
+        @Override
+        public void run() {
+            for (int c; (c = nextChunk.getAndIncrement()) < bounds.length - 1; ) {
+                try {
+                    for (int i = bounds[c], end = bounds[c + 1]; i < end && failure.get() == null; i++) {
+                        action.accept(i);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                    Threads.interruptIfNecessary(t);
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        done.complete(null);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class ForkJoinChunk extends RecursiveAction {
+        private static final long serialVersionUID = -6451215063588418011L;
+
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final AtomicReference<Throwable> failure;
+        private final IntConsumer action;
+
+        private ForkJoinChunk(int from, int to, int threshold, AtomicReference<Throwable> failure, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.failure = failure;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (failure.get() != null) {
+                return;
+            }
+            if (to - from <= threshold) {
+                try {
+                    for (int i = from; i < to && failure.get() == null; i++) {
+                        action.accept(i);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                    throw t;
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(
+                new ForkJoinChunk(from, mid, threshold, failure, action),
+                new ForkJoinChunk(mid, to, threshold, failure, action)
+            );
+        }
+    }
+
+    private static final class StreamingIterator<T, U> implements Iterator<U> {
+        private final Iterator<T> source;
+        private final Function<T, U> mapper;
+        private final Executor executor;
+        private final int chunkSize;
+        private final int maxInFlightChunks;
+        private final Deque<CompletableFuture<List<U>>> window;
+        private Iterator<U> current = Collections.emptyIterator();
+
+        private StreamingIterator(Iterator<T> source, Function<T, U> mapper, Executor executor,
+                                  int chunkSize, int maxInFlightChunks) {
+            this.source = source;
+            this.mapper = mapper;
+            this.executor = executor;
+            this.chunkSize = chunkSize;
+            this.maxInFlightChunks = maxInFlightChunks;
+            this.window = new ArrayDeque<>(maxInFlightChunks);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                fill();
+                CompletableFuture<List<U>> head = window.poll();
+                if (head == null) {
+                    return false;
+                }
+                // keep the window full while waiting the head chunk
+                fill();
+                try {
+                    current = head.join().iterator();
+                } catch (RuntimeException e) {
+                    window.forEach(f -> f.cancel(true));
+                    window.clear();
+                    throw e;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public U next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        private void fill() {
+            while (window.size() < maxInFlightChunks && source.hasNext()) {
+                List<T> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && source.hasNext()) {
+                    chunk.add(source.next());
+                }
+                window.add(CompletableFuture.supplyAsync(() -> {
+                    List<U> result = new ArrayList<>(chunk.size());
+                    for (T t : chunk) {
+                        result.add(mapper.apply(t));
+                    }
+                    return result;
+                }, executor));
+            }
+        }
     }
 
 }
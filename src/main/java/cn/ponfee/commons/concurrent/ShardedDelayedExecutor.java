@@ -0,0 +1,451 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.concurrent;
+
+import cn.ponfee.commons.util.HierarchicalTimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ * 分片的异步延迟执行器
+ *
+ * 1、N个相互独立的分层时间轮(每个时间轮一个驱动线程)，按key的hash分片，插入与取消都是O(1)且分片间无锁竞争
+ * 2、putAll按分片分组后每个分片只加一次锁
+ * 3、put返回{@link Handle}，可取消还未到期的数据
+ * 4、统计到期执行的漂移(实际执行时间-期望执行时间)与队列深度
+ * 5、停止时可以立即执行(flush)未到期的数据，或者返回未到期的数据由调用方持久化
+ * </pre>
+ *
+ * @param <E> the element type
+ * @author Ponfee
+ * @see AsyncDelayedExecutor
+ * @see HierarchicalTimingWheel
+ */
+public final class ShardedDelayedExecutor<E> {
+
+    private final static Logger LOG = LoggerFactory.getLogger(ShardedDelayedExecutor.class);
+
+    private final Consumer<E> processor;
+    private final Function<? super E, ?> shardKey;
+    private final HierarchicalTimingWheel<Handle<E>>[] shards;
+    private final ThreadPoolExecutor ownedExecutor;
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+    private final Metrics metrics = new Metrics();
+
+    private ShardedDelayedExecutor(Builder<E> builder) {
+        this.processor = builder.processor;
+        this.shardKey = builder.shardKey;
+
+        Executor executor = builder.executor;
+        ThreadPoolExecutor owned = null;
+        if (executor == null && builder.maximumPoolSize > 1) {
+            executor = owned = ThreadPoolExecutors.builder()
+                .corePoolSize(1)
+                .maximumPoolSize(builder.maximumPoolSize)
+                .workQueue(new SynchronousQueue<>())
+                .keepAliveTimeSeconds(300)
+                .threadFactory(NamedThreadFactory.builder().prefix("sharded_delayed_worker").build())
+                .rejectedHandler(ThreadPoolExecutors.CALLER_RUNS)
+                .build();
+        }
+        this.ownedExecutor = owned;
+
+        @SuppressWarnings("unchecked")
+        HierarchicalTimingWheel<Handle<E>>[] wheels = (HierarchicalTimingWheel<Handle<E>>[]) new HierarchicalTimingWheel<?>[builder.shards];
+        for (int i = 0; i < wheels.length; i++) {
+            wheels[i] = new HierarchicalTimingWheel<>(builder.tickMs, builder.wheelSize, this::process, executor).start();
+        }
+        this.shards = wheels;
+    }
+
+    public static <E> Builder<E> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Puts a data which will be process after delay millis
+     *
+     * @param data        the data
+     * @param delayMillis the delay millis
+     * @return the handle, {@code null} if stopped
+     */
+    public Handle<E> put(E data, long delayMillis) {
+        Objects.requireNonNull(data);
+        if (stopped.get()) {
+            return null;
+        }
+        Handle<E> handle = new Handle<>(data, delayMillis);
+        HierarchicalTimingWheel.WheelTask<Handle<E>> task = shard(data).add(handle, delayMillis);
+        if (task == null) {
+            return null;
+        }
+        metrics.submitted.increment();
+        return handle.bind(task);
+    }
+
+    /**
+     * Puts a delayed data
+     *
+     * @param delayedData the delayed data
+     * @return the handle, {@code null} if stopped
+     */
+    public Handle<E> put(DelayedData<E> delayedData) {
+        return put(delayedData.getData(), delayedData.getDelay(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Batch puts delayed data, each shard acquires the lock only once.
+     *
+     * @param delayedDataList the delayed data list
+     * @return the handles in the same order as input, exclude the data which not added because of stopped
+     */
+    public List<Handle<E>> putAll(Collection<DelayedData<E>> delayedDataList) {
+        // checks all before any added, same as put
+        Objects.requireNonNull(delayedDataList);
+        for (DelayedData<E> delayedData : delayedDataList) {
+            Objects.requireNonNull(delayedData);
+        }
+        if (stopped.get() || delayedDataList.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Handle<E>> handles = new ArrayList<>(delayedDataList.size());
+        @SuppressWarnings("unchecked")
+        List<Handle<E>>[] groups = (List<Handle<E>>[]) new List<?>[shards.length];
+        int expectedSize = delayedDataList.size() / shards.length + 1;
+        for (DelayedData<E> delayedData : delayedDataList) {
+            E data = delayedData.getData();
+            Handle<E> handle = new Handle<>(data, delayedData.getDelay(TimeUnit.MILLISECONDS));
+            int index = shardIndex(data);
+            if (groups[index] == null) {
+                groups[index] = new ArrayList<>(expectedSize);
+            }
+            groups[index].add(handle);
+            handles.add(handle);
+        }
+
+        for (int i = 0; i < groups.length; i++) {
+            if (groups[i] != null) {
+                shards[i].addAll(groups[i], h -> h.delayMillis).forEach(task -> task.getData().bind(task));
+            }
+        }
+
+        // keep the order same as the input, and exclude which not added(the wheel was stopped)
+        List<Handle<E>> result = new ArrayList<>(handles.size());
+        for (Handle<E> handle : handles) {
+            if (handle.task != null) {
+                result.add(handle);
+            }
+        }
+        metrics.submitted.add(result.size());
+        return result;
+    }
+
+    /**
+     * Returns the pending data count
+     *
+     * @return pending data count
+     */
+    public long size() {
+        long size = 0;
+        for (HierarchicalTimingWheel<Handle<E>> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Stops and returns the pending data which not yet expired, caller can persist them.
+     *
+     * @return list of pending data
+     */
+    public List<E> stop() {
+        if (!stopped.compareAndSet(false, true)) {
+            return Collections.emptyList();
+        }
+        List<E> pending = new ArrayList<>();
+        for (HierarchicalTimingWheel<Handle<E>> shard : shards) {
+            for (HierarchicalTimingWheel.WheelTask<Handle<E>> task : shard.stop()) {
+                if (!task.isCancelled()) {
+                    pending.add(task.getData().data);
+                }
+            }
+        }
+        if (ownedExecutor != null) {
+            ThreadPoolExecutors.shutdown(ownedExecutor, 3);
+        }
+        return pending;
+    }
+
+    /**
+     * Stops and process immediately the pending data in current thread.
+     *
+     * @return the flushed data count
+     */
+    public int stopAndFlush() {
+        List<E> pending = stop();
+        for (E data : pending) {
+            try {
+                processor.accept(data);
+            } catch (Throwable t) {
+                metrics.failures.increment();
+                LOG.error("Flush delayed data occur error: " + data, t);
+                Threads.interruptIfNecessary(t);
+            }
+        }
+        metrics.flushed.add(pending.size());
+        return pending.size();
+    }
+
+    // ----------------------------------------------------------------------private methods
+
+    private HierarchicalTimingWheel<Handle<E>> shard(E data) {
+        return shards[shardIndex(data)];
+    }
+
+    private int shardIndex(E data) {
+        if (shards.length == 1) {
+            return 0;
+        }
+        Object key = shardKey == null ? data : shardKey.apply(data);
+        int h = key == null ? 0 : key.hashCode();
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % shards.length;
+    }
+
+    private void process(Handle<E> handle) {
+        long drift = clockMs() - handle.dueMs;
+        metrics.record(drift);
+        try {
+            processor.accept(handle.data);
+        } catch (Throwable t) {
+            metrics.failures.increment();
+            LOG.error("Process delayed data occur error: " + handle.data, t);
+            Threads.interruptIfNecessary(t);
+        }
+    }
+
+    private static long clockMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * The handle of put data, can be used to cancel.
+     *
+     * @param <E> the element type
+     */
+    public static final class Handle<E> {
+        private final E data;
+        private final long delayMillis;
+        private final long dueMs;
+        private volatile HierarchicalTimingWheel.WheelTask<Handle<E>> task;
+
+        private Handle(E data, long delayMillis) {
+            this.data = data;
+            this.delayMillis = delayMillis;
+            this.dueMs = clockMs() + delayMillis;
+        }
+
+        private Handle<E> bind(HierarchicalTimingWheel.WheelTask<Handle<E>> task) {
+            this.task = task;
+            return this;
+        }
+
+        public E getData() {
+            return data;
+        }
+
+        /**
+         * Returns the remaining delay millis
+         *
+         * @return remaining delay millis
+         */
+        public long getDelay() {
+            return dueMs - clockMs();
+        }
+
+        public boolean isCancelled() {
+            return task.isCancelled();
+        }
+
+        /**
+         * Cancels the pending data
+         *
+         * @return {@code true} if cancel success, {@code false} if already expired or cancelled
+         */
+        public boolean cancel() {
+            return task.cancel();
+        }
+    }
+
+    /**
+     * Delayed executor metrics, the drift is the actual process time minus the expected time.
+     */
+    public final class Metrics {
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder flushed = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder driftMillis = new LongAdder();
+        private final AtomicLong maxDriftMillis = new AtomicLong();
+
+        private Metrics() {
+        }
+
+        private void record(long drift) {
+            processed.increment();
+            driftMillis.add(drift);
+            maxDriftMillis.accumulateAndGet(drift, Math::max);
+        }
+
+        public long getQueueDepth() {
+            return size();
+        }
+
+        public long[] getShardQueueDepth() {
+            long[] depth = new long[shards.length];
+            for (int i = 0; i < shards.length; i++) {
+                depth[i] = shards[i].size();
+            }
+            return depth;
+        }
+
+        public long getSubmittedCount() {
+            return submitted.sum();
+        }
+
+        public long getProcessedCount() {
+            return processed.sum();
+        }
+
+        public long getFlushedCount() {
+            return flushed.sum();
+        }
+
+        public long getFailureCount() {
+            return failures.sum();
+        }
+
+        public double getAverageDriftMillis() {
+            long count = processed.sum();
+            return count == 0 ? 0.0D : (double) driftMillis.sum() / count;
+        }
+
+        public long getMaxDriftMillis() {
+            return maxDriftMillis.get();
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                "queueDepth=" + getQueueDepth() +
+                ", submitted=" + getSubmittedCount() +
+                ", processed=" + getProcessedCount() +
+                ", flushed=" + getFlushedCount() +
+                ", failures=" + getFailureCount() +
+                ", avgDriftMillis=" + getAverageDriftMillis() +
+                ", maxDriftMillis=" + getMaxDriftMillis() +
+                '}';
+        }
+    }
+
+    public static class Builder<E> {
+        private Consumer<E> processor;
+        private Function<? super E, ?> shardKey;
+        private int shards = Runtime.getRuntime().availableProcessors();
+        private long tickMs = 1;
+        private int wheelSize = 512;
+        private Executor executor;
+        private int maximumPoolSize = 1;
+
+        private Builder() {
+        }
+
+        public Builder<E> processor(Consumer<E> processor) {
+            this.processor = processor;
+            return this;
+        }
+
+        /**
+         * Sets the shard key mapper, default use the data self
+         *
+         * @param shardKey the shard key mapper
+         * @return this builder
+         */
+        public Builder<E> shardKey(Function<? super E, ?> shardKey) {
+            this.shardKey = shardKey;
+            return this;
+        }
+
+        public Builder<E> shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        public Builder<E> tickMs(long tickMs) {
+            this.tickMs = tickMs;
+            return this;
+        }
+
+        public Builder<E> wheelSize(int wheelSize) {
+            this.wheelSize = wheelSize;
+            return this;
+        }
+
+        /**
+         * Sets the executor for process expired data, it will not be shutdown when stop.
+         *
+         * @param executor the executor
+         * @return this builder
+         */
+        public Builder<E> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Creates an inner thread pool executor if greater than 1 and not set the executor,
+         * otherwise process in the shard driver thread.
+         *
+         * @param maximumPoolSize the maximum pool size
+         * @return this builder
+         */
+        public Builder<E> maximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+            return this;
+        }
+
+        public ShardedDelayedExecutor<E> build() {
+            Assert.notNull(processor, "Processor cannot be null.");
+            Assert.isTrue(shards > 0, "Shards must be positive number.");
+            return new ShardedDelayedExecutor<>(this);
+        }
+    }
+
+}
@@ -130,11 +130,7 @@ public final class ThreadPoolExecutors {
         }
 
         public ThreadPoolExecutor build() {
-            Assert.isTrue(maximumPoolSize > 0, () -> String.format("Maximum pool size %d must greater than 0.", maximumPoolSize));
-            Assert.isTrue(maximumPoolSize <= MAX_CAP, () -> String.format("Maximum pool size %d cannot greater than %d.", maximumPoolSize, MAX_CAP));
-            Assert.isTrue(corePoolSize > 0, () -> String.format("Core pool size %d must greater than 0.", corePoolSize));
-            Assert.isTrue(corePoolSize <= maximumPoolSize, () -> String.format("Core pool size %d cannot greater than maximum pool size %d.", corePoolSize, maximumPoolSize));
-            Assert.notNull(workQueue, "Worker queue cannot be null.");
+            validate();
 
             // create ThreadPoolExecutor instance
             ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
@@ -146,7 +142,39 @@ public final class ThreadPoolExecutors {
                 threadFactory != null ? threadFactory : Executors.defaultThreadFactory(),
                 rejectedHandler != null ? rejectedHandler : CALLER_RUNS
             );
+            return configure(threadPoolExecutor);
+        }
+
+        /**
+         * Builds an instrumented thread pool executor, which records the task queue wait time,
+         * run time and rejected count, and supports resize at runtime.
+         *
+         * @return instrumented thread pool executor
+         */
+        public InstrumentedThreadPoolExecutor buildInstrumented() {
+            validate();
+
+            InstrumentedThreadPoolExecutor threadPoolExecutor = new InstrumentedThreadPoolExecutor(
+                corePoolSize,
+                maximumPoolSize,
+                keepAliveTimeSeconds,
+                TimeUnit.SECONDS,
+                workQueue,
+                threadFactory != null ? threadFactory : Executors.defaultThreadFactory(),
+                rejectedHandler != null ? rejectedHandler : CALLER_RUNS
+            );
+            return configure(threadPoolExecutor);
+        }
+
+        private void validate() {
+            Assert.isTrue(maximumPoolSize > 0, () -> String.format("Maximum pool size %d must greater than 0.", maximumPoolSize));
+            Assert.isTrue(maximumPoolSize <= MAX_CAP, () -> String.format("Maximum pool size %d cannot greater than %d.", maximumPoolSize, MAX_CAP));
+            Assert.isTrue(corePoolSize > 0, () -> String.format("Core pool size %d must greater than 0.", corePoolSize));
+            Assert.isTrue(corePoolSize <= maximumPoolSize, () -> String.format("Core pool size %d cannot greater than maximum pool size %d.", corePoolSize, maximumPoolSize));
+            Assert.notNull(workQueue, "Worker queue cannot be null.");
+        }
 
+        private <T extends ThreadPoolExecutor> T configure(T threadPoolExecutor) {
             threadPoolExecutor.allowCoreThreadTimeOut(allowCoreThreadTimeOut);
             if (prestartCoreThreadType == PrestartCoreThreadType.ONE) {
                 threadPoolExecutor.prestartCoreThread();
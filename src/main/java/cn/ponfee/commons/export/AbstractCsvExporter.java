@@ -15,8 +15,11 @@ import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 /**
  * Exports csv
@@ -40,6 +43,15 @@ public abstract class AbstractCsvExporter<T> extends AbstractDataExporter<T> {
 
     @Override
     public final <E> void build(Table<E> table) {
+        build0(table, null);
+    }
+
+    @Override
+    public final <E> void build(Table<E> table, Iterator<E> rows) {
+        build0(table, Objects.requireNonNull(rows));
+    }
+
+    private <E> void build0(Table<E> table, Iterator<E> rows) {
         if (hasBuild.getAndSet(true)) {
             throw new UnsupportedOperationException("Only support single table.");
         }
@@ -53,7 +65,7 @@ public abstract class AbstractCsvExporter<T> extends AbstractDataExporter<T> {
         buildComplexThead(thead);
 
         // tbody---------------
-        rollingTbody(table, (data, i) -> {
+        BiConsumer<Object[], Integer> action = (data, i) -> {
             try {
                 for (int m = data.length - 1, j = 0; j <= m; j++) {
                     // escapeCsv(toString(data[j]), csvSeparator);
@@ -69,10 +81,17 @@ public abstract class AbstractCsvExporter<T> extends AbstractDataExporter<T> {
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
-        });
+        };
+        boolean emptyTbody;
+        if (rows == null) {
+            rollingTbody(table, action);
+            emptyTbody = table.isEmptyTbody();
+        } else {
+            emptyTbody = rollingTbody(table, rows, action) == 0;
+        }
 
         try {
-            if (table.isEmptyTbody()) {
+            if (emptyTbody) {
                 csv.append(NO_RESULT_TIP);
             } else {
                 super.nonEmpty();
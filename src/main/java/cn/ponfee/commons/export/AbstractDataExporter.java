@@ -39,6 +39,17 @@ public abstract class AbstractDataExporter<T> implements DataExporter<T> {
         // nothing to do
     }
 
+    /**
+     * 构建表格，tbody从迭代器中消费而不是table的队列
+     *
+     * @param table the table, only use the thead, caption, tfoot, comment and options
+     * @param rows  the tbody rows
+     * @throws UnsupportedOperationException if the exporter unsupported
+     */
+    public <E> void build(Table<E> table, Iterator<E> rows) {
+        throw new UnsupportedOperationException("Unsupported build from iterator: " + getClass().getName());
+    }
+
     public final void nonEmpty() {
         this.empty = false;
     }
@@ -53,42 +64,12 @@ public abstract class AbstractDataExporter<T> implements DataExporter<T> {
     }
 
     protected final <E> void rollingTbody(Table<E> table, BiConsumer<Object[], Integer> action) {
+        Function<E, Object[]> converter = rowConverter(table);
         try {
-            E data; Function<E, Object[]> converter;
-            if ((converter = table.getConverter()) != null) {
-                for (int i = 0; table.isNotEnd();) {
-                    if ((data = table.getRow(AWAIT_TIME_MILLIS)) != null) {
-                        action.accept(converter.apply(data), i++);
-                    }
-                }
-            } else {
-                String[] fields = table.getThead()
-                                       .stream()
-                                       .filter(FlatNode::isLeaf)
-                                       .map(f -> f.getAttach().getField())
-                                       .toArray(String[]::new);
-                Object[] array;
-                for (int i = 0; table.isNotEnd();) {
-                    if ((data = table.getRow(AWAIT_TIME_MILLIS)) != null) {
-                        if (data instanceof Object[]) {
-                            array = (Object[]) data;
-                        } else if (data.getClass().isArray()) {
-                            array = covariantArray(data);
-                        } else if (data instanceof Collection<?>) {
-                            array = collection2array((Collection<?>) data);
-                        } else if (data instanceof Iterable<?>) {
-                            array = iterable2array((Iterable<?>) data);
-                        } else if (data instanceof Iterator<?>) {
-                            array = iterator2array((Iterator<?>) data);
-                        } else if (data instanceof Map<?, ?>) {
-                            array = map2array((Map<?, ?>) data);
-                        } else if (data instanceof Dictionary<?, ?>) {
-                            array = dictionary2array((Dictionary<?, ?>) data);
-                        } else {
-                            array = bean2array(data, fields);
-                        }
-                        action.accept(array, i++);
-                    }
+            E data;
+            for (int i = 0; table.isNotEnd();) {
+                if ((data = table.getRow(AWAIT_TIME_MILLIS)) != null) {
+                    action.accept(converter.apply(data), i++);
                 }
             }
         } catch (InterruptedException e) {
@@ -97,6 +78,56 @@ public abstract class AbstractDataExporter<T> implements DataExporter<T> {
         }
     }
 
+    /**
+     * Rolling the tbody from the iterator rather than the table queue, the rows are not materialized.
+     *
+     * @param table  the table, only use the thead and converter
+     * @param rows   the rows iterator
+     * @param action the row action
+     * @return rolled row count
+     */
+    protected final <E> int rollingTbody(Table<E> table, Iterator<E> rows, BiConsumer<Object[], Integer> action) {
+        Function<E, Object[]> converter = rowConverter(table);
+        int i = 0;
+        for (E data; rows.hasNext();) {
+            if ((data = rows.next()) != null) {
+                action.accept(converter.apply(data), i++);
+            }
+        }
+        return i;
+    }
+
+    private static <E> Function<E, Object[]> rowConverter(Table<E> table) {
+        if (table.getConverter() != null) {
+            return table.getConverter();
+        }
+
+        String[] fields = table.getThead()
+                               .stream()
+                               .filter(FlatNode::isLeaf)
+                               .map(f -> f.getAttach().getField())
+                               .toArray(String[]::new);
+        return data -> {
+            if (data instanceof Object[]) {
+                return (Object[]) data;
+            } else if (data.getClass().isArray()) {
+                return covariantArray(data);
+            } else if (data instanceof Collection<?>) {
+                return collection2array((Collection<?>) data);
+            } else if (data instanceof Iterable<?>) {
+                return iterable2array((Iterable<?>) data);
+            } else if (data instanceof Iterator<?>) {
+                return iterator2array((Iterator<?>) data);
+            } else if (data instanceof Map<?, ?>) {
+                return map2array((Map<?, ?>) data);
+            } else if (data instanceof Dictionary<?, ?>) {
+                return dictionary2array((Dictionary<?, ?>) data);
+            } else {
+                return bean2array(data, fields);
+            }
+        };
+    }
+
     protected final List<Thead> getLeafThead(List<FlatNode<Integer, Thead>> thead) {
         return thead.stream()
                     .filter(FlatNode::isLeaf)
@@ -8,29 +8,63 @@
 
 package cn.ponfee.commons.export;
 
+import cn.ponfee.commons.io.CompressionCodec;
 import cn.ponfee.commons.util.Holder;
 import com.google.common.base.Preconditions;
 
-import java.io.IOException;
-import java.util.LinkedList;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
+ * <pre>
  * Export multiple file
  *
+ * 生产者/消费者流水线：
+ * 1、build线程按行生产，每个文件有一个有界队列，队列满时生产者阻塞(背压)
+ * 2、每个文件的写入在线程池中执行，从队列中阻塞获取行数据，直到收到结束标记
+ * 3、按行数或文件字节数滚动文件，字节数在写入线程中统计，生产者据此判断是否滚动(近似值)
+ * 4、可选gzip或zip边写边压缩，也可以指定{@link CompressionCodec}(如lz4、zstd)
+ * 5、通过CompletableFuture等待所有文件写完，并统计行数/字节数及吞吐量
+ *
+ * 注：executor不能在调用线程中执行任务(如direct executor、caller runs拒绝策略)，否则会抛出IllegalStateException
+ * </pre>
+ *
  * @author Ponfee
  */
 public abstract class AbstractSplitExporter extends AbstractDataExporter<Void> {
 
+    /** 行数据的结束标记 */
+    private static final Object[] END = new Object[0];
+
+    private static final int BUFFER_SIZE = 65536;
+
     private final int batchSize;
     private final String savingFilePathPrefix;
     private final String fileSuffix;
     private final Executor executor;
 
+    private long maxBytes = 0;
+    private int queueCapacity = 1024;
+    private Compression compression = Compression.NONE;
+    private CompressionCodec codec;
+    private volatile Statistics statistics;
+    private final boolean legacy = overridesSplitExporter();
+
     public AbstractSplitExporter(int batchSize, String savingFilePathPrefix, 
                                  String fileSuffix, Executor executor) {
         Preconditions.checkArgument(batchSize > 0);
@@ -40,45 +74,353 @@ public abstract class AbstractSplitExporter extends AbstractDataExporter<Void> {
         this.executor = executor;
     }
 
+    /**
+     * Sets the max bytes of per file, 0 is not limit, only valid for streaming writer such as csv
+     *
+     * @param maxBytes the max bytes
+     * @return this
+     */
+    public final AbstractSplitExporter maxBytes(long maxBytes) {
+        Preconditions.checkArgument(maxBytes >= 0);
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Sets the bounded queue capacity of per file
+     *
+     * @param queueCapacity the queue capacity
+     * @return this
+     */
+    public final AbstractSplitExporter queueCapacity(int queueCapacity) {
+        Preconditions.checkArgument(queueCapacity > 0);
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    public final AbstractSplitExporter compression(Compression compression) {
+        this.compression = Preconditions.checkNotNull(compression);
+        this.codec = null;
+        return this;
+    }
+
+    /**
+     * Sets the compression codec, the file is raw codec format without codec header
+     *
+     * @param codec the compression codec
+     * @return this
+     */
+    public final AbstractSplitExporter compression(CompressionCodec codec) {
+        this.codec = Preconditions.checkNotNull(codec);
+        this.compression = null;
+        return this;
+    }
+
     @Override
     public final <E> void build(Table<E> table) {
-        List<CompletableFuture<Void>> futures = new LinkedList<>();
-        AtomicInteger count = new AtomicInteger(0);
-        AtomicInteger split = new AtomicInteger(0);
+        build0(table, null);
+    }
+
+    @Override
+    public final <E> void build(Table<E> table, Iterator<E> rows) {
+        build0(table, Preconditions.checkNotNull(rows));
+    }
+
+    /**
+     * Returns the statistics of last build
+     *
+     * @return statistics, null if not build
+     */
+    public final Statistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public final Void export() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates the exporter which write to the output stream, the subclass must override this method
+     * (it is not abstract only for compatible with the deprecated {@link #splitExporter(Table, String)})
+     *
+     * @param out the output stream, the compression already applied
+     * @return data exporter, must support {@link AbstractDataExporter#build(Table, Iterator)}
+     * @throws IOException if occur io error
+     */
+    protected AbstractDataExporter<?> createExporter(OutputStream out) throws IOException {
+        throw new UnsupportedOperationException("Split exporter must override createExporter(OutputStream): " + getClass().getName());
+    }
+
+    /**
+     * Callback after the exporter build completed
+     *
+     * @param exporter the exporter
+     * @param out      the output stream
+     * @throws IOException if occur io error
+     */
+    protected void complete(AbstractDataExporter<?> exporter, OutputStream out) throws IOException {}
+
+    /**
+     * Creates the async split exporter of the sub table, the rows are not rolled by bytes and not compressed
+     *
+     * @param subTable       the sub table
+     * @param savingFilePath the saving file path
+     * @return async split exporter
+     * @deprecated use {@link #createExporter(OutputStream)} instead, will be removed in the next release
+     */
+    @Deprecated
+    protected AbstractAsyncSplitExporter splitExporter(Table<Object[]> subTable, String savingFilePath) {
+        throw new UnsupportedOperationException();
+    }
+
+    // ------------------------------------------------------------private methods
+
+    private <E> void build0(Table<E> table, Iterator<E> rows) {
+        if (legacy) {
+            buildLegacy(table, rows);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Table<Object[]> subTable = table.copyOfWithoutTbody(Function.identity());
+        List<SplitWriter> writers = new ArrayList<>();
+        BiConsumer<Object[], Integer> action = (data, i) -> {
+            SplitWriter writer = writers.isEmpty() ? null : writers.get(writers.size() - 1);
+            if (writer == null || writer.isFull()) {
+                if (writer != null) {
+                    writer.end();
+                }
+                writers.add(writer = new SplitWriter(subTable, writers.size() + 1));
+            }
+            writer.put(data);
+        };
+
+        try {
+            if (rows == null) {
+                rollingTbody(table, action);
+            } else {
+                rollingTbody(table, rows, action);
+            }
+        } finally {
+            if (!writers.isEmpty()) {
+                writers.get(writers.size() - 1).end();
+            }
+        }
+
+        join(CompletableFuture.allOf(writers.stream().map(w -> w.future).toArray(CompletableFuture[]::new)));
+
+        if (!writers.isEmpty()) {
+            super.nonEmpty();
+        }
+        this.statistics = new Statistics(
+            writers.size(),
+            writers.stream().mapToLong(w -> w.rows).sum(),
+            writers.stream().mapToLong(w -> w.counter.count).sum(),
+            System.nanoTime() - start
+        );
+    }
+
+    @SuppressWarnings("deprecation")
+    private <E> void buildLegacy(Table<E> table, Iterator<E> rows) {
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        long[] count = {0, 0}; // [current sub table rows, total rows]
         Holder<Table<Object[]>> subTable = Holder.of(table.copyOfWithoutTbody(Function.identity()));
-        rollingTbody(table, (data, i) -> {
+        BiConsumer<Object[], Integer> action = (data, i) -> {
             subTable.get().addRow(data);
-            if (count.incrementAndGet() == batchSize) {
+            count[1]++;
+            if (++count[0] == batchSize) {
                 // sets a new table and return the last
                 Table<Object[]> last = subTable.set(table.copyOfWithoutTbody(Function.identity()));
-                String path = buildFilePath(split.incrementAndGet());
-                futures.add(CompletableFuture.runAsync(splitExporter(last, path), executor));
-                count.set(0); // reset count and sub table
+                futures.add(CompletableFuture.runAsync(splitExporter(last, buildFilePath(futures.size() + 1)), executor));
+                count[0] = 0;
             }
-        });
+        };
+        if (rows == null) {
+            rollingTbody(table, action);
+        } else {
+            rollingTbody(table, rows, action);
+        }
         if (!subTable.get().isEmptyTbody()) {
-            String path = buildFilePath(split.incrementAndGet());
-            futures.add(CompletableFuture.runAsync(splitExporter(subTable.get(), path), executor));
+            futures.add(CompletableFuture.runAsync(splitExporter(subTable.get(), buildFilePath(futures.size() + 1)), executor));
         }
 
+        join(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])));
         if (!futures.isEmpty()) {
             super.nonEmpty();
-            futures.forEach(CompletableFuture::join);
         }
+        this.statistics = new Statistics(futures.size(), count[1], 0, System.nanoTime() - start);
     }
 
-    protected abstract AbstractAsyncSplitExporter splitExporter(Table<Object[]> subTable,
-                                                                String savingFilePath);
-
-    @Override
-    public final Void export() {
-        throw new UnsupportedOperationException();
+    private boolean overridesSplitExporter() {
+        for (Class<?> type = getClass(); type != AbstractSplitExporter.class; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("splitExporter", Table.class, String.class);
+                return true;
+            } catch (NoSuchMethodException ignored) {
+                // continue to check the super class
+            }
+        }
+        return false;
     }
 
     private String buildFilePath(int fileNo) {
         return savingFilePathPrefix + String.format("%04d", fileNo) + fileSuffix;
     }
 
+    /**
+     * Waits the future completed, throws the original exception
+     *
+     * @param future the future
+     */
+    private static void join(CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 单个文件的写入器：生产者调用put/end，线程池中的消费者以迭代器的方式阻塞读取
+     */
+    private final class SplitWriter implements Iterator<Object[]> {
+        final BlockingQueue<Object[]> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final CountingOutputStream counter;
+        final CompletableFuture<Void> future;
+        int rows = 0; // producer side only
+        Object[] next; // consumer side only
+
+        SplitWriter(Table<Object[]> subTable, int fileNo) {
+            Thread producer = Thread.currentThread();
+            String path = buildFilePath(fileNo);
+            try {
+                this.counter = new CountingOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(path + (codec != null ? codec.extension() : compression.extension)), BUFFER_SIZE)
+                );
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException(e);
+            }
+            String entryName = new File(path).getName();
+            this.future = CompletableFuture.runAsync(() -> {
+                if (Thread.currentThread() == producer) {
+                    // consume in the producer thread will be blocked forever at take
+                    closeQuietly(counter);
+                    throw new IllegalStateException("Split exporter executor cannot run the writer in the caller thread.");
+                }
+                // counter as its own resource: closed although the wrap failed
+                try (OutputStream raw = counter;
+                     OutputStream out = codec != null ? codec.compress(raw) : compression.wrap(raw, entryName);
+                     AbstractDataExporter<?> exporter = createExporter(out)) {
+                    exporter.setName(getName());
+                    exporter.build(subTable, this);
+                    complete(exporter, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    // the producer will not block if consumer failed
+                    queue.clear();
+                }
+            }, executor);
+        }
+
+        boolean isFull() {
+            return rows >= batchSize || (maxBytes > 0 && counter.count >= maxBytes);
+        }
+
+        void put(Object[] row) {
+            try {
+                // offer with timeout: avoid blocked forever when the consumer failed
+                while (!queue.offer(row, AWAIT_TIME_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (future.isDone()) {
+                        join(future);
+                        throw new IllegalStateException("Split writer already completed.");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Put an element to queue failed.", e);
+            }
+            if (row != END) {
+                rows++;
+            }
+        }
+
+        void end() {
+            if (!future.isDone()) {
+                put(END);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Take an element from queue failed.", e);
+                }
+            }
+            return next != END;
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[] row = next;
+            next = null;
+            return row;
+        }
+    }
+
+    private static void closeQuietly(OutputStream out) {
+        try {
+            out.close();
+        } catch (IOException ignored) {
+            // ignored
+        }
+    }
+
+    /**
+     * 统计写入的字节数，只有写入线程修改
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        volatile long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * The async split exporter of the sub table
+     *
+     * @deprecated use {@link AbstractSplitExporter#createExporter(OutputStream)} instead, will be removed in the next release
+     */
+    @Deprecated
     public static abstract class AbstractAsyncSplitExporter implements Runnable {
         private final Table<Object[]> subTable;
         protected final String savingFilePath;
@@ -89,13 +431,13 @@ public abstract class AbstractSplitExporter extends AbstractDataExporter<Void> {
         }
 
         @Override
-        public final void run()  {
+        public final void run() {
             subTable.toEnd();
             try (AbstractDataExporter<?> exporter = createExporter()) {
                 exporter.build(subTable);
                 complete(exporter);
             } catch (IOException e) {
-                throw new RuntimeException(e);
+                throw new UncheckedIOException(e);
             }
         }
 
@@ -104,4 +446,94 @@ public abstract class AbstractSplitExporter extends AbstractDataExporter<Void> {
         protected void complete(AbstractDataExporter<?> exporter) {}
     }
 
+    /**
+     * 输出文件的压缩方式
+     */
+    public enum Compression {
+        NONE("") {
+            @Override
+            OutputStream wrap(OutputStream out, String entryName) {
+                return out;
+            }
+        },
+
+        GZIP(".gz") {
+            @Override
+            OutputStream wrap(OutputStream out, String entryName) throws IOException {
+                return new GZIPOutputStream(out, BUFFER_SIZE);
+            }
+        },
+
+        ZIP(".zip") {
+            @Override
+            OutputStream wrap(OutputStream out, String entryName) throws IOException {
+                ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+                zip.putNextEntry(new ZipEntry(entryName));
+                return zip;
+            }
+        },
+
+        ;
+
+        private final String extension;
+
+        Compression(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        abstract OutputStream wrap(OutputStream out, String entryName) throws IOException;
+    }
+
+    /**
+     * 导出统计：文件数、行数、字节数(压缩后)与吞吐量
+     */
+    public static final class Statistics {
+        private final int files;
+        private final long rows;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        private Statistics(int files, long rows, long bytes, long elapsedNanos) {
+            this.files = files;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedNanos = Math.max(elapsedNanos, 1);
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        public double getRowsPerSecond() {
+            return rows * 1e9D / elapsedNanos;
+        }
+
+        public double getBytesPerSecond() {
+            return bytes * 1e9D / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics{files=" + files + ", rows=" + rows + ", bytes=" + bytes
+                + ", elapsedMillis=" + getElapsedMillis() + ", rowsPerSecond=" + String.format("%.2f", getRowsPerSecond())
+                + ", bytesPerSecond=" + String.format("%.2f", getBytesPerSecond()) + "}";
+        }
+    }
+
 }
@@ -31,6 +31,7 @@ import java.io.*;
 import java.text.ParseException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
@@ -153,6 +154,15 @@ public class ExcelExporter extends AbstractDataExporter<byte[]> {
      */
     @Override
     public <E> void build(Table<E> table) {
+        build0(table, null);
+    }
+
+    @Override
+    public <E> void build(Table<E> table, Iterator<E> rows) {
+        build0(table, Objects.requireNonNull(rows));
+    }
+
+    private <E> void build0(Table<E> table, Iterator<E> rows) {
         // 1、校验表头是否为空
         List<FlatNode<Integer, Thead>> flats = table.getThead();
         if (CollectionUtils.isEmpty(flats)) {
@@ -192,21 +202,28 @@ public class ExcelExporter extends AbstractDataExporter<byte[]> {
         }
 
         // 6、处理tbody数据
-        Map<CellStyleOptions, Object> options = table.getOptions();
+        TbodyOptions options = TbodyOptions.of(table.getOptions(), defaultColorMap);
         List<Thead> leafs = getLeafThead(flats);
         List<XSSFCellStyle> styles = createStyles(leafs);
-        rollingTbody(table, (data, i) -> {
+        BiConsumer<Object[], Integer> action = (data, i) -> {
             SXSSFRow row = sheet.createRow(cursorRow.getAndIncrement());
             //row.setHeight(DEFAULT_HEIGHT);
             for (int m = data.length, j = 0; j < m; j++) {
                 createCell(row, j, styles.get(j), getTmeta(leafs, j), data[j], i, j, options);
             }
-        });
+        };
+        boolean emptyTbody;
+        if (rows == null) {
+            rollingTbody(table, action);
+            emptyTbody = table.isEmptyTbody();
+        } else {
+            emptyTbody = rollingTbody(table, rows, action) == 0;
+        }
 
         // 7、判断是否有数据
         SXSSFRow row;
         int totalLeafCount = flats.get(0).getTreeLeafCount();
-        if (table.isEmptyTbody()) {
+        if (emptyTbody) {
             createBlankRow(NO_RESULT_TIP, sheet, tipStyle, cursorRow, totalLeafCount);
         } else {
             super.nonEmpty();
@@ -496,7 +513,7 @@ public class ExcelExporter extends AbstractDataExporter<byte[]> {
      * @param options
      */
     private void createCell(SXSSFRow row, int colIndex, XSSFCellStyle style, Tmeta tmeta, Object value,
-                            int tbodyRowIdx, int tbodyColIdx, Map<CellStyleOptions, Object> options) {
+                            int tbodyRowIdx, int tbodyColIdx, TbodyOptions options) {
 
         SXSSFCell cell = row.createCell(colIndex);
         cell.setCellStyle(style);
@@ -546,34 +563,26 @@ public class ExcelExporter extends AbstractDataExporter<byte[]> {
      * @param tbodyColIdx
      * @param options
      */
-    @SuppressWarnings("unchecked")
-    private void processOptions(SXSSFCell cell, int tbodyRowIdx, int tbodyColIdx,
-                                Map<CellStyleOptions, Object> options) {
-        if (MapUtils.isEmpty(options)) {
+    private void processOptions(SXSSFCell cell, int tbodyRowIdx, int tbodyColIdx, TbodyOptions options) {
+        if (options == null) {
             return;
         }
 
-        // 单元格高亮显示
-        Map<String, Object> highlight = (Map<String, Object>) options.get(CellStyleOptions.HIGHLIGHT);
-        if (MapUtils.isNotEmpty(highlight)) {
-            for (List<Integer> c : (List<List<Integer>>) highlight.get("cells")) {
-                if (c.get(0) == tbodyRowIdx && c.get(1) == tbodyColIdx) {
-                    XSSFFont font = (XSSFFont) workbook.createFont();
-                    font.setColor(new XSSFColor(
-                        Colors.fromHex((String) highlight.get("color")), defaultColorMap
-                    ));
-                    XSSFCellStyle style = (XSSFCellStyle) workbook.createCellStyle();
-                    style.cloneStyleFrom(cell.getCellStyle());
-                    style.setFont(font);
-                    cell.setCellStyle(style);
-                }
-            }
+        // 单元格高亮显示：相同的原样式只创建一次高亮样式
+        if (options.isHighlight(tbodyRowIdx, tbodyColIdx)) {
+            cell.setCellStyle(options.highlightStyles.computeIfAbsent(cell.getCellStyle(), origin -> {
+                XSSFFont font = (XSSFFont) workbook.createFont();
+                font.setColor(options.highlightColor);
+                XSSFCellStyle style = (XSSFCellStyle) workbook.createCellStyle();
+                style.cloneStyleFrom(origin);
+                style.setFont(font);
+                return style;
+            }));
         }
 
         // 处理
-        Consumer<Object[]> processor = (Consumer<Object[]>) options.get(CellStyleOptions.CELL_PROCESS);
-        if (processor != null) {
-            processor.accept(new Object[] { workbook, cell, tbodyRowIdx, tbodyColIdx });
+        if (options.processor != null) {
+            options.processor.accept(new Object[] { workbook, cell, tbodyRowIdx, tbodyColIdx });
         }
     }
 
@@ -697,6 +706,42 @@ public class ExcelExporter extends AbstractDataExporter<byte[]> {
         }
     }
 
+    /**
+     * tbody的配置项，每个table只解析一次
+     */
+    private static final class TbodyOptions {
+        final Set<Long> highlightCells = new HashSet<>();
+        final Map<CellStyle, XSSFCellStyle> highlightStyles = new HashMap<>();
+        XSSFColor highlightColor;
+        Consumer<Object[]> processor;
+
+        @SuppressWarnings("unchecked")
+        static TbodyOptions of(Map<CellStyleOptions, Object> options, IndexedColorMap colorMap) {
+            if (MapUtils.isEmpty(options)) {
+                return null;
+            }
+
+            TbodyOptions result = new TbodyOptions();
+            Map<String, Object> highlight = (Map<String, Object>) options.get(CellStyleOptions.HIGHLIGHT);
+            if (MapUtils.isNotEmpty(highlight)) {
+                for (List<Integer> c : (List<List<Integer>>) highlight.get("cells")) {
+                    result.highlightCells.add(cellKey(c.get(0), c.get(1)));
+                }
+                result.highlightColor = new XSSFColor(Colors.fromHex((String) highlight.get("color")), colorMap);
+            }
+            result.processor = (Consumer<Object[]>) options.get(CellStyleOptions.CELL_PROCESS);
+            return result;
+        }
+
+        boolean isHighlight(int tbodyRowIdx, int tbodyColIdx) {
+            return !highlightCells.isEmpty() && highlightCells.contains(cellKey(tbodyRowIdx, tbodyColIdx));
+        }
+
+        static long cellKey(int row, int col) {
+            return ((long) row << 32) | (col & 0xFFFFFFFFL);
+        }
+    }
+
     /**
      * 窗口冻结
      */
@@ -0,0 +1,979 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.export;
+
+import cn.ponfee.commons.concurrent.NamedThreadFactory;
+import cn.ponfee.commons.date.Dates;
+import cn.ponfee.commons.export.Tmeta.Type;
+import cn.ponfee.commons.math.Numbers;
+import cn.ponfee.commons.tree.FlatNode;
+import cn.ponfee.commons.util.Colors;
+import cn.ponfee.commons.util.ObjectUtils;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.awt.Color;
+import java.io.*;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <pre>
+ * 并行的多sheet excel(.xlsx)导出，不依赖POI的usermodel
+ *
+ * 1、每个sheet在各自的线程中渲染为临时的sheetData xml文件，不同sheet并行，同一sheet内的多个table按build顺序串行
+ * 2、单元格使用内联字符串(inlineStr)，不使用共享字符串表(sharedStrings)，无需全局字符串去重
+ * 3、单元格样式按配置组合预先编码并缓存(相同组合只生成一个cellXfs)，高亮单元格预先解析为集合
+ * 4、支持从{@link Stream}直接消费行数据，不需要物化为完整的List
+ * 5、最后以流式的方式组装.xlsx压缩包，支持STORED(不压缩)与DEFLATED两种条目
+ *
+ * 注：单个sheet最多1048576行、16384列，超出时抛出IllegalStateException，大数据量时应按sheet拆分才能并行；
+ *    sheet在write之后不能再build新的table；不支持{@link CellStyleOptions#CELL_PROCESS}与插入图片
+ * </pre>
+ *
+ * @author Ponfee
+ * @see ExcelExporter
+ */
+public class ParallelExcelExporter extends AbstractDataExporter<byte[]> {
+
+    private final static Logger LOG = LoggerFactory.getLogger(ParallelExcelExporter.class);
+
+    private static final int BUFFER_SIZE = 65536;
+
+    /** 与ExcelExporter一致的列宽(3200/256)与行高(350/20) */
+    private static final String COLUMN_WIDTH = "12.5";
+    private static final String ROW_HEIGHT = "17.5";
+
+    /** 作为分隔符（类似html的<hr />）的合并列数目 */
+    private static final int MARGIN_ROW_CELL_SIZE = 26;
+
+    private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String NS_REL = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String NS_PKG_REL = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private static final String[] COLUMN_NAMES = new String[1024];
+    static {
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            COLUMN_NAMES[i] = CellReference.convertNumToColString(i);
+        }
+    }
+
+    private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+    private static final int MAX_COLUMNS = SpreadsheetVersion.EXCEL2007.getMaxColumns();
+
+    /** 有样式的空白单元格 */
+    private static final Object BLANK = new Object();
+
+    private final Executor executor;
+    private final boolean shutdownExecutor;
+    private final boolean stored;
+    private final int compressLevel;
+    private final File tempDirectory;
+
+    private final StyleRegistry styles = new StyleRegistry();
+    private final Map<String, SheetPart> sheets = new LinkedHashMap<>();
+    private volatile boolean closed = false;
+
+    public ParallelExcelExporter() {
+        this(builder());
+    }
+
+    private ParallelExcelExporter(Builder builder) {
+        if (builder.executor != null) {
+            this.executor = builder.executor;
+            this.shutdownExecutor = false;
+        } else {
+            this.executor = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                NamedThreadFactory.builder().prefix("parallel_excel_exporter").daemon(true).build()
+            );
+            this.shutdownExecutor = true;
+        }
+        this.stored = builder.stored;
+        this.compressLevel = builder.compressLevel;
+        this.tempDirectory = builder.tempDirectory;
+    }
+
+    /**
+     * 构建excel：异步渲染，table的tbody可在build之后继续添加
+     */
+    @Override
+    public <E> void build(Table<E> table) {
+        sheet(table).submit(part -> part.render(table, null));
+    }
+
+    /**
+     * 构建excel：tbody从Stream中消费，渲染完成后关闭该Stream
+     *
+     * @param table the table, only use the thead, caption, tfoot, comment and options
+     * @param rows  the tbody rows
+     */
+    public <E> void build(Table<E> table, Stream<E> rows) {
+        Assert.notNull(rows, "Rows stream cannot be null.");
+        sheet(table).submit(part -> {
+            try (Stream<E> stream = rows) {
+                part.render(table, stream.iterator());
+            }
+        });
+    }
+
+    @Override
+    public <E> void build(Table<E> table, Iterator<E> rows) {
+        Assert.notNull(rows, "Rows iterator cannot be null.");
+        sheet(table).submit(part -> part.render(table, rows));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        awaitQuietly();
+        return super.isEmpty();
+    }
+
+    /**
+     * 输出到输出流，等待所有sheet渲染完成后组装.xlsx
+     */
+    public void write(OutputStream out) {
+        List<SheetPart> parts = await();
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE), UTF_8)) {
+            zip.setLevel(compressLevel);
+            putEntry(zip, "[Content_Types].xml", contentTypes(parts.size()));
+            putEntry(zip, "_rels/.rels", rootRels());
+            putEntry(zip, "xl/workbook.xml", workbook(parts));
+            putEntry(zip, "xl/_rels/workbook.xml.rels", workbookRels(parts.size()));
+            putEntry(zip, "xl/styles.xml", styles.toXml().getBytes(UTF_8));
+            for (int i = 0; i < parts.size(); i++) {
+                putSheet(zip, "xl/worksheets/sheet" + (i + 1) + ".xml", parts.get(i));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void write(String filepath) {
+        write(new File(filepath));
+    }
+
+    public void write(File file) {
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 导出
+     */
+    @Override
+    public byte[] export() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        write(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * 关闭：不等待渲染，渲染结束后删除临时文件
+     */
+    @Override
+    public void close() {
+        List<SheetPart> parts;
+        synchronized (sheets) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            parts = new ArrayList<>(sheets.values());
+            sheets.clear();
+        }
+        for (SheetPart part : parts) {
+            part.future.whenComplete((r, t) -> part.dispose());
+        }
+        if (shutdownExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // ------------------------------------------------------------private methods
+
+    private <E> SheetPart sheet(Table<E> table) {
+        if (CollectionUtils.isEmpty(table.getThead())) {
+            throw new IllegalArgumentException("thead can't be null");
+        }
+        if (MapUtils.isNotEmpty(table.getOptions()) && table.getOptions().containsKey(CellStyleOptions.CELL_PROCESS)) {
+            throw new UnsupportedOperationException("Parallel excel exporter unsupported cell process option.");
+        }
+
+        String name = getName();
+        synchronized (sheets) {
+            Assert.state(!closed, "Parallel excel exporter already closed.");
+            SheetPart part = sheets.get(name);
+            if (part == null) {
+                WorkbookUtil.validateSheetName(name);
+                part = new SheetPart(name, createTempFile());
+                sheets.put(name, part);
+            }
+            Assert.state(!part.finished, () -> "Sheet already written, cannot build table again: " + name);
+            return part;
+        }
+    }
+
+    private File createTempFile() {
+        try {
+            return File.createTempFile("excel_sheet_", ".xml", tempDirectory);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private List<SheetPart> await() {
+        List<SheetPart> parts;
+        synchronized (sheets) {
+            Assert.state(!closed, "Parallel excel exporter already closed.");
+            parts = new ArrayList<>(sheets.values());
+        }
+        for (SheetPart part : parts) {
+            try {
+                part.future.get();
+                part.finish();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return parts;
+    }
+
+    private void awaitQuietly() {
+        List<SheetPart> parts;
+        synchronized (sheets) {
+            parts = new ArrayList<>(sheets.values());
+        }
+        for (SheetPart part : parts) {
+            try {
+                part.future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ignored) {
+                // the error will be thrown when write
+            }
+        }
+    }
+
+    private void putEntry(ZipOutputStream zip, String name, byte[] bytes) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        if (stored) {
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            storedEntry(entry, bytes.length, crc.getValue());
+        }
+        zip.putNextEntry(entry);
+        zip.write(bytes);
+        zip.closeEntry();
+    }
+
+    private void putSheet(ZipOutputStream zip, String name, SheetPart part) throws IOException {
+        byte[] header = part.header().getBytes(UTF_8), footer = part.footer().getBytes(UTF_8);
+        ZipEntry entry = new ZipEntry(name);
+        if (stored) {
+            // STORED条目需要预先计算crc与大小
+            CRC32 crc = new CRC32();
+            crc.update(header);
+            byte[] buf = new byte[BUFFER_SIZE];
+            try (InputStream input = new FileInputStream(part.file)) {
+                for (int n; (n = input.read(buf)) != -1; ) {
+                    crc.update(buf, 0, n);
+                }
+            }
+            crc.update(footer);
+            storedEntry(entry, header.length + part.file.length() + footer.length, crc.getValue());
+        }
+        zip.putNextEntry(entry);
+        zip.write(header);
+        Files.copy(part.file.toPath(), zip);
+        zip.write(footer);
+        zip.closeEntry();
+    }
+
+    private static void storedEntry(ZipEntry entry, long size, long crc) {
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc);
+    }
+
+    private static byte[] contentTypes(int sheetCount) {
+        StringBuilder builder = new StringBuilder(1024).append(XML_DECLARATION)
+            .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+            .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+            .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+            .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>")
+            .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        for (int i = 1; i <= sheetCount; i++) {
+            builder.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                   .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        return builder.append("</Types>").toString().getBytes(UTF_8);
+    }
+
+    private static byte[] rootRels() {
+        return (XML_DECLARATION + "<Relationships xmlns=\"" + NS_PKG_REL + "\">"
+            + "<Relationship Id=\"rId1\" Type=\"" + NS_REL + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+            + "</Relationships>").getBytes(UTF_8);
+    }
+
+    private static byte[] workbook(List<SheetPart> parts) {
+        StringBuilder builder = new StringBuilder(512).append(XML_DECLARATION)
+            .append("<workbook xmlns=\"").append(NS_MAIN).append("\" xmlns:r=\"").append(NS_REL).append("\"><sheets>");
+        for (int i = 1; i <= parts.size(); i++) {
+            builder.append("<sheet name=\"");
+            escape(builder, parts.get(i - 1).name);
+            builder.append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+        }
+        return builder.append("</sheets></workbook>").toString().getBytes(UTF_8);
+    }
+
+    private static byte[] workbookRels(int sheetCount) {
+        StringBuilder builder = new StringBuilder(512).append(XML_DECLARATION)
+            .append("<Relationships xmlns=\"").append(NS_PKG_REL).append("\">");
+        for (int i = 1; i <= sheetCount; i++) {
+            builder.append("<Relationship Id=\"rId").append(i).append("\" Type=\"").append(NS_REL)
+                   .append("/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        builder.append("<Relationship Id=\"rId").append(sheetCount + 1).append("\" Type=\"").append(NS_REL)
+               .append("/styles\" Target=\"styles.xml\"/>");
+        return builder.append("</Relationships>").toString().getBytes(UTF_8);
+    }
+
+    private static String columnName(int col) {
+        return col < COLUMN_NAMES.length ? COLUMN_NAMES[col] : CellReference.convertNumToColString(col);
+    }
+
+    private static String cellRange(int firstRow, int lastRow, int firstCol, int lastCol) {
+        return columnName(firstCol) + (firstRow + 1) + ":" + columnName(lastCol) + (lastRow + 1);
+    }
+
+    /**
+     * xml转义，并丢弃xml 1.0中非法的控制字符
+     */
+    private static void escape(StringBuilder builder, String text) {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<': builder.append("&lt;"); break;
+                case '>': builder.append("&gt;"); break;
+                case '&': builder.append("&amp;"); break;
+                case '"': builder.append("&quot;"); break;
+                case '\'': builder.append("&apos;"); break;
+                default:
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        if (c < 0xFFFE) {
+                            builder.append(c);
+                        }
+                    }
+                    break;
+            }
+        }
+    }
+
+    private static String toRgb(Color color) {
+        return String.format("FF%02X%02X%02X", color.getRed(), color.getGreen(), color.getBlue());
+    }
+
+    // ------------------------------------------------------------inner classes
+
+    @FunctionalInterface
+    private interface SheetTask {
+        void run(SheetPart part) throws IOException;
+    }
+
+    /**
+     * 单个sheet的渲染状态，同一sheet内的任务通过future链串行执行，故内部状态无需同步
+     */
+    private final class SheetPart {
+        final String name;
+        final File file;
+        final List<String> merges = new ArrayList<>();
+        volatile CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+
+        Writer writer;
+        volatile boolean finished = false;
+        int cursor = 0;
+        int maxColumn = 0;
+        int freezeRow = -1;
+        boolean freeze = true;
+
+        SheetPart(String name, File file) {
+            this.name = name;
+            this.file = file;
+        }
+
+        synchronized void submit(SheetTask task) {
+            future = future.thenRunAsync(() -> {
+                try {
+                    task.run(this);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor);
+        }
+
+        <E> void render(Table<E> table, Iterator<E> rows) throws IOException {
+            // re-open the file will be truncate the written data
+            Assert.state(!finished, () -> "Sheet already written, cannot render table again: " + name);
+            List<FlatNode<Integer, Thead>> flats = table.getThead();
+            int totalLeafCount = flats.get(0).getTreeLeafCount();
+            if (totalLeafCount > MAX_COLUMNS) {
+                throw new IllegalStateException("Sheet '" + name + "' column count " + totalLeafCount + " exceeds the excel limit " + MAX_COLUMNS);
+            }
+            if (writer == null) {
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8), BUFFER_SIZE);
+            }
+            maxColumn = Math.max(maxColumn, totalLeafCount);
+            StringBuilder row = new StringBuilder(1024);
+
+            // 1、已有数据时创建两行空白行
+            if (cursor > 0) {
+                for (int i = 0; i < 2; i++) {
+                    startRow(row, cursor + i, true);
+                    for (int k = 0; k < MARGIN_ROW_CELL_SIZE; k++) {
+                        cell(row, cursor + i, k, styles.none, null, BLANK);
+                    }
+                    endRow(row);
+                }
+                merges.add(cellRange(cursor, cursor + 1, 0, MARGIN_ROW_CELL_SIZE - 1));
+                cursor += 2;
+            }
+
+            // 2、复合表头
+            if (StringUtils.isNotBlank(table.getCaption())) {
+                blankRow(row, table.getCaption(), styles.title, totalLeafCount);
+            }
+            thead(row, flats);
+
+            // 3、冻结窗口：sheet中有多个table时不冻结
+            if (freezeRow < 0) {
+                freezeRow = cursor;
+            } else {
+                freeze = false;
+            }
+
+            // 4、tbody
+            List<Thead> leafs = getLeafThead(flats);
+            int[] columnStyles = new int[leafs.size()];
+            for (int i = 0; i < columnStyles.length; i++) {
+                columnStyles[i] = styles.column(leafs.get(i).getTmeta(), null);
+            }
+            Highlight highlight = Highlight.of(table.getOptions());
+            BiConsumer<Object[], Integer> action = (data, i) -> {
+                startRow(row, cursor, false);
+                for (int m = data.length, j = 0; j < m; j++) {
+                    Tmeta tmeta = leafs.get(j).getTmeta();
+                    int style = highlight.contains(i, j) ? styles.column(tmeta, highlight.color) : columnStyles[j];
+                    cell(row, cursor, j, style, tmeta, data[j]);
+                }
+                endRow(row);
+                cursor++;
+            };
+            boolean emptyTbody;
+            if (rows == null) {
+                rollingTbody(table, action);
+                emptyTbody = table.isEmptyTbody();
+            } else {
+                emptyTbody = rollingTbody(table, rows, action) == 0;
+            }
+
+            if (emptyTbody) {
+                blankRow(row, NO_RESULT_TIP, styles.tip, totalLeafCount);
+            } else {
+                nonEmpty();
+            }
+
+            // 5、tfoot
+            Object[] tfoots = table.getTfoot();
+            if (ArrayUtils.isNotEmpty(tfoots)) {
+                if (tfoots.length > totalLeafCount) {
+                    throw new IllegalStateException("tfoot data length cannot more than total leaf count.");
+                }
+                int mergeNum = totalLeafCount - tfoots.length;
+                startRow(row, cursor, true);
+                for (int i = 0; i < mergeNum; i++) {
+                    cell(row, cursor, i, styles.tfoot, null, i == 0 ? "合计" : BLANK);
+                }
+                for (int i = 0; i < tfoots.length; i++) {
+                    cell(row, cursor, mergeNum + i, columnStyles[mergeNum + i], leafs.get(mergeNum + i).getTmeta(), tfoots[i]);
+                }
+                endRow(row);
+                if (mergeNum > 1) {
+                    merges.add(cellRange(cursor, cursor, 0, mergeNum - 1));
+                }
+                cursor++;
+            }
+
+            // 6、文字注释
+            if (StringUtils.isNotBlank(table.getComment())) {
+                blankRow(row, table.getComment(), styles.tip, totalLeafCount);
+            }
+        }
+
+        private void thead(StringBuilder row, List<FlatNode<Integer, Thead>> flats) {
+            FlatNode<Integer, Thead> root = flats.get(0);
+            int totalLeafCount = root.getTreeLeafCount(), treeDepth = root.getTreeDepth() - 1;
+
+            // 表头的合并单元格跨行，先收集到网格中再按行顺序输出
+            TreeMap<Integer, Object[]> grid = new TreeMap<>();
+            int beginCol, endRow, endCol, cellLevel, lastLevel = 1;
+            for (FlatNode<Integer, Thead> flat : flats.subList(1, flats.size())) {
+                cellLevel = flat.getLevel() - 1;
+                if (cellLevel > lastLevel) {
+                    lastLevel = cellLevel;
+                    cursor++;
+                }
+                beginCol = flat.getLeftLeafCount();
+                endCol = beginCol + flat.getTreeLeafCount() - 1;
+                endRow = flat.isLeaf() ? cursor + treeDepth - cellLevel : cursor; // 约定非叶子节点不能跨行
+
+                for (int a = cursor; a <= endRow; a++) {
+                    Object[] cells = grid.computeIfAbsent(a, k -> new Object[totalLeafCount]);
+                    for (int b = beginCol; b <= endCol; b++) {
+                        cells[b] = BLANK;
+                    }
+                }
+                String text = flat.getAttach().getName();
+                grid.get(cursor)[beginCol] = text == null ? BLANK : text;
+                if (cursor != endRow || beginCol != endCol) {
+                    merges.add(cellRange(cursor, endRow, beginCol, endCol));
+                }
+            }
+            cursor++;
+
+            for (Map.Entry<Integer, Object[]> entry : grid.entrySet()) {
+                startRow(row, entry.getKey(), true);
+                Object[] cells = entry.getValue();
+                for (int i = 0; i < cells.length; i++) {
+                    if (cells[i] != null) {
+                        cell(row, entry.getKey(), i, styles.head, null, cells[i]);
+                    }
+                }
+                endRow(row);
+            }
+        }
+
+        private void blankRow(StringBuilder row, String text, int style, int columnLen) {
+            startRow(row, cursor, true);
+            cell(row, cursor, 0, style, null, text);
+            for (int i = 1; i < columnLen; i++) {
+                cell(row, cursor, i, style, null, BLANK);
+            }
+            endRow(row);
+            if (columnLen > 1) {
+                merges.add(cellRange(cursor, cursor, 0, columnLen - 1));
+            }
+            cursor++;
+        }
+
+        private void startRow(StringBuilder row, int rowIdx, boolean customHeight) {
+            if (rowIdx >= MAX_ROWS) {
+                throw new IllegalStateException("Sheet '" + name + "' row count exceeds the excel limit " + MAX_ROWS + ", should be split to multiple sheets.");
+            }
+            row.setLength(0);
+            row.append("<row r=\"").append(rowIdx + 1).append('"');
+            if (customHeight) {
+                row.append(" ht=\"").append(ROW_HEIGHT).append("\" customHeight=\"1\"");
+            }
+            row.append('>');
+        }
+
+        private void endRow(StringBuilder row) {
+            row.append("</row>");
+            try {
+                writer.append(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void cell(StringBuilder row, int rowIdx, int colIdx, int style, Tmeta tmeta, Object value) {
+            row.append("<c r=\"").append(columnName(colIdx)).append(rowIdx + 1).append("\" s=\"").append(style).append('"');
+            if (value == null || value == BLANK) {
+                row.append("/>");
+            } else if (tmeta != null && tmeta.getType() == Type.NUMERIC) {
+                if (ObjectUtils.isEmpty(value)) {
+                    row.append("/>");
+                } else if (value instanceof String && ((String) value).endsWith("%")) {
+                    String val = ((String) value).substring(0, ((String) value).length() - 1);
+                    number(row, Numbers.toDouble(val.replace(",", "")) / 100);
+                } else {
+                    number(row, Numbers.toDouble(value.toString().replace(",", "")));
+                }
+            } else if (tmeta != null && tmeta.getType() == Type.DATETIME) {
+                Date date;
+                if (value instanceof Date) {
+                    date = (Date) value;
+                } else if (value instanceof Calendar) {
+                    date = ((Calendar) value).getTime();
+                } else {
+                    String str = value.toString();
+                    String format = Optional.ofNullable(tmeta.getFormat()).orElse(Dates.DATETIME_PATTERN);
+                    try {
+                        date = DateUtils.parseDateStrictly(str, format);
+                    } catch (ParseException e) {
+                        throw new IllegalArgumentException("invalid date str: " + str + ", format: " + format, e);
+                    }
+                }
+                double excelDate = DateUtil.getExcelDate(date);
+                if (excelDate < 0) {
+                    row.append("/>"); // 1900年之前的日期excel不支持
+                } else {
+                    number(row, excelDate);
+                }
+            } else {
+                row.append(" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+                escape(row, value.toString());
+                row.append("</t></is></c>");
+            }
+        }
+
+        private void number(StringBuilder row, double value) {
+            if (!Double.isFinite(value)) {
+                row.append("/>");
+                return;
+            }
+            row.append("><v>");
+            if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                row.append((long) value);
+            } else {
+                row.append(value);
+            }
+            row.append("</v></c>");
+        }
+
+        void finish() throws IOException {
+            finished = true;
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        }
+
+        String header() {
+            StringBuilder builder = new StringBuilder(512).append(XML_DECLARATION)
+                .append("<worksheet xmlns=\"").append(NS_MAIN).append("\" xmlns:r=\"").append(NS_REL).append("\">")
+                .append("<sheetViews><sheetView showGridLines=\"0\" workbookViewId=\"0\"");
+            if (freeze && freezeRow > 0) {
+                builder.append("><pane xSplit=\"1\" ySplit=\"").append(freezeRow)
+                       .append("\" topLeftCell=\"B").append(freezeRow + 1)
+                       .append("\" activePane=\"bottomRight\" state=\"frozen\"/></sheetView>");
+            } else {
+                builder.append("/>");
+            }
+            builder.append("</sheetViews><sheetFormatPr defaultRowHeight=\"15\"/>");
+            if (maxColumn > 0) {
+                builder.append("<cols><col min=\"1\" max=\"").append(maxColumn)
+                       .append("\" width=\"").append(COLUMN_WIDTH).append("\" customWidth=\"1\"/></cols>");
+            }
+            return builder.append("<sheetData>").toString();
+        }
+
+        String footer() {
+            StringBuilder builder = new StringBuilder(merges.size() * 24 + 64).append("</sheetData>");
+            if (!merges.isEmpty()) {
+                builder.append("<mergeCells count=\"").append(merges.size()).append("\">");
+                for (String ref : merges) {
+                    builder.append("<mergeCell ref=\"").append(ref).append("\"/>");
+                }
+                builder.append("</mergeCells>");
+            }
+            return builder.append("</worksheet>").toString();
+        }
+
+        void dispose() {
+            try {
+                finish();
+            } catch (IOException e) {
+                LOG.warn("Close sheet temp file writer occur error: " + file, e);
+            }
+            if (!file.delete() && file.exists()) {
+                LOG.warn("Delete sheet temp file failed: {}", file);
+            }
+        }
+    }
+
+    /**
+     * 高亮单元格：{"cells":[[row,col],...],"color":"#f00"}
+     */
+    private static final class Highlight {
+        static final Highlight NONE = new Highlight(Collections.emptySet(), null);
+
+        final Set<Long> cells;
+        final Color color;
+
+        Highlight(Set<Long> cells, Color color) {
+            this.cells = cells;
+            this.color = color;
+        }
+
+        @SuppressWarnings("unchecked")
+        static Highlight of(Map<CellStyleOptions, Object> options) {
+            Map<String, Object> highlight;
+            if (MapUtils.isEmpty(options)
+                || MapUtils.isEmpty(highlight = (Map<String, Object>) options.get(CellStyleOptions.HIGHLIGHT))) {
+                return NONE;
+            }
+            Set<Long> cells = new HashSet<>();
+            for (List<Integer> c : (List<List<Integer>>) highlight.get("cells")) {
+                cells.add(((long) c.get(0) << 32) | (c.get(1) & 0xFFFFFFFFL));
+            }
+            return new Highlight(cells, Colors.fromHex((String) highlight.get("color")));
+        }
+
+        boolean contains(int row, int col) {
+            return !cells.isEmpty() && cells.contains(((long) row << 32) | (col & 0xFFFFFFFFL));
+        }
+    }
+
+    /**
+     * 预编码的样式表：font、fill、numFmt与cellXfs按组合去重，线程安全
+     */
+    private static final class StyleRegistry {
+        private static final int BORDER_THIN = 1;
+        private static final int NUM_FMT_TEXT = 49; // "@"
+
+        private final Map<String, Integer> fonts = new LinkedHashMap<>();
+        private final Map<String, Integer> fills = new LinkedHashMap<>();
+        private final Map<String, Integer> numFmts = new LinkedHashMap<>();
+        private final Map<String, Integer> xfs = new LinkedHashMap<>();
+        private final Map<String, Integer> columns = new HashMap<>();
+
+        final int title, head, data, tfoot, tip, none;
+        private final int headFont;
+
+        StyleRegistry() {
+            font(false, null, null); // default font
+            fills.put("<fill><patternFill patternType=\"none\"/></fill>", 0);
+            fills.put("<fill><patternFill patternType=\"gray125\"/></fill>", 1);
+            xf(0, 0, 0, 0, null, false, false); // default xf
+
+            int titleFont = font(true, "黑体", null);
+            headFont = font(true, "宋体", null);
+            int redFont = font(false, "宋体", toRgb(new Color(255, 0, 0)));
+
+            title = xf(titleFont, fill(toRgb(new Color(255, 255, 224))), BORDER_THIN, NUM_FMT_TEXT, "center", true, true);
+            head = xf(headFont, fill(toRgb(new Color(192, 192, 192))), BORDER_THIN, NUM_FMT_TEXT, "center", true, false);
+            data = xf(0, 0, BORDER_THIN, NUM_FMT_TEXT, null, true, false);
+            tfoot = xf(headFont, 0, BORDER_THIN, NUM_FMT_TEXT, "right", true, false);
+            tip = xf(redFont, 0, BORDER_THIN, NUM_FMT_TEXT, null, true, true);
+            none = xf(0, 0, 0, 0, null, true, false);
+        }
+
+        /**
+         * Returns the column data style, the highlight color replace the tmeta color
+         */
+        synchronized int column(Tmeta tmeta, Color highlight) {
+            if (tmeta == null && highlight == null) {
+                return data;
+            }
+            String align = null, format = null;
+            Color color = highlight;
+            if (tmeta != null) {
+                align = tmeta.getAlign() == null ? null : tmeta.getAlign().name();
+                format = StringUtils.isNotBlank(tmeta.getFormat()) ? tmeta.getFormat() : null;
+                color = highlight != null ? highlight : tmeta.getColor();
+            }
+            String key = align + "|" + format + "|" + (color == null ? null : color.getRGB());
+            Integer idx = columns.get(key);
+            if (idx == null) {
+                int font = color == null ? 0 : font(false, null, toRgb(color));
+                int numFmt = format == null ? NUM_FMT_TEXT : numFmt(format);
+                idx = xf(font, 0, BORDER_THIN, numFmt, align == null ? null : align.toLowerCase(), true, false);
+                columns.put(key, idx);
+            }
+            return idx;
+        }
+
+        synchronized String toXml() {
+            StringBuilder builder = new StringBuilder(2048).append(XML_DECLARATION)
+                .append("<styleSheet xmlns=\"").append(NS_MAIN).append("\">");
+            if (!numFmts.isEmpty()) {
+                builder.append("<numFmts count=\"").append(numFmts.size()).append("\">");
+                numFmts.forEach((code, id) -> {
+                    builder.append("<numFmt numFmtId=\"").append(id).append("\" formatCode=\"");
+                    escape(builder, code);
+                    builder.append("\"/>");
+                });
+                builder.append("</numFmts>");
+            }
+            append(builder, "fonts", fonts.keySet());
+            append(builder, "fills", fills.keySet());
+            append(builder, "borders", Arrays.asList(
+                "<border><left/><right/><top/><bottom/><diagonal/></border>",
+                "<border><left style=\"thin\"><color auto=\"1\"/></left><right style=\"thin\"><color auto=\"1\"/></right>"
+                    + "<top style=\"thin\"><color auto=\"1\"/></top><bottom style=\"thin\"><color auto=\"1\"/></bottom><diagonal/></border>"
+            ));
+            builder.append("<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>");
+            append(builder, "cellXfs", xfs.keySet());
+            builder.append("<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>");
+            return builder.append("</styleSheet>").toString();
+        }
+
+        private int font(boolean bold, String name, String rgb) {
+            StringBuilder builder = new StringBuilder("<font>");
+            if (bold) {
+                builder.append("<b/>");
+            }
+            builder.append("<sz val=\"11\"/>");
+            if (rgb != null) {
+                builder.append("<color rgb=\"").append(rgb).append("\"/>");
+            }
+            builder.append("<name val=\"");
+            escape(builder, name == null ? "Calibri" : name);
+            builder.append("\"/>");
+            if (name == null) {
+                builder.append("<family val=\"2\"/>");
+            }
+            return index(fonts, builder.append("</font>").toString());
+        }
+
+        private int fill(String rgb) {
+            return index(fills, "<fill><patternFill patternType=\"solid\"><fgColor rgb=\"" + rgb + "\"/></patternFill></fill>");
+        }
+
+        private int numFmt(String format) {
+            int builtin = BuiltinFormats.getBuiltinFormat(format);
+            if (builtin >= 0) {
+                return builtin;
+            }
+            return numFmts.computeIfAbsent(format, k -> 164 + numFmts.size());
+        }
+
+        private int xf(int font, int fill, int border, int numFmt, String align, boolean vcenter, boolean wrap) {
+            StringBuilder builder = new StringBuilder(160)
+                .append("<xf numFmtId=\"").append(numFmt).append("\" fontId=\"").append(font)
+                .append("\" fillId=\"").append(fill).append("\" borderId=\"").append(border).append("\" xfId=\"0\"");
+            if (numFmt != 0) {
+                builder.append(" applyNumberFormat=\"1\"");
+            }
+            if (font != 0) {
+                builder.append(" applyFont=\"1\"");
+            }
+            if (fill != 0) {
+                builder.append(" applyFill=\"1\"");
+            }
+            if (border != 0) {
+                builder.append(" applyBorder=\"1\"");
+            }
+            if (align != null || vcenter || wrap) {
+                builder.append(" applyAlignment=\"1\"><alignment");
+                if (align != null) {
+                    builder.append(" horizontal=\"").append(align).append('"');
+                }
+                if (vcenter) {
+                    builder.append(" vertical=\"center\"");
+                }
+                if (wrap) {
+                    builder.append(" wrapText=\"1\"");
+                }
+                builder.append("/></xf>");
+            } else {
+                builder.append("/>");
+            }
+            return index(xfs, builder.toString());
+        }
+
+        private static int index(Map<String, Integer> map, String xml) {
+            return map.computeIfAbsent(xml, k -> map.size());
+        }
+
+        private static void append(StringBuilder builder, String tag, Collection<String> elements) {
+            builder.append('<').append(tag).append(" count=\"").append(elements.size()).append("\">");
+            elements.forEach(builder::append);
+            builder.append("</").append(tag).append('>');
+        }
+    }
+
+    public static class Builder {
+        private Executor executor;
+        private boolean stored = false;
+        private int compressLevel = Deflater.DEFAULT_COMPRESSION;
+        private File tempDirectory;
+
+        private Builder() {
+        }
+
+        /**
+         * 渲染sheet的线程池，未指定时创建内部线程池并在close时关闭
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * 是否以STORED(不压缩)方式写入zip条目
+         */
+        public Builder stored(boolean stored) {
+            this.stored = stored;
+            return this;
+        }
+
+        public Builder compressLevel(int compressLevel) {
+            Assert.isTrue(compressLevel == Deflater.DEFAULT_COMPRESSION
+                || (compressLevel >= Deflater.NO_COMPRESSION && compressLevel <= Deflater.BEST_COMPRESSION),
+                "Invalid compress level: " + compressLevel);
+            this.compressLevel = compressLevel;
+            return this;
+        }
+
+        public Builder tempDirectory(File tempDirectory) {
+            this.tempDirectory = tempDirectory;
+            return this;
+        }
+
+        public ParallelExcelExporter build() {
+            return new ParallelExcelExporter(this);
+        }
+    }
+
+}
@@ -8,7 +8,12 @@
 
 package cn.ponfee.commons.export;
 
+import cn.ponfee.commons.io.ByteOrderMarks;
+import cn.ponfee.commons.io.WrappedBufferedWriter;
+
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.Executor;
 
 /**
@@ -27,23 +32,12 @@ public class SplitCsvFileExporter extends AbstractSplitExporter {
     }
 
     @Override
-    protected AbstractAsyncSplitExporter splitExporter(Table<Object[]> subTable, String savingFilePath) {
-        return new AsnycCsvFileExporter(subTable, savingFilePath, withBom);
-    }
-
-    private static class AsnycCsvFileExporter extends AbstractAsyncSplitExporter {
-        final boolean withBom;
-
-        AsnycCsvFileExporter(Table<Object[]> subTable, String savingFilePath,
-                             boolean withBom) {
-            super(subTable, savingFilePath);
-            this.withBom = withBom;
-        }
-
-        @Override
-        protected AbstractDataExporter<?> createExporter() throws IOException {
-            return new CsvFileExporter(savingFilePath, withBom);
+    protected AbstractDataExporter<?> createExporter(OutputStream out) throws IOException {
+        WrappedBufferedWriter writer = new WrappedBufferedWriter(out, StandardCharsets.UTF_8);
+        if (withBom) {
+            writer.write(ByteOrderMarks.get(StandardCharsets.UTF_8));
         }
+        return new CsvWriteExporter(writer);
     }
 
 }
@@ -8,11 +8,14 @@
 
 package cn.ponfee.commons.export;
 
+import java.io.OutputStream;
 import java.util.concurrent.Executor;
 
 /**
  * Export multiple excel file
  *
+ * <p>excel在build完成后才整体写出，故只按行数滚动文件
+ *
  * @author Ponfee
  */
 public class SplitExcelExporter extends AbstractSplitExporter {
@@ -22,30 +25,13 @@ public class SplitExcelExporter extends AbstractSplitExporter {
     }
 
     @Override
-    protected AbstractAsyncSplitExporter splitExporter(Table<Object[]> subTable, String savingFilePath) {
-        return new AsnycExcelExporter(subTable, savingFilePath, super.getName());
+    protected AbstractDataExporter<?> createExporter(OutputStream out) {
+        return new ExcelExporter();
     }
 
-    private static class AsnycExcelExporter extends AbstractAsyncSplitExporter {
-        final String sheetName;
-
-        AsnycExcelExporter(Table<Object[]> subTable, String savingFilePath,
-                           String sheetName) {
-            super(subTable, savingFilePath);
-            this.sheetName = sheetName;
-        }
-
-        @Override
-        protected AbstractDataExporter<?> createExporter() {
-            AbstractDataExporter<?> excel = new ExcelExporter();
-            excel.setName(sheetName);
-            return excel;
-        }
-
-        @Override
-        protected void complete(AbstractDataExporter<?> exporter) {
-            ((ExcelExporter) exporter).write(savingFilePath);
-        }
+    @Override
+    protected void complete(AbstractDataExporter<?> exporter, OutputStream out) {
+        ((ExcelExporter) exporter).write(out);
     }
 
 }
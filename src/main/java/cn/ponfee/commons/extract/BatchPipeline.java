@@ -0,0 +1,356 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.extract;
+
+import cn.ponfee.commons.concurrent.NamedThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * <pre>
+ * 数据抽取的批量并行流水线
+ *
+ * 1、调用线程解析文件(csv/excel)并组装为批次，最多允许parallelism+queueCapacity个批次在途，超出时解析线程阻塞(背压)
+ * 2、parallelism个worker并发的处理批次(mapper)，处理结果串行的交给sink：有序模式按批次顺序，无序模式按完成顺序
+ * 3、检查点：每当行号连续的批次都已交给sink后，回调已处理完的下一行行号，可通过resumeFrom从该行号恢复
+ * 4、可选复用行数组：批次与行数组在处理完成后回收重用，避免每行分配数组
+ *
+ * 注：一个DataExtractor只能抽取一次
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public final class BatchPipeline {
+
+    private final int batchSize;
+    private final int parallelism;
+    private final int queueCapacity;
+    private final boolean ordered;
+    private final boolean reuseRowBuffer;
+    private final int resumeFrom;
+    private final IntConsumer checkpoint;
+    private final Executor executor;
+
+    private BatchPipeline(Builder builder) {
+        this.batchSize = builder.batchSize;
+        this.parallelism = builder.parallelism;
+        this.queueCapacity = builder.queueCapacity < 0 ? builder.parallelism : builder.queueCapacity;
+        this.ordered = builder.ordered;
+        this.reuseRowBuffer = builder.reuseRowBuffer;
+        this.resumeFrom = builder.resumeFrom;
+        this.checkpoint = builder.checkpoint;
+        this.executor = builder.executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Executes the extractor with this pipeline
+     *
+     * @param extractor the data extractor
+     * @param mapper    the batch mapper, called concurrently
+     * @param sink      the mapped result sink, called serially, nullable
+     * @param <R>       the mapped result type
+     * @return processed row count, not include the resume skipped rows
+     * @throws IOException if occur io error
+     */
+    <R> int execute(DataExtractor extractor, Function<RowBatch, R> mapper, Consumer<R> sink) throws IOException {
+        ExecutorService ownExecutor = null;
+        Executor exec = executor;
+        if (exec == null) {
+            exec = ownExecutor = Executors.newFixedThreadPool(
+                parallelism, NamedThreadFactory.builder().prefix("data_extract_pipeline").daemon(true).build()
+            );
+        }
+        try {
+            return new Execution<>(exec, mapper, sink).run(extractor);
+        } finally {
+            if (ownExecutor != null) {
+                ownExecutor.shutdown();
+            }
+        }
+    }
+
+    private final class Execution<R> implements DataExtractor.RowSink {
+        final Executor exec;
+        final Function<RowBatch, R> mapper;
+        final Consumer<R> sink;
+        final int maxInFlight = parallelism + queueCapacity;
+        final Semaphore permits = new Semaphore(maxInFlight);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // completion state, guarded by this
+        final ArrayDeque<RowBatch> pool = new ArrayDeque<>();
+        final Map<Integer, Object[]> pending = new TreeMap<>(); // ordered: sequence -> [batch, result]
+        final Map<Integer, Integer> ends = new TreeMap<>();     // unordered: sequence -> end row number
+        int nextSequence = 0;
+        int processed = 0;
+
+        // producer state, only accessed by the extract thread
+        RowBatch current;
+        int sequence = 0;
+
+        Execution(Executor exec, Function<RowBatch, R> mapper, Consumer<R> sink) {
+            this.exec = exec;
+            this.mapper = mapper;
+            this.sink = sink;
+        }
+
+        int run(DataExtractor extractor) throws IOException {
+            try {
+                extractor.extract(this);
+            } finally {
+                if (current != null) {
+                    if (current.isEmpty()) {
+                        permits.release();
+                    } else {
+                        submit(current);
+                    }
+                    current = null;
+                }
+                // waits for all in flight batches completed
+                permits.acquireUninterruptibly(maxInFlight);
+                permits.release(maxInFlight);
+            }
+            throwIfFailed();
+            synchronized (this) {
+                return processed;
+            }
+        }
+
+        @Override
+        public String[] allocate(int columnSize) {
+            if (current == null) {
+                throwIfFailed();
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Acquire batch permit interrupted.", e);
+                }
+                if (failure.get() != null) {
+                    permits.release();
+                    throwIfFailed();
+                }
+                current = obtain();
+            }
+            return current.allocate(columnSize, reuseRowBuffer);
+        }
+
+        @Override
+        public void accept(int rowNumber, String[] row) {
+            if (rowNumber < resumeFrom) {
+                return; // skip the checkpoint processed rows, the row array can be reused
+            }
+            if (current.isEmpty()) {
+                current.reset(sequence++, rowNumber);
+            }
+            current.add(row);
+            if (current.isFull()) {
+                RowBatch batch = current;
+                current = null;
+                submit(batch);
+            }
+        }
+
+        private void submit(RowBatch batch) {
+            CompletableFuture.supplyAsync(() -> mapper.apply(batch), exec)
+                             .whenComplete((result, throwable) -> complete(batch, result, throwable));
+        }
+
+        /**
+         * The permit of unordered batch released on completed, and ordered batch released on delivered,
+         * so the pending ordered batches are also bounded.
+         */
+        private void complete(RowBatch batch, R result, Throwable throwable) {
+            int release = ordered ? 0 : 1;
+            synchronized (this) {
+                try {
+                    if (throwable != null) {
+                        failure.compareAndSet(null, throwable);
+                    }
+                    if (failure.get() != null) {
+                        release = 1 + pending.size();
+                        pending.clear();
+                        return;
+                    }
+                    if (ordered) {
+                        pending.put(batch.getSequence(), new Object[]{batch, result});
+                        for (Object[] p; (p = pending.remove(nextSequence)) != null; ) {
+                            release++;
+                            deliver((RowBatch) p[0], p[1]);
+                        }
+                    } else {
+                        deliver(batch, result);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                    release += pending.size();
+                    pending.clear();
+                } finally {
+                    permits.release(release);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void deliver(RowBatch batch, Object result) {
+            if (sink != null) {
+                sink.accept((R) result);
+            }
+            processed += batch.size();
+            int end = batch.getFirstRowNumber() + batch.size();
+            if (ordered) {
+                nextSequence++;
+                checkpoint(end);
+            } else {
+                // unordered: the checkpoint advance only if the batches before are delivered
+                ends.put(batch.getSequence(), end);
+                for (Integer e; (e = ends.remove(nextSequence)) != null; nextSequence++) {
+                    checkpoint(e);
+                }
+            }
+            if (reuseRowBuffer) {
+                pool.push(batch);
+            }
+        }
+
+        private void checkpoint(int nextRowNumber) {
+            if (checkpoint != null) {
+                checkpoint.accept(nextRowNumber);
+            }
+        }
+
+        private synchronized RowBatch obtain() {
+            RowBatch batch = pool.poll();
+            if (batch == null) {
+                batch = new RowBatch(batchSize);
+            }
+            batch.reset(0, 0);
+            return batch;
+        }
+
+        private void throwIfFailed() {
+            Throwable t = failure.get();
+            if (t == null) {
+                return;
+            }
+            if (t instanceof CompletionException && t.getCause() != null) {
+                t = t.getCause();
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new RuntimeException(t);
+        }
+    }
+
+    public static final class Builder {
+        private int batchSize = 1000;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = -1;
+        private boolean ordered = false;
+        private boolean reuseRowBuffer = false;
+        private int resumeFrom = 0;
+        private IntConsumer checkpoint;
+        private Executor executor;
+
+        private Builder() {
+        }
+
+        public Builder batchSize(int batchSize) {
+            Assert.isTrue(batchSize > 0, "Batch size must be positive number.");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * The worker count, also limit the in flight batches when specified executor
+         */
+        public Builder parallelism(int parallelism) {
+            Assert.isTrue(parallelism > 0, "Parallelism must be positive number.");
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * The count of parsed batches waiting for process, default equals parallelism
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            Assert.isTrue(queueCapacity >= 0, "Queue capacity cannot be negative number.");
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Whether deliver the mapped result to sink in batch order
+         */
+        public Builder ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * Whether reuse the batch and row arrays after processed
+         */
+        public Builder reuseRowBuffer(boolean reuseRowBuffer) {
+            this.reuseRowBuffer = reuseRowBuffer;
+            return this;
+        }
+
+        /**
+         * Resume from the checkpoint row number, the rows before it will be skipped
+         */
+        public Builder resumeFrom(int rowNumber) {
+            Assert.isTrue(rowNumber >= 0, "Resume row number cannot be negative number.");
+            this.resumeFrom = rowNumber;
+            return this;
+        }
+
+        /**
+         * The checkpoint callback, accept the next row number which all rows before it are processed
+         */
+        public Builder checkpoint(IntConsumer checkpoint) {
+            this.checkpoint = checkpoint;
+            return this;
+        }
+
+        /**
+         * The worker executor, default create an inner fixed thread pool with parallelism threads
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public BatchPipeline build() {
+            return new BatchPipeline(this);
+        }
+    }
+
+}
@@ -20,7 +20,6 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.Charset;
-import java.util.function.BiConsumer;
 
 /**
  * Csv file data extractor
@@ -48,7 +47,7 @@ public class CsvExtractor extends DataExtractor {
     }
 
     @Override
-    public void extract(BiConsumer<Integer, String[]> processor) throws IOException {
+    protected void extract(RowSink sink) throws IOException {
         PrereadInputStream bris = new PrereadInputStream(
             super.dataSource.asInputStream(), CharsetDetector.DEFAULT_DETECT_LENGTH
         );
@@ -83,7 +82,7 @@ public class CsvExtractor extends DataExtractor {
                 }
 
                 n = record.size();
-                data = new String[columnSize];
+                data = sink.allocate(columnSize);
                 for (j = 0; j < n && j < columnSize; j++) {
                     data[j] = record.get(j);
                 }
@@ -91,7 +90,7 @@ public class CsvExtractor extends DataExtractor {
                     data[j] = null;
                 }
                 if (isNotEmpty(data)) {
-                    processor.accept(i++, data);
+                    sink.accept(i++, data);
                 }
             }
         }
@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * The file data extractor
@@ -36,7 +37,44 @@ public abstract class DataExtractor {
         this.headers = headers;
     }
 
-    public abstract void extract(BiConsumer<Integer, String[]> processor) throws IOException;
+    /**
+     * Extracts the rows to the sink, the row array is allocated by the sink.
+     * <p>The subclass should override this method, the default implementation adapts from the
+     * legacy {@link #extract(BiConsumer)} which overridden by subclass, and copy each row to the allocated array.
+     *
+     * @param sink the row sink
+     * @throws IOException if occur io error
+     */
+    protected void extract(RowSink sink) throws IOException {
+        if (!overridesLegacyExtract()) {
+            throw new UnsupportedOperationException("Data extractor must override extract(RowSink): " + getClass().getName());
+        }
+        this.extract((Integer rowNumber, String[] row) -> {
+            String[] target = sink.allocate(row.length);
+            System.arraycopy(row, 0, target, 0, row.length);
+            sink.accept(rowNumber, target);
+        });
+    }
+
+    /**
+     * Extracts the rows to the processor, each row is a new array
+     *
+     * @param processor the row processor
+     * @throws IOException if occur io error
+     */
+    public void extract(BiConsumer<Integer, String[]> processor) throws IOException {
+        this.extract(new RowSink() {
+            @Override
+            public String[] allocate(int columnSize) {
+                return new String[columnSize];
+            }
+
+            @Override
+            public void accept(int rowNumber, String[] row) {
+                processor.accept(rowNumber, row);
+            }
+        });
+    }
 
     public final List<String[]> extract() throws IOException {
         List<String[]> list = new LinkedList<>();
@@ -78,6 +116,37 @@ public abstract class DataExtractor {
         }
     }
 
+    /**
+     * Extracts with the batch pipeline: parse on current thread and process the batches concurrently
+     *
+     * @param pipeline  the batch pipeline
+     * @param processor the batch processor, called concurrently
+     * @return processed row count
+     * @throws IOException if occur io error
+     * @see BatchPipeline#execute(DataExtractor, Function, Consumer)
+     */
+    public final int extract(BatchPipeline pipeline, Consumer<RowBatch> processor) throws IOException {
+        return pipeline.execute(this, batch -> {
+            processor.accept(batch);
+            return null;
+        }, null);
+    }
+
+    /**
+     * Extracts with the batch pipeline, the mapper called concurrently and the sink called serially
+     *
+     * @param pipeline the batch pipeline
+     * @param mapper   the batch mapper, called concurrently
+     * @param sink     the mapped result sink, called serially(in batch order if ordered)
+     * @param <R>      the mapped result type
+     * @return processed row count
+     * @throws IOException if occur io error
+     */
+    public final <R> int extract(BatchPipeline pipeline, Function<RowBatch, R> mapper, Consumer<R> sink)
+        throws IOException {
+        return pipeline.execute(this, mapper, sink);
+    }
+
     /**
      * 验证
      * 
@@ -104,6 +173,22 @@ public abstract class DataExtractor {
     }
 
     // ---------------------------------------------------------------------------protected methods
+    /**
+     * The extracted row sink, the row array is allocated by the sink and maybe reused after accept
+     */
+    protected interface RowSink {
+
+        /**
+         * Allocates the row array, returns the same array if not accepted the last allocated
+         *
+         * @param columnSize the column size
+         * @return row array
+         */
+        String[] allocate(int columnSize);
+
+        void accept(int rowNumber, String[] row);
+    }
+
     protected boolean isNotEmpty(String[] data) {
         if (data == null || data.length == 0) {
             return false;
@@ -117,4 +202,17 @@ public abstract class DataExtractor {
         return false;
     }
 
+    // ---------------------------------------------------------------------------private methods
+    private boolean overridesLegacyExtract() {
+        for (Class<?> type = getClass(); type != DataExtractor.class; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("extract", BiConsumer.class);
+                return true;
+            } catch (NoSuchMethodException ignored) {
+                // continue to check the super class
+            }
+        }
+        return false;
+    }
+
 }
@@ -16,7 +16,6 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Iterator;
-import java.util.function.BiConsumer;
 
 import static org.apache.poi.ss.usermodel.Row.MissingCellPolicy.RETURN_NULL_AND_BLANK;
 
@@ -42,9 +41,9 @@ public class ExcelExtractor extends DataExtractor {
     }
 
     @Override
-    public final void extract(BiConsumer<Integer, String[]> processor) throws IOException {
+    protected final void extract(RowSink sink) throws IOException {
         try (ExtractableDataSource ds = dataSource; Workbook workbook = createWorkbook(ds)) {
-            extract(workbook, processor);
+            extract(workbook, sink);
         }
     }
 
@@ -57,7 +56,7 @@ public class ExcelExtractor extends DataExtractor {
         }
     }
 
-    private void extract(Workbook workbook, BiConsumer<Integer, String[]> processor) {
+    private void extract(Workbook workbook, RowSink sink) {
         boolean specHeaders; int columnSize;
         if (ArrayUtils.isNotEmpty(headers)) {
             specHeaders = true;
@@ -83,7 +82,7 @@ public class ExcelExtractor extends DataExtractor {
                 columnSize = row.getLastCellNum(); // 不指定表头则以开始行为表头
             }
 
-            data = new String[columnSize];
+            data = sink.allocate(columnSize);
             for (m = row.getLastCellNum(), j = 0; j <= m && j < columnSize; j++) {
                 // Missing cells are returned as null, Blank cells are returned as normal
                 data[j] = getStringCellValue(row.getCell(j, RETURN_NULL_AND_BLANK));
@@ -92,7 +91,7 @@ public class ExcelExtractor extends DataExtractor {
                 data[j] = null; // padding
             }
             if (isNotEmpty(data)) {
-                processor.accept(k++, data);
+                sink.accept(k++, data);
             }
         }
     }
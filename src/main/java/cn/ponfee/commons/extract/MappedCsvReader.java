@@ -0,0 +1,718 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.extract;
+
+import cn.ponfee.commons.concurrent.NamedThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * <pre>
+ * 基于内存映射的并行分块csv读取，用于本地磁盘上的大文件
+ *
+ * 1、按chunkSize把文件切分为名义分块，并行扫描每块：分别假设块开始时处于字段开始/非引号字段中/引号字段中/引号字段结束引号后，
+ *   计算块结束时的状态以及块内第一个不在引号内的换行符(与解析一致：只有字段开始处的引号才表示引号字段)
+ * 2、从文件开始依次组合各分块的扫描结果，确定每个名义分块开始处的真实状态，进而找到安全的记录边界(不在引号内的换行符之后)
+ * 3、各分块独立映射并行解析，字段以字节区间表示，按需解码为CharSequence，或直接从字节解析为int/long/decimal/date
+ *
+ * 注：只支持分隔符、引号与换行符为单字节的字符集(如UTF-8、GBK、ISO-8859-1)，不支持UTF-16/UTF-32
+ * </pre>
+ *
+ * @author Ponfee
+ * @see CsvExtractor
+ */
+public class MappedCsvReader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private static final byte PLAIN = 0;
+    private static final byte ESCAPED = 1; // quoted field and contains escaped quote
+
+    // scan states
+    private static final int FIELD_START = 0, UNQUOTED = 1, QUOTED = 2, QUOTE_END = 3, STATES = 4;
+    // scan byte classes
+    private static final byte OTHER = 0, QUOTE = 1, SEPARATOR = 2, NEWLINE = 3, RETURN = 4, CLASSES = 5;
+    private static final int[] TRANSITIONS = {
+        // OTHER      QUOTE      SEPARATOR    NEWLINE      RETURN
+        UNQUOTED,  QUOTED,    FIELD_START, FIELD_START, FIELD_START, // FIELD_START
+        UNQUOTED,  UNQUOTED,  FIELD_START, FIELD_START, FIELD_START, // UNQUOTED: quote in the middle of field is literal
+        QUOTED,    QUOTE_END, QUOTED,      QUOTED,      QUOTED,      // QUOTED
+        UNQUOTED,  QUOTED,    FIELD_START, FIELD_START, FIELD_START, // QUOTE_END: quote is escaped, other is invalid and fails at parse
+    };
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final File file;
+    private final Charset charset;
+    private final byte separator;
+    private final byte quote;
+    private final boolean header;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Executor executor;
+    private final byte[] byteClasses = new byte[256];
+
+    private volatile String[] headers;
+
+    private MappedCsvReader(Builder builder) {
+        this.file = builder.file;
+        this.charset = builder.charset;
+        this.separator = (byte) builder.separator;
+        this.quote = (byte) builder.quote;
+        this.header = builder.header;
+        this.chunkSize = builder.chunkSize;
+        this.parallelism = builder.parallelism;
+        this.executor = builder.executor;
+        byteClasses[quote & 0xFF] = QUOTE;
+        byteClasses[separator & 0xFF] = SEPARATOR;
+        byteClasses[LF] = NEWLINE;
+        byteClasses[CR] = RETURN;
+    }
+
+    public static Builder builder(File file) {
+        return new Builder(file);
+    }
+
+    /**
+     * Returns the header, available after read if with header
+     *
+     * @return header names
+     */
+    public String[] getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Reads all records, the action is called concurrently and
+     * the record is only valid in the action.
+     *
+     * @param action the record action
+     * @return record count
+     * @throws IOException if occur io error
+     */
+    public long forEach(Consumer<Record> action) throws IOException {
+        return collect(() -> new long[1], (count, record) -> {
+            action.accept(record);
+            count[0]++;
+        }).stream().mapToLong(count -> count[0]).sum();
+    }
+
+    /**
+     * Reads all records, each chunk accumulates to its own container without contention.
+     *
+     * @param supplier    the container supplier, called per chunk
+     * @param accumulator the accumulator, the record is only valid in the accumulator
+     * @param <A>         the container type
+     * @return containers of all chunks in file order
+     * @throws IOException if occur io error
+     */
+    public <A> List<A> collect(Supplier<A> supplier, BiConsumer<A, Record> accumulator) throws IOException {
+        ExecutorService ownExecutor = null;
+        Executor exec = executor;
+        if (exec == null) {
+            exec = ownExecutor = Executors.newFixedThreadPool(
+                parallelism, NamedThreadFactory.builder().prefix("mapped_csv_reader").daemon(true).build()
+            );
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] boundaries = split(channel, exec);
+            List<CompletableFuture<A>> futures = new ArrayList<>(boundaries.length - 1);
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                long from = boundaries[i], to = boundaries[i + 1];
+                boolean first = i == 0;
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    A container = supplier.get();
+                    parse(map(channel, from, to), from, header && first, container, accumulator);
+                    return container;
+                }, exec));
+            }
+            List<A> result = new ArrayList<>(futures.size());
+            for (CompletableFuture<A> future : futures) {
+                result.add(join(future));
+            }
+            return result;
+        } finally {
+            if (ownExecutor != null) {
+                ownExecutor.shutdown();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------private methods
+
+    /**
+     * Splits the file to chunks at the safe record boundaries
+     *
+     * @return the boundaries, include start and end offset
+     */
+    private long[] split(FileChannel channel, Executor exec) throws IOException {
+        long size = channel.size(), start = bomLength(channel, size);
+        int n = (int) ((size - start + chunkSize - 1) / chunkSize);
+        if (n <= 1) {
+            return new long[]{start, size};
+        }
+
+        List<CompletableFuture<long[]>> futures = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            long from = start + (long) i * chunkSize, to = Math.min(from + chunkSize, size);
+            futures.add(CompletableFuture.supplyAsync(() -> scan(map(channel, from, to), from), exec));
+        }
+
+        long[] boundaries = new long[n + 1];
+        int count = 0, state = FIELD_START;
+        boundaries[count++] = start;
+        for (int i = 0; i < n; i++) {
+            // scan: [end state of each start state, first newline not in quote of each start state]
+            long[] scan = join(futures.get(i));
+            long newline = scan[STATES + state];
+            if (i > 0 && newline >= 0 && newline + 1 > boundaries[count - 1]) {
+                boundaries[count++] = newline + 1;
+            }
+            state = (int) scan[state];
+        }
+        if (boundaries[count - 1] < size) {
+            boundaries[count++] = size;
+        }
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    /**
+     * Scans the chunk with each possible start state, the start states which reached
+     * the same state are merged, so there are usually only two automata(in or not in quote).
+     *
+     * @return [end state of each start state, first newline offset not in quote of each start state]
+     */
+    private long[] scan(ByteBuffer buf, long offset) {
+        long[] result = {0, 0, 0, 0, -1, -1, -1, -1};
+        int[] states = {FIELD_START, UNQUOTED, QUOTED, QUOTE_END};
+        int[] owners = {0, 1, 2, 3}; // start state -> index of states
+        int distinct = STATES, pending = STATES;
+        for (int i = 0, n = buf.limit(); i < n; i++) {
+            int c = byteClasses[buf.get(i) & 0xFF];
+            if (c == NEWLINE && pending > 0) {
+                for (int s = 0; s < STATES; s++) {
+                    if (result[STATES + s] < 0 && states[owners[s]] != QUOTED) {
+                        result[STATES + s] = offset + i;
+                        pending--;
+                    }
+                }
+            }
+            for (int k = 0; k < distinct; k++) {
+                states[k] = TRANSITIONS[states[k] * CLASSES + c];
+            }
+            if (distinct > 1) {
+                distinct = merge(states, owners, distinct);
+            }
+        }
+        for (int s = 0; s < STATES; s++) {
+            result[s] = states[owners[s]];
+        }
+        return result;
+    }
+
+    private static int merge(int[] states, int[] owners, int distinct) {
+        for (int k = distinct - 1; k > 0; k--) {
+            for (int j = 0; j < k; j++) {
+                if (states[j] != states[k]) {
+                    continue;
+                }
+                // merge k to j, and move the last to k
+                int last = --distinct;
+                for (int s = 0; s < STATES; s++) {
+                    if (owners[s] == k) {
+                        owners[s] = j;
+                    } else if (owners[s] == last) {
+                        owners[s] = k;
+                    }
+                }
+                states[k] = states[last];
+                break;
+            }
+        }
+        return distinct;
+    }
+
+    private <A> void parse(ByteBuffer buf, long offset, boolean skipHeader,
+                           A container, BiConsumer<A, Record> accumulator) {
+        Record record = new Record(buf, charset, quote);
+        int pos = 0, limit = buf.limit();
+        while (pos < limit) {
+            record.reset(offset + pos);
+            for (byte b; ; ) {
+                if (pos < limit && buf.get(pos) == quote) {
+                    int from = ++pos;
+                    byte flag = PLAIN;
+                    for (; ; pos++) {
+                        if (pos >= limit) {
+                            throw new IllegalStateException("Unclosed quote field at offset " + (offset + from - 1));
+                        }
+                        if (buf.get(pos) == quote) {
+                            if (pos + 1 < limit && buf.get(pos + 1) == quote) {
+                                flag = ESCAPED;
+                                pos++;
+                            } else {
+                                break;
+                            }
+                        }
+                    }
+                    record.add(from, pos++, flag);
+                } else {
+                    int from = pos;
+                    while (pos < limit && (b = buf.get(pos)) != separator && b != LF && b != CR) {
+                        pos++;
+                    }
+                    record.add(from, pos, PLAIN);
+                }
+
+                if (pos >= limit) {
+                    break;
+                }
+                b = buf.get(pos++);
+                if (b == separator) {
+                    if (pos >= limit) {
+                        record.add(pos, pos, PLAIN); // trailing separator at end of file
+                        break;
+                    }
+                } else if (b == LF) {
+                    break;
+                } else if (b == CR) {
+                    if (pos < limit && buf.get(pos) == LF) {
+                        pos++;
+                    }
+                    break;
+                } else {
+                    throw new IllegalStateException(
+                        "Invalid char between encapsulated token and delimiter at offset " + (offset + pos - 1)
+                    );
+                }
+            }
+
+            if (record.isBlank()) {
+                continue;
+            }
+            if (skipHeader) {
+                skipHeader = false;
+                headers = record.toArray();
+                continue;
+            }
+            accumulator.accept(container, record);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long from, long to) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long bomLength(FileChannel channel, long size) throws IOException {
+        if (size < UTF8_BOM.length || !StandardCharsets.UTF_8.equals(charset)) {
+            return 0;
+        }
+        ByteBuffer head = ByteBuffer.allocate(UTF8_BOM.length);
+        channel.read(head, 0);
+        return Arrays.equals(head.array(), UTF8_BOM) ? UTF8_BOM.length : 0;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw (UncheckedIOException) cause;
+            }
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+        }
+    }
+
+    // ------------------------------------------------------------inner classes
+
+    /**
+     * The csv record flyweight, the fields are byte ranges of the mapped buffer
+     */
+    public static final class Record {
+        private final ByteBuffer buf;
+        private final Charset charset;
+        private final String quote;
+        private final String escapedQuote;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private byte[] flags = new byte[16];
+        private int size;
+        private long offset;
+
+        private Record(ByteBuffer buf, Charset charset, byte quote) {
+            this.buf = buf;
+            this.charset = charset;
+            this.quote = new String(new byte[]{quote}, charset);
+            this.escapedQuote = this.quote + this.quote;
+        }
+
+        /**
+         * Returns the byte offset of this record in the file, unique and ordered
+         *
+         * @return file offset
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty(int index) {
+            checkIndex(index);
+            return starts[index] == ends[index];
+        }
+
+        /**
+         * Returns the field as a lazily decoded char sequence, not copy the bytes if ascii
+         *
+         * @param index the field index
+         * @return char sequence
+         */
+        public CharSequence get(int index) {
+            checkIndex(index);
+            if (flags[index] == ESCAPED) {
+                return decode(starts[index], ends[index]).replace(escapedQuote, quote);
+            }
+            return new Slice(buf, starts[index], ends[index], charset);
+        }
+
+        public String getString(int index) {
+            return get(index).toString();
+        }
+
+        public int getInt(int index) {
+            long value = getLong(index);
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Int value out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        public long getLong(int index) {
+            checkIndex(index);
+            int p = starts[index], end = ends[index];
+            if (flags[index] == ESCAPED || p == end) {
+                return Long.parseLong(getString(index));
+            }
+            boolean negative = false;
+            byte b = buf.get(p);
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                if (++p == end) {
+                    throw new NumberFormatException("For input string: \"" + getString(index) + "\"");
+                }
+            }
+            // accumulates negatively, same as Long#parseLong
+            long result = 0, limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE, multmin = limit / 10;
+            for (int digit; p < end; p++) {
+                digit = buf.get(p) - '0';
+                if (digit < 0 || digit > 9 || result < multmin || (result *= 10) < limit + digit) {
+                    throw new NumberFormatException("For input string: \"" + getString(index) + "\"");
+                }
+                result -= digit;
+            }
+            return negative ? result : -result;
+        }
+
+        /**
+         * Returns the double value, parse directly if the significant digits not greater than 15
+         *
+         * @param index the field index
+         * @return double value
+         */
+        public double getDouble(int index) {
+            checkIndex(index);
+            long[] decimal = parseDecimal(index, 15);
+            if (decimal == null || decimal[1] >= POW10.length) {
+                return Double.parseDouble(getString(index));
+            }
+            // both exact doubles, the division is correctly rounded
+            return decimal[0] / POW10[(int) decimal[1]];
+        }
+
+        public BigDecimal getDecimal(int index) {
+            checkIndex(index);
+            long[] decimal = parseDecimal(index, 18);
+            return decimal == null ? new BigDecimal(getString(index)) : BigDecimal.valueOf(decimal[0], (int) decimal[1]);
+        }
+
+        public LocalDate getDate(int index, DateTimeFormatter formatter) {
+            return LocalDate.parse(get(index), formatter);
+        }
+
+        public LocalDateTime getDateTime(int index, DateTimeFormatter formatter) {
+            return LocalDateTime.parse(get(index), formatter);
+        }
+
+        public String[] toArray() {
+            String[] array = new String[size];
+            for (int i = 0; i < size; i++) {
+                array[i] = getString(i);
+            }
+            return array;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(toArray());
+        }
+
+        // -------------------------------------------------------private methods
+
+        private void reset(long offset) {
+            this.offset = offset;
+            this.size = 0;
+        }
+
+        private void add(int start, int end, byte flag) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size << 1);
+                ends = Arrays.copyOf(ends, size << 1);
+                flags = Arrays.copyOf(flags, size << 1);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            flags[size++] = flag;
+        }
+
+        private boolean isBlank() {
+            for (int i = 0; i < size; i++) {
+                if (starts[i] != ends[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Parses plain decimal without exponent
+         *
+         * @return [unscaled value, scale], null if cannot parse directly
+         */
+        private long[] parseDecimal(int index, int maxDigits) {
+            int p = starts[index], end = ends[index];
+            if (flags[index] == ESCAPED || p == end) {
+                return null;
+            }
+            boolean negative = false;
+            byte b = buf.get(p);
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                p++;
+            }
+            long unscaled = 0;
+            int digits = 0, scale = -1;
+            for (; p < end; p++) {
+                b = buf.get(p);
+                if (b == '.' && scale < 0) {
+                    scale = 0;
+                    continue;
+                }
+                if (b < '0' || b > '9' || ++digits > maxDigits) {
+                    return null;
+                }
+                unscaled = unscaled * 10 + (b - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            }
+            if (digits == 0) {
+                return null;
+            }
+            return new long[]{negative ? -unscaled : unscaled, Math.max(scale, 0)};
+        }
+
+        private String decode(int start, int end) {
+            ByteBuffer slice = buf.duplicate();
+            slice.limit(end).position(start);
+            return charset.decode(slice).toString();
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+        }
+    }
+
+    /**
+     * Lazily decoded char sequence of the bytes range, direct access if all bytes are ascii
+     */
+    private static final class Slice implements CharSequence {
+        private final ByteBuffer buf;
+        private final int start;
+        private final int end;
+        private final Charset charset;
+        private int ascii = -1; // -1: unknown, 0: false, 1: true
+        private String decoded;
+
+        Slice(ByteBuffer buf, int start, int end, Charset charset) {
+            this.buf = buf;
+            this.start = start;
+            this.end = end;
+            this.charset = charset;
+        }
+
+        @Override
+        public int length() {
+            return isAscii() ? end - start : toString().length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (!isAscii()) {
+                return toString().charAt(index);
+            }
+            if (index < 0 || index >= end - start) {
+                throw new StringIndexOutOfBoundsException(index);
+            }
+            return (char) buf.get(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (!isAscii()) {
+                return toString().subSequence(from, to);
+            }
+            if (from < 0 || to > end - start || from > to) {
+                throw new StringIndexOutOfBoundsException("begin " + from + ", end " + to + ", length " + (end - start));
+            }
+            return new Slice(buf, start + from, start + to, charset);
+        }
+
+        @Override
+        public String toString() {
+            if (decoded == null) {
+                ByteBuffer slice = buf.duplicate();
+                slice.limit(end).position(start);
+                decoded = charset.decode(slice).toString();
+            }
+            return decoded;
+        }
+
+        private boolean isAscii() {
+            if (ascii < 0) {
+                ascii = 1;
+                for (int i = start; i < end; i++) {
+                    if (buf.get(i) < 0) {
+                        ascii = 0;
+                        break;
+                    }
+                }
+            }
+            return ascii == 1;
+        }
+    }
+
+    public static final class Builder {
+        private final File file;
+        private Charset charset = StandardCharsets.UTF_8;
+        private char separator = ',';
+        private char quote = '"';
+        private boolean header = false;
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private Executor executor;
+
+        private Builder(File file) {
+            Assert.isTrue(file != null && file.isFile(), () -> "Csv file not found: " + file);
+            this.file = file;
+        }
+
+        public Builder charset(Charset charset) {
+            Assert.isTrue(
+                Arrays.equals(",\"\r\n".getBytes(charset), ",\"\r\n".getBytes(StandardCharsets.US_ASCII)),
+                () -> "Unsupported multi-byte delimiter charset: " + charset
+            );
+            this.charset = charset;
+            return this;
+        }
+
+        public Builder separator(char separator) {
+            Assert.isTrue(separator < 0x80 && separator != LF && separator != CR, "Separator must be single byte char.");
+            this.separator = separator;
+            return this;
+        }
+
+        public Builder quote(char quote) {
+            Assert.isTrue(quote < 0x80 && quote != LF && quote != CR, "Quote must be single byte char.");
+            this.quote = quote;
+            return this;
+        }
+
+        /**
+         * Whether the first record is header
+         */
+        public Builder header(boolean header) {
+            this.header = header;
+            return this;
+        }
+
+        public Builder chunkSize(int chunkSize) {
+            Assert.isTrue(chunkSize > 0, "Chunk size must be positive number.");
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public Builder parallelism(int parallelism) {
+            Assert.isTrue(parallelism > 0, "Parallelism must be positive number.");
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public MappedCsvReader build() {
+            Assert.isTrue(separator != quote, "Separator cannot equals quote.");
+            return new MappedCsvReader(this);
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.extract;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.BiConsumer;
+
+/**
+ * <pre>
+ * 批量抽取的一批行数据，行号连续
+ *
+ * 注：启用行数组复用时，处理完成后数组会被回收重用，不能在处理之外持有行数据的引用
+ * </pre>
+ *
+ * @author Ponfee
+ * @see BatchPipeline
+ */
+public final class RowBatch {
+
+    private final String[][] rows;
+    private int sequence;
+    private int firstRowNumber;
+    private int size;
+
+    RowBatch(int capacity) {
+        this.rows = new String[capacity][];
+    }
+
+    /**
+     * Returns the batch sequence, start with 0
+     *
+     * @return sequence
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the first row number of this batch, start with 0
+     *
+     * @return first row number
+     */
+    public int getFirstRowNumber() {
+        return firstRowNumber;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String[] get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return rows[index];
+    }
+
+    public int getRowNumber(int index) {
+        return firstRowNumber + index;
+    }
+
+    public void forEach(BiConsumer<Integer, String[]> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(firstRowNumber + i, rows[i]);
+        }
+    }
+
+    /**
+     * Returns an unmodifiable list view of the rows
+     *
+     * @return list view
+     */
+    public List<String[]> asList() {
+        return new RowList();
+    }
+
+    // ------------------------------------------------------------package methods
+
+    void reset(int sequence, int firstRowNumber) {
+        this.sequence = sequence;
+        this.firstRowNumber = firstRowNumber;
+        this.size = 0;
+    }
+
+    String[] allocate(int columnSize, boolean reuse) {
+        String[] row = rows[size];
+        if (!reuse || row == null || row.length != columnSize) {
+            rows[size] = row = new String[columnSize];
+        }
+        return row;
+    }
+
+    void add(String[] row) {
+        rows[size++] = row;
+    }
+
+    boolean isFull() {
+        return size == rows.length;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private final class RowList extends AbstractList<String[]> implements RandomAccess {
+        @Override
+        public String[] get(int index) {
+            return RowBatch.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
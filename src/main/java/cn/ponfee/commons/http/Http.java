@@ -12,8 +12,10 @@ import cn.ponfee.commons.io.Closeables;
 import cn.ponfee.commons.io.Files;
 import cn.ponfee.commons.json.Jsons;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.google.common.base.Preconditions;
 import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -22,10 +24,22 @@ import javax.annotation.Nonnull;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.*;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 
 /**
  * <pre>
@@ -54,9 +68,12 @@ import java.util.Map;
  *   com.squareup.okhttp3:okhttp<p>
  * 
  * @author Ponfee
+ * @see HttpExecutor
  */
 public final class Http {
 
+    private static final int MAX_DRAIN_BYTES = 64 * 1024; // keep-alive模式下最多排空的未读响应字节数
+
     private final String     url;    // url
     private final HttpMethod method; // 请求方法
 
@@ -72,10 +89,14 @@ public final class Http {
     private String contentCharset;             // 请求内容编码
     private String accept;                     // 接收类型：header("Accept", "application/json")
     private SSLSocketFactory sslSocketFactory; // 走SSL/TSL通道
+    private boolean keepAlive = false;         // 请求结束后是否保持连接以供复用
+    private HttpMetrics metrics;               // 耗时指标统计
+    private int bufferSize = 64 * 1024;        // 响应流读取(gzip解压、下载)的缓冲区大小
 
     // ----------------------------------------------------------response
     private Map<String, List<String>> respHeaders;
     private HttpStatus status;
+    private HttpMetrics.Host hostMetrics;
 
     private Http(@Nonnull String url, @Nonnull HttpMethod method) {
         this.url = url;
@@ -284,6 +305,17 @@ public final class Http {
         return this;
     }
 
+    /**
+     * set the buffer size of read response, such as gzip decompress and download
+     * @param bufferSize the buffer size
+     * @return this
+     */
+    public Http bufferSize(int bufferSize) {
+        Preconditions.checkArgument(bufferSize > 0, "buffer size must be positive number.");
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
     // ------------------------------------------------------trust spec cert
     /**
      * trust spec certificate
@@ -299,13 +331,48 @@ public final class Http {
         return setSSLSocketFactory(sslContext.getSocketFactory());
     }
 
+    // --------------------------------------------------------------keep-alive and metrics
+    /**
+     * 请求结束后不调用disconnect，而是排空并关闭响应流使连接归还到JDK的keep-alive缓存以供复用
+     * 每个目标地址缓存的空闲连接数由系统属性http.maxConnections控制(默认5)
+     *
+     * @param keepAlive the keep alive
+     * @return this
+     */
+    public Http keepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    /**
+     * 按host统计connect/ttfb/transfer耗时
+     *
+     * @param metrics the http metrics
+     * @return this
+     */
+    public Http metrics(HttpMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     // --------------------------------------------------------------request
+    /**
+     * 发送请求并将响应流直接交给Jackson解析，不会缓冲整个响应体
+     *
+     * @param type the result type
+     * @return result object, or null if empty response body
+     */
     public <T> T request(JavaType type) {
-        return Jsons.fromJson(request(), type);
+        return execute(request -> {
+            String charset = request.charset();
+            return isUtf8(charset)
+                ? Jsons.NORMAL.parse(request.stream(), type)
+                : Jsons.NORMAL.parse(request.bufferedReader(charset), type);
+        });
     }
 
     public <T> T request(Class<T> type) {
-        return Jsons.fromJson(request(), type);
+        return request(TypeFactory.defaultInstance().constructType(type));
     }
 
     /**
@@ -313,22 +380,98 @@ public final class Http {
      * @return
      */
     public String request() {
+        return execute(HttpRequest::body);
+    }
+
+    /**
+     * <pre>
+     * 流式解析响应体中顶层json数组的元素，每次只持有一个元素，适用于超大的json数组响应
+     * 返回的Stream必须关闭(try-with-resources)，关闭时释放连接
+     *
+     * {@code
+     *   try (Stream<User> users = Http.get(url).requestStream(User.class)) {
+     *     users.forEach(this::process);
+     *   }
+     * }
+     * </pre>
+     *
+     * @param elementType the array element type
+     * @return lazy stream of array elements
+     */
+    public <T> Stream<T> requestStream(JavaType elementType) {
         HttpRequest request = request0();
         try {
-            return request.body();
-        } finally {
+            long start = System.nanoTime();
+            String charset = request.charset();
+            Stream<T> stream = isUtf8(charset)
+                ? Jsons.NORMAL.parseStream(request.stream(), elementType)
+                : Jsons.NORMAL.parseStream(request.bufferedReader(charset), elementType);
+            return stream.onClose(() -> {
+                if (hostMetrics != null) {
+                    hostMetrics.recordTransfer(System.nanoTime() - start);
+                }
+                disconnect(request);
+            });
+        } catch (RuntimeException e) {
+            recordFailure();
             disconnect(request);
+            throw e;
         }
     }
 
+    public <T> Stream<T> requestStream(Class<T> elementType) {
+        return requestStream(TypeFactory.defaultInstance().constructType(elementType));
+    }
+
+    /**
+     * 异步发送请求
+     *
+     * @param executor the executor, such as virtual thread per task executor
+     * @return future of response data
+     */
+    public CompletableFuture<String> requestAsync(Executor executor) {
+        return CompletableFuture.supplyAsync(this::request, executor);
+    }
+
+    public <T> CompletableFuture<T> requestAsync(Class<T> type, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> request(type), executor);
+    }
+
     public void download(String filepath) {
-        try (OutputStream out = new FileOutputStream(filepath)) {
-            download(out);
+        download(new File(filepath));
+    }
+
+    /**
+     * http下载到文件，以bufferSize大小的块写入FileChannel
+     *
+     * @param file the file
+     */
+    public void download(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+            download(channel);
         } catch (IOException e) {
-            throw new HttpException("download error: " + filepath, e);
+            throw new HttpException("download error: " + file, e);
         }
     }
 
+    /**
+     * http下载，从channel的当前position处写入，不关闭channel
+     *
+     * @param channel the file channel
+     */
+    public void download(FileChannel channel) {
+        download0(input -> {
+            byte[] array = new byte[bufferSize];
+            ByteBuffer buffer = ByteBuffer.wrap(array);
+            for (int n; (n = IOUtils.read(input, array)) > 0; ) {
+                buffer.clear().limit(n);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        });
+    }
+
     public byte[] download() {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
         download(output);
@@ -336,31 +479,23 @@ public final class Http {
     }
 
     /**
-     * http下载
+     * http下载，结束后会关闭output
      * @param output    output to stream of response data
      */
     //private static final Pattern FILENAME_PATTERN = Pattern.compile("(?i)^.*;.*filename=(.*)$");
     public void download(OutputStream output) {
-        BufferedOutputStream bos = null;
-        HttpRequest request = request0();
+        /*
+        // 获取文件名
+        String disposition = UrlCoder.decodeURIComponent(request.header("content-Disposition"));
+        Matcher matcher = FILENAME_PATTERN.matcher(disposition);
+        if (matcher.matches()) {
+            String filename = matcher.group(1);
+        }
+        */
         try {
-            if (HttpStatus.Series.valueOf(status) == HttpStatus.Series.SUCCESSFUL) {
-                /*
-                // 获取文件名
-                String disposition = UrlCoder.decodeURIComponent(request.header("content-Disposition"));
-                Matcher matcher = FILENAME_PATTERN.matcher(disposition);
-                if (matcher.matches()) {
-                    String filename = matcher.group(1);
-                }
-                */
-                bos = new BufferedOutputStream(output);
-                request.receive(bos);
-            } else {
-                throw new HttpException("request failed, status: " + request.code());
-            }
+            download0(input -> IOUtils.copyLarge(input, output, new byte[bufferSize]));
         } finally {
-            disconnect(request);
-            Closeables.console(bos);
+            Closeables.console(output);
         }
     }
 
@@ -399,7 +534,59 @@ public final class Http {
         return status;
     }
 
+    public String getUrl() {
+        return url;
+    }
+
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    public HttpMetrics getMetrics() {
+        return metrics;
+    }
+
     // ------------------------------------------------------private methods
+    private <T> T execute(Function<HttpRequest, T> reader) {
+        HttpRequest request = request0();
+        try {
+            long start = System.nanoTime();
+            T result = reader.apply(request);
+            if (hostMetrics != null) {
+                hostMetrics.recordTransfer(System.nanoTime() - start);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            recordFailure();
+            throw e;
+        } finally {
+            disconnect(request);
+        }
+    }
+
+    private void download0(ThrowingConsumer<InputStream> consumer) {
+        execute(request -> {
+            if (HttpStatus.Series.valueOf(status) != HttpStatus.Series.SUCCESSFUL) {
+                throw new HttpException("request failed, status: " + request.code());
+            }
+            try (InputStream input = request.stream()) {
+                consumer.accept(input);
+            } catch (IOException e) {
+                throw new HttpException(e);
+            }
+            return null;
+        });
+    }
+
+    private static boolean isUtf8(String charset) {
+        return charset == null || StandardCharsets.UTF_8.name().equalsIgnoreCase(charset);
+    }
+
+    @FunctionalInterface
+    private interface ThrowingConsumer<T> {
+        void accept(T t) throws IOException;
+    }
+
     private HttpRequest request0() {
         HttpRequest request;
         switch (method) {
@@ -415,6 +602,7 @@ public final class Http {
 
         request.connectTimeout(connectTimeout)
             .readTimeout(readTimeout)
+            .bufferSize(bufferSize)
             .decompress(true)
             .acceptGzipEncoding()
             .headers(headers);
@@ -434,20 +622,56 @@ public final class Http {
             request.trustAllCerts();
         }
 
-        if (!StringUtils.isEmpty(data)) {
-            request.send(data);
+        this.hostMetrics = metrics == null ? null : metrics.host(request.url());
+        try {
+            long start = System.nanoTime();
+            if (StringUtils.isEmpty(data) && parts.isEmpty()) {
+                // explicit connect for split the connect and ttfb, cannot set request property after connected
+                connect(request);
+            }
+
+            if (!StringUtils.isEmpty(data)) {
+                request.send(data);
+            }
+
+            for (MimePart part : parts) {
+                request.part(part.formName, part.fileName, part.contentType, part.stream);
+            }
+
+            long sent = System.nanoTime();
+            status = request.status();
+            if (hostMetrics != null) {
+                hostMetrics.recordConnect(sent - start);
+                hostMetrics.recordTtfb(System.nanoTime() - sent);
+            }
+        } catch (RuntimeException e) {
+            recordFailure();
+            disconnect(request);
+            throw e;
         }
+        return request;
+    }
 
-        for (MimePart part : parts) {
-            request.part(part.formName, part.fileName, part.contentType, part.stream);
+    private static void connect(HttpRequest request) {
+        try {
+            request.getConnection().connect();
+        } catch (IOException e) {
+            throw new HttpException(e);
         }
+    }
 
-        status = request.status();
-        return request;
+    private void recordFailure() {
+        if (hostMetrics != null) {
+            hostMetrics.recordFailure();
+        }
     }
 
     private void disconnect(HttpRequest request) {
         if (request != null) {
+            if (keepAlive) {
+                release(request);
+                return;
+            }
             this.respHeaders = request.headers(); // get the response headers
             try {
                 request.disconnect();
@@ -457,6 +681,35 @@ public final class Http {
         }
     }
 
+    /**
+     * 排空并关闭响应流(已读完则是空操作)，JDK会将连接放回keep-alive缓存；
+     * 未读完的响应体超过{@link #MAX_DRAIN_BYTES}时，关闭流会由JDK直接关闭连接。
+     * 不能调用disconnect，会关闭未读完响应的连接
+     *
+     * @param request the http request
+     */
+    private void release(HttpRequest request) {
+        HttpURLConnection connection = request.getConnection();
+        InputStream input = null;
+        try {
+            this.respHeaders = request.headers();
+            input = connection.getResponseCode() < HttpURLConnection.HTTP_BAD_REQUEST
+                  ? connection.getInputStream()
+                  : connection.getErrorStream();
+            if (input != null) {
+                byte[] buffer = new byte[Files.BUFF_SIZE];
+                for (long total = 0, n; total < MAX_DRAIN_BYTES && (n = input.read(buffer)) != -1; ) {
+                    total += n;
+                }
+            }
+        } catch (Exception e) {
+            // connection state unknown, cannot be reused
+            connection.disconnect();
+        } finally {
+            Closeables.console(input);
+        }
+    }
+
     /**
      * Http method
      */
@@ -0,0 +1,260 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.http;
+
+import cn.ponfee.commons.concurrent.NamedThreadFactory;
+import cn.ponfee.commons.concurrent.ThreadPoolExecutors;
+import org.springframework.util.Assert;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ * Http请求执行器
+ *
+ * 1、keep-alive：请求结束后不调用disconnect，而是排空并关闭响应流，使连接(包括未读取的错误响应)归还JDK的keep-alive缓存以供复用
+ *   (每个目标地址缓存的空闲连接数由系统属性http.maxConnections控制，默认5，建议不小于maxConnectionsPerHost)
+ * 2、按host限制并发连接数，超过时等待(基于Semaphore，不会pin住virtual thread)
+ * 3、异步请求：在指定的executor中执行(可传入virtual thread per task executor)，返回CompletableFuture
+ * 4、批量请求：以指定的最大并发数执行一批请求
+ * 5、按host统计connect/ttfb/transfer耗时，see {@link #metrics()}；若Http已指定了metrics则不会被覆盖
+ *
+ * 注：Http中的status、respHeaders等为单次请求的实例字段，同一个Http实例不能在并发的执行中共享，每个请求需使用新的Http实例
+ *
+ * 用法：
+ *   HttpExecutor executor = HttpExecutor.builder().maxConnectionsPerHost(8).build();
+ *   String body = executor.request(Http.get(url));
+ *   CompletableFuture&lt;Result&gt; future = executor.executeAsync(Http.post(url).data(json), h -&gt; h.request(Result.class));
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class HttpExecutor implements AutoCloseable {
+
+    private final int maxConnectionsPerHost;
+    private final long acquireTimeoutMillis;
+    private final Executor executor;
+    private final boolean ownExecutor;
+    private final HttpMetrics metrics = new HttpMetrics();
+    private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    private HttpExecutor(int maxConnectionsPerHost, long acquireTimeoutMillis, Executor executor) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        if (executor == null) {
+            this.executor = Executors.newCachedThreadPool(
+                NamedThreadFactory.builder().prefix("http_executor").daemon(true).build()
+            );
+            this.ownExecutor = true;
+        } else {
+            this.executor = executor;
+            this.ownExecutor = false;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // ----------------------------------------------------------------------sync
+    /**
+     * Executes the http with keep-alive and per host concurrency limit in the current thread,
+     * the http instance cannot be shared with other concurrent executions
+     *
+     * @param http   the http
+     * @param action the action, such as {@code Http::request}
+     * @param <T>    the result type
+     * @return action result
+     * @throws HttpException if wait for connection permit timeout or interrupted
+     */
+    public <T> T execute(Http http, Function<? super Http, ? extends T> action) {
+        Semaphore permits = hostPermits.computeIfAbsent(hostKey(http), k -> new Semaphore(maxConnectionsPerHost));
+        acquire(permits, http);
+        try {
+            if (http.getMetrics() == null) {
+                http.metrics(metrics);
+            }
+            return action.apply(http.keepAlive(true));
+        } finally {
+            permits.release();
+        }
+    }
+
+    public String request(Http http) {
+        return execute(http, Http::request);
+    }
+
+    // ----------------------------------------------------------------------async
+    public <T> CompletableFuture<T> executeAsync(Http http, Function<? super Http, ? extends T> action) {
+        return CompletableFuture.supplyAsync(() -> execute(http, action), executor);
+    }
+
+    public CompletableFuture<String> requestAsync(Http http) {
+        return executeAsync(http, Http::request);
+    }
+
+    // ----------------------------------------------------------------------batch
+    /**
+     * Executes a batch of http, at most maxConcurrency requests are in flight at the same time.
+     * The future is completed exceptionally at the first failure, and the not started requests will be skipped.
+     *
+     * @param https          the http list
+     * @param action         the action
+     * @param maxConcurrency the max concurrency
+     * @param <T>            the result type
+     * @return future of the results, in the same order as the https
+     */
+    public <T> CompletableFuture<List<T>> executeAll(List<Http> https, Function<? super Http, ? extends T> action, int maxConcurrency) {
+        Assert.isTrue(maxConcurrency > 0, "Max concurrency must be positive number.");
+        CompletableFuture<List<T>> future = new CompletableFuture<>();
+        int size = https.size();
+        if (size == 0) {
+            future.complete(Collections.emptyList());
+            return future;
+        }
+
+        Object[] results = new Object[size];
+        AtomicInteger cursor = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(size);
+        Runnable worker = () -> {
+            for (int i; !future.isDone() && (i = cursor.getAndIncrement()) < size; ) {
+                try {
+                    results[i] = execute(https.get(i), action);
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                    return;
+                }
+                // the atomic decrement make all results visible to the last worker
+                if (remaining.decrementAndGet() == 0) {
+                    future.complete(toList(results));
+                }
+            }
+        };
+        try {
+            for (int i = Math.min(size, maxConcurrency); i > 0; i--) {
+                executor.execute(worker);
+            }
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+        return future;
+    }
+
+    public CompletableFuture<List<String>> requestAll(List<Http> https, int maxConcurrency) {
+        return executeAll(https, Http::request, maxConcurrency);
+    }
+
+    // ----------------------------------------------------------------------others
+    public HttpMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the current in flight request count of the host
+     *
+     * @param host the host, format as host:port
+     * @return in flight count
+     */
+    public int inFlight(String host) {
+        Semaphore permits = hostPermits.get(host);
+        return permits == null ? 0 : maxConnectionsPerHost - permits.availablePermits();
+    }
+
+    /**
+     * Shutdown the executor if it is created by this
+     */
+    @Override
+    public void close() {
+        if (ownExecutor) {
+            ThreadPoolExecutors.shutdown((ExecutorService) executor);
+        }
+    }
+
+    // ----------------------------------------------------------------------private methods
+    private void acquire(Semaphore permits, Http http) {
+        try {
+            if (acquireTimeoutMillis <= 0) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new HttpException("Wait for connection timeout: " + http.getUrl());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpException("Wait for connection interrupted: " + http.getUrl(), e);
+        }
+    }
+
+    private static String hostKey(Http http) {
+        try {
+            return HttpMetrics.hostKey(new URL(http.getUrl()));
+        } catch (MalformedURLException e) {
+            throw new HttpException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> toList(Object[] array) {
+        return (List<T>) Arrays.asList(array);
+    }
+
+    public static class Builder {
+        private int maxConnectionsPerHost = 8;
+        private long acquireTimeoutMillis = 0;
+        private Executor executor;
+
+        private Builder() { }
+
+        public Builder maxConnectionsPerHost(int maxConnectionsPerHost) {
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            return this;
+        }
+
+        /**
+         * Sets the max wait millis for connection permit, non-positive means wait forever
+         *
+         * @param acquireTimeoutMillis the acquire timeout millis
+         * @return this builder
+         */
+        public Builder acquireTimeoutMillis(long acquireTimeoutMillis) {
+            this.acquireTimeoutMillis = acquireTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Sets the async executor, default a daemon cached thread pool which will be shutdown on close
+         *
+         * @param executor the executor
+         * @return this builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public HttpExecutor build() {
+            Assert.isTrue(maxConnectionsPerHost > 0, "Max connections per host must be positive number.");
+            return new HttpExecutor(maxConnectionsPerHost, acquireTimeoutMillis, executor);
+        }
+    }
+
+}
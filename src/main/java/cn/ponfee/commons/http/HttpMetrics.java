@@ -0,0 +1,125 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.http;
+
+import cn.ponfee.commons.util.LatencyHistogram;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ * 按host(host:port)统计的http请求耗时指标，单位纳秒
+ *
+ * connect ：获取连接(新建或keep-alive复用)并发送请求，有请求体时包含请求体的发送
+ * ttfb    ：请求发送完成至收到响应状态行(Time To First Byte)
+ * transfer：读取响应体
+ * </pre>
+ *
+ * @author Ponfee
+ * @see Http#metrics(HttpMetrics)
+ */
+public final class HttpMetrics {
+
+    private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+    public Host host(String host) {
+        return hosts.computeIfAbsent(host, Host::new);
+    }
+
+    Host host(URL url) {
+        return host(hostKey(url));
+    }
+
+    /**
+     * Returns the all host metrics, sorted by host
+     *
+     * @return host metrics map
+     */
+    public Map<String, Host> hosts() {
+        return Collections.unmodifiableMap(new TreeMap<>(hosts));
+    }
+
+    static String hostKey(URL url) {
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        return url.getHost() + ':' + port;
+    }
+
+    /**
+     * The metrics of single host
+     */
+    public static final class Host {
+        private final String name;
+        private final LatencyHistogram connect = new LatencyHistogram();
+        private final LatencyHistogram ttfb = new LatencyHistogram();
+        private final LatencyHistogram transfer = new LatencyHistogram();
+        private final LongAdder failures = new LongAdder();
+
+        private Host(String name) {
+            this.name = name;
+        }
+
+        void recordConnect(long nanos) {
+            connect.record(nanos);
+        }
+
+        void recordTtfb(long nanos) {
+            ttfb.record(nanos);
+        }
+
+        void recordTransfer(long nanos) {
+            transfer.record(nanos);
+        }
+
+        void recordFailure() {
+            failures.increment();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LatencyHistogram.Snapshot getConnect() {
+            return connect.snapshot();
+        }
+
+        public LatencyHistogram.Snapshot getTtfb() {
+            return ttfb.snapshot();
+        }
+
+        public LatencyHistogram.Snapshot getTransfer() {
+            return transfer.snapshot();
+        }
+
+        /**
+         * Returns the count of which received response status
+         *
+         * @return response count
+         */
+        public long getResponseCount() {
+            return ttfb.getCount();
+        }
+
+        public long getFailureCount() {
+            return failures.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Host{name=" + name + ", responseCount=" + getResponseCount() + ", failureCount=" + getFailureCount()
+                + ", connect=" + getConnect() + ", ttfb=" + getTtfb() + ", transfer=" + getTransfer() + "}";
+        }
+    }
+
+}
@@ -1493,7 +1493,7 @@ public class HttpRequest {
             return stream;
         } else {
             try {
-                return new GZIPInputStream(stream);
+                return new GZIPInputStream(stream, bufferSize);
             } catch (IOException e) {
                 throw new HttpException(e);
             }
@@ -8,16 +8,26 @@
 
 package cn.ponfee.commons.io;
 
+import cn.ponfee.commons.collect.BoundedCache;
+import cn.ponfee.commons.io.charset.TieredDetector;
 import cn.ponfee.commons.math.Numbers;
+import org.springframework.util.Assert;
 
 import java.io.*;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
 
 /**
+ * <pre>
  * 字符编码检测
  *
+ * 1、默认使用{@link TieredDetector}：BOM、ASCII、UTF-8、UTF-16可直接判定，遗留编码才使用统计评分
+ * 2、可选的文件检测结果缓存，以文件标识(fileKey或绝对路径)、大小、修改时间、检测长度作为缓存key
+ * </pre>
+ *
  * @author Ponfee
  */
 public class CharsetDetector {
@@ -26,6 +36,27 @@ public class CharsetDetector {
 
     public static final int DEFAULT_DETECT_LENGTH = 3600;
 
+    private static volatile BoundedCache<FileIdentity, Charset> cache;
+
+    /**
+     * Enables the file detect result cache
+     *
+     * @param maximumSize the maximum cache size
+     */
+    public static synchronized void enableCache(int maximumSize) {
+        Assert.isTrue(maximumSize > 0, "Maximum size must be positive number.");
+        cache = BoundedCache.<FileIdentity, Charset>builder().maximumSize(maximumSize).build();
+    }
+
+    public static synchronized void disableCache() {
+        cache = null;
+    }
+
+    public static BoundedCache.Stats cacheStats() {
+        BoundedCache<FileIdentity, Charset> c = cache;
+        return c == null ? null : c.stats();
+    }
+
     public static Charset detect(String path) {
         return detect(path, DEFAULT_DETECT_LENGTH);
     }
@@ -39,6 +70,20 @@ public class CharsetDetector {
     }
 
     public static Charset detect(File file, int length) {
+        BoundedCache<FileIdentity, Charset> c = cache;
+        if (c == null) {
+            return detect0(file, length);
+        }
+        FileIdentity key;
+        try {
+            key = new FileIdentity(file, length);
+        } catch (IOException e) {
+            throw new RuntimeException("Detect file '" + file.getPath() + "' occur error.", e);
+        }
+        return c.computeIfAbsent(key, k -> detect0(file, length));
+    }
+
+    private static Charset detect0(File file, int length) {
         try (InputStream input = new FileInputStream(file)) {
             return detect(input, (int) Math.min(file.length(), length));
         } catch (IOException e) {
@@ -70,11 +115,7 @@ public class CharsetDetector {
     public static Charset detect(byte[] bytes, int offset, int length) {
         offset = Numbers.bounds(offset, 0, bytes.length);
         length = Numbers.bounds(length, 0, bytes.length - offset);
-        try {
-            return detect(new ByteArrayInputStream(bytes, offset, length), length);
-        } catch (IOException e) {
-            throw new RuntimeException("Detect byte array charset occur error.", e);
-        }
+        return TieredDetector.detect(bytes, offset, length);
     }
 
     public static Charset detect(InputStream input) throws IOException {
@@ -85,7 +126,47 @@ public class CharsetDetector {
         //return cn.ponfee.commons.io.charset.CodepageDetector.detect(input, length);
         //return cn.ponfee.commons.io.charset.JchardetDetector.detect(input, length);
         //return cn.ponfee.commons.io.charset.BytesDetector.detect(input, length);
-        return cn.ponfee.commons.io.charset.TikaDetector.detect(input, length);
+        //return cn.ponfee.commons.io.charset.TikaDetector.detect(input, length);
+        return TieredDetector.detect(input, length);
+    }
+
+    /**
+     * The file identity, changed if the file was modified
+     */
+    private static final class FileIdentity {
+        private final Object key;
+        private final long size;
+        private final long lastModified;
+        private final int length;
+
+        private FileIdentity(File file, int length) throws IOException {
+            BasicFileAttributes attrs = java.nio.file.Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            Object fileKey = attrs.fileKey();
+            this.key = fileKey != null ? fileKey : file.getAbsolutePath();
+            this.size = attrs.size();
+            this.lastModified = attrs.lastModifiedTime().toMillis();
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FileIdentity)) {
+                return false;
+            }
+            FileIdentity other = (FileIdentity) o;
+            return size == other.size
+                && lastModified == other.lastModified
+                && length == other.length
+                && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, size, lastModified, length);
+        }
     }
 
 }
@@ -0,0 +1,84 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.io;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * <pre>
+ * 压缩编解码器，生成的是各算法原始格式的数据(不含codec头)
+ *
+ * 需要自描述的数据(如缓存)时使用{@link CompressionCodecs#encode(OutputStream, CompressionCodec)}，
+ * 会在数据前写入一个字节的{@link #id()}，解码时根据该字节选择codec
+ * </pre>
+ *
+ * @author Ponfee
+ * @see CompressionCodecs
+ */
+public interface CompressionCodec {
+
+    /**
+     * Returns the codec id, write as one byte header
+     *
+     * @return codec id
+     */
+    byte id();
+
+    /**
+     * Returns the file extension, such as ".gz"
+     *
+     * @return file extension
+     */
+    String extension();
+
+    /**
+     * Wraps the output stream with compression, close the returned stream will finish
+     * the compression and close the underlying output stream.
+     *
+     * @param output the output stream
+     * @return compression output stream
+     * @throws IOException if occur io error
+     */
+    OutputStream compress(OutputStream output) throws IOException;
+
+    /**
+     * Wraps the input stream with decompression
+     *
+     * @param input the input stream
+     * @return decompression input stream
+     * @throws IOException if occur io error
+     */
+    InputStream decompress(InputStream input) throws IOException;
+
+    default byte[] compress(byte[] data) {
+        UnsynchronizedByteArrayOutputStream baos = new UnsynchronizedByteArrayOutputStream(Math.max(64, data.length >> 1));
+        try (OutputStream out = compress(baos)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    default byte[] decompress(byte[] data) {
+        try (InputStream in = decompress(new ByteArrayInputStream(data))) {
+            return IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
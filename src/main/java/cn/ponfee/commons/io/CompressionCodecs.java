@@ -0,0 +1,445 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.io;
+
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
+import org.apache.commons.compress.compressors.snappy.FramedSnappyCompressorInputStream;
+import org.apache.commons.compress.compressors.snappy.FramedSnappyCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <pre>
+ * 压缩编解码器工具类
+ *
+ * 1、内置NONE、GZIP、DEFLATE(可调级别)、LZ4、SNAPPY、ZSTD(需引入zstd-jni)
+ * 2、带一个字节codec头的编解码：{@link #encode(OutputStream, CompressionCodec)}、{@link #decode(InputStream)}
+ * 3、GZIP不额外写头，因为gzip数据的第一个字节(魔数0x1F)即为其id，所以旧的gzip数据可以直接解码
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public final class CompressionCodecs {
+
+    public static final byte NONE_ID = 0x00;
+    public static final byte DEFLATE_ID = 0x01;
+    public static final byte LZ4_ID = 0x02;
+    public static final byte SNAPPY_ID = 0x03;
+    public static final byte ZSTD_ID = 0x04;
+    public static final byte GZIP_ID = 0x1F;
+
+    private static final int BUFFER_SIZE = Files.BUFF_SIZE;
+    private static final int DEFAULT_ZSTD_LEVEL = 3;
+
+    public static final CompressionCodec NONE = new NoneCodec();
+    public static final CompressionCodec GZIP = new GzipCodec(Deflater.DEFAULT_COMPRESSION);
+    public static final CompressionCodec DEFLATE = new DeflateCodec(Deflater.DEFAULT_COMPRESSION);
+    public static final CompressionCodec LZ4 = new Lz4Codec();
+    public static final CompressionCodec SNAPPY = new SnappyCodec();
+    public static final CompressionCodec ZSTD = new ZstdCodec(DEFAULT_ZSTD_LEVEL);
+
+    private CompressionCodecs() {
+        throw new AssertionError("No CompressionCodecs instances for you!");
+    }
+
+    public static CompressionCodec gzip(int level) {
+        return new GzipCodec(checkDeflateLevel(level));
+    }
+
+    /**
+     * Returns the zlib deflate codec, the level in [-1, 9], 1 is fastest and 9 is best compression
+     *
+     * @param level the compression level
+     * @return deflate codec
+     */
+    public static CompressionCodec deflate(int level) {
+        return new DeflateCodec(checkDeflateLevel(level));
+    }
+
+    /**
+     * Returns the zstd codec, the level in [1, 22]
+     *
+     * @param level the compression level
+     * @return zstd codec
+     */
+    public static CompressionCodec zstd(int level) {
+        Assert.isTrue(level >= 1 && level <= 22, () -> "Invalid zstd level: " + level);
+        return new ZstdCodec(level);
+    }
+
+    /**
+     * Returns the codec of the id, the codec level is default
+     *
+     * @param id the codec id
+     * @return codec
+     * @throws IllegalArgumentException if unknown codec id
+     */
+    public static CompressionCodec of(int id) {
+        switch (id) {
+            case NONE_ID:
+                return NONE;
+            case DEFLATE_ID:
+                return DEFLATE;
+            case LZ4_ID:
+                return LZ4;
+            case SNAPPY_ID:
+                return SNAPPY;
+            case ZSTD_ID:
+                return ZSTD;
+            case GZIP_ID:
+                return GZIP;
+            default:
+                throw new IllegalArgumentException("Unknown compression codec id: " + id);
+        }
+    }
+
+    // ----------------------------------------------------------------------codec header
+
+    /**
+     * Writes the codec header and returns the compression output stream
+     *
+     * @param output the output stream
+     * @param codec  the codec
+     * @return compression output stream
+     * @throws IOException if occur io error
+     */
+    public static OutputStream encode(OutputStream output, CompressionCodec codec) throws IOException {
+        if (codec.id() != GZIP_ID) {
+            output.write(codec.id());
+        }
+        return codec.compress(output);
+    }
+
+    /**
+     * Reads the codec header and returns the decompression input stream
+     *
+     * @param input the input stream
+     * @return decompression input stream
+     * @throws IOException if occur io error
+     */
+    public static InputStream decode(InputStream input) throws IOException {
+        int id = input.read();
+        if (id < 0) {
+            throw new EOFException("Empty compressed data.");
+        }
+        if (id == GZIP_ID) {
+            PushbackInputStream pushback = new PushbackInputStream(input, 1);
+            pushback.unread(id);
+            return GZIP.decompress(pushback);
+        }
+        return of(id).decompress(input);
+    }
+
+    public static byte[] compress(byte[] data, CompressionCodec codec) {
+        UnsynchronizedByteArrayOutputStream baos = new UnsynchronizedByteArrayOutputStream(Math.max(64, data.length >> 1));
+        try (OutputStream out = encode(baos, codec)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    public static byte[] decompress(byte[] data) {
+        try (InputStream in = decode(new ByteArrayInputStream(data))) {
+            return IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Compress the src [position, limit) data with codec header to dst(from position)
+     *
+     * @param src   the source buffer, position will be set to limit
+     * @param dst   the destination buffer
+     * @param codec the codec
+     * @return written bytes count
+     * @throws java.nio.BufferOverflowException if dst remaining not enough
+     */
+    public static int compress(ByteBuffer src, ByteBuffer dst, CompressionCodec codec) {
+        int position = dst.position();
+        try (OutputStream out = encode(new ByteBufferOutputStream(dst), codec)) {
+            if (src.hasArray()) {
+                out.write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+                src.position(src.limit());
+            } else {
+                byte[] buf = new byte[Math.min(BUFFER_SIZE, src.remaining())];
+                for (int n; (n = Math.min(buf.length, src.remaining())) > 0; ) {
+                    src.get(buf, 0, n);
+                    out.write(buf, 0, n);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return dst.position() - position;
+    }
+
+    /**
+     * Decompress the src [position, limit) data which with codec header
+     *
+     * @param src the source buffer, position will be set to limit
+     * @return decompressed heap buffer
+     */
+    public static ByteBuffer decompress(ByteBuffer src) {
+        try (InputStream in = decode(new ByteBufferInputStream(src))) {
+            return ByteBuffer.wrap(IOUtils.toByteArray(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            src.position(src.limit());
+        }
+    }
+
+    // ----------------------------------------------------------------------private methods & classes
+
+    private static int checkDeflateLevel(int level) {
+        Assert.isTrue(level >= Deflater.DEFAULT_COMPRESSION && level <= Deflater.BEST_COMPRESSION, () -> "Invalid deflate level: " + level);
+        return level;
+    }
+
+    private static final class NoneCodec implements CompressionCodec {
+        @Override
+        public byte id() {
+            return NONE_ID;
+        }
+
+        @Override
+        public String extension() {
+            return "";
+        }
+
+        @Override
+        public OutputStream compress(OutputStream output) {
+            return output;
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) {
+            return input;
+        }
+    }
+
+    private static final class GzipCodec implements CompressionCodec {
+        private final int level;
+
+        private GzipCodec(int level) {
+            this.level = level;
+        }
+
+        @Override
+        public byte id() {
+            return GZIP_ID;
+        }
+
+        @Override
+        public String extension() {
+            return ".gz";
+        }
+
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            return new ExtendedGZIPOutputStream(output, level, BUFFER_SIZE);
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            return new GZIPInputStream(input, BUFFER_SIZE);
+        }
+    }
+
+    private static final class DeflateCodec implements CompressionCodec {
+        private final int level;
+
+        private DeflateCodec(int level) {
+            this.level = level;
+        }
+
+        @Override
+        public byte id() {
+            return DEFLATE_ID;
+        }
+
+        @Override
+        public String extension() {
+            return ".zz";
+        }
+
+        @Override
+        public OutputStream compress(OutputStream output) {
+            return new DeflaterOutputStream(output, new Deflater(level), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        // not the default deflater, super close does not end it
+                        def.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) {
+            return new InflaterInputStream(input, new Inflater(), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inf.end();
+                    }
+                }
+            };
+        }
+    }
+
+    private static final class Lz4Codec implements CompressionCodec {
+        // the default 4M block size is too large for small payloads
+        private static final int BLOCK_SIZE = 64 * 1024;
+        private static final FramedLZ4CompressorOutputStream.Parameters PARAMETERS =
+            new FramedLZ4CompressorOutputStream.Parameters(FramedLZ4CompressorOutputStream.BlockSize.K64);
+
+        @Override
+        public byte id() {
+            return LZ4_ID;
+        }
+
+        @Override
+        public String extension() {
+            return ".lz4";
+        }
+
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            return new BlockAlignedOutputStream(new FramedLZ4CompressorOutputStream(output, PARAMETERS), BLOCK_SIZE);
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            return new FramedLZ4CompressorInputStream(input);
+        }
+    }
+
+    /**
+     * Splits the writes at block boundary, the commons-compress 1.22 framed lz4/snappy output stream
+     * flushes an empty block if a write length greater than the remaining block space, that lz4
+     * fails and snappy writes an empty chunk which the decompressor treats as end of data.
+     */
+    private static final class BlockAlignedOutputStream extends FilterOutputStream {
+        private final int blockSize;
+        private int position = 0;
+
+        private BlockAlignedOutputStream(OutputStream out, int blockSize) {
+            super(out);
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (int n; len > 0; off += n, len -= n) {
+                if (position == blockSize) {
+                    // the full block will be flushed by the next write
+                    position = 0;
+                }
+                n = Math.min(len, blockSize - position);
+                out.write(b, off, n);
+                position += n;
+            }
+        }
+    }
+
+    private static final class SnappyCodec implements CompressionCodec {
+        private static final int BLOCK_SIZE = 1 << 16;
+
+        @Override
+        public byte id() {
+            return SNAPPY_ID;
+        }
+
+        @Override
+        public String extension() {
+            return ".sz";
+        }
+
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            return new BlockAlignedOutputStream(new FramedSnappyCompressorOutputStream(output), BLOCK_SIZE);
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            return new FramedSnappyCompressorInputStream(input);
+        }
+    }
+
+    private static final class ZstdCodec implements CompressionCodec {
+        private final int level;
+
+        private ZstdCodec(int level) {
+            this.level = level;
+        }
+
+        @Override
+        public byte id() {
+            return ZSTD_ID;
+        }
+
+        @Override
+        public String extension() {
+            return ".zst";
+        }
+
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            checkAvailable();
+            return new ZstdCompressorOutputStream(output, level);
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            checkAvailable();
+            return new ZstdCompressorInputStream(input);
+        }
+
+        private static void checkAvailable() {
+            if (!ZstdUtils.isZstdCompressionAvailable()) {
+                throw new IllegalStateException("Zstd codec required the dependency: com.github.luben:zstd-jni");
+            }
+        }
+    }
+
+}
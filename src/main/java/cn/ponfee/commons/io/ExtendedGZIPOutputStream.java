@@ -27,4 +27,9 @@ public class ExtendedGZIPOutputStream extends GZIPOutputStream {
         super(out);
         super.def.setLevel(level);
     }
+
+    public ExtendedGZIPOutputStream(OutputStream out, int level, int size) throws IOException {
+        super(out, size);
+        super.def.setLevel(level);
+    }
 }
@@ -10,43 +10,85 @@ package cn.ponfee.commons.io;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.Assert;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.DirectoryStream;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 /**
+ * <pre>
  * 文件编码转换与文本内容替换
- * 
+ *
+ * 1、基于ForkJoin并行遍历目录树，每个目录一个任务，子目录fork为子任务
+ * 2、不需要转换的文件使用FileChannel#transferTo零拷贝复制
+ * 3、编码转换与文本替换基于CharsetDecoder/CharsetEncoder与direct buffer流式处理，保留原文件的换行符
+ * 4、可根据大小/修改时间/hash跳过未变更的目标文件，处理后的目标文件修改时间与源文件一致
+ * 5、通过回调报告每个文件的处理进度，回调会被多个线程并发调用
+ * 6、处理失败的文件不会中断其它文件的处理，全部处理完成后抛出异常(第一个失败为cause，其余为suppressed)
+ * </pre>
+ *
  * @author Ponfee
  */
 public class FileTransformer {
 
     private static final int FIX_LENGTH = 85;
+    private static final int BUFFER_SIZE = 64 * 1024;
     private static final String[] CHARSETS = {
-        "GBK", "GB2312", "UTF-8", 
+        "GBK", "GB2312", "GB18030", "UTF-8",
         "UTF-16", "UTF-16LE", "UTF-16BE", 
         "UTF-32", "UTF-32LE", "UTF-32BE"
     };
 
-    private String includeFileExtensions = regexExtensions(
+    private Pattern includeFileExtensions = regexExtensions(
         "java", "txt", "properties", "xml", "sql", "html", "htm", "jsp", 
         "css", "js", "log", "bak", "ini", "csv", "yml", "yaml"
     );
 
-    private final String sourcePath;
-    private final String targetPath;
+    private final Path sourcePath;
+    private final Path targetPath;
     private final String encoding;
     private final StringBuilder log = new StringBuilder(4096);
     private String[] searchList;
     private String[] replacementList;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private SkipPolicy skipPolicy = SkipPolicy.NONE;
+    private Consumer<Progress> progressListener;
+    private volatile Statistics statistics;
 
     public FileTransformer(String source, String target) {
         this(source, target, null);
     }
 
     public FileTransformer(String source, String target, String encoding) {
-        this.sourcePath = new File(source).getAbsolutePath();
-        this.targetPath = Files.mkdir(target).getAbsolutePath();
+        this.sourcePath = new File(source).getAbsoluteFile().toPath();
+        this.targetPath = Files.mkdir(target).getAbsoluteFile().toPath();
         this.encoding = encoding;
     }
 
@@ -64,54 +106,184 @@ public class FileTransformer {
         this.replacementList = replacementList;
     }
 
+    public void setParallelism(int parallelism) {
+        Assert.isTrue(parallelism > 0, "Parallelism must be positive number.");
+        this.parallelism = parallelism;
+    }
+
+    public void setSkipPolicy(SkipPolicy skipPolicy) {
+        this.skipPolicy = skipPolicy == null ? SkipPolicy.NONE : skipPolicy;
+    }
+
+    /**
+     * Sets the progress listener, it will be called concurrently after each file processed
+     *
+     * @param progressListener the progress listener
+     */
+    public void setProgressListener(Consumer<Progress> progressListener) {
+        this.progressListener = progressListener;
+    }
+
     /**
      * 转换（移）
+     *
+     * @throws RuntimeException if any file or directory failed, the first failure is the cause and others are suppressed
      */
     public void transform() {
-        transform(new File(sourcePath));
+        Statistics stat = new Statistics();
+        this.statistics = stat;
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectoryTask(sourcePath, stat));
+        } finally {
+            pool.shutdown();
+            stat.elapsedNanos = System.nanoTime() - start;
+        }
+
+        Throwable first = stat.failures.poll();
+        if (first != null) {
+            RuntimeException ex = new RuntimeException("Transform failed " + stat.getCount(Action.FAIL) + " files or directories.", first);
+            for (Throwable t; (t = stat.failures.poll()) != null; ) {
+                ex.addSuppressed(t);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the last transform statistics
+     *
+     * @return statistics, null if not transform yet
+     */
+    public Statistics getStatistics() {
+        return statistics;
     }
 
     public String getTransformLog() {
-        return log.toString();
+        synchronized (log) {
+            return log.toString();
+        }
     }
 
-    private void transform(File file) {
-        if (file == null) {
-            // nothing to do
-        } else if (file.isDirectory()) {
-            File[] subfiles = file.listFiles();
-            if (subfiles != null) {
-                for (File sub : subfiles) {
-                    transform(sub);
-                }
-            }
-        } else {
-            String path = file.getAbsolutePath(), charset;
-            File dest = new File(targetPath + path.substring(sourcePath.length()));
-            boolean isMatch = file.getName().matches(includeFileExtensions);
-
-            if (   isMatch 
-                && StringUtils.isNotEmpty(encoding) 
-                && ArrayUtils.contains(CHARSETS, charset = CharsetDetector.detect(path).name().toUpperCase())
-                && !encoding.equalsIgnoreCase(charset)
+    // ------------------------------------------------------------------------------private methods
+
+    private void transform(Path source, BasicFileAttributes attrs, Statistics stat) {
+        Path target = targetPath.resolve(sourcePath.relativize(source).toString());
+        boolean isMatch = includeFileExtensions.matcher(source.getFileName().toString()).matches();
+        Action action = Action.COPY;
+        Charset charset = null;
+        try {
+            if (isUnchanged(source, attrs, target, isMatch)) {
+                action = Action.SKIP;
+            } else if (
+                   isMatch
+                && StringUtils.isNotEmpty(encoding)
+                && ArrayUtils.contains(CHARSETS, (charset = CharsetDetector.detect(source.toFile())).name().toUpperCase())
+                && !encoding.equalsIgnoreCase(charset.name())
             ) {
-                log.append("转换：[").append(charset).append("]").append(StringUtils.rightPad(path, FIX_LENGTH)).append("  -->  ");
-                transform(file, dest, charset, encoding, searchList, replacementList);
-                log.append("[").append(encoding).append("]").append(dest.getAbsolutePath()).append("\n");
+                action = Action.CONVERT;
+                transcode(source, target, charset, Charset.forName(encoding), replacer(searchList, replacementList));
             } else if (isMatch && ArrayUtils.isNotEmpty(searchList)) {
-                log.append("替换：").append(StringUtils.rightPad(path, FIX_LENGTH)).append("  -->  ");
-                transform(file, dest, searchList, replacementList);
-                log.append(dest.getAbsolutePath()).append("\n");
+                action = Action.REPLACE;
+                if (charset == null || !ArrayUtils.contains(CHARSETS, charset.name().toUpperCase())) {
+                    charset = Files.DEFAULT_CHARSET;
+                }
+                transcode(source, target, charset, charset, replacer(searchList, replacementList));
             } else {
-                log.append("复制：").append(StringUtils.rightPad(path, FIX_LENGTH)).append("  -->  ");
-                transform(file, dest);
-                log.append(dest.getAbsolutePath()).append("\n");
+                charset = null;
+                copy(source, target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            if (action != Action.SKIP) {
+                java.nio.file.Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+            }
+            stat.record(action, attrs.size());
+            log(action, source, target, charset);
+            fireProgress(new Progress(action, source, target, charset, attrs.size(), null, stat));
+        } catch (Exception e) {
+            stat.fail(e);
+            log(Action.FAIL, source, target, charset);
+            fireProgress(new Progress(Action.FAIL, source, target, charset, attrs.size(), e, stat));
+        }
+    }
+
+    private void log(Action action, Path source, Path target, Charset charset) {
+        StringBuilder line = new StringBuilder(256).append(action.label).append("：");
+        if (action == Action.CONVERT) {
+            line.append('[').append(charset).append(']');
+        }
+        line.append(StringUtils.rightPad(source.toString(), FIX_LENGTH)).append("  -->  ");
+        if (action == Action.CONVERT) {
+            line.append('[').append(encoding).append(']');
+        }
+        line.append(target).append('\n');
+        synchronized (log) {
+            log.append(line);
+        }
+    }
+
+    private boolean isUnchanged(Path source, BasicFileAttributes attrs, Path target, boolean isMatch) throws IOException {
+        if (skipPolicy == SkipPolicy.NONE || !java.nio.file.Files.isRegularFile(target)) {
+            return false;
+        }
+        BasicFileAttributes targetAttrs = java.nio.file.Files.readAttributes(target, BasicFileAttributes.class);
+        if (!attrs.lastModifiedTime().equals(targetAttrs.lastModifiedTime())) {
+            return false;
+        }
+        if (isMatch) {
+            // may be transformed, the target size and content are different with source
+            return true;
+        }
+        return attrs.size() == targetAttrs.size()
+            && (skipPolicy == SkipPolicy.SIZE_MTIME || MessageDigest.isEqual(digest(source), digest(target)));
+    }
+
+    private void fireProgress(Progress progress) {
+        if (progressListener != null) {
+            progressListener.accept(progress);
+        }
+    }
+
+    private final class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = -3219843536327216409L;
+
+        private final Path directory;
+        private final Statistics stat;
+
+        private DirectoryTask(Path directory, Statistics stat) {
+            this.directory = directory;
+            this.stat = stat;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = java.nio.file.Files.newDirectoryStream(directory)) {
+                java.nio.file.Files.createDirectories(targetPath.resolve(sourcePath.relativize(directory).toString()));
+                for (Path path : stream) {
+                    BasicFileAttributes attrs = java.nio.file.Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isDirectory()) {
+                        DirectoryTask subtask = new DirectoryTask(path, stat);
+                        subtask.fork();
+                        subtasks.add(subtask);
+                    } else if (attrs.isRegularFile()) {
+                        transform(path, attrs, stat);
+                    }
+                }
+            } catch (IOException e) {
+                stat.fail(e);
+                fireProgress(new Progress(Action.FAIL, directory, null, null, 0, e, stat));
+            }
+            for (DirectoryTask subtask : subtasks) {
+                subtask.join();
             }
         }
     }
 
+    // ------------------------------------------------------------------------------static methods
+
     /**
-     * 采用nio方式转移
+     * 采用nio零拷贝方式转移
      * 
      * @param source
      * @param target
@@ -119,11 +291,10 @@ public class FileTransformer {
     public static void transform(File source, File target) {
         try {
             target.getParentFile().mkdirs();
-            //com.google.common.io.Files.copy(source, source);
-            //sourceChannel.transferTo(0, sourceChannel.size(), targetChannel);
-            java.nio.file.Files.copy(source.toPath(), target.toPath());
+            // fails if the target already exists
+            copy(source.toPath(), target.toPath(), StandardOpenOption.CREATE_NEW);
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -135,14 +306,7 @@ public class FileTransformer {
      */
     public static void transform(File source, File target,
                                  String[] searchList, String[] replacementList) {
-        Files.touch(target);
-        try (WrappedBufferedReader reader = new WrappedBufferedReader(source);
-             WrappedBufferedWriter writer = new WrappedBufferedWriter(target)
-        ) {
-            writeln(reader, writer, searchList, replacementList);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        transform(source, target, Files.DEFAULT_CHARSET_NAME, Files.DEFAULT_CHARSET_NAME, searchList, replacementList);
     }
 
     /**
@@ -169,35 +333,335 @@ public class FileTransformer {
     public static void transform(File source, File target, 
                                  String fromCharset, String toCharset,
                                  String[] searchList, String[] replacementList) {
-        Files.touch(target);
-        try (WrappedBufferedReader reader = new WrappedBufferedReader(source, fromCharset);
-             WrappedBufferedWriter writer = new WrappedBufferedWriter(target, toCharset)
-        ) {
-            writeln(reader, writer, searchList, replacementList);
+        try {
+            target.getParentFile().mkdirs();
+            transcode(
+                source.toPath(), target.toPath(), Charset.forName(fromCharset),
+                Charset.forName(toCharset), replacer(searchList, replacementList)
+            );
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
         }
     }
 
-    private static void writeln(WrappedBufferedReader reader,
-                                WrappedBufferedWriter writer,
-                                String[] searchList,
-                                String[] replacementList) throws IOException {
-        String line;
-        if (searchList != null && searchList.length > 0) {
-            while ((line = reader.readLine()) != null) {
-                writer.write(StringUtils.replaceEach(line, searchList, replacementList));
-                writer.write(Files.UNIX_LINE_SEPARATOR);
+    private static void copy(Path source, Path target, StandardOpenOption... createOptions) throws IOException {
+        try (FileChannel src = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel dst = FileChannel.open(target, ArrayUtils.add(createOptions, StandardOpenOption.WRITE))
+        ) {
+            for (long position = 0, size = src.size(); position < size; ) {
+                position += src.transferTo(position, size - position, dst);
             }
-        } else {
-            while ((line = reader.readLine()) != null) {
-                writer.write(line);
-                writer.write(Files.UNIX_LINE_SEPARATOR);
+        }
+    }
+
+    /**
+     * Streaming decode, replace and encode, the line separators are kept
+     */
+    private static void transcode(Path source, Path target, Charset fromCharset,
+                                  Charset toCharset, Replacer replacer) throws IOException {
+        CharsetDecoder decoder = fromCharset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharsetEncoder encoder = toCharset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        // the replacer holds back at most (maxLength - 1) chars
+        CharBuffer chars = CharBuffer.allocate(replacer == null ? BUFFER_SIZE : Math.max(BUFFER_SIZE, replacer.maxLength << 1));
+        // the decoded BOM will not be encoded if convert to another charset
+        boolean skipBom = !fromCharset.equals(toCharset);
+
+        try (FileChannel src = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel dst = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+        ) {
+            for (boolean eof = false, done = false; !done; ) {
+                if (!eof && src.read(in) < 0) {
+                    eof = true;
+                }
+                in.flip();
+                CoderResult result = decoder.decode(in, chars, eof);
+                in.compact();
+                if (done = eof && result.isUnderflow()) {
+                    decoder.flush(chars);
+                }
+
+                chars.flip();
+                if (skipBom && chars.hasRemaining()) {
+                    skipBom = false;
+                    if (chars.get(chars.position()) == '\uFEFF') {
+                        chars.get();
+                    }
+                }
+                if (replacer == null) {
+                    encode(encoder, chars, out, dst, done);
+                } else {
+                    encode(encoder, replacer.replace(chars, done), out, dst, done);
+                }
+                chars.compact();
             }
+            encoder.flush(out);
+            write(out, dst);
         }
     }
 
-    private static String regexExtensions(String... fileExtensions) {
-        return "(?i)^(.+\\.)(" + String.join("|", fileExtensions) + ")$";
+    private static void encode(CharsetEncoder encoder, CharBuffer chars, ByteBuffer out,
+                               FileChannel dst, boolean endOfInput) throws IOException {
+        while (encoder.encode(chars, out, endOfInput).isOverflow()) {
+            write(out, dst);
+        }
+    }
+
+    private static void write(ByteBuffer out, FileChannel dst) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            dst.write(out);
+        }
+        out.clear();
     }
+
+    private static byte[] digest(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    private static Replacer replacer(String[] searchList, String[] replacementList) {
+        if (ArrayUtils.isEmpty(searchList) || ArrayUtils.isEmpty(replacementList)) {
+            return null;
+        }
+        Assert.isTrue(
+            searchList.length == replacementList.length,
+            () -> "Search and Replace array lengths don't match: " + searchList.length + " vs " + replacementList.length
+        );
+        return new Replacer(searchList, replacementList);
+    }
+
+    private static Pattern regexExtensions(String... fileExtensions) {
+        return Pattern.compile("(?i)^(.+\\.)(" + String.join("|", fileExtensions) + ")$");
+    }
+
+    /**
+     * Streaming replace each, same as {@link StringUtils#replaceEach(String, String[], String[])}
+     */
+    private static final class Replacer {
+        private final String[] searchList;
+        private final String[] replacementList;
+        private final int maxLength;
+        private final StringBuilder builder = new StringBuilder(BUFFER_SIZE);
+
+        private Replacer(String[] searchList, String[] replacementList) {
+            this.searchList = searchList;
+            this.replacementList = replacementList;
+            int max = 1;
+            for (int i = 0; i < searchList.length; i++) {
+                if (StringUtils.isNotEmpty(searchList[i]) && replacementList[i] != null) {
+                    max = Math.max(max, searchList[i].length());
+                }
+            }
+            this.maxLength = max;
+        }
+
+        /**
+         * Replaces the chars, holds back the tail chars which maybe a part of search string
+         *
+         * @param chars      the chars, position will be set to first held back char
+         * @param endOfInput whether end of input
+         * @return replaced chars
+         */
+        CharBuffer replace(CharBuffer chars, boolean endOfInput) {
+            builder.setLength(0);
+            int base = chars.position(), n = chars.remaining(), i = 0;
+            outer:
+            while (i < n && (endOfInput || i + maxLength <= n)) {
+                for (int k = 0; k < searchList.length; k++) {
+                    String search = searchList[k];
+                    if (StringUtils.isNotEmpty(search) && replacementList[k] != null && matches(chars, base + i, n - i, search)) {
+                        builder.append(replacementList[k]);
+                        i += search.length();
+                        continue outer;
+                    }
+                }
+                char c = chars.get(base + i);
+                if (!endOfInput && i + 1 == n && Character.isHighSurrogate(c)) {
+                    // the encoder cannot consume a lone high surrogate
+                    break;
+                }
+                builder.append(c);
+                i++;
+            }
+            chars.position(base + i);
+            return CharBuffer.wrap(builder);
+        }
+
+        private static boolean matches(CharBuffer chars, int offset, int remaining, String search) {
+            if (search.length() > remaining) {
+                return false;
+            }
+            for (int j = 0, len = search.length(); j < len; j++) {
+                if (chars.get(offset + j) != search.charAt(j)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // ------------------------------------------------------------------------------inner classes
+
+    public enum Action {
+        /** 编码转换(同时替换) */
+        CONVERT("转换"),
+        /** 文本替换 */
+        REPLACE("替换"),
+        /** 复制 */
+        COPY("复制"),
+        /** 目标文件未变更而跳过 */
+        SKIP("跳过"),
+        /** 处理失败 */
+        FAIL("失败");
+
+        private final String label;
+
+        Action(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * 跳过未变更目标文件的策略，需要转换/替换的文件只比较修改时间
+     */
+    public enum SkipPolicy {
+        /** 不跳过 */
+        NONE,
+        /** 大小与修改时间相同 */
+        SIZE_MTIME,
+        /** 大小与修改时间相同，并且内容hash相同 */
+        HASH
+    }
+
+    public static final class Progress {
+        private final Action action;
+        private final Path source;
+        private final Path target;
+        private final Charset charset;
+        private final long size;
+        private final Throwable error;
+        private final long completedFiles;
+        private final long completedBytes;
+
+        private Progress(Action action, Path source, Path target, Charset charset,
+                         long size, Throwable error, Statistics stat) {
+            this.action = action;
+            this.source = source;
+            this.target = target;
+            this.charset = charset;
+            this.size = size;
+            this.error = error;
+            this.completedFiles = stat.getFiles();
+            this.completedBytes = stat.getBytes();
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        public Path getSource() {
+            return source;
+        }
+
+        public Path getTarget() {
+            return target;
+        }
+
+        /**
+         * Returns the source file charset, null if copy or skip
+         *
+         * @return source charset
+         */
+        public Charset getCharset() {
+            return charset;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        public long getCompletedFiles() {
+            return completedFiles;
+        }
+
+        public long getCompletedBytes() {
+            return completedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return action + ": " + (charset == null ? "" : "[" + charset + "]") + source + "  -->  " + target
+                + (error == null ? "" : ", error: " + error);
+        }
+    }
+
+    public static final class Statistics {
+        private final Map<Action, LongAdder> counts = new EnumMap<>(Action.class);
+        private final LongAdder bytes = new LongAdder();
+        private final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        private volatile long elapsedNanos;
+
+        private Statistics() {
+            for (Action action : Action.values()) {
+                counts.put(action, new LongAdder());
+            }
+        }
+
+        private void record(Action action, long size) {
+            counts.get(action).increment();
+            bytes.add(size);
+        }
+
+        private void fail(Throwable t) {
+            record(Action.FAIL, 0);
+            failures.offer(t);
+        }
+
+        public long getCount(Action action) {
+            return counts.get(action).sum();
+        }
+
+        public long getFiles() {
+            return counts.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("Statistics{");
+            counts.forEach((action, count) -> builder.append(action).append('=').append(count.sum()).append(", "));
+            return builder.append("bytes=").append(getBytes()).append(", elapsedMillis=").append(getElapsedMillis()).append('}').toString();
+        }
+    }
+
 }
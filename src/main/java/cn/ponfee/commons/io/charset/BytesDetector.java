@@ -27,45 +27,55 @@ public class BytesDetector {
 
     private static final Logger LOG = LoggerFactory.getLogger(BytesDetector.class);
 
+    /**
+     * Stops scoring once a score reach it, the utf8 scorer only returns the score greater than 95
+     */
+    private static final int DECISIVE_SCORE = 96;
+
+    /**
+     * Scorers in encoding type order, the former has priority if the scores are equal
+     */
+    private static final Scorer[] SCORERS = new Scorer[Encoding.TOTAL_TYPES];
+    static {
+        SCORERS[Encoding.GB2312]    = BytesDetector::gb2312_probability;
+        SCORERS[Encoding.GBK]       = BytesDetector::gbk_probability;
+        SCORERS[Encoding.GB18030]   = BytesDetector::gb18030_probability;
+        SCORERS[Encoding.HZ]        = BytesDetector::hz_probability;
+        SCORERS[Encoding.BIG5]      = BytesDetector::big5_probability;
+        SCORERS[Encoding.CNS11643]  = BytesDetector::euc_tw_probability;
+        SCORERS[Encoding.UTF8]      = BytesDetector::utf8_probability;
+        SCORERS[Encoding.UNICODE]   = BytesDetector::utf16_probability;
+        SCORERS[Encoding.ISO2022CN] = BytesDetector::iso_2022_cn_probability;
+        SCORERS[Encoding.EUC_KR]    = BytesDetector::euc_kr_probability;
+        SCORERS[Encoding.CP949]     = BytesDetector::cp949_probability;
+        SCORERS[Encoding.ISO2022KR] = BytesDetector::iso_2022_kr_probability;
+        SCORERS[Encoding.SJIS]      = BytesDetector::sjis_probability;
+        SCORERS[Encoding.EUC_JP]    = BytesDetector::euc_jp_probability;
+        SCORERS[Encoding.ISO2022JP] = BytesDetector::iso_2022_jp_probability;
+        SCORERS[Encoding.ASCII]     = BytesDetector::ascii_probability;
+    }
+
     public static Charset detect(InputStream input, int length) throws IOException {
         String charset = detect(Files.readByteArray(input, length));
         return charset == null ? CharsetDetector.DEFAULT_CHARSET : Charset.forName(charset);
     }
 
     public static String detect(byte[] rawtext) {
-        int[] scores = new int[Encoding.TOTAL_TYPES];
-        // Assign Scores
-        scores[Encoding.GB2312]        = gb2312_probability(rawtext)     ;
-        scores[Encoding.GBK]           = gbk_probability(rawtext)        ;
-        scores[Encoding.GB18030]       = gb18030_probability(rawtext)    ;
-        scores[Encoding.HZ]            = hz_probability(rawtext)         ;
-        scores[Encoding.BIG5]          = big5_probability(rawtext)       ;
-        scores[Encoding.CNS11643]      = euc_tw_probability(rawtext)     ;
-        scores[Encoding.UTF8]          = utf8_probability(rawtext)       ;
-        scores[Encoding.UTF8T]         = 0                               ;
-        scores[Encoding.UTF8S]         = 0                               ;
-        scores[Encoding.UNICODE]       = utf16_probability(rawtext)      ;
-        scores[Encoding.UNICODET]      = 0                               ;
-        scores[Encoding.UNICODES]      = 0                               ;
-        scores[Encoding.ISO2022CN]     = iso_2022_cn_probability(rawtext);
-        scores[Encoding.ISO2022CN_CNS] = 0                               ;
-        scores[Encoding.ISO2022CN_GB]  = 0                               ;
-        scores[Encoding.EUC_KR]        = euc_kr_probability(rawtext)     ;
-        scores[Encoding.CP949]         = cp949_probability(rawtext)      ;
-        scores[Encoding.ISO2022KR]     = iso_2022_kr_probability(rawtext);
-        scores[Encoding.JOHAB]         = 0                               ;
-        scores[Encoding.SJIS]          = sjis_probability(rawtext)       ;
-        scores[Encoding.EUC_JP]        = euc_jp_probability(rawtext)     ;
-        scores[Encoding.ISO2022JP]     = iso_2022_jp_probability(rawtext);
-        scores[Encoding.ASCII]         = ascii_probability(rawtext)      ;
-
         // Tabulate Scores
         int maxScore = 0, encodingGuess = -1;
-        for (int i = 0; i < scores.length; i++) {
-            LOG.debug("Encoding {} score {}", Encoding.JAVA_CHARSET[i], scores[i]);
-            if (scores[i] > maxScore) {
+        for (int i = 0; i < SCORERS.length; i++) {
+            if (SCORERS[i] == null) {
+                continue;
+            }
+            int score = SCORERS[i].score(rawtext);
+            LOG.debug("Encoding {} score {}", Encoding.JAVA_CHARSET[i], score);
+            if (score > maxScore) {
                 encodingGuess = i;
-                maxScore = scores[i];
+                maxScore = score;
+                if (score >= DECISIVE_SCORE) {
+                    // early exit: the remaining scorers are hardly to exceed it
+                    break;
+                }
             }
         }
         // Not guessed if nothing scored above 50
@@ -1601,6 +1611,11 @@ public class BytesDetector {
         JP_FREQ[26][89] =   0;
     }
 
+    @FunctionalInterface
+    private interface Scorer {
+        int score(byte[] rawtext);
+    }
+
     private static class Encoding {
         private static final int TOTAL_TYPES = 23;
 
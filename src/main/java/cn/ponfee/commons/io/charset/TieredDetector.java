@@ -0,0 +1,224 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.io.charset;
+
+import cn.ponfee.commons.io.CharsetDetector;
+import cn.ponfee.commons.io.Files;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <pre>
+ * 分层的字符编码检测，绝大多数文本在前两层即可直接返回：
+ *
+ * 1、BOM：UTF-32需先于UTF-16判断(UTF-32LE的BOM以UTF-16LE的BOM开头)
+ * 2、ASCII扫描：按16字节分块累积符号位，无高位字节且无NUL字节则返回UTF-8(ASCII的超集，对截断的样本也安全)
+ * 3、UTF-8校验：严格的状态机(拒绝过长编码、代理区、超出U+10FFFF)，样本末尾被截断的序列视为合法
+ * 4、无BOM的UTF-16：按NUL字节出现在奇/偶位置的比例判断字节序
+ * 5、以上都不满足时才交给统计评分的检测器(默认{@link TikaDetector})处理GBK、Big5、Shift_JIS等遗留编码
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class TieredDetector {
+
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * UTF-16 without bom: the zero byte ratio of one parity must reach this percentage,
+     * and the other parity must below {@link #UTF16_NOISE_PERCENT}
+     */
+    private static final int UTF16_ZERO_PERCENT = 40;
+    private static final int UTF16_NOISE_PERCENT = 5;
+
+    private static final Charset UTF_32LE = Charset.forName("UTF-32LE");
+    private static final Charset UTF_32BE = Charset.forName("UTF-32BE");
+
+    public static Charset detect(InputStream input, int length) throws IOException {
+        byte[] bytes = Files.readByteArray(input, length);
+        return detect(bytes, 0, bytes.length);
+    }
+
+    public static Charset detect(byte[] bytes, int offset, int length) {
+        Charset charset = detectUnicode(bytes, offset, length);
+        if (charset != null) {
+            return charset;
+        }
+        if (offset != 0 || length != bytes.length) {
+            bytes = Arrays.copyOfRange(bytes, offset, offset + length);
+        }
+        return TikaDetector.detect(bytes);
+    }
+
+    /**
+     * Detects the unicode charset only, without the statistical scorers
+     *
+     * @param bytes  the byte array
+     * @param offset the offset
+     * @param length the length
+     * @return unicode charset, or {@code null} if possibly a legacy encoding
+     */
+    public static Charset detectUnicode(byte[] bytes, int offset, int length) {
+        Charset charset = detectBom(bytes, offset, length);
+        if (charset != null) {
+            return charset;
+        }
+
+        int end = offset + length, i = scanAscii(bytes, offset, end);
+        if (i == end) {
+            // empty or pure ascii text
+            return CharsetDetector.DEFAULT_CHARSET;
+        }
+        if (containsZero(bytes, i, end)) {
+            return detectUtf16(bytes, offset, end);
+        }
+        return isUtf8(bytes, i, end) ? StandardCharsets.UTF_8 : null;
+    }
+
+    // ----------------------------------------------------------------------package methods
+
+    static Charset detectBom(byte[] b, int offset, int length) {
+        if (length >= 4) {
+            if (b[offset] == (byte) 0xFF && b[offset + 1] == (byte) 0xFE && b[offset + 2] == 0 && b[offset + 3] == 0) {
+                return UTF_32LE;
+            }
+            if (b[offset] == 0 && b[offset + 1] == 0 && b[offset + 2] == (byte) 0xFE && b[offset + 3] == (byte) 0xFF) {
+                return UTF_32BE;
+            }
+        }
+        if (length >= 3 && b[offset] == (byte) 0xEF && b[offset + 1] == (byte) 0xBB && b[offset + 2] == (byte) 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        if (length >= 2) {
+            if (b[offset] == (byte) 0xFF && b[offset + 1] == (byte) 0xFE) {
+                return StandardCharsets.UTF_16LE;
+            }
+            if (b[offset] == (byte) 0xFE && b[offset + 1] == (byte) 0xFF) {
+                return StandardCharsets.UTF_16BE;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the start index of the first block which contains non-ascii or zero byte,
+     * returns {@code end} if all bytes are ascii text.
+     *
+     * <p>The branch free inner loop is shaped for the JIT superword optimization:
+     * {@code b | ((b - 1) & ~b)} is negative iff the byte is negative(high bit) or zero.
+     */
+    static int scanAscii(byte[] b, int i, int end) {
+        for (int n = end - BLOCK_SIZE; i <= n; i += BLOCK_SIZE) {
+            int acc = 0;
+            for (int j = i, m = i + BLOCK_SIZE; j < m; j++) {
+                int x = b[j];
+                acc |= x | ((x - 1) & ~x);
+            }
+            if (acc < 0) {
+                return i;
+            }
+        }
+        for (int j = i; j < end; j++) {
+            int x = b[j];
+            if ((x | ((x - 1) & ~x)) < 0) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Validates the UTF-8 sequences, the incomplete sequence at the tail is accepted
+     * because of the sample may be truncated.
+     */
+    static boolean isUtf8(byte[] b, int i, int end) {
+        while (i < end) {
+            int x = b[i] & 0xFF;
+            if (x < 0x80) {
+                i++;
+                continue;
+            }
+            int n, min, max;
+            if (x >= 0xC2 && x <= 0xDF) {
+                n = 1; min = 0x80; max = 0xBF;
+            } else if (x == 0xE0) {
+                n = 2; min = 0xA0; max = 0xBF; // overlong
+            } else if (x == 0xED) {
+                n = 2; min = 0x80; max = 0x9F; // surrogates
+            } else if (x >= 0xE1 && x <= 0xEF) {
+                n = 2; min = 0x80; max = 0xBF;
+            } else if (x == 0xF0) {
+                n = 3; min = 0x90; max = 0xBF; // overlong
+            } else if (x >= 0xF1 && x <= 0xF3) {
+                n = 3; min = 0x80; max = 0xBF;
+            } else if (x == 0xF4) {
+                n = 3; min = 0x80; max = 0x8F; // greater than U+10FFFF
+            } else {
+                return false;
+            }
+
+            // the second byte has the narrowed range
+            if (++i == end) {
+                return true;
+            }
+            int y = b[i] & 0xFF;
+            if (y < min || y > max) {
+                return false;
+            }
+            for (i++; --n > 0; i++) {
+                if (i == end) {
+                    return true;
+                }
+                if ((b[i] & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    static Charset detectUtf16(byte[] b, int offset, int end) {
+        int pairs = (end - offset) >> 1;
+        if (pairs == 0) {
+            return null;
+        }
+        int evenZeros = 0, oddZeros = 0;
+        for (int i = offset, n = offset + (pairs << 1); i < n; i += 2) {
+            if (b[i] == 0) {
+                evenZeros++;
+            }
+            if (b[i + 1] == 0) {
+                oddZeros++;
+            }
+        }
+        int high = pairs * UTF16_ZERO_PERCENT / 100, noise = pairs * UTF16_NOISE_PERCENT / 100;
+        if (oddZeros >= high && evenZeros <= noise) {
+            return StandardCharsets.UTF_16LE;
+        }
+        if (evenZeros >= high && oddZeros <= noise) {
+            return StandardCharsets.UTF_16BE;
+        }
+        // maybe binary data
+        return null;
+    }
+
+    private static boolean containsZero(byte[] b, int i, int end) {
+        for (; i < end; i++) {
+            if (b[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
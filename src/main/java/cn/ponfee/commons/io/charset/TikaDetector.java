@@ -38,8 +38,12 @@ import java.nio.charset.Charset;
 public class TikaDetector {
 
     public static Charset detect(InputStream input, int length) throws IOException {
+        return detect(Files.readByteArray(input, length));
+    }
+
+    public static Charset detect(byte[] bytes) {
         org.apache.tika.parser.txt.CharsetDetector charsetDetector = new org.apache.tika.parser.txt.CharsetDetector();
-        charsetDetector.setText(Files.readByteArray(input, length));
+        charsetDetector.setText(bytes);
         org.apache.tika.parser.txt.CharsetMatch charsetMatch = charsetDetector.detect();
         return charsetMatch == null ? CharsetDetector.DEFAULT_CHARSET : Charset.forName(charsetMatch.getName());
     }
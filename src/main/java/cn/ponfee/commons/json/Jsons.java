@@ -15,7 +15,6 @@ import com.fasterxml.jackson.core.json.JsonWriteFeature;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalTimeDeserializer;
@@ -28,7 +27,9 @@ import org.springframework.util.Assert;
 
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.time.LocalDate;
@@ -37,6 +38,10 @@ import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The json utility based jackson
@@ -59,6 +64,11 @@ public final class Jsons {
      */
     public static final Jsons ALL = new Jsons(null);
 
+    /**
+     * Method arguments parser of NORMAL mapper
+     */
+    private static final MethodArgsParser METHOD_ARGS_PARSER = new MethodArgsParser(NORMAL.mapper);
+
     /**
      * Jackson ObjectMapper(thread safe)
      */
@@ -177,80 +187,128 @@ public final class Jsons {
         return parse(json, mapper.constructType(type));
     }
 
-    // ----------------------------------------------------static methods
-    public static String toJson(Object target) {
-        return NORMAL.string(target);
-    }
+    // --------------------------------------------------------streaming deserialization
 
-    public static byte[] toBytes(Object target) {
-        return NORMAL.bytes(target);
+    /**
+     * Deserialize from the json input stream, not buffer the whole json data.
+     * The input stream will be closed after read.
+     *
+     * @param json     json input stream(UTF-8/16/32 auto detected)
+     * @param javaType JavaType
+     * @return the javaType's object, or null if empty content
+     */
+    public <T> T parse(InputStream json, JavaType javaType) {
+        try {
+            return parse(mapper.getFactory().createParser(json), javaType);
+        } catch (Exception e) {
+            return ExceptionUtils.rethrow(e);
+        }
     }
 
-    public static Object[] parseArray(String body, Class<?>... types) {
-        if (body == null) {
-            return null;
+    /**
+     * Deserialize from the json reader, not buffer the whole json data.
+     * The reader will be closed after read.
+     *
+     * @param json     json reader
+     * @param javaType JavaType
+     * @return the javaType's object, or null if empty content
+     */
+    public <T> T parse(Reader json, JavaType javaType) {
+        try {
+            return parse(mapper.getFactory().createParser(json), javaType);
+        } catch (Exception e) {
+            return ExceptionUtils.rethrow(e);
         }
+    }
 
-        ObjectMapper mapper = NORMAL.mapper;
-        JsonNode rootNode = readTree(mapper, body);
-        Assert.isTrue(rootNode.isArray(), "Not array json data.");
-        ArrayNode arrayNode = (ArrayNode) rootNode;
+    public <T> T parse(InputStream json, Class<T> target) {
+        return parse(json, mapper.constructType(target));
+    }
 
-        if (types.length == 1 && arrayNode.size() > 1) {
-            return new Object[]{parse(mapper, arrayNode, types[0])};
-        }
+    public <T> T parse(InputStream json, TypeReference<T> type) {
+        return parse(json, mapper.constructType(type));
+    }
 
-        Object[] result = new Object[types.length];
-        for (int i = 0; i < types.length; i++) {
-            result[i] = parse(mapper, arrayNode.get(i), types[i]);
+    /**
+     * Lazy iterates the elements of the top-level json array, only one element is held in memory at a time.
+     * If the top-level is not an array, then iterates the root-level value sequence.
+     * <p>The returned stream must be closed, it will close the input stream.
+     *
+     * @param json        json input stream
+     * @param elementType the array element type
+     * @return lazy stream of array elements
+     */
+    public <T> Stream<T> parseStream(InputStream json, JavaType elementType) {
+        try {
+            return toStream(mapper.readerFor(elementType).readValues(json));
+        } catch (Exception e) {
+            return ExceptionUtils.rethrow(e);
         }
-        return result;
     }
 
-    public static Object[] parseMethodArgs(String body, Method method) {
-        if (body == null) {
-            return null;
+    public <T> Stream<T> parseStream(Reader json, JavaType elementType) {
+        try {
+            return toStream(mapper.readerFor(elementType).readValues(json));
+        } catch (Exception e) {
+            return ExceptionUtils.rethrow(e);
         }
+    }
 
-        // 不推荐使用fastjson，项目中尽量统一使用一种JSON序列化方式
-        //return com.alibaba.fastjson.JSON.parseArray(body, method.getGenericParameterTypes()).toArray();
+    public <T> Stream<T> parseStream(InputStream json, Class<T> elementType) {
+        return parseStream(json, mapper.constructType(elementType));
+    }
 
-        Type[] genericArgumentTypes = method.getGenericParameterTypes();
-        int argumentCount = genericArgumentTypes.length;
-        if (/*method.getParameterCount()*/argumentCount == 0) {
-            return null;
+    private <T> T parse(JsonParser parser, JavaType javaType) throws IOException {
+        try (JsonParser p = parser) {
+            return p.nextToken() == null ? null : mapper.readValue(p, javaType);
         }
+    }
 
-        ObjectMapper mapper = NORMAL.mapper;
-        JsonNode rootNode = readTree(mapper, body);
-        if (rootNode.isArray()) {
-            ArrayNode arrayNode = (ArrayNode) rootNode;
-
-            // 方法只有一个参数，但请求参数长度大于1
-            // ["a", "b"]     -> method(Object[] arg) -> arg=["a", "b"]
-            // [["a"], ["b"]] -> method(Object[] arg) -> arg=[["a"], ["b"]]
-            if (argumentCount == 1 && arrayNode.size() > 1) {
-                return new Object[]{parse(mapper, arrayNode, genericArgumentTypes[0])};
+    private static <T> Stream<T> toStream(MappingIterator<T> iterator) {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                iterator.close();
+            } catch (IOException e) {
+                ExceptionUtils.rethrow(e);
             }
+        });
+    }
 
-            // 其它情况，在调用方将参数(requestParameters)用数组包一层：new Object[]{ arg-1, arg-2, ..., arg-n }
-            // [["a", "b"]]   -> method(Object[] arg)                 -> arg =["a", "b"]
-            // [["a"], ["b"]] -> method(Object[] arg1, Object[] arg2) -> arg1=["a"], arg2=["b"]
-            // ["a", "b"]     -> method(Object[] arg1, Object[] arg2) -> arg1=["a"], arg2=["b"]  # ACCEPT_SINGLE_VALUE_AS_ARRAY作用：将字符串“a”转为数组arg1[]
-            Assert.isTrue(
-                argumentCount == arrayNode.size(),
-                () -> "Method arguments size: " + argumentCount + ", but actual size: " + arrayNode.size()
-            );
-
-            Object[] methodArguments = new Object[argumentCount];
-            for (int i = 0; i < argumentCount; i++) {
-                methodArguments[i] = parse(mapper, arrayNode.get(i), genericArgumentTypes[i]);
-            }
-            return methodArguments;
-        } else {
-            Assert.isTrue(argumentCount == 1, "Single object request parameter not support multiple arguments method.");
-            return new Object[]{parse(mapper, rootNode, genericArgumentTypes[0])};
-        }
+    // ----------------------------------------------------static methods
+    public static String toJson(Object target) {
+        return NORMAL.string(target);
+    }
+
+    public static byte[] toBytes(Object target) {
+        return NORMAL.bytes(target);
+    }
+
+    public static Object[] parseArray(String body, Class<?>... types) {
+        return METHOD_ARGS_PARSER.parse(body, types);
+    }
+
+    /**
+     * Parses the json body to method arguments, binds the array elements to
+     * the method parameter types in streaming without intermediate JsonNode tree.
+     *
+     * @param body   the json body
+     * @param method the method
+     * @return method arguments, {@code null} if body is null or the method has no parameter
+     * @see MethodArgsParser
+     */
+    public static Object[] parseMethodArgs(String body, Method method) {
+        // 不推荐使用fastjson，项目中尽量统一使用一种JSON序列化方式
+        //return com.alibaba.fastjson.JSON.parseArray(body, method.getGenericParameterTypes()).toArray();
+        return METHOD_ARGS_PARSER.parse(body, method);
+    }
+
+    public static Object[] parseMethodArgs(byte[] body, Method method) {
+        return METHOD_ARGS_PARSER.parse(body, method);
+    }
+
+    public static Object[] parseMethodArgs(InputStream body, Method method) {
+        return METHOD_ARGS_PARSER.parse(body, method);
     }
 
     public static <T> T fromJson(String json, JavaType javaType) {
@@ -285,6 +343,14 @@ public final class Jsons {
         return NORMAL.parse(json, type);
     }
 
+    public static <T> T fromJson(InputStream json, JavaType javaType) {
+        return NORMAL.parse(json, javaType);
+    }
+
+    public static <T> T fromJson(InputStream json, Class<T> target) {
+        return NORMAL.parse(json, target);
+    }
+
     public static ObjectMapper createObjectMapper(JsonInclude.Include include) {
         JsonFactory jsonFactory = new JsonFactoryBuilder()
             .disable(JsonFactory.Feature.INTERN_FIELD_NAMES)
@@ -298,6 +364,32 @@ public final class Jsons {
         return mapper;
     }
 
+    /**
+     * Registers the bytecode generated accessor module if present in classpath,
+     * blackbird(jdk11+) at first and then afterburner.
+     *
+     * @param mapper the object mapper
+     * @return {@code true} if registered
+     */
+    public static boolean registerAccessorModule(ObjectMapper mapper) {
+        String[] modules = {
+            "com.fasterxml.jackson.module.blackbird.BlackbirdModule",
+            "com.fasterxml.jackson.module.afterburner.AfterburnerModule"
+        };
+        for (String name : modules) {
+            try {
+                Class<?> type = Class.forName(name, true, Jsons.class.getClassLoader());
+                mapper.registerModule((Module) type.getConstructor().newInstance());
+                return true;
+            } catch (ClassNotFoundException | LinkageError e) {
+                // not present or not support the jdk, try next
+            } catch (ReflectiveOperationException e) {
+                return ExceptionUtils.rethrow(e);
+            }
+        }
+        return false;
+    }
+
     public static void configObjectMapper(ObjectMapper mapper) {
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false); // 反序列化时忽略未知属性
         mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);    // Date不序列化为时间戳
@@ -339,23 +431,4 @@ public final class Jsons {
         //mapper.setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
     }
 
-    private static JsonNode readTree(ObjectMapper mapper, String body) {
-        try {
-            return mapper.readTree(body);
-        } catch (JsonProcessingException e) {
-            return ExceptionUtils.rethrow(e);
-        }
-    }
-
-    private static Object parse(ObjectMapper mapper, JsonNode jsonNode, Type type) {
-        try {
-            return mapper
-                .readerFor(mapper.getTypeFactory().constructType(type))
-                .with(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
-                .readValue(mapper.treeAsTokens(jsonNode));
-        } catch (IOException e) {
-            return ExceptionUtils.rethrow(e);
-        }
-    }
-
 }
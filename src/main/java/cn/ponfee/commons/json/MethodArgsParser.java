@@ -0,0 +1,223 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <pre>
+ * 将json请求体解析为方法参数，流式绑定：不生成中间的JsonNode树
+ *
+ * 1、按Method缓存绑定计划(每个参数的ObjectReader)，只在首次调用时解析泛型参数类型与构造JavaType
+ * 2、顺序读取顶层数组的token，每个元素直接由对应参数的ObjectReader绑定
+ * 3、方法只有一个参数而数组元素多于一个时，整个数组作为该参数：已读取的首个元素缓存为TokenBuffer，
+ *    再与剩余的token流拼接后绑定，不需要重新解析
+ * 4、支持String、byte[]、InputStream输入；ObjectMapper可注册afterburner/blackbird模块加速热点DTO
+ * </pre>
+ *
+ * @author Ponfee
+ * @see Jsons#parseMethodArgs(String, Method)
+ * @see Jsons#registerAccessorModule(ObjectMapper)
+ */
+public final class MethodArgsParser {
+
+    private static final ObjectReader[] EMPTY = new ObjectReader[0];
+
+    private final ObjectMapper mapper;
+    private final Map<Method, ObjectReader[]> methodPlans = new ConcurrentHashMap<>();
+    private final Map<Type, ObjectReader> typeReaders = new ConcurrentHashMap<>();
+
+    public MethodArgsParser(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public Object[] parse(String body, Method method) {
+        if (body == null) {
+            return null;
+        }
+        ObjectReader[] readers = plan(method);
+        if (readers.length == 0) {
+            return null;
+        }
+        try (JsonParser parser = mapper.getFactory().createParser(body)) {
+            return bind(parser, readers);
+        } catch (IOException e) {
+            return ExceptionUtils.rethrow(e);
+        }
+    }
+
+    public Object[] parse(byte[] body, Method method) {
+        if (body == null) {
+            return null;
+        }
+        ObjectReader[] readers = plan(method);
+        if (readers.length == 0) {
+            return null;
+        }
+        try (JsonParser parser = mapper.getFactory().createParser(body)) {
+            return bind(parser, readers);
+        } catch (IOException e) {
+            return ExceptionUtils.rethrow(e);
+        }
+    }
+
+    /**
+     * Parses the input stream to method arguments, the input stream is not closed
+     *
+     * @param body   the json input stream
+     * @param method the method
+     * @return method arguments
+     */
+    public Object[] parse(InputStream body, Method method) {
+        if (body == null) {
+            return null;
+        }
+        ObjectReader[] readers = plan(method);
+        if (readers.length == 0) {
+            return null;
+        }
+        try (JsonParser parser = mapper.getFactory().createParser(body)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return bind(parser, readers);
+        } catch (IOException e) {
+            return ExceptionUtils.rethrow(e);
+        }
+    }
+
+    public Object[] parse(String body, Type... types) {
+        if (body == null) {
+            return null;
+        }
+        ObjectReader[] readers = new ObjectReader[types.length];
+        for (int i = 0; i < types.length; i++) {
+            readers[i] = reader(types[i]);
+        }
+        try (JsonParser parser = mapper.getFactory().createParser(body)) {
+            Assert.isTrue(parser.nextToken() == JsonToken.START_ARRAY, "Not array json data.");
+            return bindElements(parser, readers, false);
+        } catch (IOException e) {
+            return ExceptionUtils.rethrow(e);
+        }
+    }
+
+    // ----------------------------------------------------------------------private methods
+
+    private ObjectReader[] plan(Method method) {
+        ObjectReader[] readers = methodPlans.get(method);
+        if (readers == null) {
+            Type[] types = method.getGenericParameterTypes();
+            readers = types.length == 0 ? EMPTY : new ObjectReader[types.length];
+            for (int i = 0; i < types.length; i++) {
+                readers[i] = reader(types[i]);
+            }
+            methodPlans.put(method, readers);
+        }
+        return readers;
+    }
+
+    private ObjectReader reader(Type type) {
+        ObjectReader reader = typeReaders.get(type);
+        if (reader == null) {
+            reader = mapper.readerFor(mapper.getTypeFactory().constructType(type))
+                           .with(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY);
+            typeReaders.put(type, reader);
+        }
+        return reader;
+    }
+
+    private Object[] bind(JsonParser parser, ObjectReader[] readers) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            return bindElements(parser, readers, true);
+        }
+        Assert.isTrue(readers.length == 1, "Single object request parameter not support multiple arguments method.");
+        return new Object[]{token == null ? null : readers[0].readValue(parser)};
+    }
+
+    /**
+     * Binds the array elements, the parser current token is START_ARRAY
+     *
+     * @param parser  the parser
+     * @param readers the element readers
+     * @param strict  whether assert the array size equals readers length, else ignore the extra elements
+     * @return bound elements
+     * @throws IOException if occur io exception
+     */
+    private Object[] bindElements(JsonParser parser, ObjectReader[] readers, boolean strict) throws IOException {
+        int count = readers.length;
+        if (count == 1) {
+            return new Object[]{bindSingle(parser, readers[0])};
+        }
+
+        // [["a"], ["b"]] -> method(Object[] arg1, Object[] arg2) -> arg1=["a"], arg2=["b"]
+        // ["a", "b"]     -> method(Object[] arg1, Object[] arg2) -> arg1=["a"], arg2=["b"]  # ACCEPT_SINGLE_VALUE_AS_ARRAY
+        Object[] arguments = new Object[count];
+        int size = 0;
+        for (JsonToken token; (token = parser.nextToken()) != JsonToken.END_ARRAY; size++) {
+            Assert.notNull(token, "Unexpected end of json array.");
+            if (size < count) {
+                arguments[size] = readers[size].readValue(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        int actual = size;
+        Assert.isTrue(!strict || count == actual, () -> "Method arguments size: " + count + ", but actual size: " + actual);
+        return arguments;
+    }
+
+    /**
+     * <pre>
+     * 方法只有一个参数：
+     * [["a", "b"]]   -> method(Object[] arg) -> arg=["a", "b"]
+     * ["a", "b"]     -> method(Object[] arg) -> arg=["a", "b"]
+     * [["a"], ["b"]] -> method(Object[] arg) -> arg=[["a"], ["b"]]
+     * </pre>
+     */
+    private Object bindSingle(JsonParser parser, ObjectReader reader) throws IOException {
+        JsonToken token = parser.nextToken();
+        Assert.isTrue(token != null && token != JsonToken.END_ARRAY, "Method arguments size: 1, but actual size: 0");
+
+        // buffers the first element with the enclosing START_ARRAY
+        TokenBuffer buffer = new TokenBuffer(parser, null);
+        buffer.writeStartArray();
+        buffer.copyCurrentStructure(parser);
+
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            // only one element: bind the element
+            try (JsonParser element = buffer.asParser(parser.getCodec())) {
+                element.nextToken();
+                element.nextToken();
+                return reader.readValue(element);
+            }
+        }
+
+        // more than one element: bind the whole array, join the buffered tokens and the remaining tokens
+        try (JsonParser whole = JsonParserSequence.createFlattened(true, buffer.asParser(parser.getCodec()), parser)) {
+            whole.nextToken();
+            return reader.readValue(whole);
+        }
+    }
+
+}
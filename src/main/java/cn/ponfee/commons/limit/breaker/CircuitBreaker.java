@@ -0,0 +1,465 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.limit.breaker;
+
+import cn.ponfee.commons.math.FailureRatioActuary;
+import cn.ponfee.commons.math.TimeWindowFailureActuary;
+import org.springframework.util.Assert;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * <pre>
+ * 基于失败率的熔断器，无锁实现
+ *
+ * 1、CLOSED：调用结果记录到滑动窗口(按次数{@link FailureRatioActuary}或按时间{@link TimeWindowFailureActuary})，
+ *    调用数达到minimumCalls且失败率达到阈值时转为OPEN
+ * 2、OPEN：拒绝所有调用(抛出{@link CircuitBreakerOpenException})，经过openDuration后转为HALF_OPEN
+ * 3、HALF_OPEN：只放行permittedHalfOpenCalls个试探调用，任一失败则重新OPEN，全部成功则CLOSED
+ * 4、状态与其附属数据为不可变的Stage对象，通过AtomicReference的CAS整体切换
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final double failureRatioThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int permittedHalfOpenCalls;
+    private final Predicate<Throwable> recordFailure;
+    private final FailureWindow window;
+    private final LongSupplier nanoClock;
+    private final AtomicReference<Stage> stage;
+
+    private CircuitBreaker(Builder builder, LongSupplier nanoClock) {
+        this.name = builder.name;
+        this.failureRatioThreshold = builder.failureRatioThreshold;
+        this.minimumCalls = builder.minimumCalls;
+        this.openDurationNanos = builder.openDurationNanos;
+        this.permittedHalfOpenCalls = builder.permittedHalfOpenCalls;
+        this.recordFailure = builder.recordFailure;
+        this.window = builder.bucketCount > 0
+                    ? new TimeWindow(new TimeWindowFailureActuary(builder.bucketCount, builder.bucketMillis))
+                    : new CountWindow(new FailureRatioActuary(builder.windowSize));
+        this.nanoClock = nanoClock;
+        this.stage = new AtomicReference<>(new Stage(State.CLOSED, 0, 0));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // ----------------------------------------------------------------------decorate
+
+    public <T> T call(Callable<T> callable) throws Exception {
+        Stage granted = acquirePermission();
+        try {
+            T result = callable.call();
+            onSuccess(granted);
+            return result;
+        } catch (Throwable t) {
+            onFailure(granted, t);
+            throw t;
+        }
+    }
+
+    public <T> T get(Supplier<T> supplier) {
+        Stage granted = acquirePermission();
+        try {
+            T result = supplier.get();
+            onSuccess(granted);
+            return result;
+        } catch (Throwable t) {
+            onFailure(granted, t);
+            throw t;
+        }
+    }
+
+    /**
+     * Gets with fallback, the fallback is applied when the breaker is open or the supplier failed
+     *
+     * @param supplier the supplier
+     * @param fallback the fallback function
+     * @param <T>      the result type
+     * @return result of the supplier or fallback
+     */
+    public <T> T get(Supplier<T> supplier, Function<Throwable, T> fallback) {
+        try {
+            return get(supplier);
+        } catch (Throwable t) {
+            return fallback.apply(t);
+        }
+    }
+
+    public void run(Runnable runnable) {
+        get(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    public <T> Supplier<T> decorateSupplier(Supplier<T> supplier) {
+        return () -> get(supplier);
+    }
+
+    public <T> Callable<T> decorateCallable(Callable<T> callable) {
+        return () -> call(callable);
+    }
+
+    // ----------------------------------------------------------------------state machine
+
+    /**
+     * Acquires permission to execute a call, the caller must invoke
+     * {@link #onSuccess()} or {@link #onFailure(Throwable)} after the call if acquired.
+     *
+     * @return {@code true} if permitted
+     */
+    public boolean tryAcquirePermission() {
+        return tryAcquire() != null;
+    }
+
+    /**
+     * Records a success outcome to the current stage
+     */
+    public void onSuccess() {
+        onSuccess(stage.get());
+    }
+
+    /**
+     * Records a failure outcome to the current stage
+     *
+     * @param t the failure
+     */
+    public void onFailure(Throwable t) {
+        onFailure(stage.get(), t);
+    }
+
+    /**
+     * Records a success outcome to the stage in which the permission was granted
+     *
+     * @param granted the granted stage
+     */
+    void onSuccess(Stage granted) {
+        if (granted != stage.get()) {
+            // the stage changed during the call: the outcome belongs to the previous stage
+            return;
+        }
+        if (granted.state == State.CLOSED) {
+            window.record(true);
+        } else if (granted.state == State.HALF_OPEN) {
+            if (granted.successes.incrementAndGet() >= permittedHalfOpenCalls
+                && stage.compareAndSet(granted, new Stage(State.CLOSED, 0, 0))) {
+                window.reset();
+            }
+        }
+    }
+
+    /**
+     * Records a failure outcome to the stage in which the permission was granted
+     *
+     * @param granted the granted stage
+     * @param t       the failure
+     */
+    void onFailure(Stage granted, Throwable t) {
+        if (t != null && !recordFailure.test(t)) {
+            // ignored failure: gives back the half-open permit which was taken from the granted stage
+            if (granted.state == State.HALF_OPEN) {
+                granted.permits.incrementAndGet();
+            }
+            return;
+        }
+        if (granted != stage.get()) {
+            return;
+        }
+        if (granted.state == State.CLOSED) {
+            window.record(false);
+            if (window.calls() >= minimumCalls && window.ratio() >= failureRatioThreshold) {
+                stage.compareAndSet(granted, new Stage(State.OPEN, nanoClock.getAsLong(), 0));
+            }
+        } else if (granted.state == State.HALF_OPEN) {
+            stage.compareAndSet(granted, new Stage(State.OPEN, nanoClock.getAsLong(), 0));
+        }
+    }
+
+    public State getState() {
+        return stage.get().state;
+    }
+
+    /**
+     * Returns the failure ratio of the closed state window
+     *
+     * @return failure ratio
+     */
+    public double failureRatio() {
+        return window.ratio();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void reset() {
+        stage.set(new Stage(State.CLOSED, 0, 0));
+        window.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker(" + name + ", " + getState() + ", " + window.ratio() + ")";
+    }
+
+    // ----------------------------------------------------------------------private methods
+
+    private Stage acquirePermission() {
+        Stage granted = tryAcquire();
+        if (granted == null) {
+            throw new CircuitBreakerOpenException("Circuit breaker '" + name + "' is " + getState());
+        }
+        return granted;
+    }
+
+    /**
+     * Acquires permission and returns the stage in which the permission granted
+     *
+     * @return granted stage, {@code null} if not permitted
+     */
+    private Stage tryAcquire() {
+        for (; ; ) {
+            Stage current = stage.get();
+            switch (current.state) {
+                case CLOSED:
+                    return current;
+                case OPEN:
+                    if (nanoClock.getAsLong() - current.openedNanos < openDurationNanos) {
+                        return null;
+                    }
+                    stage.compareAndSet(current, new Stage(State.HALF_OPEN, 0, permittedHalfOpenCalls));
+                    break;
+                case HALF_OPEN:
+                    return current.tryAcquire() ? current : null;
+                default:
+                    throw new UnsupportedOperationException("Unknown state: " + current.state);
+            }
+        }
+    }
+
+    private static final class Stage {
+        private final State state;
+        private final long openedNanos;
+        private final AtomicInteger permits;
+        private final AtomicInteger successes;
+
+        private Stage(State state, long openedNanos, int permits) {
+            this.state = state;
+            this.openedNanos = openedNanos;
+            this.permits = state == State.HALF_OPEN ? new AtomicInteger(permits) : null;
+            this.successes = state == State.HALF_OPEN ? new AtomicInteger() : null;
+        }
+
+        private boolean tryAcquire() {
+            for (int n; (n = permits.get()) > 0; ) {
+                if (permits.compareAndSet(n, n - 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private interface FailureWindow {
+        void record(boolean success);
+
+        long calls();
+
+        double ratio();
+
+        void reset();
+    }
+
+    private static final class CountWindow implements FailureWindow {
+        private final FailureRatioActuary actuary;
+
+        private CountWindow(FailureRatioActuary actuary) {
+            this.actuary = actuary;
+        }
+
+        @Override
+        public void record(boolean success) {
+            actuary.set(success);
+        }
+
+        @Override
+        public long calls() {
+            return actuary.count();
+        }
+
+        @Override
+        public double ratio() {
+            long calls = actuary.count();
+            return calls == 0 ? 0.0D : ((double) actuary.failures()) / calls;
+        }
+
+        @Override
+        public void reset() {
+            actuary.reset();
+        }
+    }
+
+    private static final class TimeWindow implements FailureWindow {
+        private final TimeWindowFailureActuary actuary;
+
+        private TimeWindow(TimeWindowFailureActuary actuary) {
+            this.actuary = actuary;
+        }
+
+        @Override
+        public void record(boolean success) {
+            actuary.record(success);
+        }
+
+        @Override
+        public long calls() {
+            return actuary.total();
+        }
+
+        @Override
+        public double ratio() {
+            return actuary.ratio();
+        }
+
+        @Override
+        public void reset() {
+            actuary.reset();
+        }
+    }
+
+    public static class Builder {
+        private String name = "default";
+        private double failureRatioThreshold = 0.5D;
+        private int windowSize = 64;
+        private int bucketCount = 0;
+        private long bucketMillis = 0;
+        private int minimumCalls = 20;
+        private long openDurationNanos = TimeUnit.SECONDS.toNanos(30);
+        private int permittedHalfOpenCalls = 5;
+        private Predicate<Throwable> recordFailure = t -> true;
+
+        private Builder() {
+        }
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * Sets the failure ratio threshold in (0, 1], the breaker open if reached
+         *
+         * @param failureRatioThreshold the failure ratio threshold
+         * @return this builder
+         */
+        public Builder failureRatioThreshold(double failureRatioThreshold) {
+            this.failureRatioThreshold = failureRatioThreshold;
+            return this;
+        }
+
+        /**
+         * Uses the count based sliding window, the size is rounded up to multiple of 64
+         *
+         * @param windowSize the count of latest calls
+         * @return this builder
+         */
+        public Builder countWindow(int windowSize) {
+            this.windowSize = windowSize;
+            this.bucketCount = 0;
+            return this;
+        }
+
+        /**
+         * Uses the time based sliding window
+         *
+         * @param bucketCount the count of buckets
+         * @param bucketTime  the time of per bucket
+         * @param unit        the time unit
+         * @return this builder
+         */
+        public Builder timeWindow(int bucketCount, long bucketTime, TimeUnit unit) {
+            // non-positive bucket count would silently fall back to the count window
+            Assert.isTrue(bucketCount > 0, "Bucket count must be positive number.");
+            this.bucketCount = bucketCount;
+            this.bucketMillis = unit.toMillis(bucketTime);
+            return this;
+        }
+
+        /**
+         * Sets the minimum calls in window before the failure ratio can open the breaker
+         *
+         * @param minimumCalls the minimum calls
+         * @return this builder
+         */
+        public Builder minimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        public Builder openDuration(long duration, TimeUnit unit) {
+            this.openDurationNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder permittedHalfOpenCalls(int permittedHalfOpenCalls) {
+            this.permittedHalfOpenCalls = permittedHalfOpenCalls;
+            return this;
+        }
+
+        /**
+         * Sets the predicate which the exception is recorded as failure, others are ignored
+         *
+         * @param recordFailure the predicate
+         * @return this builder
+         */
+        public Builder recordFailure(Predicate<Throwable> recordFailure) {
+            this.recordFailure = Objects.requireNonNull(recordFailure);
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return build(System::nanoTime);
+        }
+
+        CircuitBreaker build(LongSupplier nanoClock) {
+            Assert.isTrue(failureRatioThreshold > 0 && failureRatioThreshold <= 1, "Failure ratio threshold must be in (0, 1].");
+            Assert.isTrue(windowSize > 0, "Window size must be positive number.");
+            Assert.isTrue(bucketCount == 0 || bucketMillis > 0, "Bucket time must be positive number.");
+            Assert.isTrue(minimumCalls > 0, "Minimum calls must be positive number.");
+            // count window never records more calls than its size, then the breaker could never open
+            long countWindowSize = ((long) windowSize + 63) / 64 * 64;
+            Assert.isTrue(bucketCount > 0 || minimumCalls <= countWindowSize,
+                () -> "Minimum calls " + minimumCalls + " cannot greater than count window size " + countWindowSize);
+            Assert.isTrue(openDurationNanos > 0, "Open duration must be positive number.");
+            Assert.isTrue(permittedHalfOpenCalls > 0, "Permitted half open calls must be positive number.");
+            return new CircuitBreaker(this, nanoClock);
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.limit.breaker;
+
+/**
+ * 熔断器打开时拒绝调用的异常，不填充堆栈
+ *
+ * @author Ponfee
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    private static final long serialVersionUID = -3016245817416281367L;
+
+    public CircuitBreakerOpenException(String message) {
+        super(message, null, false, false);
+    }
+
+}
@@ -0,0 +1,312 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.limit.current;
+
+import cn.ponfee.commons.collect.BoundedCache;
+import org.springframework.util.Assert;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <pre>
+ * 按key限流的令牌桶，阈值单位为每秒请求数
+ *
+ * 1、key表使用{@link BoundedCache}：限制最大key数量，空闲超时的key被淘汰，内存有界
+ * 2、令牌桶状态为一个long(GCRA理论到达时间)，通过CAS更新，无锁；最多积攒1秒的令牌
+ * 3、预热：新建(或空闲淘汰后重建)的桶从1/3速率线性提升到阈值速率
+ * 4、每个key使用环形的每秒计数器统计通过的请求数，支持countByRange
+ * 5、阈值配置与运行时状态分开保存，配置不会被淘汰
+ * </pre>
+ *
+ * @author Ponfee
+ * @see <a href="https://en.wikipedia.org/wiki/Generic_cell_rate_algorithm">GCRA</a>
+ */
+public class TokenBucketCurrentLimiter implements CurrentLimiter {
+
+    private static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double COLD_FACTOR = 3.0D;
+
+    private final ConcurrentMap<String, Long> thresholds = new ConcurrentHashMap<>();
+    private final BoundedCache<String, Bucket> buckets;
+    private final long warmupNanos;
+    private final int countSeconds;
+
+    private TokenBucketCurrentLimiter(Builder builder) {
+        this.buckets = BoundedCache.<String, Bucket>builder()
+            .maximumSize(builder.maximumKeys)
+            .expireAfterAccess(builder.idleTimeoutNanos, TimeUnit.NANOSECONDS)
+            .build();
+        this.warmupNanos = builder.warmupNanos;
+        this.countSeconds = builder.countSeconds;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public boolean checkpoint(String key) {
+        return tryAcquire(key, 1);
+    }
+
+    @Override
+    public boolean checkpoint(String key, long requestThreshold) {
+        return tryAcquire(key, 1, requestThreshold);
+    }
+
+    /**
+     * Tries acquire permits with the configured threshold, returns {@code true} if not configured
+     *
+     * @param key     the key
+     * @param permits the permits
+     * @return {@code true} if acquired
+     */
+    public boolean tryAcquire(String key, int permits) {
+        Long threshold = thresholds.get(key);
+        return threshold == null || tryAcquire(key, permits, threshold);
+    }
+
+    /**
+     * Tries acquire permits, the permits which greater than threshold can be acquired only if the bucket is full
+     *
+     * @param key       the key
+     * @param permits   the permits
+     * @param threshold the requests per second, negative is unlimited and zero is forbidden
+     * @return {@code true} if acquired
+     */
+    public boolean tryAcquire(String key, int permits, long threshold) {
+        Assert.isTrue(permits > 0, "Permits must be positive number.");
+        if (threshold < 0) {
+            return true; // 小于0表示无限制
+        } else if (threshold == 0) {
+            return false; // 禁止访问
+        }
+        Bucket bucket = bucket(key, threshold);
+        if (!bucket.tryAcquire(permits, System.nanoTime())) {
+            return false;
+        }
+        if (bucket.counters != null) {
+            bucket.count(permits, System.currentTimeMillis() / 1000);
+        }
+        return true;
+    }
+
+    /**
+     * Counts the acquired permits in range, only the latest count seconds are retained
+     *
+     * @param key  the key
+     * @param from the from date, inclusive
+     * @param to   the to date, inclusive
+     * @return count of acquired permits
+     */
+    @Override
+    public long countByRange(String key, Date from, Date to) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null || bucket.counters == null) {
+            return 0;
+        }
+        return bucket.count(from.getTime() / 1000, to.getTime() / 1000);
+    }
+
+    /**
+     * Sets the requests per second threshold, negative is unlimited and zero is forbidden
+     *
+     * @param key       the key
+     * @param threshold the threshold
+     */
+    @Override
+    public void setRequestThreshold(String key, long threshold) {
+        if (threshold < 0) {
+            thresholds.remove(key);
+        } else {
+            thresholds.put(key, threshold);
+        }
+    }
+
+    @Override
+    public long getRequestThreshold(String key) {
+        Long threshold = thresholds.get(key);
+        return threshold == null ? -1 : threshold;
+    }
+
+    /**
+     * Returns the count of the key buckets
+     *
+     * @return count of key buckets
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    // ----------------------------------------------------------------------private methods
+
+    private Bucket bucket(String key, long threshold) {
+        for (; ; ) {
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = buckets.computeIfAbsent(key, k -> new Bucket(threshold, warmupNanos, countSeconds));
+            }
+            if (bucket.threshold == threshold) {
+                return bucket;
+            }
+            // threshold changed: keep the state and counters
+            Bucket changed = new Bucket(threshold, bucket);
+            if (buckets.replace(key, bucket, changed)) {
+                return changed;
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private final long threshold;
+        private final double stableIntervalNanos;
+        private final long warmupNanos;
+        private final long createNanos;
+
+        // theoretical arrival time: the bucket is full when tat <= now, and empty when tat >= now + 1s
+        private final AtomicLong tat;
+
+        // ring of per second counter: epoch second(32 bits) | count(32 bits)
+        private final AtomicLongArray counters;
+
+        private Bucket(long threshold, long warmupNanos, int countSeconds) {
+            this.threshold = threshold;
+            this.stableIntervalNanos = (double) BURST_NANOS / threshold;
+            this.warmupNanos = warmupNanos;
+            this.createNanos = System.nanoTime();
+            this.tat = new AtomicLong(createNanos);
+            this.counters = countSeconds > 0 ? new AtomicLongArray(countSeconds) : null;
+        }
+
+        private Bucket(long threshold, Bucket previous) {
+            this.threshold = threshold;
+            this.stableIntervalNanos = (double) BURST_NANOS / threshold;
+            this.warmupNanos = previous.warmupNanos;
+            this.createNanos = previous.createNanos;
+            this.tat = previous.tat;
+            this.counters = previous.counters;
+        }
+
+        private boolean tryAcquire(int permits, long now) {
+            long cost = (long) (permits * intervalNanos(now));
+            for (; ; ) {
+                long t = tat.get();
+                // the tat which less than now is treated as now, so at most accumulate one second tokens
+                long next = Math.max(t, now) + cost;
+                if (next - now > BURST_NANOS && !(cost > BURST_NANOS && t <= now)) {
+                    return false;
+                }
+                if (tat.compareAndSet(t, next)) {
+                    return true;
+                }
+            }
+        }
+
+        private double intervalNanos(long now) {
+            long elapsed = now - createNanos;
+            if (warmupNanos <= 0 || elapsed >= warmupNanos) {
+                return stableIntervalNanos;
+            }
+            // rate increase linearly from threshold/COLD_FACTOR to threshold
+            return stableIntervalNanos * COLD_FACTOR / (1 + (COLD_FACTOR - 1) * elapsed / warmupNanos);
+        }
+
+        private void count(int permits, long second) {
+            int slot = (int) (second % counters.length());
+            for (; ; ) {
+                long value = counters.get(slot);
+                long update = (value >>> 32) == second ? value + permits : (second << 32) | permits;
+                if (counters.compareAndSet(slot, value, update)) {
+                    return;
+                }
+            }
+        }
+
+        private long count(long fromSecond, long toSecond) {
+            long sum = 0;
+            for (int i = 0, n = counters.length(); i < n; i++) {
+                long value = counters.get(i), second = value >>> 32;
+                if (second >= fromSecond && second <= toSecond) {
+                    sum += value & 0xFFFFFFFFL;
+                }
+            }
+            return sum;
+        }
+    }
+
+    public static class Builder {
+        private long maximumKeys = 100_000;
+        private long idleTimeoutNanos = TimeUnit.MINUTES.toNanos(10);
+        private long warmupNanos = 0;
+        private int countSeconds = 60;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum count of key buckets, the cold keys will be evicted if exceeded
+         *
+         * @param maximumKeys the maximum count of key buckets
+         * @return this builder
+         */
+        public Builder maximumKeys(long maximumKeys) {
+            this.maximumKeys = maximumKeys;
+            return this;
+        }
+
+        /**
+         * Sets the idle timeout, the key bucket will be evicted if not accessed in the duration
+         *
+         * @param duration the duration
+         * @param unit     the time unit
+         * @return this builder
+         */
+        public Builder idleTimeout(long duration, TimeUnit unit) {
+            this.idleTimeoutNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Sets the warm-up period, the rate increase from 1/3 threshold to threshold in the period
+         *
+         * @param duration the duration
+         * @param unit     the time unit
+         * @return this builder
+         */
+        public Builder warmup(long duration, TimeUnit unit) {
+            this.warmupNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Sets the count seconds which retained for countByRange, zero is disable count
+         *
+         * @param countSeconds the count seconds
+         * @return this builder
+         */
+        public Builder countSeconds(int countSeconds) {
+            this.countSeconds = countSeconds;
+            return this;
+        }
+
+        public TokenBucketCurrentLimiter build() {
+            Assert.isTrue(maximumKeys > 0, "Maximum keys must be positive number.");
+            Assert.isTrue(idleTimeoutNanos > 0, "Idle timeout must be positive number.");
+            Assert.isTrue(warmupNanos >= 0, "Warmup cannot be negative.");
+            Assert.isTrue(countSeconds >= 0, "Count seconds cannot be negative.");
+            return new TokenBucketCurrentLimiter(this);
+        }
+    }
+
+}
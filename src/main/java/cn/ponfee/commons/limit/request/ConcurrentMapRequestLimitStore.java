@@ -0,0 +1,383 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.limit.request;
+
+import cn.ponfee.commons.util.HierarchicalTimingWheel;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * <pre>
+ * 基于ConcurrentHashMap的本地请求限制存储，可作为Redis的本地替身
+ *
+ * 1、按namespace分表，不拼接字符串key
+ * 2、计数使用LongAdder，滑动窗口计数与令牌桶的状态压缩在一个long中通过CAS更新，全程无锁
+ * 3、过期使用分层时间轮：只有到期的key才会被处理，清理成本与过期key数量成正比，
+ *    限流key按空闲时间过期，到期时如果期间被访问过则按新的截止时间重新放入时间轮
+ * 4、读取时也会惰性判断过期
+ *
+ * Warning: 单机存储，多节点部署时需使用Redis实现
+ * </pre>
+ *
+ * @author Ponfee
+ */
+public class ConcurrentMapRequestLimitStore implements RequestLimitStore, AutoCloseable {
+
+    private static final long TICK_MS = 100;
+    private static final int WHEEL_SIZE = 128;
+
+    // sliding window counter state: window index(24 bits) | previous count(20 bits) | current count(20 bits)
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long INDEX_MASK = (1L << (Long.SIZE - (COUNT_BITS << 1))) - 1;
+
+    // sliding window log slot: permit expire millis from base(42 bits) | claimed sequence + 1(22 bits)
+    private static final int SEQUENCE_BITS = 22;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // token bucket state: last refill millis from base(42 bits) | tokens(22 bits)
+    private static final int TOKEN_BITS = 22;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Entry>> spaces = new ConcurrentHashMap<>();
+    private final HierarchicalTimingWheel<Entry> wheel;
+    private final LongSupplier clock;
+    private final long base;
+
+    public ConcurrentMapRequestLimitStore() {
+        this(System::currentTimeMillis);
+    }
+
+    ConcurrentMapRequestLimitStore(LongSupplier clock) {
+        this.clock = clock;
+        this.base = clock.getAsLong();
+        this.wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, this::expire, null).start();
+    }
+
+    // ---------------------------------------------------------------------key value
+
+    @Override
+    public void set(String namespace, String key, String value, long ttlMillis) {
+        ConcurrentMap<String, Entry> map = space(namespace);
+        long now = clock.getAsLong();
+        Entry entry = new ValueEntry(map, key, now + ttlMillis, value);
+        map.put(key, entry);
+        schedule(entry, now);
+    }
+
+    @Override
+    public String get(String namespace, String key) {
+        Entry entry = get(space(namespace), key, clock.getAsLong());
+        return entry instanceof ValueEntry ? ((ValueEntry) entry).value : null;
+    }
+
+    @Override
+    public String getAndDelete(String namespace, String key) {
+        Entry entry = space(namespace).remove(key);
+        return entry instanceof ValueEntry && !entry.isExpired(clock.getAsLong()) ? ((ValueEntry) entry).value : null;
+    }
+
+    @Override
+    public long ttl(String namespace, String key) {
+        long now = clock.getAsLong();
+        Entry entry = get(space(namespace), key, now);
+        return entry == null ? 0 : entry.deadline - now;
+    }
+
+    @Override
+    public void delete(String namespace, String key) {
+        space(namespace).remove(key);
+    }
+
+    @Override
+    public long incrementAndGet(String namespace, String key, long ttlMillis) {
+        CounterEntry entry = (CounterEntry) getOrCreate(
+            space(namespace), key, clock.getAsLong(), ttlMillis, 0, CounterEntry.class, CounterEntry::new
+        );
+        entry.adder.increment();
+        return entry.adder.sum();
+    }
+
+    @Override
+    public long count(String namespace, String key) {
+        Entry entry = get(space(namespace), key, clock.getAsLong());
+        return entry instanceof CounterEntry ? ((CounterEntry) entry).adder.sum() : 0;
+    }
+
+    // ---------------------------------------------------------------------rate limit
+
+    @Override
+    public boolean tryAcquire(RateLimitAlgorithm algorithm, String namespace, String key, long windowMillis, int limit) {
+        Assert.isTrue(windowMillis > 0, "Window millis must be positive number.");
+        Assert.isTrue(limit > 0, "Limit must be positive number.");
+        ConcurrentMap<String, Entry> map = space(namespace);
+        long now = clock.getAsLong();
+        switch (algorithm) {
+            case FIXED_WINDOW:
+                return incrementAndGet(namespace, key, windowMillis) <= limit;
+            case SLIDING_WINDOW_LOG:
+                Assert.isTrue(limit < SEQUENCE_MASK, () -> "Sliding window log limit must less than " + SEQUENCE_MASK);
+                return slidingWindowLog(
+                    (SlidingLogEntry) getOrCreate(map, key, now, windowMillis, limit, SlidingLogEntry.class, SlidingLogEntry::new), now
+                );
+            case SLIDING_WINDOW_COUNTER:
+                Assert.isTrue(limit <= COUNT_MASK, () -> "Sliding window counter limit cannot greater than " + COUNT_MASK);
+                return slidingWindowCounter(
+                    (SlidingCounterEntry) getOrCreate(map, key, now, windowMillis, limit, SlidingCounterEntry.class, SlidingCounterEntry::new), now
+                );
+            case TOKEN_BUCKET:
+                Assert.isTrue(limit <= TOKEN_MASK, () -> "Token bucket limit cannot greater than " + TOKEN_MASK);
+                return tokenBucket(
+                    (TokenBucketEntry) getOrCreate(map, key, now, windowMillis, limit, TokenBucketEntry.class, this::newTokenBucket), now
+                );
+            default:
+                throw new UnsupportedOperationException("Unsupported rate limit algorithm: " + algorithm);
+        }
+    }
+
+    /**
+     * Returns the count of keys, include the expired but not yet cleaned
+     *
+     * @return count of keys
+     */
+    public int size() {
+        return spaces.values().stream().mapToInt(ConcurrentMap::size).sum();
+    }
+
+    @Override
+    public void close() {
+        wheel.stop();
+    }
+
+    // ---------------------------------------------------------------------private methods
+
+    private boolean slidingWindowLog(SlidingLogEntry entry, long now) {
+        entry.deadline = now + entry.window;
+        AtomicLongArray ring = entry.ring;
+        long time = Math.max(0, now - base);
+        for (; ; ) {
+            long seq = entry.sequence.get(), tag = (seq + 1) & SEQUENCE_MASK;
+            // the slot holds the permit which acquired limit times ago
+            int slot = (int) (seq % entry.limit);
+            long s = ring.get(slot);
+            if ((s & SEQUENCE_MASK) == tag) {
+                // the slot was claimed by this sequence but the sequence not yet advanced, helps to advance it
+                entry.sequence.compareAndSet(seq, seq + 1);
+                continue;
+            }
+            if (time < (s >>> SEQUENCE_BITS)) {
+                return false;
+            }
+            // claims the slot and publishes the expire time in one CAS, so only one request can win the slot
+            if (ring.compareAndSet(slot, s, ((time + entry.window) << SEQUENCE_BITS) | tag)) {
+                entry.sequence.compareAndSet(seq, seq + 1);
+                return true;
+            }
+        }
+    }
+
+    private static boolean slidingWindowCounter(SlidingCounterEntry entry, long now) {
+        long window = entry.window, limit = entry.limit;
+        entry.deadline = now + (window << 1);
+        long index = (now / window) & INDEX_MASK, elapsed = now % window;
+        AtomicLong state = entry.state;
+        for (; ; ) {
+            long s = state.get();
+            long previous = (s >>> COUNT_BITS) & COUNT_MASK, current = s & COUNT_MASK;
+            long stateIndex = s >>> (COUNT_BITS << 1);
+            if (stateIndex != index) {
+                previous = ((index - stateIndex) & INDEX_MASK) == 1 ? current : 0;
+                current = 0;
+            }
+            // previous * (window - elapsed) / window + current < limit
+            if (previous * (window - elapsed) + current * window >= limit * window) {
+                return false;
+            }
+            long update = (index << (COUNT_BITS << 1)) | (previous << COUNT_BITS) | (current + 1);
+            if (state.compareAndSet(s, update)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean tokenBucket(TokenBucketEntry entry, long now) {
+        long window = entry.window, limit = entry.limit, time = Math.max(0, now - base);
+        entry.deadline = now + window;
+        AtomicLong state = entry.state;
+        for (; ; ) {
+            long s = state.get();
+            long last = s >>> TOKEN_BITS, tokens = s & TOKEN_MASK, elapsed = time - last;
+            if (tokens >= limit || elapsed >= window) {
+                tokens = limit;
+                last = time;
+            } else if (elapsed > 0) {
+                long refill = elapsed * limit / window;
+                if (refill > 0) {
+                    tokens = Math.min(limit, tokens + refill);
+                    // keep the remainder of elapsed for the next refill
+                    last = tokens == limit ? time : last + refill * window / limit;
+                }
+            }
+            if (tokens == 0) {
+                return false;
+            }
+            if (state.compareAndSet(s, (last << TOKEN_BITS) | (tokens - 1))) {
+                return true;
+            }
+        }
+    }
+
+    private Entry newTokenBucket(ConcurrentMap<String, Entry> map, String key, long now, long window, int limit) {
+        return new TokenBucketEntry(map, key, now, window, limit, (Math.max(0, now - base) << TOKEN_BITS) | limit);
+    }
+
+    private ConcurrentMap<String, Entry> space(String namespace) {
+        // ConcurrentHashMap#computeIfAbsent locks the bin even if present in jdk8
+        ConcurrentMap<String, Entry> map = spaces.get(namespace);
+        return map != null ? map : spaces.computeIfAbsent(namespace, k -> new ConcurrentHashMap<>());
+    }
+
+    private static Entry get(ConcurrentMap<String, Entry> map, String key, long now) {
+        Entry entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(now)) {
+            map.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private Entry getOrCreate(ConcurrentMap<String, Entry> map, String key, long now, long window, int limit,
+                              Class<? extends Entry> type, EntryFactory factory) {
+        for (; ; ) {
+            Entry entry = map.get(key);
+            if (type.isInstance(entry) && !entry.isExpired(now) && entry.matches(window, limit)) {
+                return entry;
+            }
+            Entry created = factory.create(map, key, now, window, limit);
+            if (entry == null ? map.putIfAbsent(key, created) == null : map.replace(key, entry, created)) {
+                schedule(created, now);
+                return created;
+            }
+        }
+    }
+
+    private void schedule(Entry entry, long now) {
+        wheel.add(entry, Math.max(0, entry.deadline - now));
+    }
+
+    private void expire(Entry entry) {
+        if (entry.map.get(entry.key) != entry) {
+            // already removed or replaced
+            return;
+        }
+        long now = clock.getAsLong(), deadline = entry.deadline;
+        if (deadline <= now) {
+            entry.map.remove(entry.key, entry);
+        } else {
+            // accessed after scheduled or the bucket fired earlier than deadline within a tick,
+            // delay at least one tick to avoid processed immediately again
+            wheel.add(entry, Math.max(deadline - now, TICK_MS));
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryFactory {
+        Entry create(ConcurrentMap<String, Entry> map, String key, long now, long window, int limit);
+    }
+
+    private abstract static class Entry {
+        final ConcurrentMap<String, Entry> map;
+        final String key;
+        volatile long deadline;
+
+        Entry(ConcurrentMap<String, Entry> map, String key, long deadline) {
+            this.map = map;
+            this.key = key;
+            this.deadline = deadline;
+        }
+
+        final boolean isExpired(long now) {
+            return deadline <= now;
+        }
+
+        boolean matches(long window, int limit) {
+            return true;
+        }
+    }
+
+    private static final class ValueEntry extends Entry {
+        final String value;
+
+        ValueEntry(ConcurrentMap<String, Entry> map, String key, long deadline, String value) {
+            super(map, key, deadline);
+            this.value = value;
+        }
+    }
+
+    private static final class CounterEntry extends Entry {
+        final LongAdder adder = new LongAdder();
+
+        CounterEntry(ConcurrentMap<String, Entry> map, String key, long now, long ttl, int limit) {
+            super(map, key, now + ttl);
+        }
+    }
+
+    private abstract static class LimitEntry extends Entry {
+        final long window;
+        final int limit;
+
+        LimitEntry(ConcurrentMap<String, Entry> map, String key, long deadline, long window, int limit) {
+            super(map, key, deadline);
+            this.window = window;
+            this.limit = limit;
+        }
+
+        @Override
+        final boolean matches(long window, int limit) {
+            return this.window == window && this.limit == limit;
+        }
+    }
+
+    private static final class SlidingLogEntry extends LimitEntry {
+        final AtomicLong sequence = new AtomicLong();
+        final AtomicLongArray ring;
+
+        SlidingLogEntry(ConcurrentMap<String, Entry> map, String key, long now, long window, int limit) {
+            super(map, key, now + window, window, limit);
+            this.ring = new AtomicLongArray(limit);
+        }
+    }
+
+    private static final class SlidingCounterEntry extends LimitEntry {
+        final AtomicLong state = new AtomicLong();
+
+        SlidingCounterEntry(ConcurrentMap<String, Entry> map, String key, long now, long window, int limit) {
+            super(map, key, now + (window << 1), window, limit);
+        }
+    }
+
+    private static final class TokenBucketEntry extends LimitEntry {
+        final AtomicLong state;
+
+        TokenBucketEntry(ConcurrentMap<String, Entry> map, String key, long now, long window, int limit, long state) {
+            super(map, key, now + window, window, limit);
+            this.state = new AtomicLong(state);
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.limit.request;
+
+/**
+ * 请求限制的算法
+ *
+ * @author Ponfee
+ */
+public enum RateLimitAlgorithm {
+
+    /**
+     * 固定窗口计数：第一次请求时开始计时，窗口边界处可能出现两倍的放行量，被拒绝的请求也会计数
+     */
+    FIXED_WINDOW,
+
+    /**
+     * 滑动窗口日志：记录窗口内每次放行的时间戳，精确但每个key占用limit个long
+     */
+    SLIDING_WINDOW_LOG,
+
+    /**
+     * 滑动窗口计数：按上个窗口计数的剩余比例加上当前窗口计数估算，每个key只占用一个long
+     */
+    SLIDING_WINDOW_COUNTER,
+
+    /**
+     * 令牌桶：容量为limit，每个周期匀速补充limit个令牌
+     */
+    TOKEN_BUCKET,
+
+}
@@ -0,0 +1,106 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.limit.request;
+
+/**
+ * <pre>
+ * 请求限制的存储，每个方法都是原子操作，语义与Redis命令(或Lua脚本)对应，
+ * 因此同一个{@link StoreRequestLimiter}既可以运行在本地存储上，也可以运行在Redis上实现集群范围的限制
+ *
+ * key由namespace与key组成，Redis实现拼接为namespace+key，本地实现按namespace分表避免拼接字符串
+ * </pre>
+ *
+ * @author Ponfee
+ * @see ConcurrentMapRequestLimitStore
+ */
+public interface RequestLimitStore {
+
+    /**
+     * Sets the value with ttl, like as {@code SET key value PX ttl}
+     *
+     * @param namespace the namespace
+     * @param key       the key
+     * @param value     the value
+     * @param ttlMillis the time to live millis
+     */
+    void set(String namespace, String key, String value, long ttlMillis);
+
+    /**
+     * Returns the value, like as {@code GET key}
+     *
+     * @param namespace the namespace
+     * @param key       the key
+     * @return value, {@code null} if not exists or expired
+     */
+    String get(String namespace, String key);
+
+    /**
+     * Returns and removes the value, like as {@code GETDEL key}
+     *
+     * @param namespace the namespace
+     * @param key       the key
+     * @return value, {@code null} if not exists or expired
+     */
+    String getAndDelete(String namespace, String key);
+
+    /**
+     * Returns the remaining time to live millis, like as {@code PTTL key}
+     *
+     * @param namespace the namespace
+     * @param key       the key
+     * @return remaining ttl millis, non-positive if not exists or expired
+     */
+    long ttl(String namespace, String key);
+
+    /**
+     * Deletes the key, like as {@code DEL key}
+     *
+     * @param namespace the namespace
+     * @param key       the key
+     */
+    void delete(String namespace, String key);
+
+    /**
+     * Increments the counter, the ttl is set only when the counter created,
+     * like as {@code INCR key} and then {@code PEXPIRE key ttl} if the result is 1
+     *
+     * @param namespace the namespace
+     * @param key       the key
+     * @param ttlMillis the time to live millis of the new counter
+     * @return the counter value after increment
+     */
+    long incrementAndGet(String namespace, String key, long ttlMillis);
+
+    /**
+     * Returns the counter value, like as {@code GET key}
+     *
+     * @param namespace the namespace
+     * @param key       the key
+     * @return counter value, 0 if not exists or expired
+     */
+    long count(String namespace, String key);
+
+    /**
+     * Tries acquire a permit, redis implementation should use Lua script:
+     * <pre>
+     * SLIDING_WINDOW_LOG     : ZREMRANGEBYSCORE key -inf now-window; if ZCARD key < limit then ZADD key now now; PEXPIRE key window
+     * SLIDING_WINDOW_COUNTER : HMGET key window prev curr; shift when window changed; if prev*(1-elapsed/window)+curr < limit then HINCRBY curr
+     * TOKEN_BUCKET           : HMGET key tokens last; refill (now-last)*limit/window tokens; if tokens > 0 then HSET tokens-1
+     * </pre>
+     *
+     * @param algorithm    the algorithm
+     * @param namespace    the namespace
+     * @param key          the key
+     * @param windowMillis the window(period) millis
+     * @param limit        the maximum permits in window
+     * @return {@code true} if acquired
+     */
+    boolean tryAcquire(RateLimitAlgorithm algorithm, String namespace, String key, long windowMillis, int limit);
+
+}
@@ -0,0 +1,134 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.limit.request;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Objects;
+
+/**
+ * The request limiter based {@link RequestLimitStore}, cluster-wide limit if the store is redis
+ *
+ * @author Ponfee
+ */
+public class StoreRequestLimiter extends RequestLimiter {
+
+    private final RequestLimitStore store;
+    private final RateLimitAlgorithm algorithm;
+
+    public StoreRequestLimiter(RequestLimitStore store, RateLimitAlgorithm algorithm) {
+        this.store = Objects.requireNonNull(store, "Request limit store cannot be null.");
+        this.algorithm = Objects.requireNonNull(algorithm, "Rate limit algorithm cannot be null.");
+    }
+
+    // ---------------------------------------------------------------------request limit
+    @Override
+    public StoreRequestLimiter limitFrequency(String key, int period, String message)
+        throws RequestLimitException {
+        checkLimit(CHECK_FREQ_KEY, key, period, 1, message);
+        return this;
+    }
+
+    @Override
+    public StoreRequestLimiter limitThreshold(String key, int period,
+                                              int limit, String message)
+        throws RequestLimitException {
+        checkLimit(CHECK_THRE_KEY, key, period, limit, message);
+        return this;
+    }
+
+    // ---------------------------------------------------------------------cache sms code
+    @Override
+    public void cacheCode(String key, String code, int ttl) {
+        store.set(CACHE_CODE_KEY, key, code, ttl * 1000L);
+        store.delete(CHECK_CODE_KEY, key);
+    }
+
+    @Override
+    public StoreRequestLimiter checkCode(String key, String code, int limit)
+        throws RequestLimitException {
+        if (StringUtils.isEmpty(code)) {
+            throw new RequestLimitException("验证码不能为空！");
+        }
+
+        // 1、判断验证码是否已失效
+        String actual = store.get(CACHE_CODE_KEY, key);
+        long ttl;
+        if (actual == null || (ttl = store.ttl(CACHE_CODE_KEY, key)) <= 0) {
+            throw new RequestLimitException("验证码失效，请重新获取！");
+        }
+
+        // 2、检查是否验证超过限定次数(与验证码同时失效)
+        if (store.incrementAndGet(CHECK_CODE_KEY, key, ttl) > limit) {
+            remove(key); // 超过验证次数，删除缓存中的验证码
+            throw new RequestLimitException("验证错误次数过多，请重新获取！");
+        }
+
+        // 3、检查验证码是否匹配
+        if (!actual.equals(code)) {
+            throw new RequestLimitException("验证码错误！");
+        }
+
+        // 验证成功，删除缓存key
+        remove(key);
+        return this;
+    }
+
+    // ---------------------------------------------------------------------cache captcha
+    @Override
+    public void cacheCaptcha(String key, String captcha, int expire) {
+        store.set(CACHE_CAPTCHA_KEY, key, captcha, expire * 1000L);
+    }
+
+    @Override
+    public boolean checkCaptcha(String key, String captcha, boolean caseSensitive) {
+        String value = store.getAndDelete(CACHE_CAPTCHA_KEY, key);
+        if (value == null) {
+            return false;
+        }
+
+        return caseSensitive
+               ? value.equals(captcha)
+               : value.equalsIgnoreCase(captcha);
+    }
+
+    // ---------------------------------------------------------------------action
+    @Override
+    public void recordAction(String key, int period) {
+        store.incrementAndGet(TRACE_ACTION_KEY, key, period * 1000L);
+    }
+
+    @Override
+    public long countAction(String key) {
+        return store.count(TRACE_ACTION_KEY, key);
+    }
+
+    @Override
+    public void resetAction(String key) {
+        store.delete(TRACE_ACTION_KEY, key);
+    }
+
+    public RateLimitAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    // ---------------------------------------------------------------------private methods
+    private void checkLimit(String namespace, String key, int period, int limit, String message)
+        throws RequestLimitException {
+        if (!store.tryAcquire(algorithm, namespace, key, period * 1000L, limit)) {
+            throw new RequestLimitException(message);
+        }
+    }
+
+    private void remove(String key) {
+        store.delete(CACHE_CODE_KEY, key);
+        store.delete(CHECK_CODE_KEY, key);
+    }
+
+}
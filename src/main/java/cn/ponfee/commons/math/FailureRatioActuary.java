@@ -8,44 +8,68 @@
 
 package cn.ponfee.commons.math;
 
-import java.util.BitSet;
+import org.springframework.util.Assert;
+
 import java.util.List;
-import java.util.stream.IntStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * Failure ratio
+ * <pre>
+ * Failure ratio of the latest size results, thread safe and lock-free
+ *
+ * 1、结果按位存放在AtomicLongArray中(1为成功，0为失败)，初始全部为成功
+ * 2、写入位置由AtomicLong原子递增后取模得到，按字CAS设置位
+ * 3、失败数随每次位翻转增量维护，ratio()为O(1)
+ * </pre>
  *
  * @author Ponfee
+ * @see TimeWindowFailureActuary
  */
 public class FailureRatioActuary {
 
-    private final BitSet bitset;
+    private final AtomicLongArray words;
     private final int size;
-    private int position = 0;
+    private final AtomicLong position = new AtomicLong();
+    private final AtomicInteger failures = new AtomicInteger();
 
     public FailureRatioActuary(int size) {
+        Assert.isTrue(size > 0, "Size must be positive number.");
         this.size = (size + 63) / 64 * 64;
-        this.bitset = new BitSet(size);
-        IntStream.range(0, size).forEach(bitset::set);
+        this.words = new AtomicLongArray(this.size / 64);
+        for (int i = 0, n = words.length(); i < n; i++) {
+            words.set(i, -1L);
+        }
     }
 
     public int size() {
-        //Assert.state(size == bitset.size(), () -> "Illegal size, except: " + size + ", actual: " + bitset.size());
         return size;
     }
 
     public void set(boolean value) {
-        bitset.set(position++, value);
-        if (position == size) {
-            position = 0;
+        int index = (int) ((position.getAndIncrement() & Long.MAX_VALUE) % size);
+        int wordIndex = index >>> 6;
+        long mask = 1L << index;
+        for (; ; ) {
+            long word = words.get(wordIndex);
+            boolean old = (word & mask) != 0;
+            if (old == value) {
+                return;
+            }
+            if (words.compareAndSet(wordIndex, word, value ? (word | mask) : (word & ~mask))) {
+                if (value) {
+                    failures.decrementAndGet();
+                } else {
+                    failures.incrementAndGet();
+                }
+                return;
+            }
         }
     }
 
     public void set(Boolean value) {
-        bitset.set(position++, value != null && value);
-        if (position == size) {
-            position = 0;
-        }
+        set(value != null && value);
     }
 
     public <T> double ratio(T[] array, ToBooleanFunction<T> mapper) {
@@ -70,12 +94,46 @@ public class FailureRatioActuary {
     }
 
     public double ratio() {
-        return ((double) (size - bitset.cardinality())) / size;
+        return ((double) failures.get()) / size;
+    }
+
+    /**
+     * Returns the failure count of the latest size results
+     *
+     * @return failure count
+     */
+    public int failures() {
+        return failures.get();
+    }
+
+    /**
+     * Returns the count of recorded results in window, at most size
+     *
+     * @return count of recorded results
+     */
+    public long count() {
+        return Math.min(position.get(), size);
+    }
+
+    /**
+     * Resets all to success
+     */
+    public void reset() {
+        position.set(0);
+        for (int i = 0, n = words.length(); i < n; i++) {
+            long word = words.getAndSet(i, -1L);
+            failures.addAndGet(-(Long.SIZE - Long.bitCount(word)));
+        }
     }
 
     @Override
     public String toString() {
-        return "(" + position + ", " + bitset + ")";
+        StringBuilder builder = new StringBuilder(size + 32);
+        builder.append('(').append(position.get() % size).append(", ");
+        for (int i = 0; i < size; i++) {
+            builder.append((words.get(i >>> 6) & (1L << i)) != 0 ? '1' : '0');
+        }
+        return builder.append(')').toString();
     }
 
     @FunctionalInterface
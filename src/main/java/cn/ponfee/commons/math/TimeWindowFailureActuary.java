@@ -0,0 +1,153 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.math;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * <pre>
+ * Failure ratio of the latest time window, thread safe and lock-free
+ *
+ * 1、时间窗口划分为多个桶，每个桶为一个long：bucket index(24 bits) | total(20 bits) | failures(20 bits)
+ * 2、记录时CAS更新当前桶，桶的index已过期则在同一次CAS中重置
+ *    写入线程跨桶边界被挂起时槽位可能已是更新的桶，此时重新读取时钟写入当前桶，不会把更新的桶重置回旧的index
+ * 3、计数饱和于2^20-1，不会溢出到相邻字段
+ * </pre>
+ *
+ * @author Ponfee
+ * @see FailureRatioActuary
+ */
+public class TimeWindowFailureActuary {
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long INDEX_MASK = (1L << 24) - 1;
+
+    private final AtomicLongArray buckets;
+    private final long bucketMillis;
+    private final LongSupplier clock;
+
+    public TimeWindowFailureActuary(int bucketCount, long bucketMillis) {
+        this(bucketCount, bucketMillis, System::currentTimeMillis);
+    }
+
+    TimeWindowFailureActuary(int bucketCount, long bucketMillis, LongSupplier clock) {
+        Assert.isTrue(bucketCount > 0, "Bucket count must be positive number.");
+        Assert.isTrue(bucketMillis > 0, "Bucket millis must be positive number.");
+        this.buckets = new AtomicLongArray(bucketCount);
+        this.bucketMillis = bucketMillis;
+        this.clock = clock;
+        // mark all buckets stale
+        long stale = ((index(clock.getAsLong()) - bucketCount) & INDEX_MASK) << (COUNT_BITS * 2);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.set(i, stale);
+        }
+    }
+
+    public void record(boolean success) {
+        long index = index(clock.getAsLong());
+        int slot = (int) (index % buckets.length());
+        for (; ; ) {
+            long value = buckets.get(slot), update;
+            if (indexOf(value) != index) {
+                long current = index(clock.getAsLong());
+                if (current != index && ((current - indexOf(value)) & INDEX_MASK) < buckets.length()) {
+                    // descheduled across the bucket boundary and the slot holds a newer bucket in window:
+                    // records into the current bucket, not resets the newer bucket back
+                    index = current;
+                    slot = (int) (index % buckets.length());
+                    continue;
+                }
+            }
+            if (indexOf(value) == index) {
+                long total = Math.min(totalOf(value) + 1, COUNT_MASK);
+                long failures = Math.min(failuresOf(value) + (success ? 0 : 1), COUNT_MASK);
+                update = pack(index, total, failures);
+            } else {
+                update = pack(index, 1, success ? 0 : 1);
+            }
+            if (update == value || buckets.compareAndSet(slot, value, update)) {
+                return;
+            }
+        }
+    }
+
+    public void record(Boolean success) {
+        record(success != null && success);
+    }
+
+    /**
+     * Returns the failure ratio of the window, 0 if no record
+     *
+     * @return failure ratio
+     */
+    public double ratio() {
+        long[] counts = counts();
+        return counts[0] == 0 ? 0.0D : ((double) counts[1]) / counts[0];
+    }
+
+    public long total() {
+        return counts()[0];
+    }
+
+    public long failures() {
+        return counts()[1];
+    }
+
+    public long windowMillis() {
+        return bucketMillis * buckets.length();
+    }
+
+    public void reset() {
+        long stale = ((index(clock.getAsLong()) - buckets.length()) & INDEX_MASK) << (COUNT_BITS * 2);
+        for (int i = 0, n = buckets.length(); i < n; i++) {
+            buckets.set(i, stale);
+        }
+    }
+
+    // ----------------------------------------------------------------------private methods
+
+    private long[] counts() {
+        long index = index(clock.getAsLong()), total = 0, failures = 0;
+        int n = buckets.length();
+        for (int i = 0; i < n; i++) {
+            long value = buckets.get(i);
+            // bucket within window: (index - bucketIndex) mod 2^24 in [0, n)
+            if (((index - indexOf(value)) & INDEX_MASK) < n) {
+                total += totalOf(value);
+                failures += failuresOf(value);
+            }
+        }
+        return new long[]{total, failures};
+    }
+
+    private long index(long millis) {
+        return (millis / bucketMillis) & INDEX_MASK;
+    }
+
+    private static long pack(long index, long total, long failures) {
+        return (index << (COUNT_BITS * 2)) | (total << COUNT_BITS) | failures;
+    }
+
+    private static long indexOf(long value) {
+        return value >>> (COUNT_BITS * 2);
+    }
+
+    private static long totalOf(long value) {
+        return (value >>> COUNT_BITS) & COUNT_MASK;
+    }
+
+    private static long failuresOf(long value) {
+        return value & COUNT_MASK;
+    }
+
+}
@@ -0,0 +1,360 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.reflect;
+
+import cn.ponfee.commons.util.ObjectUtils;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.google.common.base.CaseFormat.*;
+
+/**
+ * <pre>
+ * 编译后的Java Bean属性访问器表，每个类只生成一次
+ *
+ * 1、属性来自{@link Introspector}(排除getClass())，只在首次访问该类时内省
+ * 2、getter/setter通过{@link LambdaMetafactory}生成为Function/BiConsumer，调用时无反射；
+ *    方法不可访问或类加载器不可见时降级为{@link MethodHandle}
+ * 3、预先计算属性名的别名(lower_underscore、lower-hyphen)与目标类型转换器
+ * 4、Bean到Bean的拷贝计划按目标类缓存：同名属性，类型不同时做类型转换
+ * </pre>
+ *
+ * @author Ponfee
+ * @see BeanMaps#PROPS
+ */
+public final class BeanAccessor {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<BeanAccessor> ACCESSORS = new ClassValue<BeanAccessor>() {
+        @Override
+        protected BeanAccessor computeValue(Class<?> type) {
+            return new BeanAccessor(type);
+        }
+    };
+
+    private final Class<?> beanType;
+    private final Property[] properties;
+    private final Property[] readables;
+    private final Map<String, Property> propertyMap;
+    private final ConcurrentMap<Class<?>, CopyStep[]> copyPlans = new ConcurrentHashMap<>();
+
+    private BeanAccessor(Class<?> beanType) {
+        this.beanType = beanType;
+        BeanInfo beanInfo;
+        try {
+            beanInfo = Introspector.getBeanInfo(beanType);
+        } catch (IntrospectionException e) {
+            throw new IllegalStateException(e);
+        }
+        List<Property> list = new ArrayList<>();
+        for (PropertyDescriptor prop : beanInfo.getPropertyDescriptors()) {
+            if (!"class".equals(prop.getName())) {
+                list.add(new Property(beanType, prop));
+            }
+        }
+        this.properties = list.toArray(new Property[0]);
+        this.readables = list.stream().filter(p -> p.getter != null).toArray(Property[]::new);
+        Map<String, Property> map = new HashMap<>(properties.length * 2);
+        for (Property property : properties) {
+            map.put(property.name, property);
+        }
+        this.propertyMap = Collections.unmodifiableMap(map);
+    }
+
+    public static BeanAccessor of(Class<?> beanType) {
+        return ACCESSORS.get(beanType);
+    }
+
+    public Class<?> getBeanType() {
+        return beanType;
+    }
+
+    public Map<String, Property> getProperties() {
+        return propertyMap;
+    }
+
+    /**
+     * Returns a map of the readable property name-value
+     *
+     * @param bean the bean
+     * @return a map
+     */
+    public Map<String, Object> toMap(Object bean) {
+        Map<String, Object> map = new HashMap<>(readables.length << 1);
+        for (Property property : readables) {
+            map.put(property.name, property.getter.apply(bean));
+        }
+        return map;
+    }
+
+    /**
+     * Copies map key-value to the writable property, the key can be
+     * property name, lower_underscore or lower-hyphen format name.
+     * Skip primitive property if the value is null or empty string.
+     *
+     * @param sourceMap  the source map
+     * @param targetBean the target bean
+     */
+    public void copyFromMap(Map<String, ?> sourceMap, Object targetBean) {
+        for (Property property : properties) {
+            if (property.setter == null) {
+                continue;
+            }
+            String key = property.keyOf(sourceMap);
+            if (key == null) {
+                continue;
+            }
+            Object value = sourceMap.get(key);
+            if (property.primitive && ObjectUtils.isEmpty(value)) {
+                continue; // 基本类型时：value为null或为空字符串时跳过
+            }
+            property.setter.accept(targetBean, property.convert(value));
+        }
+    }
+
+    /**
+     * Copies the same name properties from source bean to target bean,
+     * converts the value if the type is different.
+     *
+     * @param source the source bean, the type must be this bean type
+     * @param target the target bean
+     */
+    public void copy(Object source, Object target) {
+        CopyStep[] plan = copyPlans.get(target.getClass());
+        if (plan == null) {
+            // jdk8 computeIfAbsent locks the bin even if present
+            plan = copyPlans.computeIfAbsent(target.getClass(), this::plan);
+        }
+        for (CopyStep step : plan) {
+            Object value = step.from.getter.apply(source);
+            if (value == null && step.to.primitive) {
+                continue;
+            }
+            step.to.setter.accept(target, step.convert ? step.to.convert(value) : value);
+        }
+    }
+
+    public static void copyProperties(Object source, Object target) {
+        of(source.getClass()).copy(source, target);
+    }
+
+    // ----------------------------------------------------------------------private methods
+
+    private CopyStep[] plan(Class<?> targetType) {
+        List<CopyStep> steps = new ArrayList<>();
+        for (Property to : of(targetType).properties) {
+            Property from = propertyMap.get(to.name);
+            if (from != null && from.getter != null && to.setter != null) {
+                steps.add(new CopyStep(from, to, !to.wrapperType.isAssignableFrom(from.wrapperType)));
+            }
+        }
+        return steps.toArray(new CopyStep[0]);
+    }
+
+    private static Function<Object, Object> compileGetter(Class<?> beanType, Method method) {
+        try {
+            if (isLambdaCompilable(beanType, method)) {
+                MethodHandle handle = LOOKUP.unreflect(method);
+                CallSite site = LambdaMetafactory.metafactory(
+                    LOOKUP, "apply", MethodType.methodType(Function.class), GETTER_TYPE.erase(), handle,
+                    MethodType.methodType(toWrapperType(method.getReturnType()), method.getDeclaringClass())
+                );
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            }
+            method.setAccessible(true);
+            MethodHandle handle = LOOKUP.unreflect(method).asType(GETTER_TYPE);
+            return bean -> {
+                try {
+                    return handle.invokeExact(bean);
+                } catch (Throwable t) {
+                    throw rethrow(t);
+                }
+            };
+        } catch (Throwable t) {
+            throw new IllegalStateException("Compile getter failed: " + method, t);
+        }
+    }
+
+    private static BiConsumer<Object, Object> compileSetter(Class<?> beanType, Method method) {
+        try {
+            if (isLambdaCompilable(beanType, method)) {
+                MethodHandle handle = LOOKUP.unreflect(method);
+                CallSite site = LambdaMetafactory.metafactory(
+                    LOOKUP, "accept", MethodType.methodType(BiConsumer.class), SETTER_TYPE.erase(), handle,
+                    MethodType.methodType(void.class, method.getDeclaringClass(), toWrapperType(method.getParameterTypes()[0]))
+                );
+                return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+            }
+            method.setAccessible(true);
+            MethodHandle handle = LOOKUP.unreflect(method).asType(SETTER_TYPE);
+            return (bean, value) -> {
+                try {
+                    handle.invokeExact(bean, value);
+                } catch (Throwable t) {
+                    throw rethrow(t);
+                }
+            };
+        } catch (Throwable t) {
+            throw new IllegalStateException("Compile setter failed: " + method, t);
+        }
+    }
+
+    /**
+     * The generated lambda class is defined in this class loader,
+     * so the bean class must be public and visible from this class loader.
+     */
+    private static boolean isLambdaCompilable(Class<?> beanType, Method method) {
+        Class<?> declaring = method.getDeclaringClass();
+        if (!Modifier.isPublic(method.getModifiers()) || !isPublic(declaring) || !isPublic(beanType)) {
+            return false;
+        }
+        for (Class<?> type : method.getParameterTypes()) {
+            if (!isVisible(type)) {
+                return false;
+            }
+        }
+        return isVisible(declaring) && isVisible(method.getReturnType());
+    }
+
+    private static Class<?> toWrapperType(Class<?> type) {
+        // not the cn.ponfee.commons.reflect.ClassUtils in this package
+        return org.springframework.util.ClassUtils.resolvePrimitiveIfNecessary(type);
+    }
+
+    private static boolean isPublic(Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, BeanAccessor.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+
+    /**
+     * Compiled property accessor
+     */
+    public static final class Property {
+        private final String name;
+        private final String[] aliases;
+        private final Class<?> type;
+        private final Class<?> wrapperType;
+        private final boolean primitive;
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+
+        private Property(Class<?> beanType, PropertyDescriptor prop) {
+            this.name = prop.getName();
+            this.aliases = Stream.of(name, LOWER_CAMEL.to(LOWER_UNDERSCORE, name), LOWER_CAMEL.to(LOWER_HYPHEN, name))
+                                 .distinct().toArray(String[]::new);
+            this.type = prop.getPropertyType();
+            this.wrapperType = toWrapperType(type);
+            this.primitive = type.isPrimitive();
+            Method read = prop.getReadMethod(), write = prop.getWriteMethod();
+            this.getter = read != null ? compileGetter(beanType, read) : null;
+            this.setter = write != null ? compileSetter(beanType, write) : null;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public boolean isReadable() {
+            return getter != null;
+        }
+
+        public boolean isWritable() {
+            return setter != null;
+        }
+
+        public Object get(Object bean) {
+            return getter.apply(bean);
+        }
+
+        public void set(Object bean, Object value) {
+            setter.accept(bean, convert(value));
+        }
+
+        private Object convert(Object value) {
+            return (value == null && !primitive) || wrapperType.isInstance(value) ? value : ObjectUtils.cast(value, type);
+        }
+
+        private String keyOf(Map<String, ?> map) {
+            for (String alias : aliases) {
+                if (map.containsKey(alias)) {
+                    return alias;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class CopyStep {
+        private final Property from;
+        private final Property to;
+        private final boolean convert;
+
+        private CopyStep(Property from, Property to, boolean convert) {
+            this.from = from;
+            this.to = to;
+            this.convert = convert;
+        }
+    }
+
+}
@@ -9,26 +9,31 @@
 package cn.ponfee.commons.reflect;
 
 import cn.ponfee.commons.util.SynchronizedCaches;
-import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.cglib.beans.BeanCopier;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Supplier;
 
 /**
- * The bean copier utility based cglib
+ * The bean copier utility based cglib, the copier cached by source type and then target type
+ *
+ * @see BeanAccessor#copyProperties(Object, Object)
  * @see <a href="https://mapstruct.org/documentation/installation/">mapstruct官方文档</a>
  * 
  * @author Ponfee
  */
 public class BeanCopiers {
 
-    private static final Map<Pair<Class<?>, Class<?>>, BeanCopier> COPIER_CACHES = new HashMap<>();
+    private static final ClassValue<ConcurrentMap<Class<?>, BeanCopier>> COPIER_CACHES = new ClassValue<ConcurrentMap<Class<?>, BeanCopier>>() {
+        @Override
+        protected ConcurrentMap<Class<?>, BeanCopier> computeValue(Class<?> sourceType) {
+            return new ConcurrentHashMap<>();
+        }
+    };
 
     public static BeanCopier get(Class<?> sourceType, Class<?> targetType) {
-        Pair<Class<?>, Class<?>> key = Pair.of(sourceType, targetType);
-        return SynchronizedCaches.get(key, COPIER_CACHES, () -> BeanCopier.create(sourceType, targetType, false));
+        return SynchronizedCaches.get(targetType, COPIER_CACHES.get(sourceType), () -> BeanCopier.create(sourceType, targetType, false));
     }
 
     /**
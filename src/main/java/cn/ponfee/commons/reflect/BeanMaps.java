@@ -10,20 +10,14 @@ package cn.ponfee.commons.reflect;
 
 import cn.ponfee.commons.util.ObjectUtils;
 import cn.ponfee.commons.util.SynchronizedCaches;
-import com.google.common.collect.ImmutableList;
 import org.apache.commons.collections4.CollectionUtils;
 import org.springframework.cglib.beans.BeanMap;
 
-import java.beans.BeanInfo;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.lang.reflect.Field;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
-import static com.google.common.base.CaseFormat.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility of Java Bean and Map mutual conversion
@@ -54,91 +48,55 @@ public enum BeanMaps {
      * Based Unsafe class
      */
     FIELDS() {
-        private final Map<Class<?>, List<Field>> cachedFields = new HashMap<>();
+        private final Map<Class<?>, FieldTable> cachedFields = new ConcurrentHashMap<>();
 
         @Override
         public Map<String, Object> toMap(Object bean) {
             if (bean == null) {
                 return null;
             }
-            List<Field> fields = getFields(bean.getClass());
-            Map<String, Object> map = new HashMap<>(fields.size());
-            fields.forEach(f -> map.put(f.getName(), Fields.get(bean, f)));
+            Field[] fields = getFields(bean.getClass()).fields;
+            Map<String, Object> map = new HashMap<>(fields.length << 1);
+            for (Field f : fields) {
+                map.put(f.getName(), Fields.get(bean, f));
+            }
             return map;
         }
 
         @Override
         public void copyFromMap(Map<String, Object> sourceMap, Object targetBean) {
-            Class<?> clazz = targetBean.getClass();
-            for (Field field : getFields(clazz)) {
+            FieldTable table = getFields(targetBean.getClass());
+            for (int i = 0; i < table.fields.length; i++) {
+                Field field = table.fields[i];
                 String name = field.getName();
                 if (sourceMap.containsKey(name)) {
-                    Class<?> type = GenericUtils.getFieldActualType(clazz, field);
-                    Fields.put(targetBean, field, ObjectUtils.cast(sourceMap.get(name), type));
+                    Fields.put(targetBean, field, ObjectUtils.cast(sourceMap.get(name), table.types[i]));
                 }
             }
         }
 
-        private List<Field> getFields(Class<?> beanType) {
-            return SynchronizedCaches.get(beanType, cachedFields, type -> {
-                List<Field> list = ClassUtils.listFields(type);
-                return CollectionUtils.isEmpty(list) ? Collections.emptyList() : ImmutableList.copyOf(list);
-            });
+        private FieldTable getFields(Class<?> beanType) {
+            return SynchronizedCaches.get(beanType, cachedFields, FieldTable::new);
         }
     },
 
     /**
-     * Based java.beans.Introspector
+     * Based java.beans.Introspector, the accessors are compiled once per class
+     *
+     * @see BeanAccessor
      */
     PROPS() {
         @Override
         public Map<String, Object> toMap(Object bean) {
-            try {
-                BeanInfo beanInfo = Introspector.getBeanInfo(bean.getClass());
-                Map<String, Object> map = new HashMap<>();
-                String name;
-                for (PropertyDescriptor prop : beanInfo.getPropertyDescriptors()) {
-                    if (!"class".equals((name = prop.getName()))) { // getClass()
-                        map.put(name, prop.getReadMethod().invoke(bean));
-                    }
-                }
-                return map;
-            } catch (Exception e) {
-                throw new IllegalStateException(e);
+            if (bean == null) {
+                return null;
             }
+            return BeanAccessor.of(bean.getClass()).toMap(bean);
         }
 
         @Override
         public void copyFromMap(Map<String, Object> sourceMap, Object targetBean) {
-            String name;
-            Object value;
-            Class<?> type;
-            try {
-                BeanInfo beanInfo = Introspector.getBeanInfo(targetBean.getClass());
-                for (PropertyDescriptor prop : beanInfo.getPropertyDescriptors()) {
-                    if ("class".equals(name = prop.getName())) { // exclude getClass()
-                        continue;
-                    }
-
-                    String name0 = name;
-                    if (   !sourceMap.containsKey(name)
-                        && !sourceMap.containsKey(name = LOWER_CAMEL.to(LOWER_UNDERSCORE, name0))
-                        && !sourceMap.containsKey(name = LOWER_CAMEL.to(LOWER_HYPHEN, name0))
-                    ) {
-                        continue;
-                    }
-
-                    value = sourceMap.get(name);
-                    if ((type = prop.getPropertyType()).isPrimitive() && ObjectUtils.isEmpty(value)) {
-                        continue; // 基本类型时：value为null或为空字符串时跳过
-                    }
-
-                    // set value into bean field
-                    prop.getWriteMethod().invoke(targetBean, ObjectUtils.cast(value, type));
-                }
-            } catch (Exception e) {
-                throw new IllegalStateException(e);
-            }
+            BeanAccessor.of(targetBean.getClass()).copyFromMap(sourceMap, targetBean);
         }
     };
 
@@ -182,4 +140,21 @@ public enum BeanMaps {
         targetMap.putAll(this.toMap(sourceBean));
     }
 
+    /**
+     * The fields with actual type, resolved once per class
+     */
+    private static final class FieldTable {
+        private final Field[] fields;
+        private final Class<?>[] types;
+
+        private FieldTable(Class<?> beanType) {
+            List<Field> list = ClassUtils.listFields(beanType);
+            this.fields = CollectionUtils.isEmpty(list) ? new Field[0] : list.toArray(new Field[0]);
+            this.types = new Class<?>[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                types[i] = GenericUtils.getFieldActualType(beanType, fields[i]);
+            }
+        }
+    }
+
 }
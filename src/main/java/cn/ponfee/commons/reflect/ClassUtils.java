@@ -32,6 +32,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基于asm的Class工具类
@@ -40,8 +41,8 @@ import java.util.*;
  */
 public final class ClassUtils {
 
-    private static final Map<Object, Constructor<?>> CONSTRUCTOR_CACHE = new HashMap<>();
-    private static final Map<Object, Method> METHOD_CACHE = new HashMap<>();
+    private static final Map<Object, Constructor<?>> CONSTRUCTOR_CACHE = new ConcurrentHashMap<>();
+    private static final Map<Object, Method> METHOD_CACHE = new ConcurrentHashMap<>();
 
     /*
     public static final Pattern QUALIFIED_CLASS_NAME_PATTERN = Pattern.compile("^([a-zA-Z_$][a-zA-Z\\d_$]*\\.)*[a-zA-Z_$][a-zA-Z\\d_$]*$");
@@ -8,6 +8,7 @@
 
 package cn.ponfee.commons.serial;
 
+import cn.ponfee.commons.io.CompressionCodecs;
 import cn.ponfee.commons.io.GzipProcessor;
 import cn.ponfee.commons.reflect.ClassUtils;
 
@@ -38,7 +39,7 @@ public class ByteArraySerializer extends Serializer {
             );
         }
 
-        return (T) (compress ? GzipProcessor.decompress(bytes) : bytes);
+        return (T) (compress ? CompressionCodecs.decompress(bytes) : bytes);
     }
 
     // -------------------------------------------------------------------
@@ -53,7 +54,7 @@ public class ByteArraySerializer extends Serializer {
         if (bytes == null || bytes.length == 0) {
             return bytes;
         }
-        return compress ? GzipProcessor.decompress(bytes) : bytes;
+        return compress ? CompressionCodecs.decompress(bytes) : bytes;
     }
 
 }
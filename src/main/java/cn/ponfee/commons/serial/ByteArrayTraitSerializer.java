@@ -9,6 +9,7 @@
 package cn.ponfee.commons.serial;
 
 import cn.ponfee.commons.collect.ByteArrayTrait;
+import cn.ponfee.commons.io.CompressionCodecs;
 import cn.ponfee.commons.io.GzipProcessor;
 import cn.ponfee.commons.reflect.ClassUtils;
 
@@ -41,7 +42,7 @@ public class ByteArrayTraitSerializer extends Serializer {
         }
 
         if (compress) {
-            bytes = GzipProcessor.decompress(bytes);
+            bytes = CompressionCodecs.decompress(bytes);
         }
         return (T) ofBytes(bytes, (Class<? extends ByteArrayTrait>) clazz);
     }
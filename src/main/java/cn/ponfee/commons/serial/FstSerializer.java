@@ -8,9 +8,13 @@
 
 package cn.ponfee.commons.serial;
 
-import cn.ponfee.commons.io.GzipProcessor;
 import org.apache.commons.lang3.ClassUtils;
 import org.nustaq.serialization.FSTConfiguration;
+import org.nustaq.serialization.FSTObjectOutput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * Fst Serializer
@@ -25,18 +29,37 @@ public class FstSerializer extends Serializer {
 
     @Override
     protected byte[] serialize0(Object obj, boolean compress) {
-        byte[] bytes = FST_CFG.get().asByteArray(obj);
-        return compress ? GzipProcessor.compress(bytes) : bytes;
+        return compress ? super.serializeWithGzip(obj) : FST_CFG.get().asByteArray(obj);
     }
 
     @SuppressWarnings("unchecked")
     @Override
     protected <T> T deserialize0(byte[] bytes, Class<T> clazz, boolean compress) {
         if (compress) {
-            bytes = GzipProcessor.decompress(bytes);
+            return super.deserializeWithGzip(bytes, clazz);
+        }
+        return checkType((T) FST_CFG.get().asObject(bytes), clazz);
+    }
+
+    @Override
+    protected void serialize0(Object obj, OutputStream output) throws IOException {
+        // the FSTObjectOutput is reused by configuration, cannot close
+        FSTObjectOutput out = FST_CFG.get().getObjectOutput(output);
+        out.writeObject(obj);
+        out.flush();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected <T> T deserialize0(InputStream input, Class<T> clazz) throws IOException {
+        try {
+            return checkType((T) FST_CFG.get().getObjectInput(input).readObject(), clazz);
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException(e);
         }
+    }
 
-        T obj = (T) FST_CFG.get().asObject(bytes);
+    private static <T> T checkType(T obj, Class<T> clazz) {
         if (obj != null && !ClassUtils.isAssignable(obj.getClass(), clazz)) {
             throw new ClassCastException(
                 ClassUtils.getName(obj.getClass()) + " can't be cast to " + ClassUtils.getName(clazz)
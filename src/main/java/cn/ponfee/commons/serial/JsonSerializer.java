@@ -8,18 +8,15 @@
 
 package cn.ponfee.commons.serial;
 
-import cn.ponfee.commons.io.Closeables;
-import cn.ponfee.commons.io.ExtendedGZIPOutputStream;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.io.IOUtils;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * json序例化
@@ -33,43 +30,43 @@ public class JsonSerializer extends Serializer {
     static {
         MAPPER.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         MAPPER.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        // stream serialization cannot close the caller stream
+        MAPPER.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        MAPPER.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
     }
 
     @Override
     protected byte[] serialize0(Object obj, boolean compress) {
-        GZIPOutputStream gzout = null;
+        if (compress) {
+            return super.serializeWithGzip(obj);
+        }
         try {
-            byte[] data = MAPPER.writeValueAsBytes(obj);
-            if (compress) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream(BYTE_SIZE);
-                gzout = new ExtendedGZIPOutputStream(baos);
-                gzout.write(data, 0, data.length);
-                gzout.close();
-                gzout = null;
-                data = baos.toByteArray();
-            }
-            return data;
+            return MAPPER.writeValueAsBytes(obj);
         } catch (IOException e) {
             throw new SerializationException(e);
-        } finally {
-            Closeables.log(gzout, "close GZIPOutputStream exception");
         }
     }
 
     @Override
     protected <T> T deserialize0(byte[] bytes, Class<T> clazz, boolean compress) {
-        GZIPInputStream gzin = null;
+        if (compress) {
+            return super.deserializeWithGzip(bytes, clazz);
+        }
         try {
-            if (compress) {
-                gzin = new GZIPInputStream(new ByteArrayInputStream(bytes));
-                bytes =  IOUtils.toByteArray(gzin);
-            }
             return MAPPER.readValue(bytes, clazz);
         } catch (IOException e) {
             throw new SerializationException(e);
-        } finally {
-            Closeables.log(gzin, "close GZIPInputStream exception");
         }
     }
 
+    @Override
+    protected void serialize0(Object obj, OutputStream output) throws IOException {
+        MAPPER.writeValue(output, obj);
+    }
+
+    @Override
+    protected <T> T deserialize0(InputStream input, Class<T> clazz) throws IOException {
+        return MAPPER.readValue(input, clazz);
+    }
+
 }
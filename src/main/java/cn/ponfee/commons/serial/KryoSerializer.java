@@ -8,28 +8,23 @@
 
 package cn.ponfee.commons.serial;
 
-import cn.ponfee.commons.io.Closeables;
-import cn.ponfee.commons.io.ExtendedGZIPOutputStream;
 import cn.ponfee.commons.io.Files;
 import com.esotericsoftware.kryo.Kryo;
-import com.esotericsoftware.kryo.io.ByteBufferInput;
-import com.esotericsoftware.kryo.io.ByteBufferOutput;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.util.Pool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * kryo序例化
  * 
  * the bean class must include default no-arg constructor
+ *
+ * Kryo、Output、Input实例均池化复用，Output/Input的缓冲区随实例复用
  * 
  * @author Ponfee
  */
@@ -54,55 +49,89 @@ public class KryoSerializer extends Serializer {
         }
     };
 
+    /**
+     * Output pool, the output buffer is reused
+     */
+    private static final Pool<Output> OUTPUT_POOL = new Pool<Output>(true, false, 32) {
+        @Override
+        protected Output create() {
+            return new Output(Files.BUFF_SIZE, -1);
+        }
+    };
+
+    /**
+     * Input pool, only for stream input(the byte array input not need buffer)
+     */
+    private static final Pool<Input> INPUT_POOL = new Pool<Input>(true, false, 32) {
+        @Override
+        protected Input create() {
+            return new Input(Files.BUFF_SIZE);
+        }
+    };
+
+    /**
+     * The output buffer which grows beyond this size will not be reused
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
     @Override
     protected byte[] serialize0(Object obj, boolean compress) {
-        GZIPOutputStream gzout = null;
-        Output output = null;
-        Kryo kryo = null;
+        if (compress) {
+            return super.serializeWithGzip(obj);
+        }
+
+        Kryo kryo = obtain();
+        Output output = OUTPUT_POOL.obtain();
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream(BYTE_SIZE);
-            if (compress) {
-                gzout = new ExtendedGZIPOutputStream(baos);
-                output = new ByteBufferOutput(gzout, Files.BUFF_SIZE);
-            } else {
-                output = new ByteBufferOutput(baos, Files.BUFF_SIZE);
-            }
-            (kryo = obtain()).writeObject(output, obj);
-            output.close();
-            output = null;
-            if (gzout != null) {
-                gzout.close();
-                gzout = null;
-            }
-            return baos.toByteArray();
-        } catch (IOException e) {
-            throw new SerializationException(e);
+            output.reset();
+            kryo.writeObject(output, obj);
+            return output.toBytes();
         } finally {
+            free(output);
             free(kryo);
-            Closeables.log(output, "close Output exception");
-            Closeables.log(gzout, "close GZIPOutputStream exception");
         }
     }
 
     @Override
     protected <T> T deserialize0(byte[] bytes, Class<T> clazz, boolean compress) {
-        GZIPInputStream gzin = null;
-        Input input = null;
-        Kryo kryo = null;
+        if (compress) {
+            return super.deserializeWithGzip(bytes, clazz);
+        }
+
+        Kryo kryo = obtain();
+        try {
+            return kryo.readObject(new Input(bytes), clazz);
+        } finally {
+            free(kryo);
+        }
+    }
+
+    @Override
+    protected void serialize0(Object obj, OutputStream stream) {
+        Kryo kryo = obtain();
+        Output output = OUTPUT_POOL.obtain();
         try {
-            if (compress) {
-                gzin = new GZIPInputStream(new ByteArrayInputStream(bytes));
-                input = new ByteBufferInput(gzin);
-            } else {
-                input = new ByteBufferInput(bytes);
-            }
-            return (kryo = obtain()).readObject(input, clazz);
-        } catch (IOException e) {
-            throw new SerializationException(e);
+            output.setOutputStream(stream);
+            kryo.writeObject(output, obj);
+            output.flush();
         } finally {
+            output.setOutputStream(null);
+            free(output);
+            free(kryo);
+        }
+    }
+
+    @Override
+    protected <T> T deserialize0(InputStream stream, Class<T> clazz) {
+        Kryo kryo = obtain();
+        Input input = INPUT_POOL.obtain();
+        try {
+            input.setInputStream(stream);
+            return kryo.readObject(input, clazz);
+        } finally {
+            input.setInputStream(null);
+            INPUT_POOL.free(input);
             free(kryo);
-            Closeables.log(input, "close Input exception");
-            Closeables.log(gzin, "close GZIPInputStream exception");
         }
     }
 
@@ -121,4 +150,11 @@ public class KryoSerializer extends Serializer {
         }
     }
 
+    private void free(Output output) {
+        // discard the large buffer output, avoid pooled memory bloat
+        if (output.getBuffer().length <= MAX_POOLED_BUFFER_SIZE) {
+            OUTPUT_POOL.free(output);
+        }
+    }
+
 }
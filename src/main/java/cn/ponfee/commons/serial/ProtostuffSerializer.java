@@ -8,7 +8,6 @@
 
 package cn.ponfee.commons.serial;
 
-import cn.ponfee.commons.io.GzipProcessor;
 import cn.ponfee.commons.util.ObjectUtils;
 import cn.ponfee.commons.util.SynchronizedCaches;
 import io.protostuff.LinkedBuffer;
@@ -16,27 +15,36 @@ import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
 import io.protostuff.runtime.RuntimeSchema;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Protostuff Serializer
+ *
+ * LinkedBuffer is reused by thread local
  * 
  * @author Ponfee
  */
 public class ProtostuffSerializer extends Serializer {
 
-    private static final Map<Class<?>, Schema<?>> SCHEMA_CACHE = new HashMap<>();
+    private static final Map<Class<?>, Schema<?>> SCHEMA_CACHE = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<LinkedBuffer> BUFFER_HOLDER =
+        ThreadLocal.withInitial(() -> LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
 
     @SuppressWarnings("unchecked")
     @Override
     protected <T> byte[] serialize0(T obj, boolean compress) {
-        LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+        if (compress) {
+            return super.serializeWithGzip(obj);
+        }
+
+        LinkedBuffer buffer = BUFFER_HOLDER.get();
         try {
-            byte[] bytes = ProtostuffIOUtil.toByteArray(
-                obj, getSchema((Class<T>) obj.getClass()), buffer
-            );
-            return compress ? GzipProcessor.compress(bytes) : bytes;
+            return ProtostuffIOUtil.toByteArray(obj, getSchema((Class<T>) obj.getClass()), buffer);
         } finally {
             buffer.clear();
         }
@@ -45,7 +53,7 @@ public class ProtostuffSerializer extends Serializer {
     @Override
     protected <T> T deserialize0(byte[] bytes, Class<T> type, boolean compress) {
         if (compress) {
-            bytes = GzipProcessor.decompress(bytes);
+            return super.deserializeWithGzip(bytes, type);
         }
 
         T message = ObjectUtils.newInstance(type);
@@ -53,6 +61,24 @@ public class ProtostuffSerializer extends Serializer {
         return message;
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void serialize0(Object obj, OutputStream output) throws IOException {
+        LinkedBuffer buffer = BUFFER_HOLDER.get();
+        try {
+            ProtostuffIOUtil.writeTo(output, obj, getSchema((Class<Object>) obj.getClass()), buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    protected <T> T deserialize0(InputStream input, Class<T> type) throws IOException {
+        T message = ObjectUtils.newInstance(type);
+        ProtostuffIOUtil.mergeFrom(input, message, getSchema(type));
+        return message;
+    }
+
     // ------------------------------------------------------------------------private methods
     @SuppressWarnings("unchecked")
     private static <T> Schema<T> getSchema(Class<T> type) {
@@ -8,10 +8,37 @@
 
 package cn.ponfee.commons.serial;
 
+import cn.ponfee.commons.io.ByteBufferInputStream;
+import cn.ponfee.commons.io.ByteBufferOutputStream;
+import cn.ponfee.commons.io.CompressionCodec;
+import cn.ponfee.commons.io.CompressionCodecs;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
 /**
+ * <pre>
  * 序例化抽象类
  * 
  * Method template pattern
+ *
+ * 1、byte[]：{@link #serialize0(Object, boolean)}、{@link #deserialize0(byte[], Class, boolean)}
+ * 2、stream：{@link #serialize0(Object, OutputStream)}、{@link #deserialize0(InputStream, Class)}，
+ *   默认基于byte[]实现，子类可覆盖为直接读写流，gzip压缩/解压统一在流上进行(不产生中间byte[])
+ * 3、ByteBuffer：基于stream实现
+ * 4、compress=true时使用gzip压缩，也可以指定{@link CompressionCodec}，数据带一个字节的codec头；
+ *   解压时根据codec头自动识别(gzip的魔数即为其codec头)，所以compress=true可以反序例化任意codec压缩的数据
+ *
+ * 注：stream/ByteBuffer方法不会关闭调用方传入的流
+ * </pre>
  * 
  * @author Ponfee
  */
@@ -37,6 +64,52 @@ public abstract class Serializer {
      */
     protected abstract <T> T deserialize0(byte[] bytes, Class<T> clazz, boolean compress);
 
+    /**
+     * 对象序例化到输出流(不压缩)，实现类不能关闭output
+     *
+     * @param obj    对象
+     * @param output 输出流
+     * @throws IOException if occur io exception
+     */
+    protected void serialize0(Object obj, OutputStream output) throws IOException {
+        output.write(serialize0(obj, false));
+    }
+
+    /**
+     * 从输入流反序例化对象(未压缩)，实现类不能关闭input
+     *
+     * @param input 输入流
+     * @param clazz 对象类型
+     * @return 反序例化后的对象
+     * @throws IOException if occur io exception
+     */
+    protected <T> T deserialize0(InputStream input, Class<T> clazz) throws IOException {
+        return deserialize0(IOUtils.toByteArray(input), clazz, false);
+    }
+
+    /**
+     * 流式gzip压缩的序例化，供子类实现byte[]压缩时使用
+     *
+     * @param obj 对象
+     * @return 压缩后的序例化数据
+     */
+    protected final byte[] serializeWithGzip(Object obj) {
+        UnsynchronizedByteArrayOutputStream baos = new UnsynchronizedByteArrayOutputStream(BYTE_SIZE);
+        serialize(obj, baos, true);
+        return baos.toByteArray();
+    }
+
+    /**
+     * 流式gzip解压的反序例化，供子类实现byte[]解压时使用
+     *
+     * @param bytes 压缩的序例化数据
+     * @param clazz 对象类型
+     * @return 反序例化后的对象
+     */
+    protected final <T> T deserializeWithGzip(byte[] bytes, Class<T> clazz) {
+        return deserialize(new ByteArrayInputStream(bytes), clazz, true);
+    }
+
     // ----------------------------------------------------------------------------------
     public final byte[] serialize(Object obj, boolean compress) {
         if (obj == null) {
@@ -49,6 +122,22 @@ public abstract class Serializer {
         return serialize(obj, false);
     }
 
+    /**
+     * 对象序例化并使用指定codec压缩，使用compress=true反序例化
+     *
+     * @param obj   对象
+     * @param codec 压缩codec
+     * @return 带codec头的压缩数据
+     */
+    public final byte[] serialize(Object obj, CompressionCodec codec) {
+        if (obj == null) {
+            return null;
+        }
+        UnsynchronizedByteArrayOutputStream baos = new UnsynchronizedByteArrayOutputStream(BYTE_SIZE);
+        serialize(obj, baos, codec);
+        return baos.toByteArray();
+    }
+
     public final <T> T deserialize(byte[] bytes, Class<T> clazz, boolean compress) {
         if (bytes == null) {
             return null;
@@ -60,4 +149,126 @@ public abstract class Serializer {
         return this.deserialize(bytes, clazz, false);
     }
 
+    // ----------------------------------------------------------------------------------stream
+    /**
+     * 对象序例化到输出流，不关闭output
+     *
+     * @param obj      对象，不能为null
+     * @param output   输出流
+     * @param compress 是否要压缩：true是；false否；
+     */
+    public final void serialize(Object obj, OutputStream output, boolean compress) {
+        if (compress) {
+            serialize(obj, output, CompressionCodecs.GZIP);
+        } else {
+            Assert.notNull(obj, "Serialize object cannot be null.");
+            try {
+                Serializer.this.serialize0(obj, output);
+            } catch (IOException e) {
+                throw new SerializationException(e);
+            }
+        }
+    }
+
+    /**
+     * 对象序例化到输出流并使用指定codec压缩，不关闭output
+     *
+     * @param obj    对象，不能为null
+     * @param output 输出流
+     * @param codec  压缩codec
+     */
+    public final void serialize(Object obj, OutputStream output, CompressionCodec codec) {
+        Assert.notNull(obj, "Serialize object cannot be null.");
+        Assert.notNull(codec, "Compression codec cannot be null.");
+        // close the compression stream: finish the data and release the resources, but not close the output
+        try (OutputStream out = CompressionCodecs.encode(CloseShieldOutputStream.wrap(output), codec)) {
+            Serializer.this.serialize0(obj, out);
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        }
+    }
+
+    public final void serialize(Object obj, OutputStream output) {
+        serialize(obj, output, false);
+    }
+
+    /**
+     * 从输入流反序例化对象，不关闭input
+     *
+     * <p>注：实现类可能会预读，不保证input恰好停在对象数据的末尾
+     *
+     * @param input    输入流
+     * @param clazz    对象类型
+     * @param compress 是否被压缩：true是；false否；
+     * @return 反序例化后的对象
+     */
+    public final <T> T deserialize(InputStream input, Class<T> clazz, boolean compress) {
+        try {
+            if (compress) {
+                try (InputStream in = CompressionCodecs.decode(CloseShieldInputStream.wrap(input))) {
+                    return Serializer.this.deserialize0(in, clazz);
+                }
+            } else {
+                return Serializer.this.deserialize0(input, clazz);
+            }
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        }
+    }
+
+    public final <T> T deserialize(InputStream input, Class<T> clazz) {
+        return deserialize(input, clazz, false);
+    }
+
+    // ----------------------------------------------------------------------------------ByteBuffer
+    /**
+     * 对象序例化到ByteBuffer(从position处写入)
+     *
+     * @param obj      对象，不能为null
+     * @param buffer   the ByteBuffer
+     * @param compress 是否要压缩：true是；false否；
+     * @return 写入的字节数
+     * @throws java.nio.BufferOverflowException if buffer remaining not enough
+     */
+    public final int serialize(Object obj, ByteBuffer buffer, boolean compress) {
+        int position = buffer.position();
+        serialize(obj, new ByteBufferOutputStream(buffer), compress);
+        return buffer.position() - position;
+    }
+
+    public final int serialize(Object obj, ByteBuffer buffer) {
+        return serialize(obj, buffer, false);
+    }
+
+    public final int serialize(Object obj, ByteBuffer buffer, CompressionCodec codec) {
+        int position = buffer.position();
+        serialize(obj, new ByteBufferOutputStream(buffer), codec);
+        return buffer.position() - position;
+    }
+
+    /**
+     * 从ByteBuffer反序例化对象，读取[position, limit)之间的数据，完成后position置为limit
+     *
+     * @param buffer   the ByteBuffer
+     * @param clazz    对象类型
+     * @param compress 是否被压缩：true是；false否；
+     * @return 反序例化后的对象
+     */
+    public final <T> T deserialize(ByteBuffer buffer, Class<T> clazz, boolean compress) {
+        T result;
+        if (!compress && buffer.hasArray() && buffer.arrayOffset() == 0
+            && buffer.position() == 0 && buffer.remaining() == buffer.array().length) {
+            // whole backing array, zero copy
+            result = Serializer.this.deserialize0(buffer.array(), clazz, false);
+        } else {
+            result = deserialize(new ByteBufferInputStream(buffer), clazz, compress);
+        }
+        buffer.position(buffer.limit());
+        return result;
+    }
+
+    public final <T> T deserialize(ByteBuffer buffer, Class<T> clazz) {
+        return deserialize(buffer, clazz, false);
+    }
+
 }
@@ -8,6 +8,7 @@
 
 package cn.ponfee.commons.serial;
 
+import cn.ponfee.commons.io.CompressionCodecs;
 import cn.ponfee.commons.io.GzipProcessor;
 import cn.ponfee.commons.reflect.ClassUtils;
 
@@ -89,7 +90,7 @@ public class StringSerializer extends Serializer {
             return null;
         }
         if (compress) {
-            bytes = GzipProcessor.decompress(bytes);
+            bytes = CompressionCodecs.decompress(bytes);
         }
         return new String(bytes, charset);
     }
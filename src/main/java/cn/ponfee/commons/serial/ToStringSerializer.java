@@ -8,6 +8,7 @@
 
 package cn.ponfee.commons.serial;
 
+import cn.ponfee.commons.io.CompressionCodecs;
 import cn.ponfee.commons.io.GzipProcessor;
 import cn.ponfee.commons.reflect.ClassUtils;
 import cn.ponfee.commons.util.ObjectUtils;
@@ -44,7 +45,7 @@ public class ToStringSerializer extends Serializer {
     @Override
     protected <T> T deserialize0(byte[] bytes, Class<T> type, boolean compress) {
         if (compress) {
-            bytes = GzipProcessor.decompress(bytes);
+            bytes = CompressionCodecs.decompress(bytes);
         }
 
         Constructor<T> constructor = ClassUtils.getConstructor(type, byte[].class);
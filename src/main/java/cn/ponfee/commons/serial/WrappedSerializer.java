@@ -11,6 +11,7 @@ package cn.ponfee.commons.serial;
 import cn.ponfee.commons.base.Symbol;
 import cn.ponfee.commons.collect.ByteArrayTrait;
 import cn.ponfee.commons.collect.ByteArrayWrapper;
+import cn.ponfee.commons.io.CompressionCodecs;
 import cn.ponfee.commons.io.GzipProcessor;
 import cn.ponfee.commons.math.Numbers;
 import cn.ponfee.commons.reflect.ClassUtils;
@@ -70,7 +71,7 @@ public class WrappedSerializer extends Serializer {
     @Override
     protected <T> T deserialize0(byte[] bytes, Class<T> type, boolean compress) {
         if (compress) {
-            bytes = GzipProcessor.decompress(bytes);
+            bytes = CompressionCodecs.decompress(bytes);
         }
         return deserialize0(bytes, type);
     }
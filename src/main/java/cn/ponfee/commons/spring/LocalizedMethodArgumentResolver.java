@@ -13,7 +13,6 @@ import cn.ponfee.commons.json.Jsons;
 import cn.ponfee.commons.util.ObjectUtils;
 import com.google.common.collect.ImmutableSet;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.util.Assert;
@@ -28,7 +27,6 @@ import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -90,8 +88,8 @@ public class LocalizedMethodArgumentResolver implements HandlerMethodArgumentRes
             return parseQueryString(method, request.getParameterMap());
         } else {
             try (ServletInputStream inputStream = request.getInputStream()) {
-                String body = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
-                if (StringUtils.isEmpty(body)) {
+                byte[] body = IOUtils.toByteArray(inputStream);
+                if (body.length == 0) {
                     return parseQueryString(method, request.getParameterMap());
                 } else {
                     return Jsons.parseMethodArgs(body, method);
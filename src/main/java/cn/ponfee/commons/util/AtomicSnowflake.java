@@ -0,0 +1,203 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.util;
+
+import cn.ponfee.commons.math.Maths;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * <pre>
+ * 基于CAS的无锁snowflake算法ID生成器，ID的bit布局与{@link Snowflake}相同
+ *
+ * 0 | 0000000000 0000000000 0000000000 0000000000 0 | 00000 | 00000 | 0000000000 00
+ * - | ------------------timestamp------------------ | -did- | -wid- | -----seq-----
+ *
+ * 内部状态：将(timestamp - TWEPOCH, sequence)打包为一个long存放在AtomicLong中
+ *   state = ((timestamp - TWEPOCH) << sequenceBits) | sequence
+ * 由于sequence位于低位，state + 1在sequence溢出时会自动进位到下一毫秒，
+ * 因此分配n个ID只需要一次CAS将state向前推进n。
+ *
+ * 与{@link Snowflake}的区别：
+ *   1、无synchronized，多线程通过CAS竞争
+ *   2、当前毫秒sequence用完时不自旋等待，而是借用未来的时间(最多借用maxBorrowMillis毫秒)
+ *   3、时钟回拨时继续基于上次的时间戳单调递增生成；上次的时间戳可能已借用了未来时间，
+ *      因此实际容忍的回拨量为maxBackwardMillis加上回拨前已借用的时间(0~maxBorrowMillis)，
+ *      即上次的时间戳领先当前时钟超过maxBorrowMillis + maxBackwardMillis毫秒时才抛异常
+ *   4、支持{@link #nextIds(int)}一次分配一段连续的ID
+ * </pre>
+ *
+ * @author Ponfee
+ * @see Snowflake
+ */
+public final class AtomicSnowflake {
+
+    // Long.toBinaryString(Long.MAX_VALUE).length()
+    private static final int SIZE = Long.SIZE - 1; // 63位（除去最开头的一个符号位）
+    private static final long TWEPOCH = 1514736000000L; // 起始基准时间点(2018-01-01)
+
+    private static final long DEFAULT_MAX_BORROW_MILLIS = 1000L;
+    private static final long DEFAULT_MAX_BACKWARD_MILLIS = 1000L;
+
+    private final long workerAndDatacenter; // (datacenterId << datacenterIdShift) | (workerId << workerIdShift)
+    private final int sequenceBits;
+    private final int timestampShift;
+    private final long sequenceMask;
+    private final long timestampMask;
+
+    private final long maxBorrowMillis;     // 最多可借用的未来时间(毫秒)
+    private final long maxBackwardMillis;   // 在借用时间之外可容忍的时钟回拨(毫秒)
+    private final LongSupplier clock;
+
+    private final AtomicLong state;
+
+    public AtomicSnowflake(int workerId, int datacenterId,
+                           int sequenceBits, int workerIdBits, int datacenterIdBits,
+                           long maxBorrowMillis, long maxBackwardMillis) {
+        this(workerId, datacenterId, sequenceBits, workerIdBits, datacenterIdBits,
+             maxBorrowMillis, maxBackwardMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @see Snowflake#Snowflake(int, int)
+     */
+    public AtomicSnowflake(int workerId, int datacenterId) {
+        this(workerId, datacenterId, 12, 5, 5, DEFAULT_MAX_BORROW_MILLIS, DEFAULT_MAX_BACKWARD_MILLIS);
+    }
+
+    /**
+     * @see Snowflake#Snowflake(int)
+     */
+    public AtomicSnowflake(int workerId) {
+        this(workerId, 0, 14, 5, 0, DEFAULT_MAX_BORROW_MILLIS, DEFAULT_MAX_BACKWARD_MILLIS);
+    }
+
+    AtomicSnowflake(int workerId, int datacenterId,
+                    int sequenceBits, int workerIdBits, int datacenterIdBits,
+                    long maxBorrowMillis, long maxBackwardMillis, LongSupplier clock) {
+        long maxWorkerId = Maths.bitsMask(workerIdBits);
+        if (workerId > maxWorkerId || workerId < 0) {
+            throw new IllegalArgumentException(
+                String.format("worker Id can't be greater than %d or less than 0", maxWorkerId)
+            );
+        }
+
+        long maxDatacenterId = Maths.bitsMask(datacenterIdBits);
+        if (datacenterId > maxDatacenterId || datacenterId < 0) {
+            throw new IllegalArgumentException(
+                String.format("datacenter Id can't be greater than %d or less than 0", maxDatacenterId)
+            );
+        }
+
+        if (maxBorrowMillis < 0 || maxBackwardMillis < 0) {
+            throw new IllegalArgumentException(
+                "Max borrow millis and max backward millis cannot be negative: " + maxBorrowMillis + ", " + maxBackwardMillis
+            );
+        }
+
+        int workerIdShift     = sequenceBits;
+        int datacenterIdShift = sequenceBits + workerIdBits;
+        this.timestampShift   = sequenceBits + workerIdBits + datacenterIdBits;
+        if (this.timestampShift >= SIZE) {
+            throw new IllegalArgumentException("Not enough bits for timestamp: " + this.timestampShift);
+        }
+
+        this.sequenceBits      = sequenceBits;
+        this.sequenceMask      = Maths.bitsMask(sequenceBits);
+        this.timestampMask     = Maths.bitsMask(SIZE - this.timestampShift);
+        this.workerAndDatacenter = ((long) datacenterId << datacenterIdShift) | ((long) workerId << workerIdShift);
+
+        this.maxBorrowMillis   = maxBorrowMillis;
+        this.maxBackwardMillis = maxBackwardMillis;
+        this.clock             = clock;
+
+        // 初始化为“上一毫秒的最后一个sequence”，使得第一次分配从当前毫秒的0开始
+        this.state = new AtomicLong(((clock.getAsLong() - TWEPOCH) << sequenceBits) - 1);
+    }
+
+    public long nextId() {
+        return compose(reserve(1));
+    }
+
+    /**
+     * Reserves a contiguous block of ids with one CAS.
+     *
+     * @param n the count of ids
+     * @return ids array, in ascending order
+     */
+    public long[] nextIds(int n) {
+        if (n <= 0 || n > maxBatchSize()) {
+            throw new IllegalArgumentException("Ids count must be in range [1, " + maxBatchSize() + "], but actual " + n);
+        }
+
+        long first = reserve(n);
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = compose(first + i);
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the maximum count of ids that {@link #nextIds(int)} can reserve once.
+     *
+     * @return maximum batch size
+     */
+    public int maxBatchSize() {
+        return (int) Math.min(Integer.MAX_VALUE, (maxBorrowMillis + 1) * (sequenceMask + 1));
+    }
+
+    /**
+     * Advances the state with n sequences
+     *
+     * @param n the count of ids
+     * @return the first state of reserved block
+     */
+    private long reserve(int n) {
+        for (; ; ) {
+            // reads state before clock: the state advanced by others before this read cannot beyond now + maxBorrowMillis
+            long current = state.get();
+            long now = clock.getAsLong() - TWEPOCH;
+            long lastTimestamp = current >> sequenceBits;
+
+            if (lastTimestamp - now > maxBorrowMillis + maxBackwardMillis) {
+                // 时间戳只能单调递增
+                throw new IllegalStateException(
+                    String.format("Clock moved backwards. Refusing to generate id for %d milliseconds", lastTimestamp - now)
+                );
+            }
+
+            // 时钟已前进则从当前毫秒的0开始，否则(同一毫秒或时钟回拨)接着上次的sequence递增
+            long first = Math.max(current + 1, now << sequenceBits);
+            long last = first + n - 1;
+            long lead = (last >> sequenceBits) - now;
+            if (lead > maxBorrowMillis && (last >> sequenceBits) > lastTimestamp) {
+                // 需要推进到新的毫秒且借用的未来时间超过上限，等待时钟追上
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(lead - maxBorrowMillis));
+                continue;
+            }
+
+            if (state.compareAndSet(current, last)) {
+                return first;
+            }
+        }
+    }
+
+    private long compose(long packed) {
+        long timestamp = packed >>> sequenceBits;
+        if (timestamp > timestampMask) {
+            throw new IllegalStateException("Timestamp overflow: " + timestamp);
+        }
+        return (timestamp << timestampShift) | workerAndDatacenter | (packed & sequenceMask);
+    }
+
+}
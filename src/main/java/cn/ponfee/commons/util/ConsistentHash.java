@@ -8,25 +8,33 @@
 
 package cn.ponfee.commons.util;
 
+import com.google.common.hash.Hashing;
 import org.apache.commons.codec.digest.DigestUtils;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Function;
 
 /**
+ * <pre>
  * Consistent hashing algorithm.
  *
+ * The ring is an immutable snapshot of sorted int[] hashes and parallel node arrays,
+ * route is lock-free binary search, and membership change builds a new snapshot then
+ * swaps it atomically.
+ * </pre>
+ *
  * @param <T> the ring node type
  * @author Ponfee
  */
-public class ConsistentHash<T> {
+public class ConsistentHash<T> implements HashRouter<T> {
 
     /**
-     * Hash String to long value
+     * Hash String to int value
      */
     @FunctionalInterface
     public interface HashFunction {
@@ -38,19 +46,37 @@ public class ConsistentHash<T> {
          */
         int hash(String key);
 
-        HashFunction MD5 = key -> {
-            byte[] digest = DigestUtils.md5(key);
-            assert digest.length == 16;
-
-            int hash = 0;
-            for (int i = 15; i >= 3; ) {
-                int h = ((digest[i--] & 0xFF) << 24)
-                      | ((digest[i--] & 0xFF) << 16)
-                      | ((digest[i--] & 0xFF) <<  8)
-                      | ((digest[i--] & 0xFF)      );
-                hash = (i == 11) ? h : (hash ^ h);
+        /**
+         * Returns key's int hash value, the result must be same as {@code hash(new String(key, UTF_8))}
+         *
+         * @param key byte array key
+         * @return int hash value
+         */
+        default int hash(byte[] key) {
+            return hash(new String(key, StandardCharsets.UTF_8));
+        }
+
+        HashFunction MD5 = new HashFunction() {
+            @Override
+            public int hash(String key) {
+                return hash(key.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public int hash(byte[] key) {
+                byte[] digest = DigestUtils.md5(key);
+                assert digest.length == 16;
+
+                int hash = 0;
+                for (int i = 15; i >= 3; ) {
+                    int h = ((digest[i--] & 0xFF) << 24)
+                          | ((digest[i--] & 0xFF) << 16)
+                          | ((digest[i--] & 0xFF) <<  8)
+                          | ((digest[i--] & 0xFF)      );
+                    hash = (i == 11) ? h : (hash ^ h);
+                }
+                return hash;
             }
-            return hash;
         };
 
         HashFunction FNV = key -> {
@@ -67,31 +93,67 @@ public class ConsistentHash<T> {
             return h;
         };
 
-        HashFunction CRC16 = key -> cn.ponfee.commons.util.CRC16.digest(key.getBytes(StandardCharsets.UTF_8));
+        HashFunction CRC16 = new HashFunction() {
+            @Override
+            public int hash(String key) {
+                return hash(key.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public int hash(byte[] key) {
+                return cn.ponfee.commons.util.CRC16.digest(key);
+            }
+        };
+
+        HashFunction MURMUR3 = new HashFunction() {
+            @Override
+            public int hash(String key) {
+                // guava hash utf-8 string without encode to byte array
+                return Hashing.murmur3_32_fixed().hashString(key, StandardCharsets.UTF_8).asInt();
+            }
+
+            @Override
+            public int hash(byte[] key) {
+                return Hashing.murmur3_32_fixed().hashBytes(key).asInt();
+            }
+        };
+
+        HashFunction XXHASH = new HashFunction() {
+            @Override
+            public int hash(String key) {
+                return hash(key.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public int hash(byte[] key) {
+                return XXHash32.digest(key);
+            }
+        };
     }
 
     /**
-     * Virtual node of the consistent hash ring.
+     * Immutable ring snapshot
      */
-    private class VirtualNode {
-        private final T physicalNode;
-        private final String physicalKey;
-        private final String virtualKey;
+    private static final class Ring {
+        private static final Ring EMPTY = new Ring(new int[0], new Object[0], new String[0], Collections.emptyList());
 
-        private VirtualNode(T physicalNode, int replicaIndex) {
-            this.physicalNode = physicalNode;
-            this.physicalKey = keyMapper.apply(physicalNode);
-            this.virtualKey = "SHARD-" + physicalKey + "-NODE-" + replicaIndex;
-        }
+        private final int[] hashes;         // sorted virtual node hashes
+        private final Object[] nodes;       // physical node of virtual node, parallel to hashes
+        private final String[] keys;        // physical key of virtual node, parallel to hashes
+        private final List<Object> pNodes;  // distinct physical nodes
 
-        private boolean isVirtualNodeOf(T pNode) {
-            return physicalKey.equals(keyMapper.apply(pNode));
+        private Ring(int[] hashes, Object[] nodes, String[] keys, List<Object> pNodes) {
+            this.hashes = hashes;
+            this.nodes = nodes;
+            this.keys = keys;
+            this.pNodes = pNodes;
         }
     }
 
-    private final TreeMap<Integer, VirtualNode> ring = new TreeMap<>();
     private final Function<T, String> keyMapper;
     private final HashFunction hashFunction;
+    private final int vNodeCount;
+    private volatile Ring ring = Ring.EMPTY;
 
     public ConsistentHash(Collection<T> pNodes, int vNodeCount) {
         this(pNodes, vNodeCount, String::valueOf, HashFunction.MD5);
@@ -119,8 +181,12 @@ public class ConsistentHash<T> {
         if (hashFunction == null) {
             throw new NullPointerException("Hash function is null.");
         }
+        if (vNodeCount < 0) {
+            throw new IllegalArgumentException("Invalid virtual node counts :" + vNodeCount);
+        }
         this.keyMapper = keyMapper;
         this.hashFunction = hashFunction;
+        this.vNodeCount = vNodeCount;
         if (pNodes != null) {
             for (T pNode : pNodes) {
                 addNode(pNode, vNodeCount);
@@ -128,21 +194,74 @@ public class ConsistentHash<T> {
         }
     }
 
+    /**
+     * Add physic node to the hash ring with default number of virtual nodes
+     *
+     * @param pNode physical node
+     */
+    @Override
+    public void addNode(T pNode) {
+        addNode(pNode, vNodeCount);
+    }
+
     /**
      * Add physic node to the hash ring with some virtual nodes
      *
      * @param pNode      physical node
      * @param vNodeCount the number virtual node of the physical node.
      */
-    public void addNode(T pNode, int vNodeCount) {
+    public synchronized void addNode(T pNode, int vNodeCount) {
         if (vNodeCount < 0) {
             throw new IllegalArgumentException("Invalid virtual node counts :" + vNodeCount);
         }
-        int existingReplicas = getExistingReplicas(pNode);
+        if (vNodeCount == 0) {
+            return;
+        }
+
+        Ring old = this.ring;
+        String pKey = keyMapper.apply(pNode);
+        int existingReplicas = countReplicas(old, pKey);
+
+        // sorted hashes of the new virtual nodes
+        int[] added = new int[vNodeCount];
         for (int i = 0; i < vNodeCount; i++) {
-            VirtualNode vNode = new VirtualNode(pNode, i + existingReplicas);
-            ring.put(hashFunction.hash(vNode.virtualKey), vNode);
+            added[i] = hashFunction.hash("SHARD-" + pKey + "-NODE-" + (i + existingReplicas));
+        }
+        Arrays.sort(added);
+
+        // merge two sorted arrays, the new virtual node overrides on hash conflict
+        int n = old.hashes.length, m = added.length, size = 0;
+        int[] hashes = new int[n + m];
+        Object[] nodes = new Object[n + m];
+        String[] keys = new String[n + m];
+        for (int i = 0, j = 0; i < n || j < m; ) {
+            if (j < m && size > 0 && hashes[size - 1] == added[j] && nodes[size - 1] == pNode) {
+                // duplicate hash in added
+                j++;
+            } else if (j == m || (i < n && old.hashes[i] < added[j])) {
+                hashes[size] = old.hashes[i];
+                nodes[size] = old.nodes[i];
+                keys[size++] = old.keys[i++];
+            } else {
+                if (i < n && old.hashes[i] == added[j]) {
+                    i++;
+                }
+                hashes[size] = added[j++];
+                nodes[size] = pNode;
+                keys[size++] = pKey;
+            }
+        }
+
+        List<Object> pNodes = new ArrayList<>(old.pNodes.size() + 1);
+        pNodes.addAll(old.pNodes);
+        if (existingReplicas == 0) {
+            pNodes.add(pNode);
         }
+
+        this.ring = new Ring(
+            Arrays.copyOf(hashes, size), Arrays.copyOf(nodes, size),
+            Arrays.copyOf(keys, size), Collections.unmodifiableList(pNodes)
+        );
     }
 
     /**
@@ -150,15 +269,36 @@ public class ConsistentHash<T> {
      *
      * @param pNode the physical node
      */
-    public void removeNode(T pNode) {
-        Iterator<Integer> it = ring.keySet().iterator();
-        while (it.hasNext()) {
-            Integer key = it.next();
-            VirtualNode virtualNode = ring.get(key);
-            if (virtualNode.isVirtualNodeOf(pNode)) {
-                it.remove();
+    @Override
+    public synchronized void removeNode(T pNode) {
+        Ring old = this.ring;
+        String pKey = keyMapper.apply(pNode);
+        int n = old.hashes.length, size = 0;
+        int[] hashes = new int[n];
+        Object[] nodes = new Object[n];
+        String[] keys = new String[n];
+        for (int i = 0; i < n; i++) {
+            if (!pKey.equals(old.keys[i])) {
+                hashes[size] = old.hashes[i];
+                nodes[size] = old.nodes[i];
+                keys[size++] = old.keys[i];
+            }
+        }
+        if (size == n) {
+            return;
+        }
+
+        List<Object> pNodes = new ArrayList<>(old.pNodes.size());
+        for (Object node : old.pNodes) {
+            if (!pKey.equals(keyMapper.apply(cast(node)))) {
+                pNodes.add(node);
             }
         }
+
+        this.ring = new Ring(
+            Arrays.copyOf(hashes, size), Arrays.copyOf(nodes, size),
+            Arrays.copyOf(keys, size), Collections.unmodifiableList(pNodes)
+        );
     }
 
     /**
@@ -167,23 +307,54 @@ public class ConsistentHash<T> {
      * @param key the key to find the nearest physical node
      * @return routed physical node
      */
+    @Override
     public T routeNode(String key) {
-        if (ring.isEmpty()) {
+        return route(ring, hashFunction.hash(key));
+    }
+
+    @Override
+    public T routeNode(byte[] key) {
+        return route(ring, hashFunction.hash(key));
+    }
+
+    @Override
+    public List<T> nodes() {
+        return cast(ring.pNodes);
+    }
+
+    public int getExistingReplicas(T pNode) {
+        return countReplicas(ring, keyMapper.apply(pNode));
+    }
+
+    // ----------------------------------------------------------------------private methods
+
+    @SuppressWarnings("unchecked")
+    private static <R> R cast(Object node) {
+        return (R) node;
+    }
+
+    private static <T> T route(Ring ring, int hash) {
+        int[] hashes = ring.hashes;
+        if (hashes.length == 0) {
             return null;
         }
 
-        SortedMap<Integer, VirtualNode> tailMap = ring.tailMap(hashFunction.hash(key));
-        VirtualNode virtualNode = tailMap.isEmpty() 
-                                ? ring.firstEntry().getValue() 
-                                : ring.get(tailMap.firstKey());
-        return virtualNode.physicalNode;
+        // the first virtual node which hash greater than or equal to key hash
+        int index = Arrays.binarySearch(hashes, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return cast(ring.nodes[index == hashes.length ? 0 : index]);
     }
 
-    public int getExistingReplicas(T pNode) {
-        return (int) ring.entrySet()
-                         .stream()
-                         .filter(e -> e.getValue().isVirtualNodeOf(pNode))
-                         .count();
+    private static int countReplicas(Ring ring, String pKey) {
+        int count = 0;
+        for (String key : ring.keys) {
+            if (pKey.equals(key)) {
+                count++;
+            }
+        }
+        return count;
     }
 
 }
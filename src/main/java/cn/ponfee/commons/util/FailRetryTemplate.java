@@ -8,20 +8,73 @@
 
 package cn.ponfee.commons.util;
 
+import cn.ponfee.commons.concurrent.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
 
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
+ * <pre>
  * Fail retry template(template method pattern)
  *
+ * 1、静态方法execute为同步重试，在调用线程中sleep等待
+ * 2、实例方法executeAsync为异步重试，返回CompletableFuture，重试通过共享的调度器延迟提交，不阻塞任何线程
+ * 3、指数退避加随机抖动，避免大量调用方同时重试
+ * 4、按异常类型判断是否重试，总耗时超过deadline则放弃
+ * 5、重试预算(令牌桶)：每次调用存入depositPerCall个令牌，每次重试消耗1个，令牌不足时放弃重试，防止重试风暴
+ * </pre>
+ *
  * @author Ponfee
  */
 public class FailRetryTemplate {
 
     private static final Logger LOG = LoggerFactory.getLogger(FailRetryTemplate.class);
 
+    private final int maxRetries;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double multiplier;
+    private final double jitter;
+    private final long deadlineNanos;
+    private final Predicate<Throwable> retryOn;
+    private final RetryBudget budget;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final Metrics metrics = new Metrics();
+
+    private FailRetryTemplate(Builder builder) {
+        this.maxRetries = builder.maxRetries;
+        this.initialBackoffNanos = builder.initialBackoffNanos;
+        this.maxBackoffNanos = builder.maxBackoffNanos;
+        this.multiplier = builder.multiplier;
+        this.jitter = builder.jitter;
+        this.deadlineNanos = builder.deadlineNanos;
+        this.retryOn = builder.retryOn;
+        this.budget = builder.budgetMaxTokens > 0 ? new RetryBudget(builder.budgetDepositPerCall, builder.budgetMaxTokens) : null;
+        this.scheduler = builder.scheduler != null ? builder.scheduler : SchedulerHolder.SCHEDULER;
+        this.executor = builder.executor != null ? builder.executor : ForkJoinPool.commonPool();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
     public static <T> T execute(Supplier<T> normal, Supplier<String> message) throws Exception {
         return execute(normal, normal, 5, message);
     }
@@ -55,4 +108,370 @@ public class FailRetryTemplate {
         throw ex;
     }
 
+    // ----------------------------------------------------------------------async retry
+
+    /**
+     * Executes the action in the executor, retries on failure without blocking thread
+     *
+     * @param action the action
+     * @param <T>    the result type
+     * @return future of the result, completed exceptionally with the last failure if give up
+     */
+    public <T> CompletableFuture<T> executeAsync(Supplier<T> action) {
+        return executeAsync(action, action);
+    }
+
+    /**
+     * Executes the normal action at first and the fallback action on retry
+     *
+     * @param normal   the normal action
+     * @param fallback the fallback action for retry
+     * @param <T>      the result type
+     * @return future of the result
+     */
+    public <T> CompletableFuture<T> executeAsync(Supplier<T> normal, Supplier<T> fallback) {
+        Objects.requireNonNull(normal, "Normal action cannot be null.");
+        Objects.requireNonNull(fallback, "Fallback action cannot be null.");
+        return executeStage(() -> CompletableFuture.supplyAsync(normal, executor),
+                            () -> CompletableFuture.supplyAsync(fallback, executor));
+    }
+
+    /**
+     * Executes the asynchronous action, which returns a stage such as non-blocking rpc client call
+     *
+     * @param action the asynchronous action
+     * @param <T>    the result type
+     * @return future of the result
+     */
+    public <T> CompletableFuture<T> executeStage(Supplier<? extends CompletionStage<T>> action) {
+        return executeStage(action, action);
+    }
+
+    public <T> CompletableFuture<T> executeStage(Supplier<? extends CompletionStage<T>> normal,
+                                                 Supplier<? extends CompletionStage<T>> fallback) {
+        metrics.calls.increment();
+        if (budget != null) {
+            budget.deposit();
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(normal, fallback, 0, System.nanoTime(), result);
+        return result;
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    // ----------------------------------------------------------------------private methods
+
+    private <T> void attempt(Supplier<? extends CompletionStage<T>> normal,
+                             Supplier<? extends CompletionStage<T>> fallback,
+                             int retries, long startNanos, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            // cancelled by caller
+            return;
+        }
+        metrics.attempts.increment();
+        CompletionStage<T> stage;
+        try {
+            stage = (retries == 0 ? normal : fallback).get();
+        } catch (Throwable t) {
+            stage = failedStage(t);
+        }
+        if (stage == null) {
+            stage = failedStage(new NullPointerException("Action returned null stage."));
+        }
+        stage.whenComplete((value, error) -> {
+            if (error == null) {
+                metrics.successes.increment();
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (retries >= maxRetries) {
+                giveUp(metrics.exhausted, cause, result);
+            } else if (!retryOn.test(cause)) {
+                giveUp(metrics.notRetryable, cause, result);
+            } else {
+                long delay = backoff(retries + 1);
+                if (deadlineNanos > 0 && System.nanoTime() + delay - startNanos > deadlineNanos) {
+                    giveUp(metrics.deadlineExceeded, cause, result);
+                } else if (budget != null && !budget.withdraw()) {
+                    giveUp(metrics.budgetExhausted, cause, result);
+                } else {
+                    metrics.retries.increment();
+                    LOG.warn("Execute failed, will retrying - {} - {}ms", retries + 1, TimeUnit.NANOSECONDS.toMillis(delay), cause);
+                    try {
+                        scheduler.schedule(() -> retry(normal, fallback, retries + 1, startNanos, result), delay, TimeUnit.NANOSECONDS);
+                    } catch (Throwable t) {
+                        result.completeExceptionally(t);
+                    }
+                }
+            }
+        });
+    }
+
+    private <T> void retry(Supplier<? extends CompletionStage<T>> normal,
+                           Supplier<? extends CompletionStage<T>> fallback,
+                           int retries, long startNanos, CompletableFuture<T> result) {
+        // hand off to executor: the shared scheduler thread cannot be blocked by the action supplier
+        try {
+            executor.execute(() -> attempt(normal, fallback, retries, startNanos, result));
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+        }
+    }
+
+    private void giveUp(LongAdder reason, Throwable cause, CompletableFuture<?> result) {
+        reason.increment();
+        result.completeExceptionally(cause);
+    }
+
+    /**
+     * Exponential backoff with jitter: base * (1 - jitter * random)
+     *
+     * @param retry the retry number, start with 1
+     * @return backoff nanoseconds
+     */
+    long backoff(int retry) {
+        double base = Math.min(initialBackoffNanos * Math.pow(multiplier, retry - 1), maxBackoffNanos);
+        return (long) (base * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    private static <T> CompletionStage<T> failedStage(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    private static class SchedulerHolder {
+        // only schedule the retry, the action runs in executor
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            NamedThreadFactory.builder().prefix("fail_retry_scheduler").daemon(true).build()
+        );
+    }
+
+    /**
+     * Token bucket retry budget, the token scaled by 1000
+     */
+    private static final class RetryBudget {
+        private static final long SCALE = 1000;
+
+        private final long deposit;
+        private final long capacity;
+        private final AtomicLong tokens;
+
+        private RetryBudget(double depositPerCall, int maxTokens) {
+            this.deposit = (long) (depositPerCall * SCALE);
+            this.capacity = maxTokens * SCALE;
+            this.tokens = new AtomicLong(capacity);
+        }
+
+        private void deposit() {
+            for (long t; (t = tokens.get()) < capacity; ) {
+                if (tokens.compareAndSet(t, Math.min(t + deposit, capacity))) {
+                    return;
+                }
+            }
+        }
+
+        private boolean withdraw() {
+            for (long t; (t = tokens.get()) >= SCALE; ) {
+                if (tokens.compareAndSet(t, t - SCALE)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Retry metrics
+     */
+    public static final class Metrics {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder exhausted = new LongAdder();
+        private final LongAdder notRetryable = new LongAdder();
+        private final LongAdder deadlineExceeded = new LongAdder();
+        private final LongAdder budgetExhausted = new LongAdder();
+
+        private Metrics() {
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getAttempts() {
+            return attempts.sum();
+        }
+
+        public long getRetries() {
+            return retries.sum();
+        }
+
+        public long getSuccesses() {
+            return successes.sum();
+        }
+
+        /**
+         * Returns the give up count of all reasons
+         *
+         * @return give up count
+         */
+        public long getGiveUps() {
+            return exhausted.sum() + notRetryable.sum() + deadlineExceeded.sum() + budgetExhausted.sum();
+        }
+
+        public long getExhausted() {
+            return exhausted.sum();
+        }
+
+        public long getNotRetryable() {
+            return notRetryable.sum();
+        }
+
+        public long getDeadlineExceeded() {
+            return deadlineExceeded.sum();
+        }
+
+        public long getBudgetExhausted() {
+            return budgetExhausted.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics(calls=" + getCalls() + ", attempts=" + getAttempts() + ", retries=" + getRetries()
+                + ", successes=" + getSuccesses() + ", exhausted=" + getExhausted() + ", notRetryable=" + getNotRetryable()
+                + ", deadlineExceeded=" + getDeadlineExceeded() + ", budgetExhausted=" + getBudgetExhausted() + ")";
+        }
+    }
+
+    public static class Builder {
+        private int maxRetries = 5;
+        private long initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        private long maxBackoffNanos = TimeUnit.SECONDS.toNanos(10);
+        private double multiplier = 2.0D;
+        private double jitter = 0.5D;
+        private long deadlineNanos = 0;
+        private Predicate<Throwable> retryOn = t -> true;
+        private double budgetDepositPerCall = 0.1D;
+        private int budgetMaxTokens = 10;
+        private ScheduledExecutorService scheduler;
+        private Executor executor;
+
+        private Builder() {
+        }
+
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Sets the exponential backoff, the n-th retry delay is min(initial * multiplier^(n-1), max)
+         *
+         * @param initial    the initial backoff
+         * @param max        the max backoff
+         * @param unit       the time unit
+         * @param multiplier the multiplier
+         * @return this builder
+         */
+        public Builder backoff(long initial, long max, TimeUnit unit, double multiplier) {
+            this.initialBackoffNanos = unit.toNanos(initial);
+            this.maxBackoffNanos = unit.toNanos(max);
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * Sets the jitter factor in [0, 1], the delay is randomly reduced by at most the factor
+         *
+         * @param jitter the jitter factor
+         * @return this builder
+         */
+        public Builder jitter(double jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Sets the total deadline from the first attempt, zero is no deadline
+         *
+         * @param deadline the deadline
+         * @param unit     the time unit
+         * @return this builder
+         */
+        public Builder deadline(long deadline, TimeUnit unit) {
+            this.deadlineNanos = unit.toNanos(deadline);
+            return this;
+        }
+
+        /**
+         * Sets the predicate of whether retry on the failure
+         *
+         * @param retryOn the predicate
+         * @return this builder
+         */
+        public Builder retryOn(Predicate<Throwable> retryOn) {
+            this.retryOn = Objects.requireNonNull(retryOn);
+            return this;
+        }
+
+        /**
+         * Sets the retry budget, zero max tokens is disable budget
+         *
+         * @param depositPerCall the tokens deposit per call, e.g. 0.1 means at most 10% extra load by retry
+         * @param maxTokens      the max tokens, also the initial tokens
+         * @return this builder
+         */
+        public Builder retryBudget(double depositPerCall, int maxTokens) {
+            this.budgetDepositPerCall = depositPerCall;
+            this.budgetMaxTokens = maxTokens;
+            return this;
+        }
+
+        /**
+         * Sets the scheduler which schedule the retry, default is a shared single daemon thread scheduler
+         *
+         * @param scheduler the scheduler
+         * @return this builder
+         */
+        public Builder scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Sets the executor which run the supplier action, default is the common fork join pool
+         *
+         * @param executor the executor
+         * @return this builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public FailRetryTemplate build() {
+            Assert.isTrue(maxRetries >= 0, "Max retries cannot be negative.");
+            Assert.isTrue(initialBackoffNanos >= 0 && initialBackoffNanos <= maxBackoffNanos, "Invalid backoff.");
+            Assert.isTrue(multiplier >= 1, "Multiplier cannot less than 1.");
+            Assert.isTrue(jitter >= 0 && jitter <= 1, "Jitter must be in [0, 1].");
+            Assert.isTrue(deadlineNanos >= 0, "Deadline cannot be negative.");
+            Assert.isTrue(budgetDepositPerCall >= 0 && budgetMaxTokens >= 0, "Retry budget cannot be negative.");
+            return new FailRetryTemplate(this);
+        }
+    }
+
 }
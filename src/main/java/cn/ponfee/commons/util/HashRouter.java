@@ -0,0 +1,62 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.util;
+
+import java.util.List;
+
+/**
+ * Routes a key to one of physical nodes, the implementations are thread-safe:
+ * membership change is copy-on-write, and route is lock-free.
+ *
+ * @param <T> the node type
+ * @author Ponfee
+ * @see ConsistentHash
+ * @see JumpConsistentHash
+ * @see RendezvousHash
+ */
+public interface HashRouter<T> {
+
+    /**
+     * Adds physical node
+     *
+     * @param pNode the physical node
+     */
+    void addNode(T pNode);
+
+    /**
+     * Removes physical node
+     *
+     * @param pNode the physical node
+     */
+    void removeNode(T pNode);
+
+    /**
+     * Returns the physical node of routed specified key
+     *
+     * @param key the string key
+     * @return routed physical node, {@code null} if without any node
+     */
+    T routeNode(String key);
+
+    /**
+     * Returns the physical node of routed specified key
+     *
+     * @param key the byte array key
+     * @return routed physical node, {@code null} if without any node
+     */
+    T routeNode(byte[] key);
+
+    /**
+     * Returns the current physical nodes
+     *
+     * @return unmodifiable list of physical nodes
+     */
+    List<T> nodes();
+
+}
@@ -0,0 +1,521 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * <pre>
+ * 分层时间轮(Kafka-style hierarchical timing wheel)
+ *
+ * 1、每层时间轮有wheelSize个bucket，每个bucket跨度为tickMs，本层总跨度interval=tickMs*wheelSize
+ * 2、超出本层跨度的任务放入上一层溢出时间轮(overflow wheel，tickMs为下层的interval)，溢出轮按需创建
+ * 3、bucket为双向链表，插入与取消都是O(1)
+ * 4、只有非空bucket才会放入DelayQueue，驱动线程从DelayQueue取到期的bucket推进时钟，
+ *    高层bucket到期后其中的任务重新插入低层时间轮(降级)，最低层到期则触发执行
+ * </pre>
+ *
+ * @param <E> the element type
+ * @author Ponfee
+ * @see <a href="https://github.com/apache/kafka/blob/trunk/server-common/src/main/java/org/apache/kafka/server/util/timer/TimingWheel.java">Kafka TimingWheel</a>
+ */
+public class HierarchicalTimingWheel<E> {
+
+    private final static Logger LOG = LoggerFactory.getLogger(HierarchicalTimingWheel.class);
+
+    private static final long ADVANCE_TIMEOUT_MILLIS = 200;
+
+    private final Consumer<E> processor; // 到期数据处理器
+    private final Executor executor;     // 执行器，为null时在驱动线程中直接执行
+
+    private final DelayQueue<Bucket<E>> delayQueue = new DelayQueue<>();
+    private final AtomicInteger counter = new AtomicInteger(0);
+    private final Wheel<E> wheel;
+
+    // 推进时钟时需要写锁，防止任务插入已经过期的bucket
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
+    private final ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+    private volatile Thread driver;
+
+    public HierarchicalTimingWheel(Consumer<E> processor) {
+        this(1, 512, processor, null);
+    }
+
+    /**
+     * @param tickMs    the tick millis of lowest level wheel
+     * @param wheelSize the bucket count per level wheel
+     * @param processor the expired data processor
+     * @param executor  the executor for process expired data, run in driver thread if null
+     */
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, Consumer<E> processor, Executor executor) {
+        Assert.isTrue(tickMs > 0, "Tick millis must be positive number.");
+        Assert.isTrue(wheelSize > 1, "Wheel size must be greater than 1.");
+        this.processor = Objects.requireNonNull(processor);
+        this.executor = executor;
+        this.wheel = new Wheel<>(tickMs, wheelSize, hiResClockMs(), counter, delayQueue);
+    }
+
+    /**
+     * Starts a driver thread for advance the clock.
+     *
+     * @return this
+     */
+    public synchronized HierarchicalTimingWheel<E> start() {
+        Assert.state(driver == null, "Timing wheel already started.");
+        Thread thread = new Thread(() -> {
+            while (!stopped.get()) {
+                try {
+                    advanceClock(ADVANCE_TIMEOUT_MILLIS);
+                } catch (InterruptedException e) {
+                    LOG.warn("Timing wheel driver interrupted.");
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Throwable t) {
+                    LOG.error("Timing wheel advance clock occur error.", t);
+                }
+            }
+        });
+        thread.setName("hierarchical_timing_wheel_driver-" + Integer.toHexString(hashCode()));
+        thread.setDaemon(true);
+        thread.start();
+        this.driver = thread;
+        return this;
+    }
+
+    /**
+     * Adds a data which will be process after delay millis.
+     *
+     * @param data        the data
+     * @param delayMillis the delay millis
+     * @return wheel task, can be used to cancel; {@code null} if the timing wheel is stopped
+     */
+    public WheelTask<E> add(E data, long delayMillis) {
+        if (stopped.get()) {
+            return null;
+        }
+        WheelTask<E> task = new WheelTask<>(data, hiResClockMs() + delayMillis);
+        readLock.lock();
+        try {
+            // re-check under lock: stop() drains the wheel with write lock after set stopped
+            if (stopped.get()) {
+                return null;
+            }
+            addTask(task);
+        } finally {
+            readLock.unlock();
+        }
+        return task;
+    }
+
+    /**
+     * Adds batch data, acquires the lock once for all the data.
+     *
+     * @param data        the data list
+     * @param delayMillis the delay millis mapper of data
+     * @return wheel task list, empty if the timing wheel is stopped
+     */
+    public List<WheelTask<E>> addAll(List<? extends E> data, ToLongFunction<? super E> delayMillis) {
+        if (stopped.get() || data.isEmpty()) {
+            return new ArrayList<>(0);
+        }
+        long now = hiResClockMs();
+        List<WheelTask<E>> tasks = new ArrayList<>(data.size());
+        for (E e : data) {
+            tasks.add(new WheelTask<>(e, now + delayMillis.applyAsLong(e)));
+        }
+        readLock.lock();
+        try {
+            if (stopped.get()) {
+                return new ArrayList<>(0);
+            }
+            tasks.forEach(this::addTask);
+        } finally {
+            readLock.unlock();
+        }
+        return tasks;
+    }
+
+    /**
+     * Advances the clock if there is an expired bucket. If there isn't any expired bucket when
+     * called, waits up to timeoutMs before giving up.
+     *
+     * @param timeoutMs the timeout millis
+     * @return {@code true} if a bucket expired and processed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean advanceClock(long timeoutMs) throws InterruptedException {
+        Bucket<E> bucket = delayQueue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (bucket == null) {
+            return false;
+        }
+
+        writeLock.lock();
+        try {
+            while (bucket != null) {
+                wheel.advanceClock(bucket.getExpiration());
+                bucket.flush(this::addTask);
+                bucket = delayQueue.poll();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the count of pending tasks
+     *
+     * @return pending tasks count
+     */
+    public int size() {
+        return counter.get();
+    }
+
+    /**
+     * Stops the driver thread, and returns the tasks which still pending.
+     * After stop began, {@link #add(Object, long)} returns {@code null}, so an
+     * added task is either returned by this method or rejected, never lost.
+     *
+     * @return list of pending task
+     */
+    public List<WheelTask<E>> stop() {
+        if (!stopped.compareAndSet(false, true)) {
+            return new ArrayList<>(0);
+        }
+        Thread thread = this.driver;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(ADVANCE_TIMEOUT_MILLIS << 1);
+            } catch (InterruptedException e) {
+                LOG.error("Join timing wheel driver interrupted.", e);
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<WheelTask<E>> pending = new ArrayList<>(counter.get());
+        writeLock.lock();
+        try {
+            List<Bucket<E>> buckets = new ArrayList<>(delayQueue);
+            delayQueue.clear();
+            for (Bucket<E> bucket : buckets) {
+                bucket.flush(pending::add);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return pending;
+    }
+
+    // ----------------------------------------------------------------------private methods
+
+    private void addTask(WheelTask<E> task) {
+        if (!wheel.add(task) && !task.isCancelled()) {
+            // already expired
+            if (executor == null) {
+                process(task);
+            } else {
+                executor.execute(() -> process(task));
+            }
+        }
+    }
+
+    private void process(WheelTask<E> task) {
+        if (!task.expire()) {
+            // cancelled
+            return;
+        }
+        try {
+            processor.accept(task.data);
+        } catch (Throwable t) {
+            LOG.error("Process timer task occur error: " + task.data, t);
+        }
+    }
+
+    private static long hiResClockMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Wheel task, is the doubly linked list node of bucket.
+     * Cancel and process race on the state CAS, so cancel returns
+     * {@code true} if and only if the task will not be processed.
+     *
+     * @param <E> the element type
+     */
+    public static final class WheelTask<E> {
+        private final E data;
+        private final long expirationMs;
+
+        private static final int PENDING = 0, CANCELLED = 1, EXPIRED = 2;
+
+        private volatile Bucket<E> bucket;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private WheelTask<E> next;
+        private WheelTask<E> prev;
+
+        private WheelTask(E data, long expirationMs) {
+            this.data = data;
+            this.expirationMs = expirationMs;
+        }
+
+        public E getData() {
+            return data;
+        }
+
+        /**
+         * Returns the remaining delay millis
+         *
+         * @return remaining delay millis
+         */
+        public long getDelay() {
+            return expirationMs - hiResClockMs();
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * Cancels this task, O(1). It is linearizable against moving the task between
+         * buckets: a task in moving is skipped by re-add when cancelled.
+         *
+         * @return {@code true} if cancel success, {@code false} if already cancelled or processed
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            remove();
+            return true;
+        }
+
+        private boolean expire() {
+            return state.compareAndSet(PENDING, EXPIRED);
+        }
+
+        private boolean remove() {
+            // If remove is called when another thread is moving the task from a bucket to another,
+            // this may fail to remove the task due to the change of value of bucket.
+            // Thus, we retry until the bucket becomes null.
+            boolean removed = false;
+            for (Bucket<E> current = bucket; current != null; current = bucket) {
+                removed |= current.remove(this);
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Bucket of timing wheel, a doubly linked circular list with sentinel root.
+     *
+     * @param <E> the element type
+     */
+    private static final class Bucket<E> implements Delayed {
+        private final WheelTask<E> root = new WheelTask<>(null, -1L);
+        private final AtomicLong expiration = new AtomicLong(-1L);
+        private final AtomicInteger counter;
+
+        private Bucket(AtomicInteger counter) {
+            this.counter = counter;
+            root.next = root;
+            root.prev = root;
+        }
+
+        private void add(WheelTask<E> task) {
+            for (boolean done = false; !done; ) {
+                // Remove the task if it is already in any other list.
+                // We do this outside of the sync block below to avoid deadlocking.
+                task.remove();
+
+                synchronized (this) {
+                    synchronized (task) {
+                        if (task.bucket == null) {
+                            WheelTask<E> tail = root.prev;
+                            task.next = root;
+                            task.prev = tail;
+                            task.bucket = this;
+                            tail.next = task;
+                            root.prev = task;
+                            counter.incrementAndGet();
+                            done = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        private synchronized boolean remove(WheelTask<E> task) {
+            synchronized (task) {
+                if (task.bucket != this) {
+                    return false;
+                }
+                task.next.prev = task.prev;
+                task.prev.next = task.next;
+                task.next = null;
+                task.prev = null;
+                task.bucket = null;
+                counter.decrementAndGet();
+                return true;
+            }
+        }
+
+        /**
+         * Removes all tasks and apply the supplied function to each of them
+         *
+         * @param action the action
+         */
+        private synchronized void flush(Consumer<WheelTask<E>> action) {
+            for (WheelTask<E> head = root.next; head != root; head = root.next) {
+                remove(head);
+                action.accept(head);
+            }
+            expiration.set(-1L);
+        }
+
+        /**
+         * Sets the bucket's expiration time
+         *
+         * @param expirationMs the expiration millis
+         * @return {@code true} if the expiration time is changed
+         */
+        private boolean setExpiration(long expirationMs) {
+            return expiration.getAndSet(expirationMs) != expirationMs;
+        }
+
+        private long getExpiration() {
+            return expiration.get();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(getExpiration() - hiResClockMs(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(getExpiration(), ((Bucket<?>) o).getExpiration());
+        }
+    }
+
+    /**
+     * Single level timing wheel
+     *
+     * @param <E> the element type
+     */
+    private static final class Wheel<E> {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final Bucket<E>[] buckets;
+        private final AtomicInteger counter;
+        private final DelayQueue<Bucket<E>> delayQueue;
+
+        // rounded down to the multiple of tickMs
+        private long currentTime;
+
+        // overflow wheel will be accessed by add() and advanceClock() with different lock
+        private volatile Wheel<E> overflowWheel;
+
+        private Wheel(long tickMs, int wheelSize, long startMs,
+                      AtomicInteger counter, DelayQueue<Bucket<E>> delayQueue) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.counter = counter;
+            this.delayQueue = delayQueue;
+            this.currentTime = startMs - (startMs % tickMs);
+
+            @SuppressWarnings("unchecked")
+            Bucket<E>[] array = (Bucket<E>[]) new Bucket<?>[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                array[i] = new Bucket<>(counter);
+            }
+            this.buckets = array;
+        }
+
+        /**
+         * Adds task to this wheel or overflow wheel
+         *
+         * @param task the timer task
+         * @return {@code false} if the task is cancelled or already expired
+         */
+        private boolean add(WheelTask<E> task) {
+            long expiration = task.expirationMs;
+            if (task.isCancelled()) {
+                return false;
+            }
+            if (expiration < currentTime + tickMs) {
+                // already expired
+                return false;
+            }
+            if (expiration < currentTime + interval) {
+                // put in its own bucket
+                long virtualId = expiration / tickMs;
+                Bucket<E> bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(task);
+
+                // Set the bucket expiration time
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    // The bucket needs to be enqueued because it was an expired bucket.
+                    // We only need to enqueue the bucket when its expiration time has changed,
+                    // i.e. the wheel has advanced and the previous buckets gets reused.
+                    delayQueue.offer(bucket);
+                }
+                return true;
+            }
+            // out of the interval, put it into the parent timer
+            return overflowWheel().add(task);
+        }
+
+        private void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+
+                // try to advance the current time of the overflow wheel if present
+                Wheel<E> overflow = overflowWheel;
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+
+        private Wheel<E> overflowWheel() {
+            Wheel<E> overflow = overflowWheel;
+            if (overflow == null) {
+                synchronized (this) {
+                    if ((overflow = overflowWheel) == null) {
+                        overflowWheel = overflow = new Wheel<>(interval, wheelSize, currentTime, counter, delayQueue);
+                    }
+                }
+            }
+            return overflow;
+        }
+    }
+
+}
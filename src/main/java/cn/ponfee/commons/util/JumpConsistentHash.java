@@ -0,0 +1,102 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.util;
+
+import com.google.common.hash.Hashing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <pre>
+ * Jump consistent hash, O(ln n) time and without any ring memory.
+ *
+ * Jump hash only supports append or remove buckets at the tail, so when remove a node
+ * in the middle, the last node is moved to the removed position: the keys of removed
+ * node and the keys of last node will be remapped.
+ * </pre>
+ *
+ * @param <T> the node type
+ * @author Ponfee
+ * @see Hashing#consistentHash(long, int)
+ * @see <a href="https://arxiv.org/abs/1406.2294">A Fast, Minimal Memory, Consistent Hash Algorithm</a>
+ */
+public class JumpConsistentHash<T> implements HashRouter<T> {
+
+    private final ConsistentHash.HashFunction hashFunction;
+    private volatile List<T> nodes = Collections.emptyList();
+
+    public JumpConsistentHash(Collection<T> pNodes) {
+        this(pNodes, ConsistentHash.HashFunction.MURMUR3);
+    }
+
+    public JumpConsistentHash(Collection<T> pNodes, ConsistentHash.HashFunction hashFunction) {
+        this.hashFunction = Objects.requireNonNull(hashFunction, "Hash function is null.");
+        if (pNodes != null) {
+            List<T> list = new ArrayList<>(pNodes.size());
+            for (T pNode : pNodes) {
+                if (!list.contains(pNode)) {
+                    list.add(pNode);
+                }
+            }
+            this.nodes = Collections.unmodifiableList(list);
+        }
+    }
+
+    @Override
+    public synchronized void addNode(T pNode) {
+        List<T> old = this.nodes;
+        if (old.contains(pNode)) {
+            return;
+        }
+        List<T> list = new ArrayList<>(old.size() + 1);
+        list.addAll(old);
+        list.add(pNode);
+        this.nodes = Collections.unmodifiableList(list);
+    }
+
+    @Override
+    public synchronized void removeNode(T pNode) {
+        List<T> old = this.nodes;
+        int index = old.indexOf(pNode);
+        if (index < 0) {
+            return;
+        }
+        List<T> list = new ArrayList<>(old);
+        T last = list.remove(list.size() - 1);
+        if (index < list.size()) {
+            list.set(index, last);
+        }
+        this.nodes = Collections.unmodifiableList(list);
+    }
+
+    @Override
+    public T routeNode(String key) {
+        return route(nodes, hashFunction.hash(key));
+    }
+
+    @Override
+    public T routeNode(byte[] key) {
+        return route(nodes, hashFunction.hash(key));
+    }
+
+    @Override
+    public List<T> nodes() {
+        return nodes;
+    }
+
+    private static <T> T route(List<T> nodes, int hash) {
+        int size = nodes.size();
+        return size == 0 ? null : nodes.get(Hashing.consistentHash(hash, size));
+    }
+
+}
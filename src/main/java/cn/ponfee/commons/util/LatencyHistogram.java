@@ -0,0 +1,202 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.util;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ * 无锁的HDR风格(对数-线性分桶)延迟直方图
+ *
+ * 1、每个2的幂区间再线性切分为32个子桶，相对误差不超过1/32(约3%)
+ * 2、record只有一次AtomicLongArray自增与LongAdder累加，无锁
+ * 3、{@link #snapshot()}返回累计快照，两个快照相减得到区间直方图，用于周期采样
+ * </pre>
+ *
+ * @author Ponfee
+ * @see <a href="http://hdrhistogram.org/">HdrHistogram</a>
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value, negative value will be treated as 0
+     *
+     * @param value the value, such as nanoseconds
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        for (long m; value > (m = max.get()) && !max.compareAndSet(m, value); ) {
+            // cas loop only if greater than current max
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, count.sum(), sum.sum(), max.get());
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the highest value which equivalent to the bucket index
+     *
+     * @param index the bucket index
+     * @return the highest equivalent value
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Immutable histogram snapshot
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Returns the interval snapshot between previous and this
+         *
+         * @param previous the previous snapshot of the same histogram
+         * @return interval snapshot
+         */
+        public Snapshot minus(Snapshot previous) {
+            long[] diff = new long[BUCKETS];
+            int highest = -1;
+            for (int i = 0; i < BUCKETS; i++) {
+                if ((diff[i] = counts[i] - previous.counts[i]) > 0) {
+                    highest = i;
+                }
+            }
+            long intervalMax = highest < 0 ? 0 : Math.min(max, highestEquivalentValue(highest));
+            return new Snapshot(diff, count - previous.count, sum - previous.sum, intervalMax);
+        }
+
+        /**
+         * Returns the value at percentile
+         *
+         * @param percentile the percentile, in range [0, 100]
+         * @return the value at percentile
+         */
+        public long percentile(double percentile) {
+            Assert.isTrue(percentile >= 0 && percentile <= 100, "Percentile must in range [0, 100].");
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0D * total));
+            long accumulate = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                if ((accumulate += counts[i]) >= rank) {
+                    return Math.min(highestEquivalentValue(i), max);
+                }
+            }
+            return max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0.0D : (double) sum / count;
+        }
+
+        public long getP50() {
+            return percentile(50);
+        }
+
+        public long getP90() {
+            return percentile(90);
+        }
+
+        public long getP99() {
+            return percentile(99);
+        }
+
+        public long getP999() {
+            return percentile(99.9);
+        }
+
+        /**
+         * Returns the percentile converted to millis, the recorded value unit is nanoseconds
+         *
+         * @param percentile the percentile
+         * @return millis value at percentile
+         */
+        public double percentileMillis(double percentile) {
+            return percentile(percentile) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count + ", mean=" + getMean() + ", p50=" + getP50() + ", p90=" + getP90()
+                + ", p99=" + getP99() + ", p999=" + getP999() + ", max=" + max + "}";
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.util;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ * Memoizing loader
+ *
+ * 1、per-key single-flight：同一个key同时只有一个加载任务，其它调用者共享该加载结果
+ * 2、negative caching：可选缓存null结果，避免不存在的key反复加载
+ * 3、可选在Executor上异步加载
+ * 4、可选限制同时进行的加载数量
+ * </pre>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author Ponfee
+ */
+public final class MemoizedLoader<K, V> {
+
+    private static final Object NULL = new Object();
+
+    private final ConcurrentMap<K, Object> cache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<K, SynchronizedCaches.InFlight<V>> inFlights = new ConcurrentHashMap<>();
+
+    private final Function<? super K, ? extends V> loader;
+    private final boolean cacheNull;
+    private final Executor executor;
+    private final Semaphore permits;
+
+    private MemoizedLoader(Builder<K, V> builder) {
+        this.loader = builder.loader;
+        this.cacheNull = builder.cacheNull;
+        this.executor = builder.executor;
+        this.permits = builder.maxConcurrentLoads > 0 ? new Semaphore(builder.maxConcurrentLoads) : null;
+    }
+
+    public static <K, V> Builder<K, V> builder(Function<? super K, ? extends V> loader) {
+        return new Builder<>(loader);
+    }
+
+    /**
+     * Returns the value, load in caller thread if absent
+     *
+     * @param key the key
+     * @return value
+     */
+    public V get(K key) {
+        Object val = cache.get(key);
+        if (val != null) {
+            return unwrap(val);
+        }
+
+        SynchronizedCaches.InFlight<V> inFlight = new SynchronizedCaches.InFlight<>(Thread.currentThread());
+        SynchronizedCaches.InFlight<V> existing = inFlights.putIfAbsent(key, inFlight);
+        if (existing != null) {
+            return existing.await();
+        }
+        load(key, inFlight);
+        return inFlight.result();
+    }
+
+    /**
+     * Returns the value future, load in executor if absent.
+     * <p>Each caller gets its own dependent future, so complete or cancel it will not affect others.
+     *
+     * @param key the key
+     * @return value future
+     */
+    public CompletableFuture<V> getAsync(K key) {
+        Object val = cache.get(key);
+        if (val != null) {
+            return CompletableFuture.completedFuture(unwrap(val));
+        }
+
+        SynchronizedCaches.InFlight<V> inFlight = new SynchronizedCaches.InFlight<>(null);
+        SynchronizedCaches.InFlight<V> existing = inFlights.putIfAbsent(key, inFlight);
+        if (existing != null) {
+            return dependent(existing);
+        }
+        if (executor == null) {
+            load(key, inFlight);
+        } else {
+            try {
+                executor.execute(() -> load(key, inFlight));
+            } catch (Throwable t) {
+                // rejected: completes the published in-flight, else the waiters chained on it will hang forever
+                inFlight.completeExceptionally(t);
+                inFlights.remove(key, inFlight);
+                throw t;
+            }
+        }
+        return dependent(inFlight);
+    }
+
+    /**
+     * Returns the cached value without load
+     *
+     * @param key the key
+     * @return cached value, {@code null} if absent or null value cached
+     */
+    public V getIfPresent(K key) {
+        Object val = cache.get(key);
+        return val == null ? null : unwrap(val);
+    }
+
+    public void invalidate(K key) {
+        cache.remove(key);
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    // ----------------------------------------------------------------------private methods
+
+    private void load(K key, SynchronizedCaches.InFlight<V> inFlight) {
+        boolean acquired = false;
+        try {
+            // double check: maybe loaded by other thread before put in-flight
+            Object val = cache.get(key);
+            if (val == null) {
+                if (permits != null) {
+                    permits.acquire();
+                    acquired = true;
+                }
+                V loaded = loader.apply(key);
+                if (loaded != null || cacheNull) {
+                    cache.put(key, loaded == null ? NULL : loaded);
+                }
+                val = loaded;
+            }
+            inFlight.complete(unwrap(val));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlight.completeExceptionally(e);
+        } catch (Throwable t) {
+            inFlight.completeExceptionally(t);
+        } finally {
+            if (acquired) {
+                permits.release();
+            }
+            inFlights.remove(key, inFlight);
+        }
+    }
+
+    private static <V> CompletableFuture<V> dependent(CompletableFuture<V> inFlight) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        inFlight.whenComplete((value, ex) -> {
+            if (ex != null) {
+                future.completeExceptionally(ex);
+            } else {
+                future.complete(value);
+            }
+        });
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V unwrap(Object val) {
+        return val == NULL ? null : (V) val;
+    }
+
+    public static class Builder<K, V> {
+        private final Function<? super K, ? extends V> loader;
+        private boolean cacheNull = false;
+        private Executor executor;
+        private int maxConcurrentLoads = 0;
+
+        private Builder(Function<? super K, ? extends V> loader) {
+            this.loader = loader;
+        }
+
+        /**
+         * Caches the null result of loader
+         *
+         * @param cacheNull the cacheNull
+         * @return this builder
+         */
+        public Builder<K, V> cacheNull(boolean cacheNull) {
+            this.cacheNull = cacheNull;
+            return this;
+        }
+
+        /**
+         * Executor for {@link MemoizedLoader#getAsync(Object)}, load in caller thread if null
+         *
+         * @param executor the executor
+         * @return this builder
+         */
+        public Builder<K, V> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Maximum concurrent loads, unlimited if less than or equals 0
+         *
+         * @param maxConcurrentLoads the maxConcurrentLoads
+         * @return this builder
+         */
+        public Builder<K, V> maxConcurrentLoads(int maxConcurrentLoads) {
+            this.maxConcurrentLoads = maxConcurrentLoads;
+            return this;
+        }
+
+        public MemoizedLoader<K, V> build() {
+            Assert.notNull(loader, "Loader cannot be null.");
+            return new MemoizedLoader<>(this);
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ * Rendezvous hashing(highest random weight), O(n) per route but only the keys
+ * of removed(or added) node will be remapped, and no virtual node is needed.
+ * </pre>
+ *
+ * @param <T> the node type
+ * @author Ponfee
+ * @see <a href="https://en.wikipedia.org/wiki/Rendezvous_hashing">Rendezvous hashing</a>
+ */
+public class RendezvousHash<T> implements HashRouter<T> {
+
+    /**
+     * Immutable nodes snapshot
+     */
+    private static final class Nodes {
+        private static final Nodes EMPTY = new Nodes(new Object[0], new int[0]);
+
+        private final Object[] nodes;
+        private final int[] hashes; // physical key hash, parallel to nodes
+
+        private Nodes(Object[] nodes, int[] hashes) {
+            this.nodes = nodes;
+            this.hashes = hashes;
+        }
+    }
+
+    private final Function<T, String> keyMapper;
+    private final ConsistentHash.HashFunction hashFunction;
+    private volatile Nodes nodes = Nodes.EMPTY;
+
+    public RendezvousHash(Collection<T> pNodes) {
+        this(pNodes, String::valueOf, ConsistentHash.HashFunction.MURMUR3);
+    }
+
+    public RendezvousHash(Collection<T> pNodes,
+                          Function<T, String> keyMapper,
+                          ConsistentHash.HashFunction hashFunction) {
+        this.keyMapper = Objects.requireNonNull(keyMapper, "Key mapper is null.");
+        this.hashFunction = Objects.requireNonNull(hashFunction, "Hash function is null.");
+        if (pNodes != null) {
+            pNodes.forEach(this::addNode);
+        }
+    }
+
+    @Override
+    public synchronized void addNode(T pNode) {
+        Nodes old = this.nodes;
+        int hash = hashFunction.hash(keyMapper.apply(pNode));
+        for (int i = 0; i < old.nodes.length; i++) {
+            if (old.hashes[i] == hash && keyMapper.apply(cast(old.nodes[i])).equals(keyMapper.apply(pNode))) {
+                return;
+            }
+        }
+        int n = old.nodes.length;
+        Object[] array = Arrays.copyOf(old.nodes, n + 1);
+        int[] hashes = Arrays.copyOf(old.hashes, n + 1);
+        array[n] = pNode;
+        hashes[n] = hash;
+        this.nodes = new Nodes(array, hashes);
+    }
+
+    @Override
+    public synchronized void removeNode(T pNode) {
+        Nodes old = this.nodes;
+        String pKey = keyMapper.apply(pNode);
+        int n = old.nodes.length, size = 0;
+        Object[] array = new Object[n];
+        int[] hashes = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (!pKey.equals(keyMapper.apply(cast(old.nodes[i])))) {
+                array[size] = old.nodes[i];
+                hashes[size++] = old.hashes[i];
+            }
+        }
+        if (size < n) {
+            this.nodes = new Nodes(Arrays.copyOf(array, size), Arrays.copyOf(hashes, size));
+        }
+    }
+
+    @Override
+    public T routeNode(String key) {
+        return route(nodes, hashFunction.hash(key));
+    }
+
+    @Override
+    public T routeNode(byte[] key) {
+        return route(nodes, hashFunction.hash(key));
+    }
+
+    @Override
+    public List<T> nodes() {
+        List<T> list = new ArrayList<>(nodes.nodes.length);
+        for (Object node : nodes.nodes) {
+            list.add(cast(node));
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    private static <T> T route(Nodes nodes, int keyHash) {
+        Object[] array = nodes.nodes;
+        int[] hashes = nodes.hashes;
+        int index = -1;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < array.length; i++) {
+            long weight = mix(((long) hashes[i] << 32) | (keyHash & 0xFFFFFFFFL));
+            if (index < 0 || weight > max) {
+                max = weight;
+                index = i;
+            }
+        }
+        return index < 0 ? null : cast(array[index]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R cast(Object node) {
+        return (R) node;
+    }
+
+    /**
+     * Murmur3 64-bit finalizer
+     *
+     * @param k the value
+     * @return mixed value
+     */
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+}
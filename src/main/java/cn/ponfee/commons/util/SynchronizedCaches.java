@@ -9,21 +9,40 @@
 package cn.ponfee.commons.util;
 
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
+ * <pre>
  * Synchronized cache
  *
+ * 如果cache为ConcurrentMap，则按key加载(single-flight)：同一个key同时只有一个线程在加载，
+ * 其它线程等待该key的加载结果，不同key之间互不阻塞；否则在整个cache对象上同步加载。
+ * </pre>
+ *
  * @author Ponfee
+ * @see MemoizedLoader
  */
 public final class SynchronizedCaches {
 
+    /**
+     * Loading futures of (cache, key)
+     */
+    private static final ConcurrentMap<InFlightKey, InFlight<?>> IN_FLIGHT = new ConcurrentHashMap<>();
+
     public static <K, V> V get(K key, Map<K, V> cache, Function<K, V> mapper) {
         V val = cache.get(key);
         if (val != null) {
             return val;
         }
+        if (cache instanceof ConcurrentMap) {
+            return load(key, (ConcurrentMap<K, V>) cache, () -> mapper.apply(key));
+        }
         synchronized (cache) {
             if ((val = cache.get(key)) == null) {
                 if ((val = mapper.apply(key)) != null) {
@@ -39,6 +58,9 @@ public final class SynchronizedCaches {
         if (val != null) {
             return val;
         }
+        if (cache instanceof ConcurrentMap) {
+            return load(key, (ConcurrentMap<K, V>) cache, supplier);
+        }
         synchronized (cache) {
             if ((val = cache.get(key)) == null) {
                 if ((val = supplier.get()) != null) {
@@ -49,4 +71,97 @@ public final class SynchronizedCaches {
         return val;
     }
 
+    // ----------------------------------------------------------------------private methods
+
+    private static <K, V> V load(K key, ConcurrentMap<K, V> cache, Supplier<V> supplier) {
+        InFlightKey inFlightKey = new InFlightKey(cache, key);
+        InFlight<V> inFlight = new InFlight<>(Thread.currentThread());
+        @SuppressWarnings("unchecked")
+        InFlight<V> existing = (InFlight<V>) IN_FLIGHT.putIfAbsent(inFlightKey, inFlight);
+        if (existing != null) {
+            return existing.await();
+        }
+
+        try {
+            // double check: maybe loaded by other thread before put in-flight
+            V val = cache.get(key);
+            if (val == null && (val = supplier.get()) != null) {
+                cache.put(key, val);
+            }
+            inFlight.complete(val);
+            return val;
+        } catch (Throwable t) {
+            inFlight.completeExceptionally(t);
+            throw t;
+        } finally {
+            IN_FLIGHT.remove(inFlightKey, inFlight);
+        }
+    }
+
+    /**
+     * Loading future, holds the owner thread for detect recursive loading
+     */
+    static final class InFlight<V> extends CompletableFuture<V> {
+        private final Thread owner;
+
+        /**
+         * @param owner the loading thread, {@code null} if load asynchronously
+         */
+        InFlight(Thread owner) {
+            this.owner = owner;
+        }
+
+        V await() {
+            if (owner == Thread.currentThread()) {
+                throw new IllegalStateException("Recursive load the same key.");
+            }
+            return result();
+        }
+
+        V result() {
+            try {
+                return get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Wait in-flight loading interrupted.", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    /**
+     * Composite key of cache identity and cache key
+     */
+    private static final class InFlightKey {
+        private final Object cache;
+        private final Object key;
+
+        private InFlightKey(Object cache, Object key) {
+            this.cache = cache;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof InFlightKey)) {
+                return false;
+            }
+            InFlightKey other = (InFlightKey) obj;
+            return this.cache == other.cache && Objects.equals(this.key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(cache) * 31 + Objects.hashCode(key);
+        }
+    }
+
 }
@@ -16,6 +16,7 @@ import java.util.concurrent.PriorityBlockingQueue;
  * Timing wheel structure.
  *
  * @author Ponfee
+ * @see HierarchicalTimingWheel
  */
 public class TimingWheel<T extends TimingWheel.Timing<T>> implements java.io.Serializable {
     private static final long serialVersionUID = -3950831738037257527L;
@@ -0,0 +1,76 @@
+/* __________              _____                                                *\
+** \______   \____   _____/ ____\____   ____    Copyright (c) 2017-2023 Ponfee  **
+**  |     ___/  _ \ /    \   __\/ __ \_/ __ \   http://www.ponfee.cn            **
+**  |    |  (  <_> )   |  \  | \  ___/\  ___/   Apache License Version 2.0      **
+**  |____|   \____/|___|  /__|  \___  >\___  >  http://www.apache.org/licenses/ **
+**                      \/          \/     \/                                   **
+\*                                                                              */
+
+package cn.ponfee.commons.util;
+
+/**
+ * xxHash32 non-cryptographic hash algorithm
+ *
+ * @author Ponfee
+ * @see <a href="https://github.com/Cyan4973/xxHash/blob/dev/doc/xxhash_spec.md">xxHash specification</a>
+ */
+public final class XXHash32 {
+
+    private static final int PRIME1 = 0x9E3779B1;
+    private static final int PRIME2 = 0x85EBCA77;
+    private static final int PRIME3 = 0xC2B2AE3D;
+    private static final int PRIME4 = 0x27D4EB2F;
+    private static final int PRIME5 = 0x165667B1;
+
+    private XXHash32() {}
+
+    public static int digest(byte[] bytes) {
+        return digest(bytes, 0, bytes.length, 0);
+    }
+
+    public static int digest(byte[] bytes, int offset, int length, int seed) {
+        int end = offset + length, i = offset, h;
+        if (length >= 16) {
+            int v1 = seed + PRIME1 + PRIME2;
+            int v2 = seed + PRIME2;
+            int v3 = seed;
+            int v4 = seed - PRIME1;
+            for (int limit = end - 16; i <= limit; i += 16) {
+                v1 = round(v1, getInt(bytes, i     ));
+                v2 = round(v2, getInt(bytes, i +  4));
+                v3 = round(v3, getInt(bytes, i +  8));
+                v4 = round(v4, getInt(bytes, i + 12));
+            }
+            h = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7)
+              + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+        } else {
+            h = seed + PRIME5;
+        }
+
+        h += length;
+
+        for (; i + 4 <= end; i += 4) {
+            h = Integer.rotateLeft(h + getInt(bytes, i) * PRIME3, 17) * PRIME4;
+        }
+        for (; i < end; i++) {
+            h = Integer.rotateLeft(h + (bytes[i] & 0xFF) * PRIME5, 11) * PRIME1;
+        }
+
+        h ^= h >>> 15;
+        h *= PRIME2;
+        h ^= h >>> 13;
+        h *= PRIME3;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int round(int acc, int input) {
+        return Integer.rotateLeft(acc + input * PRIME2, 13) * PRIME1;
+    }
+
+    private static int getInt(byte[] b, int i) {
+        // little endian
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | ((b[i + 3] & 0xFF) << 24);
+    }
+
+}
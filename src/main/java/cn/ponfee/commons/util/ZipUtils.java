@@ -8,6 +8,7 @@
 
 package cn.ponfee.commons.util;
 
+import cn.ponfee.commons.io.CompressionCodec;
 import cn.ponfee.commons.io.Files;
 import net.lingala.zip4j.ZipFile;
 import net.lingala.zip4j.exception.ZipException;
@@ -18,9 +19,15 @@ import net.lingala.zip4j.model.enums.CompressionLevel;
 import net.lingala.zip4j.model.enums.CompressionMethod;
 import net.lingala.zip4j.model.enums.EncryptionMethod;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -230,6 +237,73 @@ public class ZipUtils {
         return fileEntries.toArray(new File[0]);
     }
 
+    // -----------------------------------单文件codec压缩/解压缩-----------------------------------
+    /**
+     * 使用codec压缩单个文件，压缩后的文件名为：原文件名+codec扩展名(如.lz4、.zst)
+     * @param src 待压缩的文件
+     * @param codec 压缩codec
+     * @return 压缩后的文件
+     * @throws IOException 压缩失败抛出
+     */
+    public static File compress(File src, CompressionCodec codec) throws IOException {
+        File dest = new File(src.getAbsolutePath() + codec.extension());
+        compress(src, dest, codec);
+        return dest;
+    }
+
+    /**
+     * 使用codec压缩单个文件到指定文件，压缩数据为codec原始格式(不含codec头)
+     * @param src 待压缩的文件
+     * @param dest 压缩文件
+     * @param codec 压缩codec
+     * @throws IOException 压缩失败抛出
+     */
+    public static void compress(File src, File dest, CompressionCodec codec) throws IOException {
+        if (!src.isFile()) {
+            throw new IOException("source file not found: " + src);
+        }
+        boolean opened = false;
+        try (InputStream input = new FileInputStream(src);
+             OutputStream file = new FileOutputStream(dest)) {
+            opened = true;
+            try (OutputStream output = codec.compress(file)) {
+                IOUtils.copyLarge(input, output, new byte[Files.BUFF_SIZE]);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (opened) {
+                // not leave the incomplete file
+                dest.delete();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 使用codec解压缩单个文件到指定文件
+     * @param src 压缩文件
+     * @param dest 解压后的文件
+     * @param codec 压缩codec
+     * @throws IOException 解压缩失败抛出
+     */
+    public static void decompress(File src, File dest, CompressionCodec codec) throws IOException {
+        if (!src.isFile()) {
+            throw new IOException("compressed file not found: " + src);
+        }
+        boolean opened = false;
+        try (InputStream file = new FileInputStream(src);
+             InputStream input = codec.decompress(file);
+             OutputStream output = new FileOutputStream(dest)) {
+            opened = true;
+            IOUtils.copyLarge(input, output, new byte[Files.BUFF_SIZE]);
+        } catch (IOException | RuntimeException e) {
+            if (opened) {
+                // not leave the incomplete file
+                dest.delete();
+            }
+            throw e;
+        }
+    }
+
     private static char[] toCharArray(String str) {
         return StringUtils.isEmpty(str) ? null : str.toCharArray();
     }
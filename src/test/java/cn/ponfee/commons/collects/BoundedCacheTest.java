@@ -0,0 +1,210 @@
+package cn.ponfee.commons.collects;
+
+import cn.ponfee.commons.collect.BoundedCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void testMapFacade() {
+        BoundedCache<String, Integer> cache = BoundedCache.<String, Integer>builder().maximumSize(100).build();
+        Map<String, Integer> map = cache;
+        Assert.assertNull(map.put("a", 1));
+        Assert.assertEquals(1, (int) map.put("a", 2));
+        Assert.assertEquals(2, (int) map.putIfAbsent("a", 3));
+        Assert.assertEquals(2, (int) map.get("a"));
+        Assert.assertTrue(map.containsKey("a"));
+        Assert.assertTrue(cache.replace("a", 2, 4));
+        Assert.assertEquals(4, (int) map.replace("a", 5));
+        Assert.assertEquals(5, (int) map.computeIfAbsent("a", k -> 6));
+        Assert.assertEquals(7, (int) map.computeIfAbsent("b", k -> 7));
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(2, map.entrySet().size());
+        Assert.assertFalse(map.remove("a", 1));
+        Assert.assertEquals(5, (int) map.remove("a"));
+        Assert.assertNull(map.get("a"));
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    public void testClockBounded() {
+        BoundedCache<Integer, Integer> cache = BoundedCache.<Integer, Integer>builder()
+            .maximumSize(100).policy(BoundedCache.EvictionPolicy.CLOCK).build();
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+            // keep 0~9 hot
+            for (int j = 0; j < 10; j++) {
+                cache.get(j);
+            }
+        }
+        cache.cleanUp();
+        Assert.assertEquals(100, cache.size());
+        Assert.assertEquals(100, cache.weightedSize());
+        Assert.assertEquals(900, cache.stats().getEvictionCount());
+        for (int j = 0; j < 10; j++) {
+            Assert.assertNotNull(cache.get(j));
+        }
+    }
+
+    @Test
+    public void testTinyLfuScanResistant() {
+        BoundedCache<Integer, Integer> cache = BoundedCache.<Integer, Integer>builder().maximumSize(200).build();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 100; i++) {
+                cache.put(i, i);
+                cache.get(i);
+            }
+        }
+        // one-hit scan should not flush the frequent entries
+        for (int i = 1000; i < 2500; i++) {
+            cache.put(i, i);
+        }
+        cache.cleanUp();
+        Assert.assertEquals(200, cache.weightedSize());
+        int hits = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.get(i) != null) {
+                hits++;
+            }
+        }
+        Assert.assertTrue("hits: " + hits, hits >= 90);
+    }
+
+    @Test
+    public void testWeight() {
+        BoundedCache<String, String> cache = BoundedCache.<String, String>builder()
+            .maximumWeight(100, (k, v) -> v.length()).build();
+        cache.put("a", "0123456789");
+        cache.put("b", "0123456789");
+        Assert.assertEquals(20, cache.weightedSize());
+        cache.put("a", "0");
+        Assert.assertEquals(11, cache.weightedSize());
+        for (int i = 0; i < 100; i++) {
+            cache.put("k" + i, "0123456789");
+        }
+        cache.cleanUp();
+        Assert.assertTrue(cache.weightedSize() <= 100);
+    }
+
+    @Test
+    public void testExpireAndRefresh() throws InterruptedException {
+        BoundedCache<String, Integer> cache = BoundedCache.<String, Integer>builder()
+            .expireAfterWrite(100, TimeUnit.MILLISECONDS).build();
+        cache.put("a", 1);
+        Assert.assertEquals(1, (int) cache.get("a"));
+        Thread.sleep(150);
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(0, cache.size());
+
+        AtomicInteger loader = new AtomicInteger(0);
+        BoundedCache<String, Integer> refreshCache = BoundedCache.<String, Integer>builder()
+            .refreshAfterWrite(50, TimeUnit.MILLISECONDS, k -> loader.incrementAndGet()).build();
+        refreshCache.put("a", 0);
+        Thread.sleep(80);
+        // returns the old value and refresh async
+        Assert.assertEquals(0, (int) refreshCache.get("a"));
+        Thread.sleep(50);
+        Assert.assertEquals(1, (int) refreshCache.get("a"));
+        Assert.assertEquals(1, refreshCache.stats().getLoadSuccessCount());
+
+        BoundedCache<String, Integer> idleCache = BoundedCache.<String, Integer>builder()
+            .expireAfterAccess(100, TimeUnit.MILLISECONDS).build();
+        idleCache.put("a", 1);
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(50);
+            // each read extends the idle deadline
+            Assert.assertEquals(1, (int) idleCache.get("a"));
+        }
+        Thread.sleep(150);
+        Assert.assertNull(idleCache.get("a"));
+    }
+
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        BoundedCache<Integer, Integer> cache = BoundedCache.<Integer, Integer>builder().maximumSize(1000).build();
+        int threads = 8;
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 200000; i++) {
+                    int key = random.nextInt(5000);
+                    Integer value = cache.get(key);
+                    if (value == null) {
+                        cache.put(key, key);
+                    } else {
+                        Assert.assertEquals(key, (int) value);
+                    }
+                    if (i % 1000 == 0) {
+                        cache.remove(random.nextInt(5000));
+                    }
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        cache.cleanUp();
+        Assert.assertEquals(cache.size(), cache.weightedSize());
+        Assert.assertTrue(cache.size() <= 1000);
+        System.out.println(cache.stats());
+    }
+
+    @Test
+    public void testEvictWhileLoading() throws InterruptedException {
+        // 0 and 65537 are spread into the same bin of ConcurrentHashMap
+        int loadingKey = 0, victimKey = 65537;
+        BoundedCache<Integer, Integer> cache = BoundedCache.<Integer, Integer>builder()
+            .maximumSize(1).policy(BoundedCache.EvictionPolicy.CLOCK).build();
+        cache.put(victimKey, 0);
+
+        // the loader holds the bin lock until released
+        CountDownLatch loading = new CountDownLatch(1), release = new CountDownLatch(1);
+        Thread loader = new Thread(() -> cache.computeIfAbsent(loadingKey, k -> {
+            loading.countDown();
+            awaitQuietly(release);
+            return k;
+        }));
+        loader.start();
+        Assert.assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        // evicts the victim which in the bin of loading key, blocked outside the eviction lock
+        Thread evictor = new Thread(() -> cache.put(1, 1));
+        evictor.start();
+        for (int i = 0; i < 500 && evictor.getState() != Thread.State.BLOCKED; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(Thread.State.BLOCKED, evictor.getState());
+        Assert.assertFalse(cache.containsKey(victimKey));
+
+        // other writers should not wait for the loader
+        Thread writer = new Thread(() -> cache.put(2, 2));
+        writer.start();
+        writer.join(5000);
+        Assert.assertFalse("writer blocked by loader", writer.isAlive());
+
+        release.countDown();
+        loader.join(5000);
+        evictor.join(5000);
+        Assert.assertFalse(loader.isAlive() || evictor.isAlive());
+        cache.cleanUp();
+        Assert.assertEquals(cache.size(), cache.weightedSize());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
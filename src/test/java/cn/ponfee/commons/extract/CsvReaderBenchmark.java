@@ -0,0 +1,88 @@
+package cn.ponfee.commons.extract;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CsvExtractor(commons-csv) vs MappedCsvReader, sum a long column of the csv file
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=cn.ponfee.commons.extract.CsvReaderBenchmark -Dexec.classpathScope=test
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvReaderBenchmark {
+
+    @Param({"500000"})
+    private int rows;
+
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("csv_reader_benchmark", ".csv");
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                writer.write(i + ",name" + i + ",\"remark, " + i + "\"," + (i * 3L) + ",2023-01-01\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public long commonsCsv() throws IOException {
+        long[] sum = {0};
+        DataExtractorBuilder.newBuilder(file).headers(new String[]{"a", "b", "c", "d", "e"}).build()
+            .extract((rowNumber, row) -> sum[0] += Long.parseLong(row[3]));
+        return sum[0];
+    }
+
+    @Benchmark
+    public long mappedSingleThread() throws IOException {
+        long[] sum = {0};
+        MappedCsvReader.builder(file).parallelism(1).build().forEach(record -> sum[0] += record.getLong(3));
+        return sum[0];
+    }
+
+    @Benchmark
+    public long mappedParallel() throws IOException {
+        LongAdder sum = new LongAdder();
+        MappedCsvReader.builder(file).chunkSize(4 * 1024 * 1024).build().forEach(record -> sum.add(record.getLong(3)));
+        return sum.sum();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CsvReaderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,114 @@
+package cn.ponfee.commons.io;
+
+import cn.ponfee.commons.io.charset.BytesDetector;
+import cn.ponfee.commons.io.charset.TieredDetector;
+import cn.ponfee.commons.io.charset.TikaDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Accuracy and throughput of the charset detectors: Tika, BytesDetector and TieredDetector
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=cn.ponfee.commons.io.CharsetDetectorBenchmark -Dexec.classpathScope=test
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CharsetDetectorBenchmark {
+
+    private static final String ASCII = "The quick brown fox jumps over the lazy dog, 0123456789.\n";
+    private static final String CHINESE = "字符编码检测，中文与English混合的文本，用于评估检测器的准确率与吞吐量。\n";
+    private static final String JAPANESE = "文字コードの判定は、テキストの統計的な特徴に基づいて行われます。\n";
+    private static final String KOREAN = "문자 인코딩 감지는 텍스트의 통계적 특징을 기반으로 합니다.\n";
+
+    @Param({"ASCII", "UTF-8", "UTF-16LE", "GBK", "Shift_JIS"})
+    private String encoding;
+
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bytes = sample(encoding);
+    }
+
+    @Benchmark
+    public Charset tika() {
+        return TikaDetector.detect(bytes);
+    }
+
+    @Benchmark
+    public String bytesDetector() {
+        return BytesDetector.detect(bytes);
+    }
+
+    @Benchmark
+    public Charset tiered() {
+        return TieredDetector.detect(bytes, 0, bytes.length);
+    }
+
+    private static byte[] sample(String encoding) {
+        String text;
+        if ("ASCII".equals(encoding)) {
+            text = ASCII;
+        } else if ("Shift_JIS".equals(encoding)) {
+            text = JAPANESE;
+        } else if ("EUC-KR".equals(encoding)) {
+            text = KOREAN;
+        } else {
+            text = CHINESE;
+        }
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < CharsetDetector.DEFAULT_DETECT_LENGTH) {
+            builder.append(text);
+        }
+        byte[] bytes = builder.toString().getBytes(Charset.forName("ASCII".equals(encoding) ? "US-ASCII" : encoding));
+        return Arrays.copyOf(bytes, Math.min(bytes.length, CharsetDetector.DEFAULT_DETECT_LENGTH));
+    }
+
+    /**
+     * Prints the detected charset of each detector, the ascii text is accepted as UTF-8 or ISO-8859-1,
+     * and the GBK text is accepted as any GB family charset.
+     */
+    private static void accuracy() {
+        Map<String, Function<byte[], String>> detectors = new LinkedHashMap<>();
+        detectors.put("tika", b -> TikaDetector.detect(b).name());
+        detectors.put("bytesDetector", BytesDetector::detect);
+        detectors.put("tiered", b -> TieredDetector.detect(b, 0, b.length).name());
+        for (String encoding : new String[]{"ASCII", "UTF-8", "UTF-16LE", "UTF-16BE", "GBK", "Big5", "Shift_JIS", "EUC-KR"}) {
+            byte[] bytes = sample(encoding);
+            StringBuilder line = new StringBuilder(String.format("%-10s", encoding));
+            detectors.forEach((name, detector) -> line.append(String.format(" | %s=%-12s", name, detector.apply(bytes))));
+            System.out.println(line);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        accuracy();
+        new Runner(new OptionsBuilder().include(CharsetDetectorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
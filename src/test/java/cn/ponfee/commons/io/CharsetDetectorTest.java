@@ -0,0 +1,111 @@
+package cn.ponfee.commons.io;
+
+import cn.ponfee.commons.io.charset.BytesDetector;
+import cn.ponfee.commons.io.charset.TieredDetector;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class CharsetDetectorTest {
+
+    private static final String TEXT = "字符编码检测，中文与English混合的文本。Charset detection of mixed text.\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String text(int repeat) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < repeat; i++) {
+            builder.append(TEXT);
+        }
+        return builder.toString();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    @Test
+    public void testBom() {
+        byte[] bytes = text(3).getBytes(StandardCharsets.UTF_16LE);
+        Assert.assertEquals(StandardCharsets.UTF_16LE, CharsetDetector.detect(concat(new byte[]{(byte) 0xFF, (byte) 0xFE}, bytes)));
+        bytes = text(3).getBytes(StandardCharsets.UTF_16BE);
+        Assert.assertEquals(StandardCharsets.UTF_16BE, CharsetDetector.detect(concat(new byte[]{(byte) 0xFE, (byte) 0xFF}, bytes)));
+        bytes = text(3).getBytes(Charset.forName("UTF-32LE"));
+        Assert.assertEquals(Charset.forName("UTF-32LE"), CharsetDetector.detect(concat(new byte[]{(byte) 0xFF, (byte) 0xFE, 0, 0}, bytes)));
+        bytes = text(3).getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(StandardCharsets.UTF_8, CharsetDetector.detect(concat(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}, bytes)));
+    }
+
+    @Test
+    public void testFastPath() {
+        Assert.assertEquals(StandardCharsets.UTF_8, TieredDetector.detectUnicode(new byte[0], 0, 0));
+        byte[] ascii = "The quick brown fox jumps over the lazy dog, 0123456789.\r\n".getBytes(StandardCharsets.US_ASCII);
+        Assert.assertEquals(StandardCharsets.UTF_8, TieredDetector.detectUnicode(ascii, 0, ascii.length));
+
+        byte[] utf8 = text(10).getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(StandardCharsets.UTF_8, TieredDetector.detectUnicode(utf8, 0, utf8.length));
+        // truncated in the middle of a multi-byte sequence
+        for (int i = 1; i < 4; i++) {
+            Assert.assertEquals(StandardCharsets.UTF_8, TieredDetector.detectUnicode(utf8, 0, utf8.length - 4 * 9 - i));
+        }
+
+        byte[] utf16le = text(10).getBytes(StandardCharsets.UTF_16LE);
+        Assert.assertEquals(StandardCharsets.UTF_16LE, TieredDetector.detectUnicode(utf16le, 0, utf16le.length));
+        byte[] utf16be = text(10).getBytes(StandardCharsets.UTF_16BE);
+        Assert.assertEquals(StandardCharsets.UTF_16BE, TieredDetector.detectUnicode(utf16be, 0, utf16be.length));
+    }
+
+    @Test
+    public void testInvalidUtf8() {
+        // overlong, surrogate, greater than U+10FFFF, invalid lead byte
+        byte[][] invalids = {
+            {'a', (byte) 0xC0, (byte) 0xAF}, {'a', (byte) 0xE0, (byte) 0x80, (byte) 0xAF},
+            {'a', (byte) 0xED, (byte) 0xA0, (byte) 0x80}, {'a', (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80},
+            {'a', (byte) 0xFF, 'b'}, {'a', (byte) 0xE4, 'b', 'c'}
+        };
+        for (byte[] bytes : invalids) {
+            Assert.assertNull(TieredDetector.detectUnicode(bytes, 0, bytes.length));
+        }
+    }
+
+    @Test
+    public void testLegacy() {
+        byte[] gbk = text(10).getBytes(Charset.forName("GBK"));
+        Assert.assertNull(TieredDetector.detectUnicode(gbk, 0, gbk.length));
+        Assert.assertTrue(CharsetDetector.detect(gbk).name().startsWith("GB"));
+        Assert.assertTrue(BytesDetector.detect(gbk).startsWith("GB"));
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        File file = folder.newFile("cache.txt");
+        java.nio.file.Files.write(file.toPath(), text(10).getBytes(Charset.forName("GBK")));
+        CharsetDetector.enableCache(16);
+        try {
+            Charset charset = CharsetDetector.detect(file);
+            Assert.assertTrue(charset.name().startsWith("GB"));
+            Assert.assertEquals(charset, CharsetDetector.detect(file));
+            Assert.assertEquals(1, CharsetDetector.cacheStats().getHitCount());
+
+            // modified file changes the identity
+            java.nio.file.Files.write(file.toPath(), text(20).getBytes(StandardCharsets.UTF_8));
+            file.setLastModified(file.lastModified() + 2000);
+            Assert.assertEquals(StandardCharsets.UTF_8, CharsetDetector.detect(file));
+            Assert.assertEquals(1, CharsetDetector.cacheStats().getHitCount());
+        } finally {
+            CharsetDetector.disableCache();
+        }
+        Assert.assertNull(CharsetDetector.cacheStats());
+    }
+
+}
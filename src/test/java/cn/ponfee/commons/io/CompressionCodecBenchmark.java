@@ -0,0 +1,95 @@
+package cn.ponfee.commons.io;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compression codecs ratio and throughput on json cache payloads,
+ * MB/s = ops/s * payloadSize / 1024 / 1024, the ratio is printed at setup.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=cn.ponfee.commons.io.CompressionCodecBenchmark -Dexec.classpathScope=test
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionCodecBenchmark {
+
+    @Param({"GZIP", "DEFLATE_1", "LZ4", "SNAPPY", "ZSTD"})
+    private String codecName;
+
+    @Param({"2048", "65536"})
+    private int payloadSize;
+
+    private CompressionCodec codec;
+    private byte[] payload;
+    private byte[] compressed;
+
+    @Setup
+    public void setup() {
+        switch (codecName) {
+            case "GZIP":
+                codec = CompressionCodecs.GZIP;
+                break;
+            case "DEFLATE_1":
+                codec = CompressionCodecs.deflate(1);
+                break;
+            case "LZ4":
+                codec = CompressionCodecs.LZ4;
+                break;
+            case "SNAPPY":
+                codec = CompressionCodecs.SNAPPY;
+                break;
+            default:
+                codec = CompressionCodecs.ZSTD;
+        }
+
+        Random random = new Random(payloadSize);
+        StringBuilder builder = new StringBuilder(payloadSize);
+        while (builder.length() < payloadSize) {
+            builder.append("{\"id\":").append(random.nextInt(1000000))
+                .append(",\"name\":\"user-").append(random.nextInt(1000))
+                .append("\",\"email\":\"u").append(random.nextInt(1000)).append("@example.com\"")
+                .append(",\"amount\":").append(random.nextInt(100000) / 100.0D)
+                .append(",\"status\":\"").append(random.nextBoolean() ? "ACTIVE" : "INACTIVE").append("\"},");
+        }
+        payload = builder.substring(0, payloadSize).getBytes(StandardCharsets.UTF_8);
+        compressed = CompressionCodecs.compress(payload, codec);
+        System.out.printf("%n%s payload %d bytes, compressed %d bytes, ratio %.2f%n",
+            codecName, payload.length, compressed.length, (double) payload.length / compressed.length);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return CompressionCodecs.compress(payload, codec);
+    }
+
+    @Benchmark
+    public byte[] decompress() {
+        return CompressionCodecs.decompress(compressed);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CompressionCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,161 @@
+package cn.ponfee.commons.io;
+
+import cn.ponfee.commons.util.ZipUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class CompressionCodecsTest {
+
+    private static final List<CompressionCodec> CODECS = Arrays.asList(
+        CompressionCodecs.NONE, CompressionCodecs.GZIP, CompressionCodecs.gzip(1),
+        CompressionCodecs.DEFLATE, CompressionCodecs.deflate(9), CompressionCodecs.LZ4,
+        CompressionCodecs.SNAPPY, CompressionCodecs.ZSTD, CompressionCodecs.zstd(19)
+    );
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] payload(int size) {
+        Random random = new Random(size);
+        StringBuilder builder = new StringBuilder(size);
+        while (builder.length() < size) {
+            builder.append("{\"id\":").append(random.nextInt(100000)).append(",\"name\":\"user-")
+                .append(random.nextInt(100)).append("\",\"tags\":[\"a\",\"b\"]},");
+        }
+        return builder.substring(0, size).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testBytes() {
+        for (int size : new int[]{0, 1, 100, 70000}) {
+            byte[] data = payload(size);
+            for (CompressionCodec codec : CODECS) {
+                Assert.assertArrayEquals(codec.extension() + size, data, codec.decompress(codec.compress(data)));
+
+                byte[] encoded = CompressionCodecs.compress(data, codec);
+                Assert.assertEquals(codec.id(), encoded[0]);
+                Assert.assertArrayEquals(codec.extension() + size, data, CompressionCodecs.decompress(encoded));
+            }
+        }
+    }
+
+    @Test
+    public void testOldGzipCompatible() {
+        byte[] data = payload(5000);
+        Assert.assertArrayEquals(data, CompressionCodecs.decompress(GzipProcessor.compress(data)));
+        Assert.assertArrayEquals(data, GzipProcessor.decompress(CompressionCodecs.compress(data, CompressionCodecs.GZIP)));
+    }
+
+    @Test
+    public void testByteBuffer() {
+        byte[] data = payload(20000);
+        for (CompressionCodec codec : CODECS) {
+            ByteBuffer src = ByteBuffer.allocateDirect(data.length);
+            src.put(data).flip();
+            ByteBuffer dst = ByteBuffer.allocate(data.length + 1024);
+            dst.position(7);
+            int n = CompressionCodecs.compress(src, dst, codec);
+            Assert.assertFalse(src.hasRemaining());
+            Assert.assertEquals(7 + n, dst.position());
+
+            dst.flip().position(7);
+            ByteBuffer result = CompressionCodecs.decompress(dst);
+            Assert.assertFalse(dst.hasRemaining());
+            Assert.assertArrayEquals(data, result.array());
+        }
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        byte[] data = payload(100000);
+        for (CompressionCodec codec : CODECS) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (OutputStream out = CompressionCodecs.encode(baos, codec)) {
+                for (int i = 0; i < data.length; i += 999) {
+                    out.write(data, i, Math.min(999, data.length - i));
+                }
+            }
+            try (InputStream in = CompressionCodecs.decode(new ByteArrayInputStream(baos.toByteArray()))) {
+                Assert.assertArrayEquals(data, IOUtils.toByteArray(in));
+            }
+        }
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        File src = folder.newFile("data.json");
+        java.nio.file.Files.write(src.toPath(), payload(50000));
+        for (CompressionCodec codec : Arrays.asList(CompressionCodecs.LZ4, CompressionCodecs.ZSTD)) {
+            File compressed = ZipUtils.compress(src, codec);
+            Assert.assertTrue(compressed.getName().endsWith(codec.extension()));
+            File dest = new File(folder.getRoot(), "data" + codec.id() + ".json");
+            ZipUtils.decompress(compressed, dest, codec);
+            Assert.assertArrayEquals(java.nio.file.Files.readAllBytes(src.toPath()), java.nio.file.Files.readAllBytes(dest.toPath()));
+        }
+    }
+
+    @Test
+    public void testFileCodecFailed() throws IOException {
+        File src = folder.newFile("fail.json");
+        java.nio.file.Files.write(src.toPath(), payload(1000));
+        CompressionCodec failed = new CompressionCodec() {
+            @Override
+            public byte id() {
+                return 0x7F;
+            }
+
+            @Override
+            public String extension() {
+                return ".fail";
+            }
+
+            @Override
+            public OutputStream compress(OutputStream output) {
+                throw new IllegalStateException("codec unavailable");
+            }
+
+            @Override
+            public InputStream decompress(InputStream input) {
+                throw new IllegalStateException("codec unavailable");
+            }
+        };
+        try {
+            ZipUtils.compress(src, failed);
+            Assert.fail();
+        } catch (IllegalStateException ignored) {
+            // ignored
+        }
+        // the incomplete file not left behind
+        Assert.assertFalse(new File(src.getPath() + ".fail").exists());
+
+        File dest = new File(folder.getRoot(), "fail.out");
+        try {
+            ZipUtils.decompress(src, dest, CompressionCodecs.GZIP);
+            Assert.fail();
+        } catch (IOException ignored) {
+            // ignored: not in gzip format
+        }
+        Assert.assertFalse(dest.exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownCodec() {
+        CompressionCodecs.decompress(new byte[]{0x7F, 1, 2});
+    }
+
+}
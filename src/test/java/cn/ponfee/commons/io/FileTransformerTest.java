@@ -1,9 +1,27 @@
 package cn.ponfee.commons.io;
 
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class FileTransformerTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void test() {
         //System.out.println(detectBytesCharset(Streams.file2bytes("D:\\test\\2.png")));
@@ -18,4 +36,101 @@ public class FileTransformerTest {
         t.transform();
     }
 
+    @Test
+    public void testParallelTransform() throws IOException {
+        File source = folder.newFolder("source");
+        File target = new File(folder.getRoot(), "target");
+        Charset gbk = Charset.forName("GBK");
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("package cn.ponfee.commons.").append(i).append("; // 中文注释\r\n");
+        }
+        byte[] binary = new byte[200000];
+        new Random(1).nextBytes(binary);
+        for (int i = 0; i < 20; i++) {
+            File dir = new File(source, "a" + (i % 4) + File.separator + "b" + i);
+            dir.mkdirs();
+            java.nio.file.Files.write(new File(dir, "Test" + i + ".java").toPath(), text.toString().getBytes(gbk));
+            java.nio.file.Files.write(new File(dir, "data" + i + ".bin").toPath(), binary);
+        }
+
+        FileTransformer transformer = new FileTransformer(source.getPath(), target.getPath(), "UTF-8");
+        transformer.setReplaceEach(new String[]{"cn.ponfee.commons."}, new String[]{"com.example."});
+        transformer.setParallelism(4);
+        transformer.setSkipPolicy(FileTransformer.SkipPolicy.HASH);
+        Map<Path, FileTransformer.Progress> progresses = new ConcurrentHashMap<>();
+        transformer.setProgressListener(p -> progresses.put(p.getSource(), p));
+
+        transformer.transform();
+        FileTransformer.Statistics stat = transformer.getStatistics();
+        Assert.assertEquals(40, progresses.size());
+        Assert.assertEquals(20, stat.getCount(FileTransformer.Action.CONVERT));
+        Assert.assertEquals(20, stat.getCount(FileTransformer.Action.COPY));
+        Assert.assertEquals(0, stat.getCount(FileTransformer.Action.FAIL));
+
+        String expect = StringUtils.replace(text.toString(), "cn.ponfee.commons.", "com.example.");
+        for (int i = 0; i < 20; i++) {
+            File dir = new File(target, "a" + (i % 4) + File.separator + "b" + i);
+            Assert.assertEquals(expect, new String(java.nio.file.Files.readAllBytes(new File(dir, "Test" + i + ".java").toPath()), StandardCharsets.UTF_8));
+            Assert.assertArrayEquals(binary, java.nio.file.Files.readAllBytes(new File(dir, "data" + i + ".bin").toPath()));
+        }
+
+        // second run skip all unchanged files
+        transformer.transform();
+        Assert.assertEquals(40, transformer.getStatistics().getCount(FileTransformer.Action.SKIP));
+        Assert.assertTrue(transformer.getTransformLog().contains("转换：[GB18030]"));
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        File source = folder.newFolder("source");
+        File target = new File(folder.getRoot(), "target");
+        for (int i = 0; i < 3; i++) {
+            java.nio.file.Files.write(new File(source, "data" + i + ".bin").toPath(), new byte[]{1, 2, 3});
+            // the target file cannot be written if it is a directory
+            new File(target, "data" + i + ".bin").mkdirs();
+        }
+        java.nio.file.Files.write(new File(source, "ok.bin").toPath(), new byte[]{1, 2, 3});
+
+        FileTransformer transformer = new FileTransformer(source.getPath(), target.getPath());
+        try {
+            transformer.transform();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+            Assert.assertEquals(2, e.getSuppressed().length);
+        }
+        // the other files are still transformed
+        Assert.assertEquals(3, transformer.getStatistics().getCount(FileTransformer.Action.FAIL));
+        Assert.assertEquals(1, transformer.getStatistics().getCount(FileTransformer.Action.COPY));
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, java.nio.file.Files.readAllBytes(new File(target, "ok.bin").toPath()));
+
+        // static transform does not overwrite the existing target
+        try {
+            FileTransformer.transform(new File(source, "ok.bin"), new File(target, "ok.bin"));
+            Assert.fail();
+        } catch (UncheckedIOException e) {
+            Assert.assertTrue(e.getCause() instanceof FileAlreadyExistsException);
+        }
+    }
+
+    @Test
+    public void testStaticTransform() throws IOException {
+        File source = folder.newFile("source.txt");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 30000; i++) {
+            text.append("abc-\uD83D\uDE00-").append(i).append('\n');
+        }
+        java.nio.file.Files.write(source.toPath(), text.toString().getBytes(StandardCharsets.UTF_16));
+
+        File target = new File(folder.getRoot(), "target.txt");
+        FileTransformer.transform(source, target, "UTF-16", "UTF-8", new String[]{"abc", "-\uD83D\uDE00-"}, new String[]{"x", "+"});
+        String expect = StringUtils.replaceEach(text.toString(), new String[]{"abc", "-\uD83D\uDE00-"}, new String[]{"x", "+"});
+        Assert.assertEquals(expect, new String(java.nio.file.Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+
+        FileTransformer.transform(source, target, "UTF-16", "UTF-8");
+        Assert.assertEquals(text.toString(), new String(java.nio.file.Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+    }
+
 }
@@ -0,0 +1,79 @@
+package cn.ponfee.commons.json;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jsons.parseMethodArgs: readTree then convert per node vs streaming binding
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=cn.ponfee.commons.json.MethodArgsBenchmark -Dexec.classpathScope=test
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MethodArgsBenchmark {
+
+    private static final String BODY = "[[{\"name\":\"a\",\"values\":[1,2,3]},{\"name\":\"b\",\"values\":[4,5]}], {\"x\":\"12\",\"y\":34}, 3]";
+    private static final byte[] BYTES = BODY.getBytes(StandardCharsets.UTF_8);
+    private static final ObjectMapper MAPPER = Jsons.createObjectMapper(null);
+
+    private final Method method;
+
+    public MethodArgsBenchmark() {
+        try {
+            method = MethodArgsParserTest.class.getMethod("generic", java.util.List.class, java.util.Map.class, int.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public Object[] tree() throws Exception {
+        Type[] types = method.getGenericParameterTypes();
+        JsonNode root = MAPPER.readTree(BODY);
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            args[i] = MAPPER.readerFor(MAPPER.getTypeFactory().constructType(types[i]))
+                            .with(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+                            .readValue(MAPPER.treeAsTokens(root.get(i)));
+        }
+        return args;
+    }
+
+    @Benchmark
+    public Object[] streamString() {
+        return Jsons.parseMethodArgs(BODY, method);
+    }
+
+    @Benchmark
+    public Object[] streamBytes() {
+        return Jsons.parseMethodArgs(BYTES, method);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MethodArgsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,107 @@
+package cn.ponfee.commons.json;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class MethodArgsParserTest {
+
+    public static class Dto {
+        public String name;
+        public List<Integer> values;
+    }
+
+    public void none() {
+    }
+
+    public void single(String[] arg) {
+    }
+
+    public void singleDto(Dto dto) {
+    }
+
+    public void multiple(String[] arg1, String[] arg2) {
+    }
+
+    public void generic(List<Dto> list, Map<String, Long> map, int n) {
+    }
+
+    private static Method method(String name) {
+        for (Method method : MethodArgsParserTest.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    @Test
+    public void testSingleArgument() {
+        Method method = method("single");
+        Assert.assertArrayEquals(new String[]{"a", "b"}, (String[]) Jsons.parseMethodArgs("[\"a\", \"b\"]", method)[0]);
+        Assert.assertArrayEquals(new String[]{"a", "b"}, (String[]) Jsons.parseMethodArgs("[[\"a\", \"b\"]]", method)[0]);
+        Assert.assertArrayEquals(new String[]{"a"}, (String[]) Jsons.parseMethodArgs("[\"a\"]", method)[0]);
+        Assert.assertArrayEquals(new String[]{"x"}, (String[]) Jsons.parseMethodArgs("\"x\"", method)[0]);
+        Assert.assertNull(Jsons.parseMethodArgs((String) null, method));
+        Assert.assertNull(Jsons.parseMethodArgs("[1]", method("none")));
+
+        Dto dto = (Dto) Jsons.parseMethodArgs("{\"name\":\"n\",\"values\":[1,2]}", method("singleDto"))[0];
+        Assert.assertEquals("n", dto.name);
+        Assert.assertEquals(Arrays.asList(1, 2), dto.values);
+
+        Object[] dtos = Jsons.parseMethodArgs("[{\"name\":\"n\",\"values\":[1,2]}]".getBytes(StandardCharsets.UTF_8), method("singleDto"));
+        Assert.assertEquals("n", ((Dto) dtos[0]).name);
+    }
+
+    @Test
+    public void testMultipleArguments() {
+        Method method = method("multiple");
+        Object[] args = Jsons.parseMethodArgs("[\"a\", \"b\"]", method);
+        Assert.assertArrayEquals(new String[]{"a"}, (String[]) args[0]);
+        Assert.assertArrayEquals(new String[]{"b"}, (String[]) args[1]);
+
+        args = Jsons.parseMethodArgs("[[\"a\", \"c\"], null]", method);
+        Assert.assertArrayEquals(new String[]{"a", "c"}, (String[]) args[0]);
+        Assert.assertNull(args[1]);
+
+        try {
+            Jsons.parseMethodArgs("[\"a\", \"b\", [\"c\"]]", method);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Method arguments size: 2, but actual size: 3", e.getMessage());
+        }
+        try {
+            Jsons.parseMethodArgs("{}", method);
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+            // ignored
+        }
+    }
+
+    @Test
+    public void testGeneric() {
+        String json = "[[{\"name\":\"a\",\"values\":[1]},{\"name\":\"b\"}], {\"x\":\"12\"}, 3]";
+        Object[] args = Jsons.parseMethodArgs(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), method("generic"));
+        List<?> list = (List<?>) args[0];
+        Assert.assertEquals(2, list.size());
+        // element type is resolved from the generic parameter type
+        Assert.assertEquals("b", ((Dto) list.get(1)).name);
+        Assert.assertEquals(Long.valueOf(12), ((Map<?, ?>) args[1]).get("x"));
+        Assert.assertEquals(3, args[2]);
+    }
+
+    @Test
+    public void testParseArray() {
+        Object[] args = Jsons.parseArray("[1, \"s\", 3]", Long.class, String.class);
+        Assert.assertArrayEquals(new Object[]{1L, "s"}, args);
+        args = Jsons.parseArray("[1, 2]", Long[].class);
+        Assert.assertArrayEquals(new Long[]{1L, 2L}, (Long[]) args[0]);
+    }
+
+}
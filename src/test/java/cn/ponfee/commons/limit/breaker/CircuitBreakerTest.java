@@ -0,0 +1,164 @@
+package cn.ponfee.commons.limit.breaker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CircuitBreakerTest {
+
+    private static String fail() {
+        throw new IllegalStateException("fail");
+    }
+
+    @Test
+    public void testStateMachine() {
+        AtomicLong clock = new AtomicLong();
+        CircuitBreaker breaker = CircuitBreaker.builder()
+            .countWindow(64).minimumCalls(10).failureRatioThreshold(0.5D)
+            .openDuration(1, TimeUnit.SECONDS).permittedHalfOpenCalls(2)
+            .build(clock::get);
+
+        for (int i = 0; i < 9; i++) {
+            Assert.assertEquals("fallback", breaker.get(CircuitBreakerTest::fail, t -> "fallback"));
+        }
+        // less than minimum calls
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertEquals("ok", breaker.get(() -> "ok"));
+        Assert.assertEquals("fallback", breaker.get(CircuitBreakerTest::fail, t -> "fallback"));
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        try {
+            breaker.get(() -> "ok");
+            Assert.fail();
+        } catch (CircuitBreakerOpenException ignored) {
+            // ignored
+        }
+
+        // half open: failure reopen
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assert.assertTrue(breaker.tryAcquirePermission());
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onFailure(new IllegalStateException());
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // half open: permitted calls success to close
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assert.assertTrue(breaker.tryAcquirePermission());
+        Assert.assertTrue(breaker.tryAcquirePermission());
+        Assert.assertFalse(breaker.tryAcquirePermission());
+        breaker.onSuccess();
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertEquals(0.0D, breaker.failureRatio(), 0);
+    }
+
+    @Test
+    public void testOutcomeOfGrantedStage() {
+        AtomicLong clock = new AtomicLong();
+        CircuitBreaker breaker = CircuitBreaker.builder()
+            .minimumCalls(1).openDuration(1, TimeUnit.SECONDS).permittedHalfOpenCalls(1)
+            .recordFailure(t -> !(t instanceof IllegalArgumentException))
+            .build(clock::get);
+
+        // slow call admitted in closed finished in half open, is not a probe success
+        Assert.assertEquals("slow", breaker.get(() -> {
+            Assert.assertEquals("fallback", breaker.get(CircuitBreakerTest::fail, t -> "fallback"));
+            Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            Assert.assertTrue(breaker.tryAcquirePermission());
+            return "slow";
+        }));
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // ignored failure of a closed call does not give back a half open permit
+        breaker.reset();
+        try {
+            breaker.run(() -> {
+                breaker.get(CircuitBreakerTest::fail, t -> "fallback");
+                clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+                Assert.assertTrue(breaker.tryAcquirePermission());
+                throw new IllegalArgumentException();
+            });
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+            // ignored
+        }
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testRecordFailure() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.builder()
+            .minimumCalls(1).recordFailure(t -> !(t instanceof IllegalArgumentException)).build();
+        for (int i = 0; i < 10; i++) {
+            try {
+                breaker.call(() -> {
+                    throw new IllegalArgumentException();
+                });
+                Assert.fail();
+            } catch (IllegalArgumentException ignored) {
+                // ignored
+            }
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        try {
+            breaker.decorateCallable(() -> fail()).call();
+            Assert.fail();
+        } catch (IllegalStateException ignored) {
+            // ignored
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        breaker.reset();
+        Assert.assertEquals("ok", breaker.decorateSupplier(() -> "ok").get());
+    }
+
+    @Test
+    public void testTimeWindow() throws InterruptedException {
+        CircuitBreaker breaker = CircuitBreaker.builder()
+            .timeWindow(5, 20, TimeUnit.MILLISECONDS).minimumCalls(5).failureRatioThreshold(0.8D).build();
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(new IllegalStateException());
+        }
+        // failures slide out of the window
+        Thread.sleep(150);
+        breaker.onFailure(new IllegalStateException());
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(new IllegalStateException());
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testMinimumCallsExceedsCountWindow() {
+        // count window size rounded up to 64
+        CircuitBreaker breaker = CircuitBreaker.builder().countWindow(10).minimumCalls(64).build();
+        for (int i = 0; i < 64; i++) {
+            breaker.onFailure(new IllegalStateException());
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        try {
+            CircuitBreaker.builder().countWindow(10).minimumCalls(65).build();
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+            // ignored
+        }
+
+        // time window has no count limit
+        CircuitBreaker.builder().timeWindow(5, 20, TimeUnit.MILLISECONDS).minimumCalls(1000).build();
+
+        try {
+            CircuitBreaker.builder().timeWindow(0, 20, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+            // ignored
+        }
+    }
+
+}
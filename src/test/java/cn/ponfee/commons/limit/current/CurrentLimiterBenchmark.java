@@ -0,0 +1,85 @@
+package cn.ponfee.commons.limit.current;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GuavaCurrentLimiter vs TokenBucketCurrentLimiter, checkpoint on random keys
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=cn.ponfee.commons.limit.current.CurrentLimiterBenchmark -Dexec.classpathScope=test
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CurrentLimiterBenchmark {
+
+    private static final long THRESHOLD = 1000;
+
+    /**
+     * Count of distinct keys, 1 is the hot key contention case
+     */
+    @Param({"1", "10000"})
+    private int keys;
+
+    private String[] keyArray;
+    private CurrentLimiter guava;
+    private CurrentLimiter tokenBucket;
+    private CurrentLimiter tokenBucketNoCount;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keyArray = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            keyArray[i] = "tenant-" + i;
+        }
+        guava = new GuavaCurrentLimiter();
+        tokenBucket = TokenBucketCurrentLimiter.builder().maximumKeys(keys * 2L).build();
+        tokenBucketNoCount = TokenBucketCurrentLimiter.builder().maximumKeys(keys * 2L).countSeconds(0).build();
+    }
+
+    private String key() {
+        return keyArray[ThreadLocalRandom.current().nextInt(keyArray.length)];
+    }
+
+    @Benchmark
+    public boolean guava() {
+        return guava.checkpoint(key(), THRESHOLD);
+    }
+
+    @Benchmark
+    public boolean tokenBucket() {
+        return tokenBucket.checkpoint(key(), THRESHOLD);
+    }
+
+    @Benchmark
+    public boolean tokenBucketNoCount() {
+        return tokenBucketNoCount.checkpoint(key(), THRESHOLD);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CurrentLimiterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,101 @@
+package cn.ponfee.commons.limit.current;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+public class TokenBucketCurrentLimiterTest {
+
+    private static int acquire(TokenBucketCurrentLimiter limiter, String key, int times, long threshold) {
+        int acquired = 0;
+        for (int i = 0; i < times; i++) {
+            if (limiter.checkpoint(key, threshold)) {
+                acquired++;
+            }
+        }
+        return acquired;
+    }
+
+    @Test
+    public void testBurst() throws InterruptedException {
+        TokenBucketCurrentLimiter limiter = TokenBucketCurrentLimiter.builder().build();
+        Assert.assertTrue(limiter.checkpoint("a", -1));
+        Assert.assertFalse(limiter.checkpoint("a", 0));
+
+        int acquired = acquire(limiter, "a", 1000, 100);
+        Assert.assertTrue(String.valueOf(acquired), acquired >= 100 && acquired <= 102);
+        Thread.sleep(200);
+        acquired = acquire(limiter, "a", 1000, 100);
+        Assert.assertTrue(String.valueOf(acquired), acquired >= 15 && acquired <= 40);
+    }
+
+    @Test
+    public void testPermits() {
+        TokenBucketCurrentLimiter limiter = TokenBucketCurrentLimiter.builder().build();
+        // greater than threshold only acquired when the bucket is full
+        Assert.assertTrue(limiter.tryAcquire("a", 500, 100));
+        Assert.assertFalse(limiter.tryAcquire("a", 1, 100));
+
+        Assert.assertTrue(limiter.tryAcquire("b", 60, 100));
+        Assert.assertFalse(limiter.tryAcquire("b", 60, 100));
+        Assert.assertTrue(limiter.tryAcquire("b", 30, 100));
+    }
+
+    @Test
+    public void testWarmup() {
+        TokenBucketCurrentLimiter limiter = TokenBucketCurrentLimiter.builder().warmup(1, TimeUnit.MINUTES).build();
+        int acquired = acquire(limiter, "a", 1000, 300);
+        Assert.assertTrue(String.valueOf(acquired), acquired >= 100 && acquired <= 103);
+    }
+
+    @Test
+    public void testThreshold() {
+        TokenBucketCurrentLimiter limiter = TokenBucketCurrentLimiter.builder().build();
+        Assert.assertTrue(limiter.checkpoint("a"));
+        Assert.assertEquals(-1, limiter.getRequestThreshold("a"));
+        limiter.setRequestThreshold("a", 10);
+        Assert.assertEquals(10, limiter.getRequestThreshold("a"));
+        int acquired = 0;
+        for (int i = 0; i < 100; i++) {
+            if (limiter.checkpoint("a")) {
+                acquired++;
+            }
+        }
+        Assert.assertTrue(String.valueOf(acquired), acquired >= 10 && acquired <= 11);
+
+        // increase threshold keeps the consumed state: 1s debt of rate 10 is 0.5s debt of rate 20
+        Assert.assertTrue(acquire(limiter, "a", 100, 20) <= 12);
+        limiter.setRequestThreshold("a", -1);
+        Assert.assertTrue(limiter.checkpoint("a"));
+    }
+
+    @Test
+    public void testCountByRange() {
+        TokenBucketCurrentLimiter limiter = TokenBucketCurrentLimiter.builder().build();
+        Date from = new Date(System.currentTimeMillis() - 1000);
+        int acquired = acquire(limiter, "a", 500, 200);
+        Date to = new Date(System.currentTimeMillis() + 1000);
+        Assert.assertEquals(acquired, limiter.countByRange("a", from, to));
+        Assert.assertEquals(0, limiter.countByRange("a", new Date(0), new Date(1000)));
+        Assert.assertEquals(0, limiter.countByRange("b", from, to));
+    }
+
+    @Test
+    public void testBounded() throws InterruptedException {
+        TokenBucketCurrentLimiter limiter = TokenBucketCurrentLimiter.builder()
+            .maximumKeys(100).idleTimeout(100, TimeUnit.MILLISECONDS).build();
+        for (int i = 0; i < 10000; i++) {
+            limiter.checkpoint("key-" + i, 10);
+        }
+        Assert.assertTrue(String.valueOf(limiter.size()), limiter.size() <= 200);
+
+        Date from = new Date(System.currentTimeMillis() - 1000);
+        acquire(limiter, "idle", 5, 10);
+        Assert.assertEquals(5, limiter.countByRange("idle", from, new Date(System.currentTimeMillis() + 1000)));
+        Thread.sleep(200);
+        Assert.assertEquals(0, limiter.countByRange("idle", from, new Date(System.currentTimeMillis() + 1000)));
+    }
+
+}
@@ -0,0 +1,213 @@
+package cn.ponfee.commons.limit.request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RequestLimiterTest {
+
+    private static final String NS = "test:";
+
+    private static int acquire(RequestLimitStore store, RateLimitAlgorithm algorithm, int times, long window, int limit) {
+        int acquired = 0;
+        for (int i = 0; i < times; i++) {
+            if (store.tryAcquire(algorithm, NS, "k", window, limit)) {
+                acquired++;
+            }
+        }
+        return acquired;
+    }
+
+    @Test
+    public void testWindowEdge() {
+        // requests at the end of a window and the start of the next window
+        AtomicLong clock = new AtomicLong(1_000_000);
+        try (ConcurrentMapRequestLimitStore store = new ConcurrentMapRequestLimitStore(clock::get)) {
+            for (RateLimitAlgorithm algorithm : RateLimitAlgorithm.values()) {
+                store.delete(NS, "k");
+                clock.set(1_000_000 + 900);
+                int acquired = acquire(store, algorithm, 10, 1000, 10);
+                clock.set(1_000_000 + 1100);
+                acquired += acquire(store, algorithm, 10, 1000, 10);
+                if (algorithm == RateLimitAlgorithm.FIXED_WINDOW) {
+                    Assert.assertEquals(10, acquired);
+                } else {
+                    Assert.assertTrue(algorithm + ": " + acquired, acquired <= 12);
+                }
+            }
+
+            // fixed window starts at first request, edge burst of other aligned window
+            store.delete(NS, "k");
+            clock.set(2_000_000);
+            Assert.assertEquals(10, acquire(store, RateLimitAlgorithm.FIXED_WINDOW, 20, 1000, 10));
+            clock.set(2_000_000 + 999);
+            Assert.assertEquals(0, acquire(store, RateLimitAlgorithm.FIXED_WINDOW, 20, 1000, 10));
+            clock.set(2_000_000 + 1000);
+            Assert.assertEquals(10, acquire(store, RateLimitAlgorithm.FIXED_WINDOW, 20, 1000, 10));
+        }
+    }
+
+    @Test
+    public void testSlidingWindowLog() {
+        AtomicLong clock = new AtomicLong(1_000_000);
+        try (ConcurrentMapRequestLimitStore store = new ConcurrentMapRequestLimitStore(clock::get)) {
+            Assert.assertEquals(5, acquire(store, RateLimitAlgorithm.SLIDING_WINDOW_LOG, 10, 1000, 5));
+            clock.addAndGet(999);
+            Assert.assertEquals(0, acquire(store, RateLimitAlgorithm.SLIDING_WINDOW_LOG, 10, 1000, 5));
+            clock.addAndGet(1);
+            Assert.assertEquals(5, acquire(store, RateLimitAlgorithm.SLIDING_WINDOW_LOG, 10, 1000, 5));
+        }
+    }
+
+    @Test
+    public void testSlidingWindowLogRace() throws InterruptedException {
+        // every round all threads race for the same key once at the same millis, only one of them can be admitted
+        AtomicLong clock = new AtomicLong(1_000_000);
+        int threads = 4, rounds = 2000;
+        AtomicInteger[] acquired = new AtomicInteger[rounds];
+        for (int i = 0; i < rounds; i++) {
+            acquired[i] = new AtomicInteger();
+        }
+        try (ConcurrentMapRequestLimitStore store = new ConcurrentMapRequestLimitStore(clock::get)) {
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            CountDownLatch latch = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                new Thread(() -> {
+                    try {
+                        for (int j = 0; j < rounds; j++) {
+                            barrier.await();
+                            if (store.tryAcquire(RateLimitAlgorithm.SLIDING_WINDOW_LOG, NS, "race-" + j, 60_000, 1)) {
+                                acquired[j].incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        latch.countDown();
+                    }
+                }).start();
+            }
+            latch.await();
+        }
+        for (int i = 0; i < rounds; i++) {
+            Assert.assertEquals("round " + i, 1, acquired[i].get());
+        }
+    }
+
+    @Test
+    public void testSlidingWindowCounter() {
+        AtomicLong clock = new AtomicLong(1_000_000);
+        try (ConcurrentMapRequestLimitStore store = new ConcurrentMapRequestLimitStore(clock::get)) {
+            Assert.assertEquals(10, acquire(store, RateLimitAlgorithm.SLIDING_WINDOW_COUNTER, 20, 1000, 10));
+            // half of the previous window remains: 10 * 0.5 + current < 10
+            clock.addAndGet(1500);
+            Assert.assertEquals(5, acquire(store, RateLimitAlgorithm.SLIDING_WINDOW_COUNTER, 20, 1000, 10));
+            clock.addAndGet(2000);
+            Assert.assertEquals(10, acquire(store, RateLimitAlgorithm.SLIDING_WINDOW_COUNTER, 20, 1000, 10));
+        }
+    }
+
+    @Test
+    public void testTokenBucket() {
+        AtomicLong clock = new AtomicLong(1_000_000);
+        try (ConcurrentMapRequestLimitStore store = new ConcurrentMapRequestLimitStore(clock::get)) {
+            Assert.assertEquals(10, acquire(store, RateLimitAlgorithm.TOKEN_BUCKET, 20, 1000, 10));
+            clock.addAndGet(99);
+            Assert.assertEquals(0, acquire(store, RateLimitAlgorithm.TOKEN_BUCKET, 20, 1000, 10));
+            clock.addAndGet(1);
+            Assert.assertEquals(1, acquire(store, RateLimitAlgorithm.TOKEN_BUCKET, 20, 1000, 10));
+            clock.addAndGet(450);
+            Assert.assertEquals(4, acquire(store, RateLimitAlgorithm.TOKEN_BUCKET, 20, 1000, 10));
+            // remainder 50ms is kept for next refill
+            clock.addAndGet(50);
+            Assert.assertEquals(1, acquire(store, RateLimitAlgorithm.TOKEN_BUCKET, 20, 1000, 10));
+            clock.addAndGet(5000);
+            Assert.assertEquals(10, acquire(store, RateLimitAlgorithm.TOKEN_BUCKET, 20, 1000, 10));
+        }
+    }
+
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        try (ConcurrentMapRequestLimitStore store = new ConcurrentMapRequestLimitStore()) {
+            for (RateLimitAlgorithm algorithm : RateLimitAlgorithm.values()) {
+                String key = "concurrent-" + algorithm;
+                AtomicInteger acquired = new AtomicInteger();
+                int threads = 8;
+                CountDownLatch latch = new CountDownLatch(threads);
+                for (int i = 0; i < threads; i++) {
+                    new Thread(() -> {
+                        for (int j = 0; j < 1000; j++) {
+                            if (store.tryAcquire(algorithm, NS, key, 60_000, 100)) {
+                                acquired.incrementAndGet();
+                            }
+                        }
+                        latch.countDown();
+                    }).start();
+                }
+                latch.await();
+                Assert.assertTrue(algorithm + ": " + acquired.get(), acquired.get() <= 100 && acquired.get() >= 50);
+                if (algorithm != RateLimitAlgorithm.SLIDING_WINDOW_COUNTER) {
+                    Assert.assertEquals(algorithm.name(), 100, acquired.get());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testExpire() throws InterruptedException {
+        try (ConcurrentMapRequestLimitStore store = new ConcurrentMapRequestLimitStore()) {
+            for (int i = 0; i < 100; i++) {
+                store.tryAcquire(RateLimitAlgorithm.TOKEN_BUCKET, NS, "expire-" + i, 200, 10);
+                store.incrementAndGet("count:", "expire-" + i, 200);
+            }
+            store.set("value:", "long", "value", 60_000);
+            Assert.assertEquals(201, store.size());
+            Thread.sleep(800);
+            Assert.assertEquals(1, store.size());
+            Assert.assertEquals("value", store.get("value:", "long"));
+        }
+    }
+
+    @Test
+    public void testRequestLimiter() throws RequestLimitException {
+        try (ConcurrentMapRequestLimiter limiter = new ConcurrentMapRequestLimiter()) {
+            limiter.limitFrequency("13800000000", 60);
+            try {
+                limiter.limitFrequency("13800000000", 60);
+                Assert.fail();
+            } catch (RequestLimitException e) {
+                Assert.assertEquals("请求频繁，请1分钟后再试！", e.getMessage());
+            }
+
+            limiter.cacheCode("13800000000", "123456", 60);
+            try {
+                limiter.checkCode("13800000000", "000000", 2);
+                Assert.fail();
+            } catch (RequestLimitException e) {
+                Assert.assertEquals("验证码错误！", e.getMessage());
+            }
+            limiter.checkCode("13800000000", "123456", 2);
+            try {
+                limiter.checkCode("13800000000", "123456", 2);
+                Assert.fail();
+            } catch (RequestLimitException e) {
+                Assert.assertEquals("验证码失效，请重新获取！", e.getMessage());
+            }
+
+            limiter.cacheCaptcha("session", "AbCd", 60);
+            Assert.assertTrue(limiter.checkCaptcha("session", "abcd"));
+            Assert.assertFalse(limiter.checkCaptcha("session", "abcd"));
+
+            limiter.recordAction("login", 60);
+            limiter.recordAction("login", 60);
+            Assert.assertEquals(2, limiter.countAction("login"));
+            limiter.resetAction("login");
+            Assert.assertEquals(0, limiter.countAction("login"));
+        }
+    }
+
+}
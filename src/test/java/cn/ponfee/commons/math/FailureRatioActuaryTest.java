@@ -0,0 +1,110 @@
+package cn.ponfee.commons.math;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class FailureRatioActuaryTest {
+
+    @Test
+    public void testRatio() {
+        FailureRatioActuary actuary = new FailureRatioActuary(100);
+        Assert.assertEquals(128, actuary.size());
+        // padding bits are not failures
+        Assert.assertEquals(0.0D, actuary.ratio(), 0);
+
+        for (int i = 0; i < 128; i++) {
+            actuary.set(i % 4 != 0);
+        }
+        Assert.assertEquals(32, actuary.failures());
+        Assert.assertEquals(0.25D, actuary.ratio(), 0);
+
+        // overwrite the oldest
+        for (int i = 0; i < 64; i++) {
+            actuary.set(true);
+        }
+        Assert.assertEquals(16, actuary.failures());
+
+        actuary.reset();
+        Assert.assertEquals(0, actuary.failures());
+        Assert.assertEquals(0, actuary.count());
+    }
+
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        FailureRatioActuary actuary = new FailureRatioActuary(256);
+        int threads = 8;
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    actuary.set(j % 2 == 0);
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+
+        int zeros = 0;
+        String bits = actuary.toString();
+        for (char c : bits.substring(bits.indexOf(' ') + 1).toCharArray()) {
+            if (c == '0') {
+                zeros++;
+            }
+        }
+        Assert.assertEquals(zeros, actuary.failures());
+    }
+
+    @Test
+    public void testTimeWindow() {
+        AtomicLong clock = new AtomicLong(1_000_000);
+        TimeWindowFailureActuary actuary = new TimeWindowFailureActuary(10, 100, clock::get);
+        Assert.assertEquals(0, actuary.total());
+        Assert.assertEquals(0.0D, actuary.ratio(), 0);
+
+        actuary.record(false);
+        actuary.record(true);
+        clock.addAndGet(500);
+        actuary.record(true);
+        actuary.record(true);
+        Assert.assertEquals(4, actuary.total());
+        Assert.assertEquals(0.25D, actuary.ratio(), 0);
+
+        // first bucket slides out of the window
+        clock.addAndGet(500);
+        Assert.assertEquals(2, actuary.total());
+        Assert.assertEquals(0, actuary.failures());
+
+        clock.addAndGet(10_000);
+        Assert.assertEquals(0, actuary.total());
+        actuary.record(false);
+        Assert.assertEquals(1.0D, actuary.ratio(), 0);
+    }
+
+    @Test
+    public void testTimeWindowDescheduledWriter() {
+        AtomicLong clock = new AtomicLong(1_000_000);
+        AtomicBoolean preempt = new AtomicBoolean(false);
+        AtomicReference<TimeWindowFailureActuary> holder = new AtomicReference<>();
+        // simulates the writer descheduled after read clock, meanwhile a writer of one window later used the same slot
+        TimeWindowFailureActuary actuary = new TimeWindowFailureActuary(10, 100, () -> {
+            long now = clock.get();
+            if (preempt.compareAndSet(true, false)) {
+                clock.addAndGet(1000);
+                holder.get().record(false);
+            }
+            return now;
+        });
+        holder.set(actuary);
+        preempt.set(true);
+        actuary.record(true);
+        // the newer count is not erased
+        Assert.assertEquals(2, actuary.total());
+        Assert.assertEquals(1, actuary.failures());
+    }
+
+}
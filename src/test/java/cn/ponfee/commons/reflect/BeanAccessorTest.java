@@ -0,0 +1,138 @@
+package cn.ponfee.commons.reflect;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class BeanAccessorTest {
+
+    public static class UserBean {
+        private long id;
+        private String userName;
+        private Integer age;
+        private boolean active;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public void setUserName(String userName) {
+            this.userName = userName;
+        }
+
+        public Integer getAge() {
+            return age;
+        }
+
+        public void setAge(Integer age) {
+            this.age = age;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+    }
+
+    private static class HiddenBean {
+        private String userName;
+        private int age;
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public void setUserName(String userName) {
+            this.userName = userName;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+    }
+
+    @Test
+    public void testToMap() {
+        UserBean bean = new UserBean();
+        bean.setId(1L);
+        bean.setUserName("ponfee");
+        bean.setActive(true);
+        Map<String, Object> map = BeanMaps.PROPS.toMap(bean);
+        Assert.assertEquals(4, map.size());
+        Assert.assertEquals(1L, map.get("id"));
+        Assert.assertEquals("ponfee", map.get("userName"));
+        Assert.assertNull(map.get("age"));
+        Assert.assertEquals(true, map.get("active"));
+        Assert.assertEquals(BeanMaps.FIELDS.toMap(bean), map);
+        Assert.assertNull(BeanMaps.PROPS.toMap(null));
+    }
+
+    @Test
+    public void testCopyFromMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", "12");
+        map.put("user_name", "ponfee");
+        map.put("age", 18L);
+        map.put("active", "");
+        UserBean bean = BeanMaps.PROPS.toBean(map, UserBean.class);
+        Assert.assertEquals(12L, bean.getId());
+        Assert.assertEquals("ponfee", bean.getUserName());
+        Assert.assertEquals(Integer.valueOf(18), bean.getAge());
+        Assert.assertFalse(bean.isActive());
+
+        bean = BeanMaps.PROPS.toBean(ImmutableMap.of("user-name", "abc", "id", 3), UserBean.class);
+        Assert.assertEquals("abc", bean.getUserName());
+        Assert.assertEquals(3L, bean.getId());
+    }
+
+    @Test
+    public void testNonPublic() {
+        HiddenBean bean = BeanMaps.PROPS.toBean(ImmutableMap.of("userName", "x", "age", "5"), HiddenBean.class);
+        Assert.assertEquals("x", bean.getUserName());
+        Assert.assertEquals(5, bean.getAge());
+        Assert.assertEquals(ImmutableMap.of("userName", "x", "age", 5), BeanMaps.PROPS.toMap(bean));
+    }
+
+    @Test
+    public void testCopy() {
+        UserBean source = new UserBean();
+        source.setUserName("ponfee");
+        source.setAge(20);
+        HiddenBean target = new HiddenBean();
+        BeanAccessor.copyProperties(source, target);
+        Assert.assertEquals("ponfee", target.getUserName());
+        Assert.assertEquals(20, target.getAge());
+
+        // null is not copied to primitive
+        source.setAge(null);
+        BeanAccessor.copyProperties(source, target);
+        Assert.assertEquals(20, target.getAge());
+
+        UserBean copied = new UserBean();
+        BeanCopiers.copy(source, copied);
+        Assert.assertEquals(BeanMaps.PROPS.toMap(source), BeanMaps.PROPS.toMap(copied));
+
+        BeanAccessor.Property property = BeanAccessor.of(UserBean.class).getProperties().get("id");
+        property.set(copied, "99");
+        Assert.assertEquals(99L, property.get(copied));
+    }
+
+}
@@ -0,0 +1,121 @@
+package cn.ponfee.commons.reflect;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.BeanUtils;
+
+import java.beans.BeanInfo;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean to map, map to bean and bean to bean copy of all modes,
+ * the "reflect" benchmarks are the introspect and Method.invoke per call baseline.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=cn.ponfee.commons.reflect.BeanMapsBenchmark -Dexec.classpathScope=test
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeanMapsBenchmark {
+
+    private final BeanAccessorTest.UserBean bean = new BeanAccessorTest.UserBean();
+    private final Map<String, Object> map = new HashMap<>();
+
+    public BeanMapsBenchmark() {
+        bean.setId(1L);
+        bean.setUserName("ponfee");
+        bean.setAge(18);
+        bean.setActive(true);
+        map.putAll(BeanMaps.PROPS.toMap(bean));
+    }
+
+    // ----------------------------------------------------------------------bean to map
+
+    @Benchmark
+    public Map<String, Object> toMapReflect() throws Exception {
+        BeanInfo beanInfo = Introspector.getBeanInfo(bean.getClass());
+        Map<String, Object> result = new HashMap<>();
+        for (PropertyDescriptor prop : beanInfo.getPropertyDescriptors()) {
+            if (!"class".equals(prop.getName())) {
+                result.put(prop.getName(), prop.getReadMethod().invoke(bean));
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Map<String, Object> toMapCglib() {
+        return new HashMap<>(BeanMaps.CGLIB.toMap(bean));
+    }
+
+    @Benchmark
+    public Map<String, Object> toMapFields() {
+        return BeanMaps.FIELDS.toMap(bean);
+    }
+
+    @Benchmark
+    public Map<String, Object> toMapProps() {
+        return BeanMaps.PROPS.toMap(bean);
+    }
+
+    // ----------------------------------------------------------------------map to bean
+
+    @Benchmark
+    public Object toBeanCglib() {
+        return BeanMaps.CGLIB.toBean(map, BeanAccessorTest.UserBean.class);
+    }
+
+    @Benchmark
+    public Object toBeanFields() {
+        return BeanMaps.FIELDS.toBean(map, BeanAccessorTest.UserBean.class);
+    }
+
+    @Benchmark
+    public Object toBeanProps() {
+        return BeanMaps.PROPS.toBean(map, BeanAccessorTest.UserBean.class);
+    }
+
+    // ----------------------------------------------------------------------bean to bean
+
+    @Benchmark
+    public Object copyCglib() {
+        return BeanCopiers.copy(bean, BeanAccessorTest.UserBean::new);
+    }
+
+    @Benchmark
+    public Object copySpring() {
+        BeanAccessorTest.UserBean target = new BeanAccessorTest.UserBean();
+        BeanUtils.copyProperties(bean, target);
+        return target;
+    }
+
+    @Benchmark
+    public Object copyAccessor() {
+        BeanAccessorTest.UserBean target = new BeanAccessorTest.UserBean();
+        BeanAccessor.copyProperties(bean, target);
+        return target;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BeanMapsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
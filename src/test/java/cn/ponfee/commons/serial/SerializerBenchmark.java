@@ -0,0 +1,107 @@
+package cn.ponfee.commons.serial;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import test.TestBean;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares all serializers on throughput and allocation rate(gc profiler: gc.alloc.rate.norm),
+ * byte array api versus stream/ByteBuffer api.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=cn.ponfee.commons.serial.SerializerBenchmark -Dexec.classpathScope=test
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializerBenchmark {
+
+    @Param({"kryo", "fst", "hessian", "protostuff", "jdk", "json"})
+    private String name;
+
+    @Param({"false", "true"})
+    private boolean compress;
+
+    private Serializer serializer;
+    private TestBean bean;
+    private byte[] bytes;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        switch (name) {
+            case "kryo"      : serializer = KryoSerializer.INSTANCE;     break;
+            case "fst"       : serializer = new FstSerializer();         break;
+            case "hessian"   : serializer = new HessianSerializer();     break;
+            case "protostuff": serializer = new ProtostuffSerializer();  break;
+            case "jdk"       : serializer = new JdkSerializer();         break;
+            case "json"      : serializer = new JsonSerializer();        break;
+            default          : throw new IllegalArgumentException("Unknown serializer: " + name);
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("benchmark-").append(i).append(',');
+        }
+        bean = new TestBean(1312321111, 222243222L, text.toString());
+        bytes = serializer.serialize(bean, compress);
+        buffer = ByteBuffer.allocateDirect(64 * 1024);
+    }
+
+    @Benchmark
+    public byte[] serializeBytes() {
+        return serializer.serialize(bean, compress);
+    }
+
+    @Benchmark
+    public void serializeStream() {
+        serializer.serialize(bean, NullOutputStream.NULL_OUTPUT_STREAM, compress);
+    }
+
+    @Benchmark
+    public int serializeByteBuffer() {
+        buffer.clear();
+        return serializer.serialize(bean, buffer, compress);
+    }
+
+    @Benchmark
+    public TestBean deserializeBytes() {
+        return serializer.deserialize(bytes, TestBean.class, compress);
+    }
+
+    @Benchmark
+    public TestBean deserializeByteBuffer() {
+        buffer.clear();
+        buffer.put(bytes).flip();
+        return serializer.deserialize(buffer, TestBean.class, compress);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+            new OptionsBuilder()
+                .include(SerializerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,147 @@
+package cn.ponfee.commons.serial;
+
+import cn.ponfee.commons.io.CompressionCodec;
+import cn.ponfee.commons.io.CompressionCodecs;
+import org.junit.Assert;
+import org.junit.Test;
+import test.TestBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Serializer stream and ByteBuffer overloads test
+ */
+public class SerializerStreamTest {
+
+    private static final List<Serializer> SERIALIZERS = Arrays.asList(
+        KryoSerializer.INSTANCE, new FstSerializer(), new HessianSerializer(),
+        new ProtostuffSerializer(), new JdkSerializer(), new JsonSerializer()
+    );
+
+    private static TestBean bean() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("serializer-").append(i).append(',');
+        }
+        return new TestBean(1312321111, 222243222L, text.toString());
+    }
+
+    private static void assertBean(Serializer serializer, TestBean expect, TestBean actual) {
+        String name = serializer.getClass().getSimpleName();
+        Assert.assertNotNull(name, actual);
+        Assert.assertEquals(name, expect.getI(), actual.getI());
+        Assert.assertEquals(name, expect.getL(), actual.getL());
+        Assert.assertEquals(name, expect.getS(), actual.getS());
+    }
+
+    @Test
+    public void testStream() {
+        TestBean bean = bean();
+        for (Serializer serializer : SERIALIZERS) {
+            for (boolean compress : new boolean[]{false, true}) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                serializer.serialize(bean, output, compress);
+
+                // the stream data is compatible with byte array api
+                byte[] bytes = output.toByteArray();
+                assertBean(serializer, bean, serializer.deserialize(bytes, TestBean.class, compress));
+                assertBean(serializer, bean, serializer.deserialize(new ByteArrayInputStream(bytes), TestBean.class, compress));
+                assertBean(serializer, bean, serializer.deserialize(
+                    new ByteArrayInputStream(serializer.serialize(bean, compress)), TestBean.class, compress
+                ));
+                if (!compress) {
+                    Assert.assertArrayEquals(serializer.getClass().getSimpleName(), serializer.serialize(bean), bytes);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCodec() {
+        TestBean bean = bean();
+        List<CompressionCodec> codecs = Arrays.asList(
+            CompressionCodecs.GZIP, CompressionCodecs.deflate(1), CompressionCodecs.LZ4,
+            CompressionCodecs.SNAPPY, CompressionCodecs.ZSTD
+        );
+        for (Serializer serializer : SERIALIZERS) {
+            for (CompressionCodec codec : codecs) {
+                // compress=true decode any codec by the codec header
+                byte[] bytes = serializer.serialize(bean, codec);
+                Assert.assertEquals(codec.id(), bytes[0]);
+                assertBean(serializer, bean, serializer.deserialize(bytes, TestBean.class, true));
+                assertBean(serializer, bean, serializer.deserialize(new ByteArrayInputStream(bytes), TestBean.class, true));
+
+                ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 16);
+                Assert.assertEquals(bytes.length, serializer.serialize(bean, buffer, codec));
+                buffer.flip();
+                assertBean(serializer, bean, serializer.deserialize(buffer, TestBean.class, true));
+            }
+        }
+    }
+
+    @Test
+    public void testNotCloseStream() {
+        TestBean bean = bean();
+        for (Serializer serializer : SERIALIZERS) {
+            for (boolean compress : new boolean[]{false, true}) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream() {
+                    @Override
+                    public void close() {
+                        throw new AssertionError(serializer.getClass().getSimpleName() + " closed the output stream.");
+                    }
+                };
+                serializer.serialize(bean, output, compress);
+                ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray()) {
+                    @Override
+                    public void close() {
+                        throw new AssertionError(serializer.getClass().getSimpleName() + " closed the input stream.");
+                    }
+                };
+                assertBean(serializer, bean, serializer.deserialize(input, TestBean.class, compress));
+            }
+        }
+    }
+
+    @Test
+    public void testByteBuffer() {
+        TestBean bean = bean();
+        for (Serializer serializer : SERIALIZERS) {
+            for (boolean compress : new boolean[]{false, true}) {
+                for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(8192), ByteBuffer.allocateDirect(8192)}) {
+                    buffer.position(7);
+                    int length = serializer.serialize(bean, buffer, compress);
+                    Assert.assertEquals(7 + length, buffer.position());
+
+                    buffer.flip().position(7);
+                    assertBean(serializer, bean, serializer.deserialize(buffer, TestBean.class, compress));
+                    Assert.assertFalse(buffer.hasRemaining());
+                }
+
+                // whole backing array
+                ByteBuffer wrap = ByteBuffer.wrap(serializer.serialize(bean, compress));
+                assertBean(serializer, bean, serializer.deserialize(wrap, TestBean.class, compress));
+                Assert.assertFalse(wrap.hasRemaining());
+            }
+        }
+    }
+
+    @Test
+    public void testPooledBufferReuse() {
+        // pooled kryo output must be reset between invocations
+        for (int i = 0; i < 100; i++) {
+            TestBean bean = new TestBean(i, (long) i, "text-" + i);
+            byte[] bytes = KryoSerializer.INSTANCE.serialize(bean);
+            assertBean(KryoSerializer.INSTANCE, bean, KryoSerializer.INSTANCE.deserialize(bytes, TestBean.class));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullObject() {
+        KryoSerializer.INSTANCE.serialize(null, new ByteArrayOutputStream());
+    }
+
+}
@@ -0,0 +1,105 @@
+package cn.ponfee.commons.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AtomicSnowflakeTest {
+
+    @Test
+    public void testConcurrentUnique() throws InterruptedException {
+        AtomicSnowflake snowflake = new AtomicSnowflake(3, 5);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8, count = 50000;
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                long last = -1;
+                for (int j = 0; j < count; j++) {
+                    long id = snowflake.nextId();
+                    Assert.assertTrue(id > last);
+                    last = id;
+                    ids.add(id);
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        Assert.assertEquals(threads * count, ids.size());
+    }
+
+    @Test
+    public void testBorrowFuture() {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        // 2 bits sequence: 4 ids per millis
+        AtomicSnowflake snowflake = new AtomicSnowflake(1, 0, 2, 5, 0, 2, 0, clock::get);
+        long[] ids = snowflake.nextIds(12);
+        Assert.assertEquals(12, snowflake.maxBatchSize());
+        for (int i = 1; i < ids.length; i++) {
+            Assert.assertTrue(ids[i] > ids[i - 1]);
+        }
+        Assert.assertEquals(2, (ids[11] >>> 7) - (ids[0] >>> 7));
+        Assert.assertEquals(3, ids[11] & 3);
+
+        clock.addAndGet(3);
+        long next = snowflake.nextId();
+        Assert.assertTrue(next > ids[11]);
+        Assert.assertEquals(0, next & 3);
+    }
+
+    @Test
+    public void testClockBackwards() {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        AtomicSnowflake snowflake = new AtomicSnowflake(1, 0, 12, 5, 0, 5, 10, clock::get);
+        long id1 = snowflake.nextId();
+        clock.addAndGet(-8);
+        long id2 = snowflake.nextId();
+        Assert.assertTrue(id2 > id1);
+
+        clock.addAndGet(-100);
+        try {
+            snowflake.nextId();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Clock moved backwards"));
+        }
+    }
+
+    @Test
+    public void testPreemptedNoSpuriousBackwards() {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        AtomicBoolean preempt = new AtomicBoolean(false);
+        AtomicReference<AtomicSnowflake> holder = new AtomicReference<>();
+        // simulates the thread preempted after read clock, meanwhile other threads advanced the state
+        AtomicSnowflake snowflake = new AtomicSnowflake(1, 0, 12, 5, 0, 5, 10, () -> {
+            long now = clock.get();
+            if (preempt.compareAndSet(true, false)) {
+                clock.addAndGet(100);
+                holder.get().nextId();
+            }
+            return now;
+        });
+        holder.set(snowflake);
+        long id1 = snowflake.nextId();
+        preempt.set(true);
+        long id2 = snowflake.nextId();
+        Assert.assertTrue(id2 > id1);
+    }
+
+    @Test
+    public void testLayout() {
+        long now = System.currentTimeMillis();
+        AtomicSnowflake snowflake = new AtomicSnowflake(7, 9, 12, 5, 5, 0, 0, () -> now);
+        long id = snowflake.nextId();
+        Assert.assertEquals(0, id & 0xFFF);
+        Assert.assertEquals(7, (id >>> 12) & 0x1F);
+        Assert.assertEquals(9, (id >>> 17) & 0x1F);
+        Assert.assertEquals(now - 1514736000000L, id >>> 22);
+    }
+}
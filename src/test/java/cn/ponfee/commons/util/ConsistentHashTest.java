@@ -0,0 +1,108 @@
+package cn.ponfee.commons.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+public class ConsistentHashTest {
+
+    private static final List<String> NODES = Arrays.asList("192.168.1.1", "192.168.1.2", "192.168.1.3", "192.168.1.4");
+
+    @Test
+    public void testXXHash32() {
+        Assert.assertEquals(0x02CC5D05, XXHash32.digest(new byte[0]));
+        Assert.assertEquals(0x32D153FF, XXHash32.digest("abc".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(0xE2293B2F, XXHash32.digest("Nobody inspects the spammish repetition".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testSameAsTreeMapRing() {
+        ConsistentHash.HashFunction hashFunction = ConsistentHash.HashFunction.MD5;
+        ConsistentHash<String> consistentHash = new ConsistentHash<>(NODES, 100);
+
+        TreeMap<Integer, String> ring = new TreeMap<>();
+        for (String node : NODES) {
+            for (int i = 0; i < 100; i++) {
+                ring.put(hashFunction.hash("SHARD-" + node + "-NODE-" + i), node);
+            }
+        }
+        for (int i = 0; i < 10000; i++) {
+            String key = "key-" + i;
+            Map.Entry<Integer, String> entry = ring.ceilingEntry(hashFunction.hash(key));
+            String expect = entry == null ? ring.firstEntry().getValue() : entry.getValue();
+            Assert.assertEquals(expect, consistentHash.routeNode(key));
+            Assert.assertEquals(expect, consistentHash.routeNode(key.getBytes(StandardCharsets.UTF_8)));
+        }
+        Assert.assertEquals(100, consistentHash.getExistingReplicas("192.168.1.1"));
+        Assert.assertEquals(NODES, consistentHash.nodes());
+    }
+
+    @Test
+    public void testHashFunctions() {
+        for (ConsistentHash.HashFunction f : Arrays.asList(
+            ConsistentHash.HashFunction.MD5, ConsistentHash.HashFunction.CRC16,
+            ConsistentHash.HashFunction.MURMUR3, ConsistentHash.HashFunction.XXHASH)) {
+            String key = "测试key-" + f.hashCode();
+            Assert.assertEquals(f.hash(key), f.hash(key.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Test
+    public void testRemoveNode() {
+        ConsistentHash<String> consistentHash = new ConsistentHash<>(NODES, 50, Function.identity(), ConsistentHash.HashFunction.MURMUR3);
+        assertMinimalRemap(consistentHash);
+        Assert.assertNull(new ConsistentHash<String>(null, 10).routeNode("a"));
+    }
+
+    @Test
+    public void testJumpConsistentHash() {
+        JumpConsistentHash<String> jump = new JumpConsistentHash<>(NODES);
+        String[] before = route(jump);
+        // remove the last node: only its keys are remapped
+        jump.removeNode("192.168.1.4");
+        String[] after = route(jump);
+        for (int i = 0; i < before.length; i++) {
+            if (!"192.168.1.4".equals(before[i])) {
+                Assert.assertEquals(before[i], after[i]);
+            }
+        }
+        jump.addNode("192.168.1.4");
+        Assert.assertArrayEquals(before, route(jump));
+    }
+
+    @Test
+    public void testRendezvousHash() {
+        assertMinimalRemap(new RendezvousHash<>(NODES));
+    }
+
+    private static void assertMinimalRemap(HashRouter<String> router) {
+        String[] before = route(router);
+        for (String node : NODES) {
+            Assert.assertTrue(Arrays.asList(before).contains(node));
+        }
+        router.removeNode("192.168.1.2");
+        Assert.assertEquals(3, router.nodes().size());
+        String[] after = route(router);
+        for (int i = 0; i < before.length; i++) {
+            if (!"192.168.1.2".equals(before[i])) {
+                Assert.assertEquals(before[i], after[i]);
+            } else {
+                Assert.assertNotEquals(before[i], after[i]);
+            }
+        }
+    }
+
+    private static String[] route(HashRouter<String> router) {
+        String[] result = new String[10000];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = router.routeNode("key-" + i);
+        }
+        return result;
+    }
+}
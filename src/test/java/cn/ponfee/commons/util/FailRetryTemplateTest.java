@@ -0,0 +1,133 @@
+package cn.ponfee.commons.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FailRetryTemplateTest {
+
+    private static FailRetryTemplate.Builder builder() {
+        return FailRetryTemplate.builder().backoff(10, 100, TimeUnit.MILLISECONDS, 2.0D);
+    }
+
+    private static Throwable cause(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get();
+            throw new AssertionError("Expect failure");
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    @Test
+    public void testRetrySuccess() throws Exception {
+        FailRetryTemplate template = builder().build();
+        AtomicInteger count = new AtomicInteger();
+        CompletableFuture<String> future = template.executeAsync(() -> {
+            if (count.incrementAndGet() < 3) {
+                throw new IllegalStateException("fail-" + count.get());
+            }
+            return "ok";
+        });
+        Assert.assertEquals("ok", future.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(3, count.get());
+        Assert.assertEquals(3, template.metrics().getAttempts());
+        Assert.assertEquals(2, template.metrics().getRetries());
+        Assert.assertEquals(1, template.metrics().getSuccesses());
+    }
+
+    @Test
+    public void testGiveUp() throws Exception {
+        FailRetryTemplate template = builder().maxRetries(2)
+            .retryOn(t -> !(t instanceof IllegalArgumentException)).build();
+        AtomicInteger count = new AtomicInteger();
+        Throwable t = cause(template.executeAsync(() -> {
+            count.incrementAndGet();
+            throw new IllegalStateException("fail");
+        }));
+        Assert.assertTrue(t instanceof IllegalStateException);
+        Assert.assertEquals(3, count.get());
+        Assert.assertEquals(1, template.metrics().getExhausted());
+
+        t = cause(template.executeStage(() -> {
+            CompletableFuture<String> f = new CompletableFuture<>();
+            f.completeExceptionally(new IllegalArgumentException("bad"));
+            return f;
+        }));
+        Assert.assertTrue(t instanceof IllegalArgumentException);
+        Assert.assertEquals(1, template.metrics().getNotRetryable());
+        Assert.assertEquals(2, template.metrics().getGiveUps());
+    }
+
+    @Test
+    public void testRetryStageInExecutor() throws Exception {
+        FailRetryTemplate template = builder().build();
+        AtomicInteger count = new AtomicInteger();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> future = template.executeStage(() -> {
+            threads.add(Thread.currentThread().getName());
+            switch (count.incrementAndGet()) {
+                case 1:
+                    CompletableFuture<String> f = new CompletableFuture<>();
+                    f.completeExceptionally(new IllegalStateException("fail"));
+                    return f;
+                case 2:
+                    // null stage is a failure, will not hang the result
+                    return null;
+                default:
+                    return CompletableFuture.completedFuture("ok");
+            }
+        });
+        Assert.assertEquals("ok", future.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(3, count.get());
+        // the retries are not run in the shared scheduler thread
+        for (String thread : threads.subList(1, threads.size())) {
+            Assert.assertFalse(thread, thread.startsWith("fail_retry_scheduler"));
+        }
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        FailRetryTemplate template = FailRetryTemplate.builder().maxRetries(100)
+            .backoff(50, 50, TimeUnit.MILLISECONDS, 1.0D).jitter(0).deadline(120, TimeUnit.MILLISECONDS).build();
+        AtomicInteger count = new AtomicInteger();
+        cause(template.executeAsync(() -> {
+            count.incrementAndGet();
+            throw new IllegalStateException("fail");
+        }));
+        Assert.assertTrue(String.valueOf(count.get()), count.get() >= 2 && count.get() <= 3);
+        Assert.assertEquals(1, template.metrics().getDeadlineExceeded());
+    }
+
+    @Test
+    public void testRetryBudget() throws Exception {
+        FailRetryTemplate template = builder().maxRetries(3).retryBudget(0.1D, 5).build();
+        for (int i = 0; i < 10; i++) {
+            cause(template.executeAsync(() -> {
+                throw new IllegalStateException("fail");
+            }));
+        }
+        // initial full 5 tokens, then 0.1 deposit per call is not enough for another retry
+        Assert.assertEquals(5, template.metrics().getRetries());
+        Assert.assertTrue(template.metrics().getBudgetExhausted() >= 8);
+    }
+
+    @Test
+    public void testBackoff() {
+        FailRetryTemplate template = FailRetryTemplate.builder()
+            .backoff(100, 1000, TimeUnit.NANOSECONDS, 2.0D).jitter(0.5D).build();
+        for (int i = 0; i < 100; i++) {
+            long b1 = template.backoff(1), b3 = template.backoff(3), b10 = template.backoff(10);
+            Assert.assertTrue(b1 >= 50 && b1 <= 100);
+            Assert.assertTrue(b3 >= 200 && b3 <= 400);
+            Assert.assertTrue(b10 >= 500 && b10 <= 1000);
+        }
+    }
+
+}
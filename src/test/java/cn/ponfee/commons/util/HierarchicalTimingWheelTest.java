@@ -0,0 +1,110 @@
+package cn.ponfee.commons.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class HierarchicalTimingWheelTest {
+
+    @Test
+    public void testExpire() throws InterruptedException {
+        int n = 200;
+        CountDownLatch latch = new CountDownLatch(n);
+        Queue<Long> drifts = new ConcurrentLinkedQueue<>();
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(5, 8, (Long expected) -> {
+            drifts.add(System.currentTimeMillis() - expected);
+            latch.countDown();
+        }, null).start();
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            // 5ms * 8 = 40ms per level, delays up to 2s use several overflow wheels
+            long delay = i * 10L;
+            Assert.assertNotNull(wheel.add(now + delay, delay));
+        }
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, wheel.size());
+        for (Long drift : drifts) {
+            // fire never earlier than the bucket start
+            Assert.assertTrue("drift: " + drift, drift >= -5);
+        }
+        Assert.assertTrue(wheel.stop().isEmpty());
+    }
+
+    @Test
+    public void testCancelAndStop() throws InterruptedException {
+        Queue<Integer> fired = new ConcurrentLinkedQueue<>();
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(fired::add).start();
+
+        HierarchicalTimingWheel.WheelTask<Integer> task1 = wheel.add(1, 100);
+        wheel.add(2, 100);
+        HierarchicalTimingWheel.WheelTask<Integer> task3 = wheel.add(3, 60000);
+        wheel.add(4, 3600000);
+        Assert.assertEquals(4, wheel.size());
+
+        Assert.assertTrue(task1.cancel());
+        Assert.assertFalse(task1.cancel());
+        Assert.assertEquals(3, wheel.size());
+
+        Thread.sleep(500);
+        Assert.assertArrayEquals(new Integer[]{2}, fired.toArray(new Integer[0]));
+
+        List<HierarchicalTimingWheel.WheelTask<Integer>> pending = wheel.stop();
+        Assert.assertEquals(2, pending.size());
+        Assert.assertTrue(pending.contains(task3));
+        Assert.assertNull(wheel.add(5, 1));
+    }
+
+    @Test
+    public void testCancelWhileMoving() throws InterruptedException {
+        Queue<Integer> fired = new ConcurrentLinkedQueue<>();
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(1, 4, fired::add, null).start();
+        List<HierarchicalTimingWheel.WheelTask<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // small wheel: the tasks are moved from overflow buckets to lower buckets frequently
+            tasks.add(wheel.add(i, 20 + i % 200));
+        }
+        int cancelled = 0;
+        for (HierarchicalTimingWheel.WheelTask<Integer> task : tasks) {
+            if (task.cancel()) {
+                cancelled++;
+            }
+            Thread.yield();
+        }
+        Thread.sleep(400);
+        // cancel returns true if and only if the task not processed
+        Assert.assertEquals(2000, cancelled + fired.size());
+        Assert.assertEquals(0, wheel.size());
+        wheel.stop();
+    }
+
+    @Test
+    public void testAddRaceStop() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            Queue<Integer> fired = new ConcurrentLinkedQueue<>();
+            HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(fired::add).start();
+            Queue<HierarchicalTimingWheel.WheelTask<Integer>> added = new ConcurrentLinkedQueue<>();
+            CountDownLatch latch = new CountDownLatch(4);
+            for (int t = 0; t < 4; t++) {
+                new Thread(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        HierarchicalTimingWheel.WheelTask<Integer> task = wheel.add(i, 60000);
+                        if (task != null) {
+                            added.add(task);
+                        }
+                    }
+                    latch.countDown();
+                }).start();
+            }
+            List<HierarchicalTimingWheel.WheelTask<Integer>> pending = wheel.stop();
+            latch.await();
+            Assert.assertEquals(added.size(), pending.size());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package cn.ponfee.commons.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testIndex() {
+        for (long v : new long[]{0, 1, 31, 32, 33, 63, 64, 1000, 123456789L, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.index(v);
+            long highest = LatencyHistogram.highestEquivalentValue(index);
+            Assert.assertTrue(v <= highest);
+            // relative error less than 1/32
+            Assert.assertTrue(highest - v <= v / 32);
+            Assert.assertEquals(index, LatencyHistogram.index(highest));
+        }
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(10000, snapshot.getCount());
+        Assert.assertEquals(10000, snapshot.getMax());
+        Assert.assertEquals(5000.5D, snapshot.getMean(), 0.001D);
+        Assert.assertEquals(5000, snapshot.getP50(), 5000 / 32);
+        Assert.assertEquals(9900, snapshot.getP99(), 9900 / 32);
+        Assert.assertEquals(10000, snapshot.percentile(100));
+
+        for (int i = 0; i < 100; i++) {
+            histogram.record(1_000_000);
+        }
+        LatencyHistogram.Snapshot interval = histogram.snapshot().minus(snapshot);
+        Assert.assertEquals(100, interval.getCount());
+        Assert.assertEquals(1_000_000, interval.getP50());
+        Assert.assertEquals(1_000_000, interval.getMax());
+    }
+}
@@ -0,0 +1,165 @@
+package cn.ponfee.commons.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MemoizedLoaderTest {
+
+    @Test
+    public void testSingleFlight() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        MemoizedLoader<String, String> loader = MemoizedLoader.<String, String>builder(k -> {
+            loads.incrementAndGet();
+            sleep(100);
+            return k.toUpperCase();
+        }).build();
+
+        int threads = 16;
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                Assert.assertEquals("ABC", loader.get("abc"));
+                latch.countDown();
+            }).start();
+        }
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals("ABC", loader.getIfPresent("abc"));
+    }
+
+    @Test
+    public void testNegativeCacheAndError() {
+        AtomicInteger loads = new AtomicInteger();
+        MemoizedLoader<String, String> loader = MemoizedLoader.<String, String>builder(k -> {
+            loads.incrementAndGet();
+            if ("error".equals(k)) {
+                throw new IllegalArgumentException(k);
+            }
+            return null;
+        }).cacheNull(true).build();
+
+        Assert.assertNull(loader.get("a"));
+        Assert.assertNull(loader.get("a"));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, loader.size());
+
+        try {
+            loader.get("error");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("error", e.getMessage());
+        }
+        loader.invalidate("a");
+        Assert.assertNull(loader.get("a"));
+        Assert.assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testAsyncAndBounded() throws Exception {
+        AtomicInteger running = new AtomicInteger(), maxRunning = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        MemoizedLoader<Integer, Integer> loader = MemoizedLoader.<Integer, Integer>builder(k -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(20);
+            running.decrementAndGet();
+            return k * 2;
+        }).executor(executor).maxConcurrentLoads(2).build();
+
+        CompletableFuture<?>[] futures = new CompletableFuture[20];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = loader.getAsync(i % 10);
+        }
+        CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < futures.length; i++) {
+            Assert.assertEquals((i % 10) * 2, futures[i].get());
+        }
+        Assert.assertTrue(maxRunning.get() <= 2);
+        Assert.assertEquals(10, loader.size());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAsyncCancelNotShared() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        MemoizedLoader<Integer, Integer> loader = MemoizedLoader.<Integer, Integer>builder(k -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return k * 2;
+        }).executor(executor).build();
+
+        CompletableFuture<Integer> first = loader.getAsync(1), second = loader.getAsync(1);
+        Assert.assertNotSame(first, second);
+        // cancel by a caller will not affect the others
+        Assert.assertTrue(first.cancel(true));
+        release.countDown();
+        Assert.assertEquals(2, (int) second.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, (int) loader.getAsync(1).get());
+        Assert.assertEquals(1, loader.size());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAsyncRejected() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        MemoizedLoader<Integer, Integer> loader = MemoizedLoader.<Integer, Integer>builder(k -> k * 2).executor(executor).build();
+        try {
+            loader.getAsync(1);
+            Assert.fail();
+        } catch (RejectedExecutionException ignored) {
+            // ignored
+        }
+        // the rejected in-flight was removed, later loads will not hang on it
+        Assert.assertEquals(2, (int) loader.get(1));
+    }
+
+    @Test
+    public void testSynchronizedCachesPerKey() throws InterruptedException {
+        Map<String, String> cache = new ConcurrentHashMap<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        Thread slow = new Thread(() -> SynchronizedCaches.get("slow", cache, () -> {
+            loads.incrementAndGet();
+            slowStarted.countDown();
+            sleep(500);
+            return "slow";
+        }));
+        slow.start();
+        slowStarted.await();
+
+        // other key is not blocked by the slow loader
+        long start = System.currentTimeMillis();
+        Assert.assertEquals("fast", SynchronizedCaches.get("fast", cache, () -> "fast"));
+        Assert.assertTrue(System.currentTimeMillis() - start < 300);
+
+        // same key waits for the in-flight loading
+        Assert.assertEquals("slow", SynchronizedCaches.get("slow", cache, () -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        Assert.assertEquals(1, loads.get());
+        slow.join();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
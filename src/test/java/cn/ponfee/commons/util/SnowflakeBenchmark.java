@@ -0,0 +1,56 @@
+package cn.ponfee.commons.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snowflake vs AtomicSnowflake
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=cn.ponfee.commons.util.SnowflakeBenchmark -Dexec.classpathScope=test
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class SnowflakeBenchmark {
+
+    private final Snowflake snowflake = new Snowflake(1, 1);
+    private final AtomicSnowflake atomicSnowflake = new AtomicSnowflake(1, 1);
+
+    @Benchmark
+    public long synchronizedNextId() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    public long atomicNextId() {
+        return atomicSnowflake.nextId();
+    }
+
+    @Benchmark
+    public long[] atomicNextIds() {
+        return atomicSnowflake.nextIds(64);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SnowflakeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+package cn.ponfee.commons.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Miss storm: many threads and every invocation loads a new key with a slow mapper.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=cn.ponfee.commons.util.SynchronizedCachesBenchmark -Dexec.classpathScope=test
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class SynchronizedCachesBenchmark {
+
+    private static final int KEY_SPACE = 1 << 20;
+
+    private final AtomicLong counter = new AtomicLong();
+    private final Map<Long, Long> hashMap = new HashMap<>();
+    private final Map<Long, Long> concurrentMap = new ConcurrentHashMap<>();
+    private final MemoizedLoader<Long, Long> memoizedLoader = MemoizedLoader.<Long, Long>builder(SynchronizedCachesBenchmark::slowLoad).build();
+
+    @Benchmark
+    public Long wholeMapMonitor() {
+        // HashMap will falls back to synchronized on the whole map
+        return SynchronizedCaches.get(nextKey(), hashMap, SynchronizedCachesBenchmark::slowLoad);
+    }
+
+    @Benchmark
+    public Long perKeySingleFlight() {
+        return SynchronizedCaches.get(nextKey(), concurrentMap, SynchronizedCachesBenchmark::slowLoad);
+    }
+
+    @Benchmark
+    public Long memoizedLoader() {
+        return memoizedLoader.get(nextKey());
+    }
+
+    private Long nextKey() {
+        // mostly miss, and some keys are hit by several threads at the same time
+        return counter.incrementAndGet() % KEY_SPACE;
+    }
+
+    private static Long slowLoad(Long key) {
+        Blackhole.consumeCPU(2000);
+        return key;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SynchronizedCachesBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -4,7 +4,13 @@ import cn.ponfee.commons.concurrent.AsyncBatchProcessor;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -107,4 +113,149 @@ public class AsnycBatchProcessorTest {
         Assert.assertEquals(increment.get(), summer.get());
         System.out.println("end");
     }
+
+    @Test
+    public void testRingBufferPartitionOrder() throws InterruptedException {
+        int keys = 16, producers = 8, perProducer = 20000;
+        Map<Integer, List<Integer>> received = new ConcurrentHashMap<>();
+        AsyncBatchProcessor<int[]> processor = AsyncBatchProcessor.<int[]>builder()
+            .processor((list, isEnd) -> {
+                for (int[] e : list) {
+                    received.computeIfAbsent(e[0], k -> new CopyOnWriteArrayList<>()).add(e[1]);
+                }
+            })
+            .batchSize(64)
+            .lingerMillis(5)
+            .capacity(256)
+            .partitions(4)
+            .partitionKey(e -> e[0])
+            .waitStrategy(AsyncBatchProcessor.WaitStrategy.PARKING)
+            .build();
+
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    // key owned by one producer, so the sequence must be ordered
+                    Assert.assertTrue(processor.put(new int[]{producer * keys / producers + i % (keys / producers), i}));
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        processor.stopAndAwait();
+
+        int total = 0;
+        for (List<Integer> list : received.values()) {
+            for (int i = 1; i < list.size(); i++) {
+                Assert.assertTrue(list.get(i - 1) < list.get(i));
+            }
+            total += list.size();
+        }
+        Assert.assertEquals(producers * perProducer, total);
+        Assert.assertEquals(total, processor.metrics().getProcessedCount());
+        Assert.assertEquals(0, processor.metrics().getQueueDepth());
+        System.out.println(processor.metrics());
+    }
+
+    @Test
+    public void testRingBufferLingerAndDrop() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger summer = new AtomicInteger();
+        AsyncBatchProcessor<Integer> processor = AsyncBatchProcessor.<Integer>builder()
+            .processor((list, isEnd) -> {
+                summer.addAndGet(list.size());
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            })
+            .batchSize(1000)
+            .lingerMillis(20)
+            .capacity(8)
+            .rejectPolicy(AsyncBatchProcessor.RejectPolicy.DROP)
+            .build();
+
+        // flushed by linger time although the batch is not full
+        Assert.assertTrue(processor.put(1));
+        Assert.assertTrue(blocked.await(1, TimeUnit.SECONDS));
+
+        // consumer is blocking, ring buffer is full after 8 elements
+        for (int i = 0; i < 8; i++) {
+            Assert.assertTrue(processor.put(i));
+        }
+        Assert.assertFalse(processor.put(9));
+        Assert.assertFalse(processor.put(new Integer[]{10, 11}));
+        Assert.assertEquals(3, processor.metrics().getDroppedCount());
+        Assert.assertEquals(9, processor.metrics().getSubmittedCount());
+        Assert.assertEquals(8, processor.metrics().getQueueDepth());
+
+        // null element is rejected before any element published
+        try {
+            processor.put(new Integer[]{13, null});
+            Assert.fail();
+        } catch (NullPointerException ignored) {
+            // ignored
+        }
+        Assert.assertEquals(9, processor.metrics().getSubmittedCount());
+        Assert.assertEquals(3, processor.metrics().getDroppedCount());
+
+        release.countDown();
+        processor.stopAndAwait();
+        Assert.assertEquals(9, summer.get());
+        Assert.assertFalse(processor.put(12));
+    }
+
+    @Test
+    public void testRingBufferCallerRuns() throws InterruptedException {
+        AtomicInteger summer = new AtomicInteger();
+        AsyncBatchProcessor<Integer> processor = AsyncBatchProcessor.<Integer>builder()
+            .processor((list, isEnd) -> summer.addAndGet(list.size()))
+            .capacity(4)
+            .waitStrategy(AsyncBatchProcessor.WaitStrategy.YIELDING)
+            .rejectPolicy(AsyncBatchProcessor.RejectPolicy.CALLER_RUNS)
+            .build();
+        for (int i = 0; i < 100000; i++) {
+            Assert.assertTrue(processor.put(i));
+        }
+        processor.stopAndAwait();
+        Assert.assertEquals(100000, summer.get());
+    }
+
+    @Test
+    public void testRingBufferShutdownWhilePutting() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            AtomicInteger summer = new AtomicInteger();
+            AsyncBatchProcessor<Integer> processor = AsyncBatchProcessor.<Integer>builder()
+                .processor((list, isEnd) -> summer.addAndGet(list.size()))
+                .batchSize(16)
+                .capacity(16)
+                .partitions(2)
+                .build();
+            AtomicInteger accepted = new AtomicInteger();
+            Thread[] threads = new Thread[4];
+            for (int p = 0; p < threads.length; p++) {
+                threads[p] = new Thread(() -> {
+                    for (int i = 0; processor.put(i); i++) {
+                        accepted.incrementAndGet();
+                    }
+                });
+                threads[p].start();
+            }
+            Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+            processor.stopAndAwait();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            // every accepted element must be processed
+            Assert.assertEquals(accepted.get(), summer.get());
+            Assert.assertEquals(accepted.get(), processor.metrics().getSubmittedCount());
+        }
+    }
 }
@@ -0,0 +1,125 @@
+package test.concurrent;
+
+import cn.ponfee.commons.concurrent.InstrumentedThreadPoolExecutor;
+import cn.ponfee.commons.concurrent.ResizableBlockingQueue;
+import cn.ponfee.commons.concurrent.ThreadPoolExecutors;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class InstrumentedThreadPoolExecutorTest {
+
+    @Test
+    public void testHistogramAndRejection() throws InterruptedException {
+        InstrumentedThreadPoolExecutor executor = ThreadPoolExecutors.builder()
+            .corePoolSize(1)
+            .maximumPoolSize(1)
+            .workQueue(new ResizableBlockingQueue<>(2))
+            .keepAliveTimeSeconds(60)
+            .rejectedHandler(ThreadPoolExecutors.ABORT)
+            .buildInstrumented();
+
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+        executor.execute(() -> {});
+        executor.submit(() -> {});
+        try {
+            executor.execute(() -> {});
+            Assert.fail();
+        } catch (RejectedExecutionException ignored) {
+            // queue is full
+        }
+        Assert.assertEquals(1L, (long) executor.rejectedCounts().get("ABORT"));
+        Assert.assertSame(ThreadPoolExecutors.ABORT, executor.getRejectedExecutionHandler());
+
+        // enlarge the queue at runtime
+        executor.setQueueCapacity(3);
+        executor.execute(() -> {});
+        Thread.sleep(20);
+        release.countDown();
+
+        ThreadPoolExecutors.shutdown(executor);
+        Assert.assertEquals(4, executor.runTimeSnapshot().getCount());
+        Assert.assertEquals(4, executor.queueWaitSnapshot().getCount());
+        // the queued tasks wait at least 20ms
+        Assert.assertTrue(executor.queueWaitSnapshot().getMax() >= TimeUnit.MILLISECONDS.toNanos(20));
+        Assert.assertTrue(executor.runTimeSnapshot().getMax() >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void testResizeAndSampler() throws InterruptedException {
+        InstrumentedThreadPoolExecutor executor = ThreadPoolExecutors.builder()
+            .corePoolSize(1)
+            .maximumPoolSize(2)
+            .workQueue(new ResizableBlockingQueue<>(100))
+            .keepAliveTimeSeconds(60)
+            .buildInstrumented();
+
+        executor.resize(4, 8);
+        Assert.assertEquals(4, executor.getCorePoolSize());
+        Assert.assertEquals(8, executor.getMaximumPoolSize());
+        executor.resize(1, 1);
+        Assert.assertEquals(1, executor.getCorePoolSize());
+        Assert.assertEquals(1, executor.getMaximumPoolSize());
+
+        List<InstrumentedThreadPoolExecutor.Sample> samples = new CopyOnWriteArrayList<>();
+        executor.startSampler(50, samples::add);
+        for (int i = 0; i < 10; i++) {
+            executor.execute(() -> {});
+        }
+        Thread.sleep(200);
+        Assert.assertFalse(samples.isEmpty());
+        Assert.assertEquals(10, samples.stream().mapToLong(InstrumentedThreadPoolExecutor.Sample::getCompletedCount).sum());
+        System.out.println(samples.get(0));
+        ThreadPoolExecutors.shutdown(executor);
+    }
+
+    @Test
+    public void testTaskNotWrapped() throws InterruptedException {
+        List<Runnable> rejected = new CopyOnWriteArrayList<>();
+        InstrumentedThreadPoolExecutor executor = ThreadPoolExecutors.builder()
+            .corePoolSize(1)
+            .maximumPoolSize(1)
+            .workQueue(new ResizableBlockingQueue<>(2))
+            .keepAliveTimeSeconds(60)
+            .rejectedHandler((r, e) -> rejected.add(r))
+            .buildInstrumented();
+
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+        Future<?> future = executor.submit(() -> {});
+        Runnable task = () -> {};
+        executor.execute(task);
+
+        // the custom rejected handler see the original task
+        Runnable overflow = () -> {};
+        executor.execute(overflow);
+        Assert.assertEquals(1, rejected.size());
+        Assert.assertSame(overflow, rejected.get(0));
+
+        // remove and purge work with the submitted future
+        Assert.assertTrue(executor.remove(task));
+        Assert.assertTrue(future.cancel(false));
+        executor.purge();
+        Assert.assertTrue(executor.getQueue().isEmpty());
+
+        release.countDown();
+        ThreadPoolExecutors.shutdown(executor);
+        Assert.assertEquals(1, executor.runTimeSnapshot().getCount());
+        Assert.assertEquals(1, executor.queueWaitSnapshot().getCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
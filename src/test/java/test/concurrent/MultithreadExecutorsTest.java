@@ -0,0 +1,112 @@
+package test.concurrent;
+
+import cn.ponfee.commons.concurrent.MultithreadExecutors;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class MultithreadExecutorsTest {
+
+    @Test
+    public void testChunked() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Integer> list = IntStream.range(0, 100000).boxed().collect(Collectors.toList());
+
+        LongAdder sum = new LongAdder();
+        MultithreadExecutors.run(list, e -> sum.add(e), executor);
+        Assert.assertEquals(99999L * 100000 / 2, sum.sum());
+
+        List<Integer> result = MultithreadExecutors.call(list, e -> e * 2, executor);
+        for (int i = 0; i < list.size(); i++) {
+            Assert.assertEquals(i * 2, (int) result.get(i));
+        }
+
+        // cost estimate: bigger element cost more
+        List<Integer> weighted = MultithreadExecutors.callChunked(list, e -> e + 1, executor, 3, e -> e);
+        Assert.assertEquals(100000, (int) weighted.get(99999));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testFailFast() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Integer> list = IntStream.range(0, 100000).boxed().collect(Collectors.toList());
+        AtomicInteger executed = new AtomicInteger();
+        try {
+            MultithreadExecutors.runChunked(list, e -> {
+                if (executed.incrementAndGet() == 10) {
+                    throw new IllegalStateException("failure");
+                }
+            }, executor, 4, null);
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertEquals("failure", e.getCause().getMessage());
+        }
+        Assert.assertTrue(executed.get() < list.size());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testForkJoin() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<Integer> list = IntStream.range(0, 100000).boxed().collect(Collectors.toList());
+        List<Integer> result = MultithreadExecutors.callForkJoin(list, e -> e + 1, pool);
+        Assert.assertEquals(list.size(), result.size());
+        Assert.assertEquals(100000, (int) result.get(99999));
+
+        AtomicInteger executed = new AtomicInteger();
+        try {
+            MultithreadExecutors.runForkJoin(list, e -> {
+                if (executed.incrementAndGet() == 10) {
+                    throw new IllegalStateException("failure");
+                }
+            }, pool);
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertEquals("failure", e.getCause().getMessage());
+        }
+        Assert.assertTrue(executed.get() < list.size());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testStreaming() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicInteger pulled = new AtomicInteger();
+        Iterator<Integer> source = new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return pulled.get() < 100000;
+            }
+
+            @Override
+            public Integer next() {
+                return pulled.getAndIncrement();
+            }
+        };
+
+        Iterator<String> it = MultithreadExecutors.callStreaming(source, String::valueOf, executor, 100, 4).iterator();
+        Assert.assertEquals("0", it.next());
+        // lazy: only the window chunks consumed from source
+        Assert.assertTrue(pulled.get() <= 100 * 5);
+
+        List<String> rest = new ArrayList<>();
+        it.forEachRemaining(rest::add);
+        Assert.assertEquals(99999, rest.size());
+        for (int i = 0; i < rest.size(); i++) {
+            Assert.assertEquals(String.valueOf(i + 1), rest.get(i));
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,126 @@
+package test.concurrent;
+
+import cn.ponfee.commons.concurrent.DelayedData;
+import cn.ponfee.commons.concurrent.ShardedDelayedExecutor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ShardedDelayedExecutorTest {
+
+    @Test
+    public void testPutAllAndCancel() throws InterruptedException {
+        int count = 10000;
+        Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(count - 100);
+        ShardedDelayedExecutor<Integer> executor = ShardedDelayedExecutor.<Integer>builder()
+            .processor(e -> {
+                processed.add(e);
+                latch.countDown();
+            })
+            .shards(4)
+            .build();
+
+        List<DelayedData<Integer>> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(DelayedData.of(i, 100 + i % 200));
+        }
+        List<ShardedDelayedExecutor.Handle<Integer>> handles = executor.putAll(list);
+        Assert.assertEquals(count, handles.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(handles.get(i).cancel());
+            Assert.assertTrue(handles.get(i).isCancelled());
+        }
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        Assert.assertEquals(count - 100, processed.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertFalse(processed.contains(i));
+        }
+        Assert.assertEquals(0, executor.size());
+        Assert.assertEquals(count - 100, executor.metrics().getProcessedCount());
+        Assert.assertTrue(executor.metrics().getAverageDriftMillis() >= 0);
+        System.out.println(executor.metrics());
+        Assert.assertTrue(executor.stop().isEmpty());
+    }
+
+    @Test
+    public void testDrainOnStop() {
+        Set<String> processed = ConcurrentHashMap.newKeySet();
+        ShardedDelayedExecutor<String> executor = ShardedDelayedExecutor.<String>builder()
+            .processor(processed::add)
+            .shards(2)
+            .build();
+        executor.put("a", 60000);
+        executor.put(DelayedData.of("b", 60000));
+        ShardedDelayedExecutor.Handle<String> c = executor.put("c", 60000);
+        Assert.assertTrue(c.getDelay() > 50000);
+        Assert.assertTrue(c.cancel());
+        Assert.assertFalse(c.cancel());
+        Assert.assertEquals(2, executor.metrics().getQueueDepth());
+
+        Assert.assertEquals(2, executor.stopAndFlush());
+        Assert.assertEquals(2, processed.size());
+        Assert.assertTrue(processed.contains("a") && processed.contains("b"));
+        Assert.assertNull(executor.put("d", 1));
+    }
+
+    @Test
+    public void testPutAllNull() {
+        ShardedDelayedExecutor<String> executor = ShardedDelayedExecutor.<String>builder()
+            .processor(e -> { })
+            .build();
+        List<DelayedData<String>> list = new ArrayList<>();
+        list.add(DelayedData.of("a", 60000));
+        list.add(null);
+        for (List<DelayedData<String>> data : Arrays.asList(null, list)) {
+            try {
+                executor.putAll(data);
+                Assert.fail();
+            } catch (NullPointerException ignored) {
+                // ignored
+            }
+        }
+        // nothing added if any null
+        Assert.assertEquals(0, executor.size());
+        executor.stop();
+    }
+
+    @Test
+    public void testPutAllRaceStop() throws InterruptedException {
+        ShardedDelayedExecutor<Integer> executor = ShardedDelayedExecutor.<Integer>builder()
+            .processor(e -> { })
+            .shards(8)
+            .build();
+        List<DelayedData<Integer>> list = new ArrayList<>(1000);
+        for (int i = 0; i < 1000; i++) {
+            list.add(DelayedData.of(i, 60000));
+        }
+
+        CountDownLatch started = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            started.countDown();
+            for (int i = 0; i < 1000; i++) {
+                // every returned handle is bound to a wheel task
+                for (ShardedDelayedExecutor.Handle<Integer> handle : executor.putAll(list)) {
+                    Assert.assertFalse(handle.isCancelled());
+                }
+            }
+        });
+        List<Throwable> errors = new ArrayList<>();
+        producer.setUncaughtExceptionHandler((t, e) -> errors.add(e));
+        producer.start();
+        started.await();
+        executor.stop();
+        producer.join();
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+    }
+}
@@ -0,0 +1,179 @@
+package test.export;
+
+import cn.ponfee.commons.export.CellStyleOptions;
+import cn.ponfee.commons.export.ExcelExporter;
+import cn.ponfee.commons.export.ParallelExcelExporter;
+import cn.ponfee.commons.export.Table;
+import cn.ponfee.commons.export.Thead;
+import cn.ponfee.commons.export.Tmeta;
+import cn.ponfee.commons.tree.PlainNode;
+import com.google.common.collect.ImmutableMap;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+public class ParallelExcelExporterTest {
+
+    private static Table<Object[]> complexTable() {
+        Tmeta numeric = new Tmeta(Tmeta.Type.NUMERIC, "0.00", Tmeta.Align.RIGHT, false, null);
+        List<PlainNode<Integer, Thead>> list = new ArrayList<>();
+        list.add(new PlainNode<>(1, 0, new Thead("区域")));
+        list.add(new PlainNode<>(2, 0, new Thead("本月")));
+        list.add(new PlainNode<>(3, 2, new Thead("应收", numeric, null)));
+        list.add(new PlainNode<>(4, 2, new Thead("实收", numeric, null)));
+        Table<Object[]> table = new Table<>(list);
+        table.setCaption("报表<1>");
+        table.setTfoot(new Object[] {"3.00", "1,024"});
+        table.setComment("备注");
+        table.setOptions(ImmutableMap.of(CellStyleOptions.HIGHLIGHT,
+            ImmutableMap.of("cells", Arrays.asList(Arrays.asList(0, 1)), "color", "#ff0000")));
+        return table;
+    }
+
+    @Test
+    public void testMultiSheet() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        byte[] bytes;
+        try (ParallelExcelExporter exporter = ParallelExcelExporter.builder().executor(executor).build()) {
+            Table<Object[]> table = complexTable();
+            exporter.setName("complex");
+            exporter.build(table);
+            table.addRow(new Object[] {"华南", "1.5", "50%"});
+            table.addRowAndEnd(new Object[] {"华北&\u0001", "", 2});
+
+            // second table in the same sheet
+            Table<Object[]> empty = new Table<>(new String[] {"a", "b"});
+            exporter.build(empty.toEnd());
+
+            AtomicBoolean closed = new AtomicBoolean();
+            exporter.setName("stream");
+            exporter.build(new Table<>(new String[] {"id", "name"}),
+                           IntStream.range(0, 5000).mapToObj(i -> new Object[] {i, "name" + i}).onClose(() -> closed.set(true)));
+
+            Assert.assertFalse(exporter.isEmpty());
+            bytes = exporter.export();
+            Assert.assertTrue(closed.get());
+        } finally {
+            executor.shutdown();
+        }
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(bytes))) {
+            Assert.assertEquals(2, workbook.getNumberOfSheets());
+
+            XSSFSheet complex = workbook.getSheet("complex");
+            Assert.assertEquals("报表<1>", complex.getRow(0).getCell(0).getStringCellValue());
+            Assert.assertEquals("区域", complex.getRow(1).getCell(0).getStringCellValue());
+            Assert.assertEquals("本月", complex.getRow(1).getCell(1).getStringCellValue());
+            Assert.assertEquals("实收", complex.getRow(2).getCell(2).getStringCellValue());
+            Assert.assertTrue(complex.getMergedRegions().contains(CellRangeAddress.valueOf("A2:A3")));
+            Assert.assertTrue(complex.getMergedRegions().contains(CellRangeAddress.valueOf("B2:C2")));
+
+            XSSFCell cell = complex.getRow(3).getCell(1);
+            Assert.assertEquals(CellType.NUMERIC, cell.getCellType());
+            Assert.assertEquals(1.5D, cell.getNumericCellValue(), 0.0D);
+            Assert.assertEquals("0.00", cell.getCellStyle().getDataFormatString());
+            Assert.assertEquals("FFFF0000", cell.getCellStyle().getFont().getXSSFColor().getARGBHex());
+            Assert.assertEquals(0.5D, complex.getRow(3).getCell(2).getNumericCellValue(), 0.0D);
+            Assert.assertEquals("华北&", complex.getRow(4).getCell(0).getStringCellValue());
+            Assert.assertEquals(CellType.BLANK, complex.getRow(4).getCell(1).getCellType());
+            Assert.assertEquals("合计", complex.getRow(5).getCell(0).getStringCellValue());
+            Assert.assertEquals(1024D, complex.getRow(5).getCell(2).getNumericCellValue(), 0.0D);
+            Assert.assertEquals("备注", complex.getRow(6).getCell(0).getStringCellValue());
+
+            // margin rows and second table
+            Assert.assertTrue(complex.getMergedRegions().contains(CellRangeAddress.valueOf("A8:Z9")));
+            Assert.assertEquals("a", complex.getRow(9).getCell(0).getStringCellValue());
+            Assert.assertEquals(ExcelExporter.NO_RESULT_TIP, complex.getRow(10).getCell(0).getStringCellValue());
+            Assert.assertNull(complex.getPaneInformation());
+
+            XSSFSheet stream = workbook.getSheet("stream");
+            Assert.assertEquals(5000, stream.getLastRowNum());
+            Assert.assertEquals("name4999", stream.getRow(5000).getCell(1).getStringCellValue());
+            Assert.assertEquals(1, stream.getPaneInformation().getHorizontalSplitPosition());
+        }
+    }
+
+    @Test
+    public void testStored() throws IOException {
+        byte[] bytes;
+        try (ParallelExcelExporter exporter = ParallelExcelExporter.builder().stored(true).build()) {
+            exporter.setName("sheet1");
+            exporter.build(new Table<>(new String[] {"id"}), IntStream.range(0, 100).mapToObj(i -> new Object[] {i}));
+            bytes = exporter.export();
+        }
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+            for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+                Assert.assertEquals(ZipEntry.STORED, entry.getMethod());
+            }
+        }
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(bytes))) {
+            Assert.assertEquals("99", workbook.getSheet("sheet1").getRow(100).getCell(0).getStringCellValue());
+        }
+    }
+
+    @Test
+    public void testExceedsLimit() {
+        try (ParallelExcelExporter exporter = new ParallelExcelExporter()) {
+            exporter.setName("columns");
+            exporter.build(new Table<>(IntStream.range(0, 16385).mapToObj(String::valueOf).toArray(String[]::new)));
+            exporter.export();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("16384"));
+        }
+
+        try (ParallelExcelExporter exporter = new ParallelExcelExporter()) {
+            // the thead takes one row
+            exporter.setName("rows");
+            exporter.build(new Table<>(new String[] {"id"}), IntStream.range(0, 1048576).mapToObj(i -> new Object[] {i}));
+            exporter.export();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("1048576"));
+        }
+    }
+
+    @Test
+    public void testBuildAfterWrite() {
+        try (ParallelExcelExporter exporter = new ParallelExcelExporter()) {
+            exporter.setName("sheet1");
+            exporter.build(new Table<>(new String[] {"id"}), IntStream.range(0, 10).mapToObj(i -> new Object[] {i}));
+            byte[] bytes = exporter.export();
+            try {
+                exporter.build(new Table<>(new String[] {"id"}), IntStream.range(0, 10).mapToObj(i -> new Object[] {i}));
+                Assert.fail();
+            } catch (IllegalStateException ignored) {
+                // the sheet already written
+            }
+            Assert.assertArrayEquals(bytes, exporter.export());
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testUnsupportedCellProcess() {
+        try (ParallelExcelExporter exporter = new ParallelExcelExporter()) {
+            Table<Object[]> table = new Table<>(new String[] {"id"});
+            table.setOptions(ImmutableMap.of(CellStyleOptions.CELL_PROCESS, (java.util.function.Consumer<Object[]>) x -> {}));
+            exporter.setName("sheet1");
+            exporter.build(table);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package test.export;
+
+import cn.ponfee.commons.export.AbstractDataExporter;
+import cn.ponfee.commons.export.AbstractSplitExporter;
+import cn.ponfee.commons.export.AbstractSplitExporter.Compression;
+import cn.ponfee.commons.export.CsvFileExporter;
+import cn.ponfee.commons.export.SplitCsvFileExporter;
+import cn.ponfee.commons.export.SplitExcelExporter;
+import cn.ponfee.commons.export.Table;
+import org.apache.commons.io.IOUtils;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+public class SplitExporterTest {
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void destroy() {
+        EXECUTOR.shutdown();
+    }
+
+    @Test
+    public void testSplitCsvByRows() throws IOException {
+        String prefix = folder.getRoot().getAbsolutePath() + "/csv_";
+        SplitCsvFileExporter exporter = new SplitCsvFileExporter(100, prefix, false, EXECUTOR);
+        exporter.queueCapacity(16);
+
+        Table<Object[]> table = new Table<>(new String[] {"id", "name"});
+        new Thread(() -> {
+            for (int i = 0; i < 250; i++) {
+                table.addRow(new Object[] {i, "name" + i});
+            }
+            table.toEnd();
+        }).start();
+        exporter.build(table);
+
+        AbstractSplitExporter.Statistics statistics = exporter.getStatistics();
+        Assert.assertEquals(3, statistics.getFiles());
+        Assert.assertEquals(250, statistics.getRows());
+        Assert.assertFalse(exporter.isEmpty());
+
+        List<String> lines = IOUtils.readLines(new FileInputStream(prefix + "0003.csv"), StandardCharsets.UTF_8);
+        Assert.assertEquals(51, lines.size());
+        Assert.assertEquals("id,name", lines.get(0));
+        Assert.assertEquals("249,name249", lines.get(50));
+        Assert.assertEquals(statistics.getBytes(), IntStream.rangeClosed(1, 3)
+            .mapToLong(i -> new File(prefix + String.format("%04d", i) + ".csv").length()).sum());
+    }
+
+    @Test
+    public void testSplitCsvByBytesWithGzip() throws IOException {
+        String prefix = folder.getRoot().getAbsolutePath() + "/gzip_";
+        SplitCsvFileExporter exporter = new SplitCsvFileExporter(Integer.MAX_VALUE, prefix, false, EXECUTOR);
+        exporter.maxBytes(64 * 1024).compression(Compression.GZIP);
+
+        Table<Object[]> table = new Table<>(new String[] {"id", "value"});
+        exporter.build(table, IntStream.range(0, 200000).mapToObj(i -> new Object[] {i, Math.random()}).iterator());
+
+        AbstractSplitExporter.Statistics statistics = exporter.getStatistics();
+        Assert.assertTrue(statistics.toString(), statistics.getFiles() > 1);
+        Assert.assertEquals(200000, statistics.getRows());
+
+        long rows = 0;
+        for (int i = 1; i <= statistics.getFiles(); i++) {
+            try (InputStream input = new GZIPInputStream(new FileInputStream(prefix + String.format("%04d", i) + ".csv.gz"))) {
+                rows += IOUtils.readLines(input, StandardCharsets.UTF_8).size() - 1;
+            }
+        }
+        Assert.assertEquals(200000, rows);
+    }
+
+    @Test
+    public void testSplitExcelWithZip() throws IOException {
+        String prefix = folder.getRoot().getAbsolutePath() + "/excel_";
+        SplitExcelExporter exporter = new SplitExcelExporter(1000, prefix, EXECUTOR);
+        exporter.compression(Compression.ZIP);
+        exporter.setName("data");
+
+        Table<Object[]> table = new Table<>(new String[] {"id"});
+        exporter.build(table, IntStream.range(0, 1500).mapToObj(i -> new Object[] {i}).iterator());
+        Assert.assertEquals(2, exporter.getStatistics().getFiles());
+
+        try (ZipInputStream zip = new ZipInputStream(new FileInputStream(prefix + "0002.xlsx.zip"))) {
+            ZipEntry entry = zip.getNextEntry();
+            Assert.assertEquals("excel_0002.xlsx", entry.getName());
+            try (XSSFWorkbook workbook = new XSSFWorkbook(zip)) {
+                Assert.assertEquals(500, workbook.getSheet("data").getLastRowNum());
+            }
+        }
+    }
+
+    @Test
+    public void testInlineExecutor() {
+        String prefix = folder.getRoot().getAbsolutePath() + "/inline_";
+        SplitCsvFileExporter exporter = new SplitCsvFileExporter(100, prefix, false, Runnable::run);
+        try {
+            exporter.build(new Table<>(new String[] {"id"}), IntStream.range(0, 10).mapToObj(i -> new Object[] {i}).iterator());
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("caller thread"));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedSplitExporter() throws IOException {
+        String prefix = folder.getRoot().getAbsolutePath() + "/legacy_";
+        AbstractSplitExporter exporter = new AbstractSplitExporter(100, prefix, ".csv", EXECUTOR) {
+            @Override
+            protected AbstractAsyncSplitExporter splitExporter(Table<Object[]> subTable, String savingFilePath) {
+                return new AbstractAsyncSplitExporter(subTable, savingFilePath) {
+                    @Override
+                    protected AbstractDataExporter<?> createExporter() throws IOException {
+                        return new CsvFileExporter(savingFilePath, false);
+                    }
+                };
+            }
+        };
+        exporter.build(new Table<>(new String[] {"id"}), IntStream.range(0, 150).mapToObj(i -> new Object[] {i}).iterator());
+        Assert.assertEquals(2, exporter.getStatistics().getFiles());
+        Assert.assertEquals(150, exporter.getStatistics().getRows());
+        List<String> lines = IOUtils.readLines(new FileInputStream(prefix + "0002.csv"), StandardCharsets.UTF_8);
+        Assert.assertEquals(51, lines.size());
+    }
+
+    @Test
+    public void testEmpty() {
+        String prefix = folder.getRoot().getAbsolutePath() + "/empty_";
+        SplitCsvFileExporter exporter = new SplitCsvFileExporter(10, prefix, false, EXECUTOR);
+        exporter.build(new Table<>(new String[] {"id"}).toEnd());
+        Assert.assertTrue(exporter.isEmpty());
+        Assert.assertEquals(0, exporter.getStatistics().getFiles());
+    }
+
+}
@@ -0,0 +1,171 @@
+package test.extract;
+
+import cn.ponfee.commons.export.ExcelExporter;
+import cn.ponfee.commons.export.Table;
+import cn.ponfee.commons.extract.BatchPipeline;
+import cn.ponfee.commons.extract.DataExtractor;
+import cn.ponfee.commons.extract.DataExtractorBuilder;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+public class BatchPipelineTest {
+
+    private static final int ROWS = 10000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File csv() throws IOException {
+        File file = folder.newFile("data.csv");
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+            for (int i = 0; i < ROWS; i++) {
+                writer.println(i + ",name" + i + "," + (i * 2));
+            }
+        }
+        return file;
+    }
+
+    private static DataExtractor extractor(File file) {
+        return DataExtractorBuilder.newBuilder(file).headers(new String[] {"id", "name", "value"}).build();
+    }
+
+    @Test
+    public void testOrdered() throws IOException {
+        File file = csv();
+        List<Integer> checkpoints = new ArrayList<>();
+        List<Integer> result = new ArrayList<>();
+        BatchPipeline pipeline = BatchPipeline.builder()
+            .batchSize(128).parallelism(4).ordered(true).reuseRowBuffer(true)
+            .checkpoint(checkpoints::add)
+            .build();
+
+        int count = extractor(file).extract(pipeline, batch -> {
+            sleepRandom();
+            // mapper must not hold the reused row arrays
+            int[] ids = new int[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                Assert.assertEquals(batch.getRowNumber(i), Integer.parseInt(batch.get(i)[0]));
+                ids[i] = Integer.parseInt(batch.get(i)[0]);
+            }
+            return ids;
+        }, ids -> {
+            for (int id : ids) {
+                result.add(id);
+            }
+        });
+
+        Assert.assertEquals(ROWS, count);
+        Assert.assertEquals(ROWS, result.size());
+        for (int i = 0; i < ROWS; i++) {
+            Assert.assertEquals(i, result.get(i).intValue());
+        }
+        Assert.assertEquals(ROWS, checkpoints.get(checkpoints.size() - 1).intValue());
+        List<Integer> sorted = new ArrayList<>(checkpoints);
+        Collections.sort(sorted);
+        Assert.assertEquals(sorted, checkpoints);
+    }
+
+    @Test
+    public void testUnorderedWithResume() throws IOException {
+        File file = csv();
+        AtomicLong sum = new AtomicLong();
+        AtomicInteger lastCheckpoint = new AtomicInteger();
+        BatchPipeline pipeline = BatchPipeline.builder()
+            .batchSize(100).parallelism(3).queueCapacity(1).resumeFrom(5000)
+            .checkpoint(lastCheckpoint::set)
+            .build();
+
+        int count = extractor(file).extract(pipeline, batch -> {
+            sleepRandom();
+            batch.forEach((rowNumber, row) -> sum.addAndGet(Long.parseLong(row[0])));
+        });
+
+        Assert.assertEquals(ROWS - 5000, count);
+        Assert.assertEquals(IntStream.range(5000, ROWS).asLongStream().sum(), sum.get());
+        Assert.assertEquals(ROWS, lastCheckpoint.get());
+    }
+
+    @Test
+    public void testLegacyExtractor() throws IOException {
+        // the subclass only override the legacy extract(BiConsumer)
+        DataExtractor extractor = new DataExtractor(null, new String[] {"id"}) {
+            @Override
+            public void extract(BiConsumer<Integer, String[]> processor) {
+                for (int i = 0; i < ROWS && !end; i++) {
+                    processor.accept(i, new String[] {String.valueOf(i)});
+                }
+            }
+        };
+        Assert.assertEquals(ROWS, extractor.extract().size());
+
+        AtomicLong sum = new AtomicLong();
+        BatchPipeline pipeline = BatchPipeline.builder().batchSize(100).parallelism(2).build();
+        int count = extractor.extract(pipeline, batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                sum.addAndGet(Long.parseLong(batch.get(i)[0]));
+            }
+        });
+        Assert.assertEquals(ROWS, count);
+        Assert.assertEquals((long) ROWS * (ROWS - 1) / 2, sum.get());
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        File file = csv();
+        AtomicInteger lastCheckpoint = new AtomicInteger();
+        BatchPipeline pipeline = BatchPipeline.builder()
+            .batchSize(100).parallelism(2).ordered(true).checkpoint(lastCheckpoint::set).build();
+        try {
+            extractor(file).extract(pipeline, batch -> {
+                if (batch.getSequence() == 30) {
+                    throw new IllegalStateException("failed at " + batch.getFirstRowNumber());
+                }
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("failed at 3000", e.getMessage());
+        }
+        Assert.assertTrue(lastCheckpoint.get() <= 3000);
+    }
+
+    @Test
+    public void testExcel() throws IOException {
+        File file = folder.newFile("data.xlsx");
+        ExcelExporter exporter = new ExcelExporter();
+        exporter.setName("sheet1");
+        Table<Object[]> table = new Table<>(new String[] {"id", "name"});
+        exporter.build(table, IntStream.range(0, 1000).mapToObj(i -> new Object[] {i, "name" + i}).iterator());
+        exporter.write(file);
+
+        AtomicLong sum = new AtomicLong();
+        DataExtractor extractor = DataExtractorBuilder.newBuilder(file).startRow(1).streaming(false).build();
+        int count = extractor.extract(BatchPipeline.builder().batchSize(64).parallelism(2).build(),
+                                      batch -> batch.asList().forEach(row -> sum.addAndGet(Long.parseLong(row[0]))));
+        Assert.assertEquals(1000, count);
+        Assert.assertEquals(IntStream.range(0, 1000).asLongStream().sum(), sum.get());
+    }
+
+    private static void sleepRandom() {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
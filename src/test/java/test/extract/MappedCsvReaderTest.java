@@ -0,0 +1,177 @@
+package test.extract;
+
+import cn.ponfee.commons.extract.MappedCsvReader;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MappedCsvReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File write(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String[]> read(MappedCsvReader reader) throws IOException {
+        List<String[]> result = new ArrayList<>();
+        reader.collect(ArrayList<String[]>::new, (list, record) -> list.add(record.toArray())).forEach(result::addAll);
+        return result;
+    }
+
+    @Test
+    public void testQuoted() throws IOException {
+        File file = write("﻿id,name,remark\r\n1,\"a,b\",\"x\"\"y\"\r\n\r\n2,中文,\"line1\nline2\"\n3,,\n");
+        MappedCsvReader reader = MappedCsvReader.builder(file).header(true).build();
+        List<String[]> rows = read(reader);
+        Assert.assertArrayEquals(new String[]{"id", "name", "remark"}, reader.getHeaders());
+        Assert.assertEquals(3, rows.size());
+        Assert.assertArrayEquals(new String[]{"1", "a,b", "x\"y"}, rows.get(0));
+        Assert.assertArrayEquals(new String[]{"2", "中文", "line1\nline2"}, rows.get(1));
+        Assert.assertArrayEquals(new String[]{"3", "", ""}, rows.get(2));
+    }
+
+    @Test
+    public void testTypedAccessor() throws IOException {
+        File file = write("-123,9223372036854775807,-12.50,0.1,2023-05-06,\"42\",abc\n");
+        AtomicLong count = new AtomicLong();
+        MappedCsvReader.builder(file).build().forEach(record -> {
+            Assert.assertEquals(-123, record.getInt(0));
+            Assert.assertEquals(Long.MAX_VALUE, record.getLong(1));
+            Assert.assertEquals(new BigDecimal("-12.50"), record.getDecimal(2));
+            Assert.assertEquals(0.1D, record.getDouble(3), 0.0D);
+            Assert.assertEquals(LocalDate.of(2023, 5, 6), record.getDate(4, DateTimeFormatter.ISO_LOCAL_DATE));
+            Assert.assertEquals(42, record.getInt(5));
+            Assert.assertEquals("abc", record.get(6).toString());
+            Assert.assertEquals('b', record.get(6).charAt(1));
+            try {
+                record.getInt(6);
+                Assert.fail();
+            } catch (NumberFormatException ignored) {
+                // expected
+            }
+            count.incrementAndGet();
+        });
+        Assert.assertEquals(1, count.get());
+    }
+
+    @Test
+    public void testChunkedSameAsCommonsCsv() throws IOException {
+        Random random = new Random(7);
+        File file = folder.newFile();
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 3000; i++) {
+                writer.write(i + "," + field(random) + "," + field(random) + (i % 3 == 0 ? "\r\n" : "\n"));
+            }
+        }
+
+        List<String[]> expect = new ArrayList<>();
+        try (CSVParser parser = CSVParser.parse(file, StandardCharsets.UTF_8, CSVFormat.DEFAULT)) {
+            for (CSVRecord record : parser) {
+                String[] row = new String[record.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = record.get(i);
+                }
+                expect.add(row);
+            }
+        }
+
+        for (int chunkSize : new int[]{37, 256, 4096, Integer.MAX_VALUE}) {
+            List<String[]> actual = read(MappedCsvReader.builder(file).chunkSize(chunkSize).parallelism(4).build());
+            Assert.assertEquals(expect.size(), actual.size());
+            for (int i = 0; i < expect.size(); i++) {
+                Assert.assertArrayEquals("chunk " + chunkSize + ", row " + i, expect.get(i), actual.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testMidFieldQuoteSameAsCommonsCsv() throws IOException {
+        // quote in the middle of unquoted field is literal, it cannot change the chunk boundary
+        Random random = new Random(11);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append(i).append(',').append(random.nextInt(100)).append("\"").append(random.nextInt(100))
+                   .append(',').append(random.nextBoolean() ? "x" : "\"a,\"\"b\"\"\nc\"")
+                   .append(random.nextInt(5) == 0 ? "\r\n" : "\n");
+        }
+        File file = write(content.toString());
+        List<String[]> expect = commonsCsv(file, CSVFormat.DEFAULT);
+        Assert.assertEquals(2000, expect.size());
+        for (int chunkSize : new int[]{7, 13, 37, 256, 4096, Integer.MAX_VALUE}) {
+            assertRows("chunk " + chunkSize, expect, read(MappedCsvReader.builder(file).chunkSize(chunkSize).parallelism(4).build()));
+        }
+    }
+
+    @Test
+    public void testCustomQuote() throws IOException {
+        File file = write("1,'a,b','x''y'\n2,it's,'line1\nline2'\n");
+        List<String[]> expect = commonsCsv(file, CSVFormat.DEFAULT.builder().setQuote('\'').build());
+        Assert.assertArrayEquals(new String[]{"1", "a,b", "x'y"}, expect.get(0));
+        Assert.assertArrayEquals(new String[]{"2", "it's", "line1\nline2"}, expect.get(1));
+        for (int chunkSize : new int[]{5, 11, Integer.MAX_VALUE}) {
+            assertRows("chunk " + chunkSize, expect, read(MappedCsvReader.builder(file).quote('\'').chunkSize(chunkSize).build()));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnclosedQuote() throws IOException {
+        MappedCsvReader.builder(write("1,\"abc\n2,d\n")).build().forEach(record -> { });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedCharset() throws IOException {
+        MappedCsvReader.builder(write("a")).charset(StandardCharsets.UTF_16);
+    }
+
+    private static List<String[]> commonsCsv(File file, CSVFormat format) throws IOException {
+        List<String[]> result = new ArrayList<>();
+        try (CSVParser parser = CSVParser.parse(file, StandardCharsets.UTF_8, format)) {
+            for (CSVRecord record : parser) {
+                String[] row = new String[record.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = record.get(i);
+                }
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    private static void assertRows(String message, List<String[]> expect, List<String[]> actual) {
+        Assert.assertEquals(message, expect.size(), actual.size());
+        for (int i = 0; i < expect.size(); i++) {
+            Assert.assertArrayEquals(message + ", row " + i, expect.get(i), actual.get(i));
+        }
+    }
+
+    private static String field(Random random) {
+        String[] parts = {"plain", "with,comma", "with\"quote", "multi\nline", "crlf\r\nline", "", "中文", " space "};
+        String value = parts[random.nextInt(parts.length)] + random.nextInt(1000);
+        return value.matches("[\\w ]*") && random.nextBoolean()
+            ? value
+            : "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+}
@@ -0,0 +1,262 @@
+package test.http;
+
+import cn.ponfee.commons.http.Http;
+import cn.ponfee.commons.http.HttpException;
+import cn.ponfee.commons.http.HttpExecutor;
+import cn.ponfee.commons.http.HttpMetrics;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HttpExecutor test with the JDK embedded http server
+ */
+public class HttpExecutorTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUrl;
+    private final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", exchange -> {
+            remotePorts.add(exchange.getRemoteAddress().getPort());
+            String query = exchange.getRequestURI().getQuery();
+            byte[] body = query.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(query.contains("status=500") ? 500 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            concurrent.decrementAndGet();
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/error", exchange -> {
+            byte[] body = "error".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(500, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(16);
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testKeepAliveReuseConnection() {
+        try (HttpExecutor executor = HttpExecutor.builder().maxConnectionsPerHost(2).build()) {
+            for (int i = 0; i < 30; i++) {
+                Assert.assertEquals("a=" + i, executor.request(Http.get(baseUrl + "/echo").addParam("a", i)));
+            }
+            // error response body is drained, the connection still can be reused
+            Assert.assertEquals("error", executor.request(Http.get(baseUrl + "/error")));
+            Assert.assertEquals("a=x", executor.request(Http.get(baseUrl + "/echo").addParam("a", "x")));
+        }
+        Assert.assertEquals(1, remotePorts.size());
+    }
+
+    @Test
+    public void testUnreadResponse() throws Exception {
+        // count the accepted connections by proxy, each proxy has its own jdk keep-alive cache key
+        try (CountingProxy proxy = new CountingProxy(server.getAddress())) {
+            // the unread error response: disconnect will be close the connection
+            for (int i = 0; i < 3; i++) {
+                try {
+                    Http.get(proxy.url + "/echo").addParam("a", i).addParam("status", 500).download();
+                    Assert.fail();
+                } catch (HttpException ignored) {
+                    // ignored
+                }
+            }
+            Assert.assertEquals(3, proxy.accepted.get());
+        }
+
+        try (CountingProxy proxy = new CountingProxy(server.getAddress())) {
+            // keep alive: close the response stream, the jdk drain the remaining and reuse the connection
+            for (int i = 0; i < 3; i++) {
+                try {
+                    Http.get(proxy.url + "/echo").addParam("a", i).addParam("status", 500).keepAlive(true).download();
+                    Assert.fail();
+                } catch (HttpException ignored) {
+                    // ignored
+                }
+            }
+            Assert.assertEquals(1, proxy.accepted.get());
+        }
+    }
+
+    @Test
+    public void testKeepCallerMetrics() {
+        HttpMetrics own = new HttpMetrics();
+        try (HttpExecutor executor = HttpExecutor.builder().build()) {
+            Http http = Http.get(baseUrl + "/echo").addParam("a", 1).metrics(own);
+            Assert.assertEquals("a=1", executor.request(http));
+            Assert.assertSame(own, http.getMetrics());
+            String host = "127.0.0.1:" + server.getAddress().getPort();
+            Assert.assertEquals(1, own.host(host).getResponseCount());
+            Assert.assertEquals(0, executor.metrics().host(host).getResponseCount());
+        }
+    }
+
+    @Test
+    public void testAsyncAndMetrics() throws Exception {
+        ExecutorService async = Executors.newFixedThreadPool(4);
+        try (HttpExecutor executor = HttpExecutor.builder().executor(async).build()) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(executor.requestAsync(Http.get(baseUrl + "/echo").addParam("b", i)));
+            }
+            for (int i = 0; i < 20; i++) {
+                Assert.assertEquals("b=" + i, futures.get(i).get(5, TimeUnit.SECONDS));
+            }
+
+            HttpMetrics.Host host = executor.metrics().host("127.0.0.1:" + server.getAddress().getPort());
+            Assert.assertEquals(20, host.getResponseCount());
+            Assert.assertEquals(20, host.getConnect().getCount());
+            Assert.assertEquals(20, host.getTransfer().getCount());
+            Assert.assertEquals(0, host.getFailureCount());
+            Assert.assertTrue(host.getTtfb().getMax() > 0);
+        } finally {
+            async.shutdownNow();
+        }
+
+        // Http requestAsync
+        Assert.assertEquals("c=1", Http.get(baseUrl + "/echo").addParam("c", 1).requestAsync(Runnable::run).get());
+    }
+
+    @Test
+    public void testBatchWithPerHostLimit() throws Exception {
+        try (HttpExecutor executor = HttpExecutor.builder().maxConnectionsPerHost(3).build()) {
+            List<Http> https = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                https.add(Http.get(baseUrl + "/slow"));
+            }
+            List<String> results = executor.requestAll(https, 10).get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(12, results.size());
+            results.forEach(e -> Assert.assertEquals("ok", e));
+            Assert.assertTrue("max concurrent: " + maxConcurrent.get(), maxConcurrent.get() <= 3);
+            Assert.assertEquals(0, executor.inFlight("127.0.0.1:" + server.getAddress().getPort()));
+        }
+    }
+
+    @Test
+    public void testBatchFailure() throws Exception {
+        try (HttpExecutor executor = HttpExecutor.builder().build()) {
+            List<Http> https = new ArrayList<>();
+            https.add(Http.get(baseUrl + "/echo").addParam("a", 1));
+            https.add(Http.get("http://127.0.0.1:1/unreachable"));
+            try {
+                executor.requestAll(https, 1).get(10, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertNotNull(e.getCause());
+            }
+            Assert.assertEquals(1, executor.metrics().host("127.0.0.1:1").getFailureCount());
+        }
+    }
+
+    /**
+     * Tcp proxy which counts the accepted connections
+     */
+    private static class CountingProxy implements AutoCloseable {
+        private final ServerSocket serverSocket;
+        private final InetSocketAddress target;
+        private final String url;
+        private final AtomicInteger accepted = new AtomicInteger();
+        private final ExecutorService pipes = Executors.newCachedThreadPool();
+
+        private CountingProxy(InetSocketAddress target) throws IOException {
+            this.serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+            this.target = target;
+            this.url = "http://127.0.0.1:" + serverSocket.getLocalPort();
+            pipes.execute(this::accept);
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket client = serverSocket.accept();
+                    accepted.incrementAndGet();
+                    Socket upstream = new Socket(target.getAddress(), target.getPort());
+                    pipes.execute(() -> pipe(client, upstream));
+                    pipes.execute(() -> pipe(upstream, client));
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        }
+
+        private static void pipe(Socket from, Socket to) {
+            try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+                byte[] buffer = new byte[8192];
+                for (int n; (n = in.read(buffer)) != -1; ) {
+                    out.write(buffer, 0, n);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // closed
+            } finally {
+                closeQuietly(from);
+                closeQuietly(to);
+            }
+        }
+
+        private static void closeQuietly(Socket socket) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // ignored
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            pipes.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package test.http;
+
+import cn.ponfee.commons.http.Http;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Http streaming response decoding test with the JDK embedded http server
+ */
+public class HttpStreamingTest {
+
+    private static final int COUNT = 20000;
+
+    private HttpServer server;
+    private String baseUrl;
+
+    public static class Item {
+        public int id;
+        public String name;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/items", exchange -> {
+            boolean gzip = exchange.getRequestURI().getQuery() != null && exchange.getRequestURI().getQuery().contains("gzip");
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if (gzip) {
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, 0); // chunked
+            OutputStream out = exchange.getResponseBody();
+            if (gzip) {
+                out = new GZIPOutputStream(out);
+            }
+            try (OutputStream output = out) {
+                output.write('[');
+                for (int i = 0; i < COUNT; i++) {
+                    String item = (i == 0 ? "" : ",") + "{\"id\":" + i + ",\"name\":\"item-" + i + "\"}";
+                    output.write(item.getBytes(StandardCharsets.UTF_8));
+                }
+                output.write(']');
+            }
+        });
+        server.createContext("/gbk", exchange -> {
+            byte[] body = "{\"id\":1,\"name\":\"中文\"}".getBytes(Charset.forName("GBK"));
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=GBK");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/empty", exchange -> {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRequestStream() {
+        for (String url : new String[]{baseUrl + "/items", baseUrl + "/items?gzip"}) {
+            try (Stream<Item> stream = Http.get(url).requestStream(Item.class)) {
+                Iterator<Item> iterator = stream.iterator();
+                int expect = 0;
+                while (iterator.hasNext()) {
+                    Item item = iterator.next();
+                    Assert.assertEquals(expect, item.id);
+                    Assert.assertEquals("item-" + expect, item.name);
+                    expect++;
+                }
+                Assert.assertEquals(COUNT, expect);
+            }
+        }
+
+        // partial consume then close
+        try (Stream<Item> stream = Http.get(baseUrl + "/items?gzip").requestStream(Item.class)) {
+            Assert.assertEquals(10, stream.limit(10).count());
+        }
+    }
+
+    @Test
+    public void testRequestType() {
+        List<Map<String, Object>> list = Http.get(baseUrl + "/items?gzip").request(
+            TypeFactory.defaultInstance().constructCollectionType(List.class, Map.class)
+        );
+        Assert.assertEquals(COUNT, list.size());
+        Assert.assertEquals("item-9", list.get(9).get("name"));
+
+        Item item = Http.get(baseUrl + "/gbk").request(Item.class);
+        Assert.assertEquals(1, item.id);
+        Assert.assertEquals("中文", item.name);
+
+        Assert.assertNull(Http.get(baseUrl + "/empty").request(Item.class));
+    }
+
+    @Test
+    public void testDownload() throws Exception {
+        byte[] expect = Http.get(baseUrl + "/items").download();
+        Assert.assertEquals('[', expect[0]);
+        Assert.assertEquals(']', expect[expect.length - 1]);
+
+        File file = File.createTempFile("http_download", ".json");
+        try {
+            Http.get(baseUrl + "/items?gzip").bufferSize(256 * 1024).download(file);
+            Assert.assertArrayEquals(expect, Files.readAllBytes(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+}